@@ -0,0 +1,139 @@
+package concentration.benchmarks;
+
+import concentration.common.ConcentrationException;
+import concentration.server.ConcentrationBitBoard;
+import concentration.server.ConcentrationGameBoard;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of the bitset backed ConcentrationBitBoard used for marathon boards: construction, in place reset
+ * and a full game of matching reveals.
+ *
+ * @author Arya Girisha Rao, Pradeep Kumar Gontla.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ConcentrationBitBoardBenchmark {
+
+    /**
+     * Square dimension of the board.
+     */
+    @Param({"8", "64", "256"})
+    public int dim;
+
+    /**
+     * Seeded random generator used to shuffle the boards.
+     */
+    private SplittableRandom random;
+
+    /**
+     * Board played by the reveal benchmark, rebuilt before every invocation.
+     */
+    private ConcentrationGameBoard playBoard;
+
+    /**
+     * Cell coordinates of every pair of the play board, as row/col pairs.
+     */
+    private int[] solution;
+
+    /**
+     * Board reshuffled over and over by the reset benchmark.
+     */
+    private ConcentrationBitBoard resetBoard;
+
+    /**
+     * Creates the random generator and the board of the reset benchmark.
+     *
+     * @throws ConcentrationException if the dimension is illegal.
+     */
+    @Setup(Level.Trial)
+    public void setUpTrial() throws ConcentrationException {
+        random = new SplittableRandom(42);
+        resetBoard = new ConcentrationBitBoard(dim, random);
+    }
+
+    /**
+     * Creates a fresh board and its solution for the reveal benchmark.
+     *
+     * @throws ConcentrationException if the dimension is illegal.
+     */
+    @Setup(Level.Invocation)
+    public void setUpInvocation() throws ConcentrationException {
+        playBoard = new ConcentrationBitBoard(dim, random);
+        solution = new int[dim * dim * 2];
+        int[] firstSeen = new int[dim * dim / 2];
+        Arrays.fill(firstSeen, -1);
+        int next = 0;
+        for (int row = 0; row < dim; ++row) {
+            for (int col = 0; col < dim; ++col) {
+                int symbol = playBoard.getCard(row, col).getSymbol();
+                if (firstSeen[symbol] < 0) {
+                    firstSeen[symbol] = row * dim + col;
+                } else {
+                    solution[next++] = firstSeen[symbol] / dim;
+                    solution[next++] = firstSeen[symbol] % dim;
+                    solution[next++] = row;
+                    solution[next++] = col;
+                }
+            }
+        }
+    }
+
+    /**
+     * Board construction, including the shuffle of the letters.
+     *
+     * @return the new board.
+     * @throws ConcentrationException if the dimension is illegal.
+     */
+    @Benchmark
+    public ConcentrationGameBoard construct() throws ConcentrationException {
+        return new ConcentrationBitBoard(dim, random);
+    }
+
+    /**
+     * In place reset of a board, as done for every game started on a pooled board.
+     *
+     * @return the reset board.
+     */
+    @Benchmark
+    public ConcentrationBitBoard reset() {
+        resetBoard.reset(random);
+        return resetBoard;
+    }
+
+    /**
+     * A full game of matching reveal and updateRevealStatus calls.
+     *
+     * @param blackhole sink for the reveal results.
+     * @throws ConcentrationException if a reveal is illegal.
+     */
+    @Benchmark
+    public boolean revealSequence(Blackhole blackhole) throws ConcentrationException {
+        for (int i = 0; i < solution.length; i += 2) {
+            ConcentrationGameBoard.CardMatch cardMatch = playBoard.reveal(solution[i], solution[i + 1]);
+            if (cardMatch.isReady()) playBoard.updateRevealStatus(cardMatch);
+            blackhole.consume(cardMatch);
+        }
+        return playBoard.gameOver();
+    }
+}
@@ -0,0 +1,196 @@
+package concentration.benchmarks;
+
+import concentration.common.ConcentrationException;
+import concentration.server.ConcentrationBoard;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of the server side ConcentrationBoard: construction, in place reset, a full game of reveals and the
+ * string representation, for every legal board dimension.
+ *
+ * @author Arya Girisha Rao, Pradeep Kumar Gontla.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ConcentrationBoardBenchmark {
+
+    /**
+     * Square dimension of the board.
+     */
+    @Param({"2", "4", "6"})
+    public int dim;
+
+    /**
+     * Seeded random generator used by the seeded construction benchmark.
+     */
+    private SplittableRandom random;
+
+    /**
+     * Board played by the reveal benchmark, rebuilt before every invocation.
+     */
+    private ConcentrationBoard playBoard;
+
+    /**
+     * Cell coordinates revealed by the reveal benchmark, as row/col pairs.
+     */
+    private int[] revealOrder;
+
+    /**
+     * Board half way through a game, used by the toString benchmark.
+     */
+    private ConcentrationBoard printBoard;
+
+    /**
+     * Board reshuffled over and over by the reset benchmark.
+     */
+    private ConcentrationBoard resetBoard;
+
+    /**
+     * Creates the half played board for the toString benchmark.
+     *
+     * @throws ConcentrationException if the dimension is illegal.
+     */
+    @Setup(Level.Trial)
+    public void setUpTrial() throws ConcentrationException {
+        random = new SplittableRandom(42);
+        resetBoard = new ConcentrationBoard(dim, false, random);
+        printBoard = new ConcentrationBoard(dim);
+        int[] order = solve(printBoard);
+        for (int i = 0; i < order.length / 2; i += 2) {
+            ConcentrationBoard.CardMatch cardMatch = printBoard.reveal(order[i], order[i + 1]);
+            if (cardMatch.isReady()) printBoard.updateRevealStatus(cardMatch);
+        }
+    }
+
+    /**
+     * Creates a fresh board and its reveal order for the reveal benchmark. The order first mismatches every card
+     * with the next pair's card and then matches it, so both outcomes are measured.
+     *
+     * @throws ConcentrationException if the dimension is illegal.
+     */
+    @Setup(Level.Invocation)
+    public void setUpInvocation() throws ConcentrationException {
+        playBoard = new ConcentrationBoard(dim);
+        int[] solution = solve(playBoard);
+        int pairs = solution.length / 4;
+        revealOrder = new int[solution.length * 2 - 4];
+        int next = 0;
+        for (int pair = 0; pair < pairs; ++pair) {
+            int first = pair * 4;
+            if (pair + 1 < pairs) {
+                System.arraycopy(solution, first, revealOrder, next, 2);
+                System.arraycopy(solution, first + 4, revealOrder, next + 2, 2);
+                next += 4;
+            }
+            System.arraycopy(solution, first, revealOrder, next, 4);
+            next += 4;
+        }
+    }
+
+    /**
+     * Board construction, including the shuffle of the letters.
+     *
+     * @return the new board.
+     * @throws ConcentrationException if the dimension is illegal.
+     */
+    @Benchmark
+    public ConcentrationBoard construct() throws ConcentrationException {
+        return new ConcentrationBoard(dim);
+    }
+
+    /**
+     * Board construction shuffled by an injected seeded random generator.
+     *
+     * @return the new board.
+     * @throws ConcentrationException if the dimension is illegal.
+     */
+    @Benchmark
+    public ConcentrationBoard constructSeeded() throws ConcentrationException {
+        return new ConcentrationBoard(dim, false, random);
+    }
+
+    /**
+     * In place reset of a board, as done for every game started on a pooled board.
+     *
+     * @return the reset board.
+     */
+    @Benchmark
+    public ConcentrationBoard reset() {
+        resetBoard.reset(random);
+        return resetBoard;
+    }
+
+    /**
+     * A full game of reveal and updateRevealStatus calls, with one mismatch before every match.
+     *
+     * @param blackhole sink for the reveal results.
+     * @throws ConcentrationException if a reveal is illegal.
+     */
+    @Benchmark
+    public void revealSequence(Blackhole blackhole) throws ConcentrationException {
+        for (int i = 0; i < revealOrder.length; i += 2) {
+            ConcentrationBoard.CardMatch cardMatch = playBoard.reveal(revealOrder[i], revealOrder[i + 1]);
+            if (cardMatch.isReady()) playBoard.updateRevealStatus(cardMatch);
+            blackhole.consume(cardMatch);
+        }
+    }
+
+    /**
+     * String representation of a board half way through a game.
+     *
+     * @return the board as a string.
+     */
+    @Benchmark
+    public String boardToString() {
+        return printBoard.toString();
+    }
+
+    /**
+     * Finds the coordinates of every pair of a board.
+     *
+     * @param board the board to solve.
+     * @return row/col coordinates with the two cards of each pair next to each other.
+     * @throws ConcentrationException if the board cannot be read.
+     */
+    private static int[] solve(ConcentrationBoard board) throws ConcentrationException {
+        int dim = board.getDIM();
+        int[] firstSeen = new int[dim * dim];
+        Arrays.fill(firstSeen, -1);
+        int[] solution = new int[dim * dim * 2];
+        int next = 0;
+        for (int row = 0; row < dim; ++row) {
+            for (int col = 0; col < dim; ++col) {
+                int symbol = board.getCard(row, col).getSymbol();
+                if (firstSeen[symbol] < 0) {
+                    firstSeen[symbol] = row * dim + col;
+                } else {
+                    solution[next++] = firstSeen[symbol] / dim;
+                    solution[next++] = firstSeen[symbol] % dim;
+                    solution[next++] = row;
+                    solution[next++] = col;
+                }
+            }
+        }
+        return solution;
+    }
+}
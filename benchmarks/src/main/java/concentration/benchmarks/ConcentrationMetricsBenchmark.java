@@ -0,0 +1,97 @@
+package concentration.benchmarks;
+
+import concentration.server.metrics.ConcentrationMetrics;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of the instrumentation added to the server hot paths: what a session pays to record a flushed batch
+ * of replies, alone and with several sessions recording at once.
+ *
+ * @author Arya Girisha Rao, Pradeep Kumar Gontla.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ConcentrationMetricsBenchmark {
+
+    /**
+     * Latencies recorded by a benchmark thread, cycling over several histogram buckets.
+     */
+    @State(Scope.Thread)
+    public static class Latencies {
+        /**
+         * Number of latencies recorded so far.
+         */
+        private long sequence;
+
+        /**
+         * Get the next latency.
+         *
+         * @return latency in nanoseconds.
+         */
+        long next() {
+            return 20_000 + (sequence++ & 0xff) * 251;
+        }
+    }
+
+    /**
+     * Metrics shared by all the benchmark threads, like the sessions of a server share them.
+     */
+    private ConcentrationMetrics metrics;
+
+    /**
+     * Creates the metrics without registering them.
+     */
+    @Setup
+    public void setUp() {
+        metrics = new ConcentrationMetrics();
+    }
+
+    /**
+     * Records what a session records for a read and the flush of a card and its result.
+     *
+     * @param latencies latencies of the benchmark thread.
+     */
+    @Benchmark
+    public void recordBatch(Latencies latencies) {
+        recordFlush(latencies.next());
+    }
+
+    /**
+     * Same as recordBatch with four sessions recording at once.
+     *
+     * @param latencies latencies of the benchmark thread.
+     */
+    @Benchmark
+    @Threads(4)
+    public void recordBatchContended(Latencies latencies) {
+        recordFlush(latencies.next());
+    }
+
+    /**
+     * Records a read, then the flush of a card and its result.
+     *
+     * @param latency latency of the replies in nanoseconds.
+     */
+    private void recordFlush(long latency) {
+        metrics.bytesRead(11);
+        metrics.bytesWritten(32);
+        metrics.revealsAnswered(latency, 1);
+        metrics.resultsSent(latency, 1);
+    }
+}
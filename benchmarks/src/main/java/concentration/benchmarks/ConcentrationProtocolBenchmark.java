@@ -0,0 +1,271 @@
+package concentration.benchmarks;
+
+import concentration.client.controller.ConcentrationListener;
+import concentration.client.model.ConcentrationModel;
+import concentration.common.ConcentrationBinaryProtocol;
+import concentration.common.ConcentrationException;
+import concentration.common.ConcentrationProtocol;
+import concentration.common.ConcentrationTextCodec;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of the text ConcentrationProtocol hot paths: the server parsing a REVEAL and formatting its
+ * replies with ConcentrationTextCodec the way ConcentrationClientServerThread does, and the client processing the
+ * server messages through ConcentrationListener.processServerCommand. The binary* benchmarks measure the same paths
+ * with the frames of ConcentrationBinaryProtocol.
+ * <p>
+ * Every benchmark is expected to allocate nothing once warmed up; run with {@code -prof gc} and check that
+ * gc.alloc.rate.norm stays at about 0 B/op.
+ *
+ * @author Arya Girisha Rao, Pradeep Kumar Gontla.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ConcentrationProtocolBenchmark {
+
+    /**
+     * REVEAL line received by the server.
+     */
+    private ByteBuffer revealLine;
+
+    /**
+     * CARD line received by the client.
+     */
+    private ByteBuffer cardLine;
+
+    /**
+     * MATCH line received by the client.
+     */
+    private ByteBuffer matchLine;
+
+    /**
+     * MISMATCH line received by the client.
+     */
+    private ByteBuffer mismatchLine;
+
+    /**
+     * REVEAL frame received by the server.
+     */
+    private ByteBuffer revealFrame;
+
+    /**
+     * CARD frame received by the client.
+     */
+    private ByteBuffer cardFrame;
+
+    /**
+     * MISMATCH frame received by the client.
+     */
+    private ByteBuffer mismatchFrame;
+
+    /**
+     * Codec decoding the REVEAL lines on the server side.
+     */
+    private ConcentrationTextCodec codec;
+
+    /**
+     * Buffer the server encodes its replies into.
+     */
+    private ByteBuffer replyFrame;
+
+    /**
+     * Row of the revealed card, kept in a field so the formatting is not constant folded.
+     */
+    private int row;
+
+    /**
+     * Column of the revealed card, kept in a field so the formatting is not constant folded.
+     */
+    private int col;
+
+    /**
+     * Listener processing the server messages into a model without observers.
+     */
+    private ConcentrationListener listener;
+
+    /**
+     * Creates the messages and the client listener.
+     */
+    @Setup
+    public void setUp() {
+        row = 3;
+        col = 5;
+        revealLine = line(String.format(ConcentrationProtocol.REVEAL_MSG, row, col));
+        cardLine = line(String.format(ConcentrationProtocol.CARD_MSG, row, col, 'Q'));
+        matchLine = line(String.format(ConcentrationProtocol.MATCH_MSG, row, col, 1, 2));
+        mismatchLine = line(String.format(ConcentrationProtocol.MISMATCH_MSG, row, col, 1, 2));
+        codec = new ConcentrationTextCodec();
+        revealFrame = ByteBuffer.allocate(ConcentrationBinaryProtocol.REVEAL_LENGTH);
+        ConcentrationBinaryProtocol.putReveal(revealFrame, row, col);
+        cardFrame = ByteBuffer.allocate(ConcentrationBinaryProtocol.CARD_LENGTH);
+        ConcentrationBinaryProtocol.putCard(cardFrame, row, col, 'Q' - 'A');
+        mismatchFrame = ByteBuffer.allocate(ConcentrationBinaryProtocol.RESULT_LENGTH);
+        ConcentrationBinaryProtocol.putResult(mismatchFrame, false, row, col, 1, 2);
+        replyFrame = ByteBuffer.allocate(ConcentrationTextCodec.MAX_LINE_LENGTH);
+        ConcentrationModel model = new ConcentrationModel();
+        model.createBoard(6);
+        listener = new ConcentrationListener(null, model, false);
+    }
+
+    /**
+     * Creates a buffer holding a message line.
+     *
+     * @param message the message without its line terminator.
+     * @return the buffer, in read mode.
+     */
+    private static ByteBuffer line(String message) {
+        return ByteBuffer.wrap((message + "\n").getBytes(StandardCharsets.US_ASCII));
+    }
+
+    /**
+     * Server side parsing of a REVEAL line, mirroring ConcentrationClientServerThread.
+     *
+     * @return the parsed coordinates combined in one value.
+     * @throws ConcentrationException if the command is unknown.
+     */
+    @Benchmark
+    public int serverParseReveal() throws ConcentrationException {
+        revealLine.clear();
+        codec.decode(revealLine);
+        if (codec.getCommand() != ConcentrationTextCodec.REVEAL) throw new ConcentrationException("Unknown Command");
+        return codec.getRow() * 31 + codec.getCol();
+    }
+
+    /**
+     * Server side formatting of a CARD reply, mirroring ConcentrationClientServerThread.
+     *
+     * @return the CARD line.
+     */
+    @Benchmark
+    public ByteBuffer serverFormatCard() {
+        replyFrame.clear();
+        ConcentrationTextCodec.encodeCard(replyFrame, row, col, 'Q' - 'A');
+        return replyFrame;
+    }
+
+    /**
+     * Server side formatting of a MISMATCH reply, mirroring ConcentrationClientServerThread.
+     *
+     * @return the MISMATCH line.
+     */
+    @Benchmark
+    public ByteBuffer serverFormatMismatch() {
+        replyFrame.clear();
+        ConcentrationTextCodec.encodeResult(replyFrame, false, row, col, 1, 2);
+        return replyFrame;
+    }
+
+    /**
+     * Client side processing of a CARD line.
+     *
+     * @return whether the line was complete.
+     * @throws ConcentrationException if the line is malformed.
+     */
+    @Benchmark
+    public boolean clientProcessCard() throws ConcentrationException {
+        cardLine.clear();
+        return listener.processServerCommand(cardLine);
+    }
+
+    /**
+     * Client side processing of a MATCH line.
+     *
+     * @return whether the line was complete.
+     * @throws ConcentrationException if the line is malformed.
+     */
+    @Benchmark
+    public boolean clientProcessMatch() throws ConcentrationException {
+        matchLine.clear();
+        return listener.processServerCommand(matchLine);
+    }
+
+    /**
+     * Client side processing of a MISMATCH line.
+     *
+     * @return whether the line was complete.
+     * @throws ConcentrationException if the line is malformed.
+     */
+    @Benchmark
+    public boolean clientProcessMismatch() throws ConcentrationException {
+        mismatchLine.clear();
+        return listener.processServerCommand(mismatchLine);
+    }
+
+    /**
+     * Server side decoding of a REVEAL frame, mirroring ConcentrationNioSession.
+     *
+     * @return the decoded coordinates combined in one value.
+     * @throws ConcentrationException if the opcode is unknown.
+     */
+    @Benchmark
+    public int binaryServerParseReveal() throws ConcentrationException {
+        revealFrame.clear();
+        if (revealFrame.get() != ConcentrationBinaryProtocol.REVEAL) throw new ConcentrationException("Unknown Command");
+        return ConcentrationBinaryProtocol.getCoordinate(revealFrame) * 31 + ConcentrationBinaryProtocol.getCoordinate(revealFrame);
+    }
+
+    /**
+     * Server side encoding of a CARD frame.
+     *
+     * @return the encoded frame.
+     */
+    @Benchmark
+    public ByteBuffer binaryServerFormatCard() {
+        replyFrame.clear();
+        ConcentrationBinaryProtocol.putCard(replyFrame, row, col, 'Q' - 'A');
+        return replyFrame;
+    }
+
+    /**
+     * Server side encoding of a MISMATCH frame.
+     *
+     * @return the encoded frame.
+     */
+    @Benchmark
+    public ByteBuffer binaryServerFormatMismatch() {
+        replyFrame.clear();
+        ConcentrationBinaryProtocol.putResult(replyFrame, false, row, col, 1, 2);
+        return replyFrame;
+    }
+
+    /**
+     * Client side processing of a CARD frame.
+     *
+     * @return whether the frame was complete.
+     * @throws ConcentrationException if the frame is unknown.
+     */
+    @Benchmark
+    public boolean binaryClientProcessCard() throws ConcentrationException {
+        cardFrame.clear();
+        return listener.processServerFrame(cardFrame);
+    }
+
+    /**
+     * Client side processing of a MISMATCH frame.
+     *
+     * @return whether the frame was complete.
+     * @throws ConcentrationException if the frame is unknown.
+     */
+    @Benchmark
+    public boolean binaryClientProcessMismatch() throws ConcentrationException {
+        mismatchFrame.clear();
+        return listener.processServerFrame(mismatchFrame);
+    }
+}
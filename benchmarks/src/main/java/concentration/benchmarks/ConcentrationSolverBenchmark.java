@@ -0,0 +1,87 @@
+package concentration.benchmarks;
+
+import concentration.common.ConcentrationException;
+import concentration.server.ConcentrationGameBoard;
+import concentration.solver.ConcentrationMemoryPlayer;
+import concentration.solver.ConcentrationSolver;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of the greedy perfect-memory solver playing whole games in process. The time per game divided by the
+ * number of cards should stay flat as the boards grow, the solver being linear in the number of cards.
+ *
+ * @author Arya Girisha Rao, Pradeep Kumar Gontla.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ConcentrationSolverBenchmark {
+
+    /**
+     * Square dimension of the board.
+     */
+    @Param({"4", "16", "64", "256"})
+    public int dim;
+
+    /**
+     * Seeded random generator shuffling the boards.
+     */
+    private SplittableRandom random;
+
+    /**
+     * Player reused by every game, as the load generator does.
+     */
+    private ConcentrationMemoryPlayer player;
+
+    /**
+     * Board played by the benchmark, rebuilt before every invocation.
+     */
+    private ConcentrationGameBoard board;
+
+    /**
+     * Creates the random generator and the player.
+     */
+    @Setup(Level.Trial)
+    public void setUpTrial() {
+        random = new SplittableRandom(42);
+        player = new ConcentrationMemoryPlayer();
+    }
+
+    /**
+     * Creates a fresh board for the next game.
+     *
+     * @throws ConcentrationException if the dimension is illegal.
+     */
+    @Setup(Level.Invocation)
+    public void setUpInvocation() throws ConcentrationException {
+        board = ConcentrationGameBoard.newBoard(dim, random);
+    }
+
+    /**
+     * A whole game played by the greedy perfect-memory player.
+     *
+     * @return the outcome of the game.
+     * @throws ConcentrationException if the board contradicts the player's memory.
+     */
+    @Benchmark
+    public ConcentrationSolver.Result solve() throws ConcentrationException {
+        return ConcentrationSolver.solve(board, player);
+    }
+}
@@ -1,12 +1,16 @@
 package concentration.client.controller;
 
 import concentration.client.model.ConcentrationModel;
+import concentration.common.ConcentrationBinaryProtocol;
+import concentration.common.ConcentrationProtocol;
+import concentration.common.ConcentrationTextCodec;
 
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStreamReader;
-import java.io.PrintWriter;
+import java.io.OutputStream;
 import java.net.Socket;
+import java.nio.ByteBuffer;
 
 /**
  * Controller for Concentration board game. Sends the user action requests in GUI to server.
@@ -30,9 +34,19 @@ public class ConcentrationController {
      */
     private BufferedReader serverReader;
     /**
-     * printWriter established with server to send messages to server.
+     * Output stream established with server to send messages to server.
      */
-    private PrintWriter serverWriter;
+    private OutputStream serverOutput;
+
+    /**
+     * Whether to ask the server for the binary protocol. Once the game started, whether the server agreed.
+     */
+    private boolean binary;
+
+    /**
+     * Reusable buffer the REVEAL requests are encoded into.
+     */
+    private final ByteBuffer request = ByteBuffer.allocate(ConcentrationTextCodec.MAX_LINE_LENGTH);
 
     /**
      * Concentration game Listener. Used to read responses from server.
@@ -40,18 +54,32 @@ public class ConcentrationController {
     ConcentrationListener concentrationListener;
 
     /**
-     * Creates a new Concentration Controller Object. Used by GUI to update according to user action.
+     * Creates a new Concentration Controller Object playing the text protocol. Used by GUI to update according
+     * to user action.
      *
      * @param hostName   hostName of the server to play Concentration game with.
      * @param portNumber port number of the server to play Concentration game with.
      * @param model      Concentration Game model.
      */
     public ConcentrationController(String hostName, int portNumber, ConcentrationModel model) {
+        this(hostName, portNumber, model, false);
+    }
+
+    /**
+     * Creates a new Concentration Controller Object.
+     *
+     * @param hostName   hostName of the server to play Concentration game with.
+     * @param portNumber port number of the server to play Concentration game with.
+     * @param model      Concentration Game model.
+     * @param binary     whether to ask the server for the binary protocol, falling back to text if it refuses.
+     */
+    public ConcentrationController(String hostName, int portNumber, ConcentrationModel model, boolean binary) {
         this.model = model;
+        this.binary = binary;
         try {
             server = new Socket(hostName, portNumber);
             serverReader = new BufferedReader(new InputStreamReader(server.getInputStream()));
-            serverWriter = new PrintWriter(server.getOutputStream(), true);
+            serverOutput = server.getOutputStream();
         } catch (IOException e) {
             e.printStackTrace();
         }
@@ -64,7 +92,17 @@ public class ConcentrationController {
      * @param col column value of the card clicked for reveal.
      */
     public void revealHiddenCard(int row, int col) {
-        serverWriter.println(String.format(concentration.common.ConcentrationProtocol.REVEAL_MSG, row, col));
+        request.clear();
+        if (binary) {
+            ConcentrationBinaryProtocol.putReveal(request, row, col);
+        } else {
+            ConcentrationTextCodec.encodeReveal(request, row, col);
+        }
+        try {
+            serverOutput.write(request.array(), 0, request.position());
+        } catch (IOException e) {
+            System.err.println("Failed to send the reveal. Error details: " + e.getMessage());
+        }
     }
 
     /**
@@ -90,10 +128,18 @@ public class ConcentrationController {
         try {
             String serverInput = serverReader.readLine();
             model.createBoard(Integer.parseInt(serverInput.split(" ")[1]));
+            if (binary) {
+                request.clear();
+                ConcentrationTextCodec.encodeBinary(request, ConcentrationBinaryProtocol.VERSION);
+                serverOutput.write(request.array(), 0, request.position());
+                binary = String.format(ConcentrationProtocol.BINARY_OK_MSG, ConcentrationBinaryProtocol.VERSION).equals(serverReader.readLine());
+            }
         } catch (IOException e) {
             throw new Exception("Failed to Start Concentration Controller. Error details: " + e.getMessage());
         }
-        concentrationListener = new ConcentrationListener(serverReader, model);
+        // the server sends nothing after BOARD_DIM and the handshake until the first reveal, so the reader holds no
+        // bytes of its own and the listener can read the socket directly
+        concentrationListener = new ConcentrationListener(server.getInputStream(), model, binary);
         concentrationListener.start();
     }
 }
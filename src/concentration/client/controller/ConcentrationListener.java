@@ -1,15 +1,20 @@
 package concentration.client.controller;
 
 import concentration.client.model.ConcentrationModel;
+import concentration.common.ConcentrationBinaryProtocol;
 import concentration.common.ConcentrationException;
+import concentration.common.ConcentrationTextCodec;
 
-import java.io.BufferedReader;
-import java.util.Arrays;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
 
 /**
  * Listener for Concentration board game. Keeps checking if there are any message from the server.
  * On reading the message, calls model with corresponding method to update the board state accordingly.
- * Does not hold any information about the game. Uses Concentration Protocol to communicate with the Server.
+ * Does not hold any information about the game. Uses Concentration Protocol to communicate with the Server,
+ * or the binary ConcentrationBinaryProtocol when the controller negotiated it. Messages are decoded from a reusable
+ * buffer, so processing them does not allocate.
  *
  * @author Arya Girisha Rao, Pradeep Kumar Gontla.
  */
@@ -17,55 +22,93 @@ import java.util.Arrays;
 public class ConcentrationListener extends Thread {
 
     /**
-     * reader for the socket connected with server.
+     * input stream of the socket connected with server.
      */
-    private final BufferedReader bufferedReader;
+    private final InputStream serverInput;
 
     /**
      * Concentration game model to update the game status accordingly.
      */
     private final ConcentrationModel model;
 
+    /**
+     * Whether the server sends binary frames instead of text lines.
+     */
+    private final boolean binary;
+
+    /**
+     * Decoder of the text lines received.
+     */
+    private final ConcentrationTextCodec codec;
+
     /**
      * Creates new Concentration Listener. Runs as a thread.
      *
-     * @param bufferedReader reader with the socket connected with server.
-     * @param model          Concentration game model to update the game status accordingly.
+     * @param serverInput input stream of the socket connected with server.
+     * @param model       Concentration game model to update the game status accordingly.
+     * @param binary      whether the server sends binary frames instead of text lines.
      */
-    public ConcentrationListener(BufferedReader bufferedReader, ConcentrationModel model) {
+    public ConcentrationListener(InputStream serverInput, ConcentrationModel model, boolean binary) {
         this.model = model;
-        this.bufferedReader = bufferedReader;
+        this.serverInput = serverInput;
+        this.binary = binary;
+        this.codec = new ConcentrationTextCodec();
     }
 
     /**
-     * Executes the command received
+     * Executes the next command line received
      *
-     * @param serverInput Message received from the server.
+     * @param serverInput Bytes received from the server, in read mode. The position moves past the line executed.
+     * @return whether a complete line was executed.
      * @throws ConcentrationException Error while processing,
      */
-    public void processServerCommand(String serverInput) throws ConcentrationException {
-        try {
-            String[] serverInputList = serverInput.split(" ");
-            switch (serverInputList[0]) {
-                case "CARD" -> model.revealCard(Integer.parseInt(serverInputList[1]), Integer.parseInt(serverInputList[2]), serverInputList[3].charAt(0));
-                case "MATCH" -> model.updateMatchCount();
-                case "MISMATCH" -> model.hideOpenedCards(Arrays.copyOfRange(serverInputList, 1, 5));
-                case "GAME_OVER" -> model.setGameOver();
-            }
-        } catch (IndexOutOfBoundsException | NumberFormatException e) {
-            throw new ConcentrationException(e);
+    public boolean processServerCommand(ByteBuffer serverInput) throws ConcentrationException {
+        if (!codec.decode(serverInput)) return false;
+        switch (codec.getCommand()) {
+            case ConcentrationTextCodec.CARD -> model.revealCard(codec.getRow(), codec.getCol(), codec.getSymbol());
+            case ConcentrationTextCodec.MATCH -> model.updateMatchCount();
+            case ConcentrationTextCodec.MISMATCH -> model.hideOpenedCards(codec.getRow(), codec.getCol(), codec.getRow2(), codec.getCol2());
+            case ConcentrationTextCodec.GAME_OVER -> model.setGameOver();
         }
+        return true;
+    }
 
+    /**
+     * Executes the next binary frame received
+     *
+     * @param serverInput Bytes received from the server, in read mode. The position moves past the frame executed.
+     * @return whether a complete frame was executed.
+     * @throws ConcentrationException if the frame is unknown.
+     */
+    public boolean processServerFrame(ByteBuffer serverInput) throws ConcentrationException {
+        if (!ConcentrationBinaryProtocol.hasFrame(serverInput)) return false;
+        switch (serverInput.get()) {
+            case ConcentrationBinaryProtocol.CARD -> model.revealCard(ConcentrationBinaryProtocol.getCoordinate(serverInput), ConcentrationBinaryProtocol.getCoordinate(serverInput), ConcentrationBinaryProtocol.getSymbol(serverInput));
+            case ConcentrationBinaryProtocol.MATCH -> {
+                serverInput.position(serverInput.position() + ConcentrationBinaryProtocol.RESULT_LENGTH - 1);
+                model.updateMatchCount();
+            }
+            case ConcentrationBinaryProtocol.MISMATCH -> model.hideOpenedCards(ConcentrationBinaryProtocol.getCoordinate(serverInput), ConcentrationBinaryProtocol.getCoordinate(serverInput),
+                    ConcentrationBinaryProtocol.getCoordinate(serverInput), ConcentrationBinaryProtocol.getCoordinate(serverInput));
+            case ConcentrationBinaryProtocol.GAME_OVER -> model.setGameOver();
+        }
+        return true;
     }
 
     /**
      * Starts the listener thread. Keeps checking if there are any messages and processes read messages.
      */
     public void run() {
-        String serverInput;
         try {
-            while ((serverInput = bufferedReader.readLine()) != null) {
-                processServerCommand(serverInput);
+            ByteBuffer buffer = ByteBuffer.allocate(ConcentrationTextCodec.MAX_LINE_LENGTH);
+            int read;
+            while ((read = serverInput.read(buffer.array(), buffer.position(), buffer.remaining())) >= 0) {
+                buffer.position(buffer.position() + read).flip();
+                boolean processed = true;
+                while (processed) {
+                    processed = binary ? processServerFrame(buffer) : processServerCommand(buffer);
+                }
+                buffer.compact();
             }
         } catch (Exception e) {
             System.err.println("Ending Game Listener. Reason: " + e.getMessage());
@@ -0,0 +1,302 @@
+package concentration.client.gui;
+
+import concentration.client.model.ConcentrationModel;
+import concentration.common.ConcentrationCard;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.input.MouseButton;
+import javafx.scene.input.MouseEvent;
+import javafx.scene.input.ScrollEvent;
+import javafx.scene.paint.Color;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.function.BiConsumer;
+
+/**
+ * Board of the Concentration game drawn on a single Canvas, for boards too large for one Button per card.
+ * The canvas is a fixed size viewport onto the board: only the cards inside it are drawn, straight from the
+ * cached card images, so the scene graph holds one node whatever the size of the board. Scrolling pans the
+ * viewport, scrolling with Control held or pinching zooms it around the pointer, and a click is mapped back to the
+ * row and column of the card under it. The generated patterns are drawn at the size of the cards from a
+ * ConcentrationCardAtlas, so zooming out over thousands of distinct cards does not scale down a full size image
+ * for each of them.
+ *
+ * @author Arya Girisha Rao, Pradeep Kumar Gontla.
+ */
+
+public class ConcentrationBoardCanvas extends Canvas {
+
+    /**
+     * Largest width and height of the viewport in pixels.
+     */
+    static final double VIEWPORT_SIZE = 800;
+
+    /**
+     * Smallest width and height of a card in pixels, when zoomed out the most.
+     */
+    private static final double MIN_CELL_SIZE = 4;
+
+    /**
+     * Factor by which one step of the mouse wheel zooms in or out.
+     */
+    private static final double ZOOM_STEP = 1.25;
+
+    /**
+     * Colour of the gaps between the cards.
+     */
+    private static final Color BACKGROUND = Color.LIGHTGRAY;
+
+    /**
+     * Dimension of the board.
+     */
+    private final int dimension;
+
+    /**
+     * Symbol of every card drawn, in row major order, HIDDEN_SYMBOL for the cards yet to open. Kept to draw the
+     * cards that scroll into the viewport.
+     */
+    private final int[] symbols;
+
+    /**
+     * Images of the cards.
+     */
+    private final ConcentrationCardImages images;
+
+    /**
+     * Generated patterns at the current size of the cards.
+     */
+    private final ConcentrationCardAtlas atlas;
+
+    /**
+     * Called with the row and column of a card clicked.
+     */
+    private final BiConsumer<Integer, Integer> onClick;
+
+    /**
+     * Width and height of a card in pixels at the current zoom.
+     */
+    private double cellSize;
+
+    /**
+     * Horizontal position of the viewport on the board, in pixels at the current zoom.
+     */
+    private double offsetX;
+
+    /**
+     * Vertical position of the viewport on the board, in pixels at the current zoom.
+     */
+    private double offsetY;
+
+    /**
+     * Creates the canvas of a board whose cards are all hidden, before anything is drawn on it.
+     *
+     * @param dimension Dimension of the board.
+     * @param images    Images of the cards.
+     * @param onClick   Called with the row and column of a card clicked.
+     */
+    private ConcentrationBoardCanvas(int dimension, ConcentrationCardImages images, BiConsumer<Integer, Integer> onClick) {
+        super(fitViewport(dimension), fitViewport(dimension));
+        this.dimension = dimension;
+        this.symbols = new int[dimension * dimension];
+        Arrays.fill(this.symbols, ConcentrationCard.HIDDEN_SYMBOL);
+        this.images = images;
+        this.atlas = new ConcentrationCardAtlas(dimension * dimension);
+        this.onClick = onClick;
+        this.cellSize = fitCellSize(dimension);
+        this.atlas.resize(cellSize, glyphSize(cellSize));
+    }
+
+    /**
+     * Creates the canvas of a board whose cards are all hidden, zoomed to fit the viewport when the cards do not
+     * get smaller than MIN_CELL_SIZE, and draws it.
+     *
+     * @param dimension Dimension of the board.
+     * @param images    Images of the cards.
+     * @param onClick   Called with the row and column of a card clicked.
+     * @return the canvas.
+     */
+    public static ConcentrationBoardCanvas create(int dimension, ConcentrationCardImages images,
+                                                  BiConsumer<Integer, Integer> onClick) {
+        ConcentrationBoardCanvas canvas = new ConcentrationBoardCanvas(dimension, images, onClick);
+        canvas.setOnScroll(canvas::scroll);
+        canvas.setOnZoom(event -> canvas.zoom(event.getZoomFactor(), event.getX(), event.getY()));
+        canvas.setOnMouseClicked(canvas::click);
+        canvas.drawViewport();
+        return canvas;
+    }
+
+    /**
+     * Get the size of the cards when the board is zoomed to fit the viewport as far as MIN_CELL_SIZE allows.
+     *
+     * @param dimension Dimension of the board.
+     * @return width and height of a card in pixels.
+     */
+    private static double fitCellSize(int dimension) {
+        return Math.max(MIN_CELL_SIZE, Math.min(ConcentrationCardImages.CARD_SIZE, VIEWPORT_SIZE / dimension));
+    }
+
+    /**
+     * Get the width and height of the viewport, smaller than VIEWPORT_SIZE when the whole board fits.
+     *
+     * @param dimension Dimension of the board.
+     * @return size of the viewport in pixels.
+     */
+    private static double fitViewport(int dimension) {
+        return Math.min(VIEWPORT_SIZE, dimension * fitCellSize(dimension));
+    }
+
+    /**
+     * Get the gap left around a card, once it is large enough to spare one.
+     *
+     * @param cellSize width and height of a card in pixels, gap included.
+     * @return width of the gap in pixels.
+     */
+    private static double gap(double cellSize) {
+        return Math.min(2, Math.floor(cellSize / 8));
+    }
+
+    /**
+     * Get the size of the patterns drawn for cards of a size.
+     *
+     * @param cellSize width and height of a card in pixels, gap included.
+     * @return width and height of a pattern in pixels.
+     */
+    private static int glyphSize(double cellSize) {
+        return Math.max(1, (int) Math.round(cellSize - 2 * gap(cellSize)));
+    }
+
+    /**
+     * Update the cards whose cell changed with the new status, drawing those inside the viewport.
+     *
+     * @param state        state of the model, holding the symbols of the changed cells.
+     * @param changedCells row major numbers of the changed cells.
+     */
+    public void updateCells(ConcentrationModel.State state, BitSet changedCells) {
+        GraphicsContext graphics = getGraphicsContext2D();
+        int index = 0;
+        for (int cell = changedCells.nextSetBit(0); cell >= 0; cell = changedCells.nextSetBit(cell + 1)) {
+            symbols[cell] = state.getSymbol(index++);
+            int row = cell / dimension;
+            int col = cell % dimension;
+            if (isVisible(row, col)) drawCell(graphics, row, col);
+        }
+    }
+
+    /**
+     * Draws every card inside the viewport.
+     */
+    private void drawViewport() {
+        GraphicsContext graphics = getGraphicsContext2D();
+        graphics.setFill(BACKGROUND);
+        graphics.fillRect(0, 0, getWidth(), getHeight());
+        int firstRow = (int) (offsetY / cellSize);
+        int lastRow = Math.min(dimension - 1, (int) ((offsetY + getHeight()) / cellSize));
+        int firstCol = (int) (offsetX / cellSize);
+        int lastCol = Math.min(dimension - 1, (int) ((offsetX + getWidth()) / cellSize));
+        for (int row = firstRow; row <= lastRow; ++row) {
+            for (int col = firstCol; col <= lastCol; ++col) {
+                drawCell(graphics, row, col);
+            }
+        }
+    }
+
+    /**
+     * Draws one card, leaving a gap around it once it is large enough to spare one.
+     *
+     * @param graphics graphics context of the canvas.
+     * @param row      row of the card.
+     * @param col      column of the card.
+     */
+    private void drawCell(GraphicsContext graphics, int row, int col) {
+        double x = col * cellSize - offsetX;
+        double y = row * cellSize - offsetY;
+        double gap = gap(cellSize);
+        double size = cellSize - 2 * gap;
+        int symbol = symbols[row * dimension + col];
+        graphics.setFill(BACKGROUND);
+        graphics.fillRect(x, y, cellSize, cellSize);
+        if (symbol == ConcentrationCard.HIDDEN_SYMBOL) {
+            graphics.setImageSmoothing(true);
+            graphics.drawImage(images.defaultPokeBall, x + gap, y + gap, size, size);
+        } else if (images.isGenerated(symbol) && symbol < symbols.length) {
+            // the patterns are drawn at about the size of the card: smoothing would blend in the next slot
+            int slot = atlas.slot(symbol);
+            int glyph = atlas.getGlyphSize();
+            graphics.setImageSmoothing(false);
+            graphics.drawImage(atlas.getImage(), atlas.getX(slot), atlas.getY(slot), glyph, glyph,
+                    x + gap, y + gap, size, size);
+        } else {
+            graphics.setImageSmoothing(true);
+            graphics.drawImage(images.getImage(symbol), x + gap, y + gap, size, size);
+        }
+    }
+
+    /**
+     * Check if any part of a card is inside the viewport.
+     *
+     * @param row row of the card.
+     * @param col column of the card.
+     * @return whether the card is visible.
+     */
+    private boolean isVisible(int row, int col) {
+        return (col + 1) * cellSize > offsetX && col * cellSize < offsetX + getWidth()
+                && (row + 1) * cellSize > offsetY && row * cellSize < offsetY + getHeight();
+    }
+
+    /**
+     * Pans the viewport, or zooms it when Control is held.
+     *
+     * @param event the scroll.
+     */
+    private void scroll(ScrollEvent event) {
+        if (event.isControlDown()) {
+            if (event.getDeltaY() != 0) zoom(event.getDeltaY() > 0 ? ZOOM_STEP : 1 / ZOOM_STEP, event.getX(), event.getY());
+        } else {
+            moveTo(offsetX - event.getDeltaX(), offsetY - event.getDeltaY());
+        }
+        event.consume();
+    }
+
+    /**
+     * Zooms the viewport, keeping the point of the board under the pointer where it is.
+     *
+     * @param factor factor by which the cards grow.
+     * @param x      horizontal position of the pointer on the canvas.
+     * @param y      vertical position of the pointer on the canvas.
+     */
+    private void zoom(double factor, double x, double y) {
+        double size = Math.max(MIN_CELL_SIZE, Math.min(ConcentrationCardImages.CARD_SIZE, cellSize * factor));
+        if (size == cellSize) return;
+        double boardX = (offsetX + x) / cellSize;
+        double boardY = (offsetY + y) / cellSize;
+        cellSize = size;
+        atlas.resize(cellSize, glyphSize(cellSize));
+        moveTo(boardX * cellSize - x, boardY * cellSize - y);
+    }
+
+    /**
+     * Moves the viewport, keeping it on the board, and draws it again.
+     *
+     * @param x new horizontal position of the viewport on the board.
+     * @param y new vertical position of the viewport on the board.
+     */
+    private void moveTo(double x, double y) {
+        double boardSize = dimension * cellSize;
+        offsetX = Math.max(0, Math.min(boardSize - getWidth(), x));
+        offsetY = Math.max(0, Math.min(boardSize - getHeight(), y));
+        drawViewport();
+    }
+
+    /**
+     * Passes a click on a card to onClick.
+     *
+     * @param event the click.
+     */
+    private void click(MouseEvent event) {
+        if (event.getButton() != MouseButton.PRIMARY) return;
+        int row = (int) ((offsetY + event.getY()) / cellSize);
+        int col = (int) ((offsetX + event.getX()) / cellSize);
+        if (row < dimension && col < dimension) onClick.accept(row, col);
+    }
+}
@@ -0,0 +1,143 @@
+package concentration.client.gui;
+
+import javafx.scene.image.Image;
+import javafx.scene.image.WritableImage;
+
+import java.util.Arrays;
+
+/**
+ * Generated card patterns of a board canvas, drawn at the size of its cards and packed side by side in a single
+ * image, so drawing a card copies a few pixels instead of scaling a full size image down. The atlas has a slot for
+ * every card the viewport can show at once, so one draw of the viewport never runs out of slots, whatever the
+ * number of distinct symbols on the board.
+ * <p>
+ * Pixels of a slot are never written twice: the canvas draws the image only at the next pulse, so a slot drawn
+ * again would change cards already drawn. Once the slots run out or the cards change size, the next pattern goes
+ * to a new image and the old one is dropped when the canvas is done with it.
+ *
+ * @author Arya Girisha Rao, Pradeep Kumar Gontla.
+ */
+
+class ConcentrationCardAtlas {
+
+    /**
+     * Slot of every symbol in the current image, -1 for the symbols not drawn in it.
+     */
+    private final int[] slotOf;
+
+    /**
+     * Symbol drawn in every slot used, to forget them when a new image is started.
+     */
+    private int[] symbolIn;
+
+    /**
+     * Number of slots in each row and column of the image.
+     */
+    private int columns;
+
+    /**
+     * Width and height of a pattern in pixels.
+     */
+    private int glyphSize;
+
+    /**
+     * Image the patterns are drawn into, null until the first pattern at the current size is drawn.
+     */
+    private WritableImage image;
+
+    /**
+     * Number of slots used in the image.
+     */
+    private int used;
+
+    /**
+     * Creates an empty atlas.
+     *
+     * @param symbols Number of symbols on the board.
+     */
+    ConcentrationCardAtlas(int symbols) {
+        this.slotOf = new int[symbols];
+        Arrays.fill(this.slotOf, -1);
+        this.symbolIn = new int[0];
+    }
+
+    /**
+     * Set the size of the cards, starting a new image on the next pattern drawn if it changed.
+     *
+     * @param cellSize  width and height of a card on the canvas, gaps included.
+     * @param glyphSize width and height of a pattern in pixels.
+     */
+    void resize(double cellSize, int glyphSize) {
+        // the cards of the viewport span one more row and column than fit in it when they are cut at its edges
+        int columns = (int) Math.ceil(ConcentrationBoardCanvas.VIEWPORT_SIZE / cellSize) + 1;
+        if (glyphSize == this.glyphSize && columns == this.columns) return;
+        this.glyphSize = glyphSize;
+        this.columns = columns;
+        this.image = null;
+    }
+
+    /**
+     * Get the slot of a symbol, drawing its pattern into a free one on first use.
+     *
+     * @param symbol symbol of the card.
+     * @return slot of the pattern in getImage.
+     */
+    int slot(int symbol) {
+        int slot = slotOf[symbol];
+        if (slot >= 0 && image != null) return slot;
+        if (image == null || used == columns * columns) startImage();
+        slot = used++;
+        slotOf[symbol] = slot;
+        symbolIn[slot] = symbol;
+        ConcentrationCardImages.drawPattern(symbol, image.getPixelWriter(), getX(slot), getY(slot), glyphSize);
+        return slot;
+    }
+
+    /**
+     * Forget every pattern drawn and start a new image.
+     */
+    private void startImage() {
+        for (int i = 0; i < used; ++i) slotOf[symbolIn[i]] = -1;
+        if (symbolIn.length != columns * columns) symbolIn = new int[columns * columns];
+        used = 0;
+        image = new WritableImage(columns * glyphSize, columns * glyphSize);
+    }
+
+    /**
+     * Get the image holding the patterns. Changes when a slot is taken, so call it after slot.
+     *
+     * @return the image.
+     */
+    Image getImage() {
+        return image;
+    }
+
+    /**
+     * Get the horizontal position of a slot in the image.
+     *
+     * @param slot the slot.
+     * @return position of its left edge in pixels.
+     */
+    int getX(int slot) {
+        return slot % columns * glyphSize;
+    }
+
+    /**
+     * Get the vertical position of a slot in the image.
+     *
+     * @param slot the slot.
+     * @return position of its top edge in pixels.
+     */
+    int getY(int slot) {
+        return slot / columns * glyphSize;
+    }
+
+    /**
+     * Get the width and height of a pattern in the image.
+     *
+     * @return size of a pattern in pixels.
+     */
+    int getGlyphSize() {
+        return glyphSize;
+    }
+}
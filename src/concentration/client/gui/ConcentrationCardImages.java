@@ -1,17 +1,18 @@
 package concentration.client.gui;
 
 import javafx.scene.image.Image;
+import javafx.scene.image.PixelWriter;
+import javafx.scene.image.WritableImage;
+import javafx.scene.paint.Color;
 
-import java.io.InputStream;
 import java.util.*;
-import java.util.function.BiConsumer;
-import java.util.function.Consumer;
-import java.util.function.Function;
-import java.util.function.IntConsumer;
-import java.util.stream.IntStream;
 
 /**
- * Pokemon Images for Concentration board game. Randomly assigns some pokemon image to all the possible values of cards.
+ * Pokemon Images for Concentration board game. Randomly assigns some pokemon image to the first card symbols and a
+ * procedurally generated pattern to the rest, so boards with thousands of pairs need no extra image files.
+ * Images are created lazily the first time a symbol is shown and kept in a bounded cache. They are full size, for
+ * the grid of buttons; the canvas of a large board only takes the pokemons from here and draws the patterns at the
+ * size of its cards through a ConcentrationCardAtlas.
  *
  * @author Arya Girisha Rao, Pradeep Kumar Gontla.
  */
@@ -19,9 +20,24 @@ import java.util.stream.IntStream;
 public class ConcentrationCardImages {
 
     /**
-     * Map to store a Pokemon image to a corresponding Character. 'A': Abra is one such example.
+     * Width and height of every card image in pixels, the size of the pokemon images.
      */
-    Map<Character, Image> imageMap;
+    static final int CARD_SIZE = 100;
+
+    /**
+     * Number of cells in each row and column of a generated pattern.
+     */
+    private static final int PATTERN_CELLS = 5;
+
+    /**
+     * Most images kept in the cache. Evicted images are created again when they are shown next.
+     */
+    private static final int MAX_CACHED_IMAGES = 1024;
+
+    /**
+     * Cache of the images created so far, from card symbol to image, least recently used first.
+     */
+    private final Map<Integer, Image> imageMap;
 
     /**
      * Default case of Pokeball image.
@@ -32,18 +48,89 @@ public class ConcentrationCardImages {
             "golem", "golbat", "jigglypuff", "magikarp", "poliwag", "psyduck", "rattata", "slowpoke", "squirtle", "meowth", "mewtwo", "natu"));
 
     /**
-     * Creates a Pokemon images class with map of character to images of pokemons.
+     * Creates a Pokemon images class. Only the assignment of pokemons to symbols is decided here, no card image
+     * is loaded until it is needed.
      */
     public ConcentrationCardImages() {
+        Collections.shuffle(availablePokeMon);
+        imageMap = new LinkedHashMap<>(64, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, Image> eldest) {
+                return size() > MAX_CACHED_IMAGES;
+            }
+        };
+    }
+
+    /**
+     * Get the image of a card symbol, creating it on first use.
+     *
+     * @param symbol symbol of the card.
+     * @return image of the card.
+     */
+    public Image getImage(int symbol) {
+        return imageMap.computeIfAbsent(symbol, this::createImage);
+    }
 
-        String fileNameFormat = "images/%s.png";
-        List<Image> imageList = new ArrayList<>();
-        Function<String, Image> createImageObjects = s -> new Image(Objects.requireNonNull(ConcentrationCardImages.class.getResourceAsStream(s)));
-        availablePokeMon.forEach((String p) -> imageList.add(createImageObjects.apply(String.format(fileNameFormat, p))));
-        Collections.shuffle(imageList);
-        imageMap = new HashMap<>();
-        IntConsumer insertImage = (integer) -> imageMap.put((char)(integer +'A'), imageList.get(integer));
-        IntStream.range(0, 18).forEach(insertImage);
+    /**
+     * Create the image of a card symbol: a pokemon while they last, a generated pattern afterwards.
+     *
+     * @param symbol symbol of the card.
+     * @return image of the card.
+     */
+    private Image createImage(int symbol) {
+        if (symbol < availablePokeMon.size()) {
+            String fileName = String.format("images/%s.png", availablePokeMon.get(symbol));
+            return new Image(Objects.requireNonNull(ConcentrationCardImages.class.getResourceAsStream(fileName)));
+        }
+        return generateImage(symbol);
+    }
+
+    /**
+     * Check if the image of a card symbol is a generated pattern rather than a pokemon.
+     *
+     * @param symbol symbol of the card.
+     * @return whether the image is generated.
+     */
+    public boolean isGenerated(int symbol) {
+        return symbol >= availablePokeMon.size();
+    }
+
+    /**
+     * Generate the full size image of a card symbol.
+     *
+     * @param symbol symbol of the card.
+     * @return generated image of the card.
+     * @see #drawPattern(int, PixelWriter, int, int, int)
+     */
+    static Image generateImage(int symbol) {
+        WritableImage image = new WritableImage(CARD_SIZE, CARD_SIZE);
+        drawPattern(symbol, image.getPixelWriter(), 0, 0, CARD_SIZE);
+        return image;
+    }
+
+    /**
+     * Draw a mirrored 5x5 pattern for a card symbol into a square of pixels. The 15 free cells of the pattern come
+     * from the symbol multiplied by an odd constant, which is a bijection on 15 bit numbers, so every symbol below
+     * 32768 gets a distinct pattern. The colour follows the golden angle so neighbouring symbols look different too.
+     *
+     * @param symbol symbol of the card.
+     * @param writer writer of the image drawn into.
+     * @param left   horizontal position of the square in the image.
+     * @param top    vertical position of the square in the image.
+     * @param size   width and height of the square in pixels.
+     */
+    static void drawPattern(int symbol, PixelWriter writer, int left, int top, int size) {
+        int pattern = (symbol * 0x5bd1) & 0x7fff;
+        Color color = Color.hsb((symbol * 137.508) % 360, 0.75, 0.8);
+        for (int y = 0; y < size; ++y) {
+            int row = y * PATTERN_CELLS / size;
+            for (int x = 0; x < size; ++x) {
+                int col = x * PATTERN_CELLS / size;
+                // columns 3 and 4 mirror columns 1 and 0
+                int bit = row * 3 + Math.min(col, PATTERN_CELLS - 1 - col);
+                writer.setColor(left + x, top + y, (pattern & (1 << bit)) != 0 ? color : Color.WHITE);
+            }
+        }
     }
 
 }
@@ -3,6 +3,7 @@ package concentration.client.gui;
 import concentration.client.controller.ConcentrationController;
 import concentration.client.model.ConcentrationModel;
 import concentration.client.model.Observer;
+import concentration.common.ConcentrationCard;
 import javafx.application.Application;
 import javafx.application.Platform;
 import javafx.collections.ObservableList;
@@ -17,10 +18,12 @@ import javafx.scene.layout.GridPane;
 import javafx.scene.text.Text;
 import javafx.stage.Stage;
 
+import java.util.BitSet;
 import java.util.List;
 import java.util.function.BiConsumer;
 import java.util.function.Consumer;
 import java.util.function.Function;
+import java.util.function.IntConsumer;
 
 
 /**
@@ -31,6 +34,11 @@ import java.util.function.Function;
 
 public class ConcentrationGUI extends Application implements Observer<ConcentrationModel> {
 
+    /**
+     * Largest board dimension shown as a grid of buttons. Larger boards are drawn on a ConcentrationBoardCanvas.
+     */
+    private static final int MAX_GRID_DIMENSION = 16;
+
     /**
      * Text field to display number of moves made by the user.
      */
@@ -41,6 +49,50 @@ public class ConcentrationGUI extends Application implements Observer<Concentrat
      */
     private GridPane gridPane;
 
+    /**
+     * The graphic of every button, in row major order. Each button keeps its ImageView for the whole game and
+     * only the image shown by it changes.
+     */
+    private ImageView[] cardViews;
+
+    /**
+     * Canvas the board is drawn on instead of the GridPane, for boards larger than MAX_GRID_DIMENSION.
+     */
+    private ConcentrationBoardCanvas boardCanvas;
+
+    /**
+     * Lock guarding the cells and the refresh pending.
+     */
+    private final Object pendingLock = new Object();
+
+    /**
+     * Cells changed by the model updates received since the last refresh was scheduled. Guarded by pendingLock.
+     */
+    private BitSet pendingCells;
+
+    /**
+     * Adds a changed cell to the pending cells, whichever set they are after the last swap. Kept in a field so
+     * draining the changed cells of the model allocates nothing. Called with pendingLock held.
+     */
+    private final IntConsumer addPendingCell = cell -> pendingCells.set(cell);
+
+    /**
+     * Cells drawn by the refresh in progress, swapped with pendingCells so neither set is allocated again.
+     * Only used on the JavaFX thread.
+     */
+    private BitSet drawnCells;
+
+    /**
+     * Whether a refresh is scheduled on the JavaFX thread and has not taken the pending cells yet. Guarded by
+     * pendingLock.
+     */
+    private boolean refreshScheduled;
+
+    /**
+     * Copy of the model drawn by the refreshes. Only used on the JavaFX thread.
+     */
+    private final ConcentrationModel.State state = new ConcentrationModel.State();
+
     /**
      * Text field to display status of the game.
      */
@@ -56,7 +108,7 @@ public class ConcentrationGUI extends Application implements Observer<Concentrat
     private ConcentrationModel model;
 
     /**
-     * Object which is having all the available images of pokemon for every possible character of the card.
+     * Object which provides the image of pokemon, or a generated image, for every possible symbol of the card.
      */
     private ConcentrationCardImages pokeMonImages;
     /**
@@ -76,6 +128,8 @@ public class ConcentrationGUI extends Application implements Observer<Concentrat
 
         model = new ConcentrationModel();
         model.addObserver(this);
+        pendingCells = new BitSet();
+        drawnCells = new BitSet();
 
         controller = new ConcentrationController(args.get(0), Integer.parseInt(args.get(1)), model);
         pokeMonImages = new ConcentrationCardImages();
@@ -107,8 +161,15 @@ public class ConcentrationGUI extends Application implements Observer<Concentrat
 
         BorderPane borderPane = new BorderPane();
         FlowPane flowPane = new FlowPane();
-        gridPane = makeGridPane();
-        borderPane.setCenter(gridPane);
+        if (model.getDimension() <= MAX_GRID_DIMENSION) {
+            gridPane = makeGridPane();
+            borderPane.setCenter(gridPane);
+        } else {
+            boardCanvas = ConcentrationBoardCanvas.create(model.getDimension(), pokeMonImages, (row, col) -> {
+                if (model.isValidClick(row, col)) this.controller.revealHiddenCard(row, col);
+            });
+            borderPane.setCenter(boardCanvas);
+        }
 
         flowPane.getChildren().addAll(movesMade, matchCount, status);
         flowPane.setHgap(120);
@@ -130,10 +191,12 @@ public class ConcentrationGUI extends Application implements Observer<Concentrat
     private GridPane makeGridPane() {
         GridPane gridPane = new GridPane();
         int dimension = model.getDimension();
+        cardViews = new ImageView[dimension * dimension];
         for (int row = 0; row < dimension; ++row) {
             for (int col = 0; col < dimension; ++col) {
                 Button button = new Button();
-                button.setGraphic(new ImageView(pokeMonImages.defaultPokeBall));
+                cardViews[row * dimension + col] = new ImageView(pokeMonImages.defaultPokeBall);
+                button.setGraphic(cardViews[row * dimension + col]);
                 int rowValue = row;
                 int colValue = col;
                 button.setOnAction((actionEvent) -> {
@@ -146,56 +209,58 @@ public class ConcentrationGUI extends Application implements Observer<Concentrat
     }
 
     /**
-     * Update all the buttons' image with the new status.
+     * Update the image of the buttons, or the cards of the canvas, whose cell changed with the new status, leaving
+     * the others untouched.
      * Get the pokemon assigned to each character from Image Map and display accordingly.
      *
-     * @param concentrationModel Concentration model for the game.
+     * @param state        state of the model, holding the symbols of the changed cells.
+     * @param changedCells row major numbers of the changed cells.
      */
-    private void updateGridPane(ConcentrationModel concentrationModel) {
-        Function<Character, Image> getImage = (charValue) -> {
-            if (charValue == '.') return pokeMonImages.defaultPokeBall;
-            else return pokeMonImages.imageMap.get(charValue);
+    private void updateGridPane(ConcentrationModel.State state, BitSet changedCells) {
+        if (boardCanvas != null) {
+            boardCanvas.updateCells(state, changedCells);
+            return;
+        }
+        Function<Integer, Image> getImage = (symbol) -> {
+            if (symbol == ConcentrationCard.HIDDEN_SYMBOL) return pokeMonImages.defaultPokeBall;
+            else return pokeMonImages.getImage(symbol);
         };
-        Function<Integer, Button> getGridButton = (position -> (Button) gridPane.getChildren().get(position));
-        int dimension = concentrationModel.getDimension();
-
-        for (int row = 0; row < dimension; ++row) {
-            for (int col = 0; col < dimension; ++col) {
-                getGridButton.apply(row * dimension + col).setGraphic(new ImageView(getImage.apply(concentrationModel.getCellValue(row, col))));
-            }
+        int index = 0;
+        for (int cell = changedCells.nextSetBit(0); cell >= 0; cell = changedCells.nextSetBit(cell + 1)) {
+            cardViews[cell].setImage(getImage.apply(state.getSymbol(index++)));
         }
     }
 
     /**
      * Update the moves count in the game with the updated value from the model.
      *
-     * @param concentrationModel Concentration model for the game.
+     * @param state state of the model.
      */
-    private void updateMovesCount(ConcentrationModel concentrationModel) {
-        movesMade.setText("Moves: " + concentrationModel.getMovesMade());
+    private void updateMovesCount(ConcentrationModel.State state) {
+        movesMade.setText("Moves: " + state.getMovesMade());
     }
 
     /**
      * Update status of the game with the updated value from the model.
      *
-     * @param concentrationModel Concentration model for the game.
+     * @param state state of the model.
      */
-    private void updateStatus(ConcentrationModel concentrationModel) {
+    private void updateStatus(ConcentrationModel.State state) {
         BiConsumer<Text, Boolean> setGameOverStatus = ((text, aBoolean) -> {
             if (aBoolean) text.setText("Status: GAME_OVER");
             else text.setText("Status: IN_PROGRESS");
         });
-        setGameOverStatus.accept(status, concentrationModel.isGameOver());
+        setGameOverStatus.accept(status, state.isGameOver());
 
     }
 
     /**
      * Update the Number of Matches with the updated value from the model.
      *
-     * @param concentrationModel Concentration model for the game.
+     * @param state state of the model.
      */
-    private void updateMatchCount(ConcentrationModel concentrationModel) {
-        matchCount.setText("Matches: " + concentrationModel.getMatches());
+    private void updateMatchCount(ConcentrationModel.State state) {
+        matchCount.setText("Matches: " + state.getMatches());
     }
 
     /**
@@ -203,36 +268,71 @@ public class ConcentrationGUI extends Application implements Observer<Concentrat
      * Once the game results in IN_PROGRESS or GAME Over, window is not closed, but all the actions are disabled.
      */
     private void disableGame() {
+        if (boardCanvas != null) {
+            boardCanvas.setDisable(true);
+            return;
+        }
         ObservableList<Node> listOfButtons = gridPane.getChildren();
         Consumer<Node> disableButton = node -> node.setDisable(true);
         listOfButtons.forEach(disableButton);
     }
 
     /**
-     * Method to refresh the UI everytime model has updated its state/status.
+     * Method to refresh the UI everytime model has updated its state/status. Everything drawn comes from one
+     * consistent copy of the model, even while the listener keeps updating it.
      *
      * @param concentrationModel Concentration model for the game.
+     * @param changedCells       row major numbers of the cells changed by the updates.
      */
-    private void refresh(ConcentrationModel concentrationModel) {
-        updateMovesCount(concentrationModel);
-        updateMatchCount(concentrationModel);
-        updateStatus(concentrationModel);
-        updateGridPane(concentrationModel);
-        if (concentrationModel.isGameOver()) disableGame();
+    private void refresh(ConcentrationModel concentrationModel, BitSet changedCells) {
+        concentrationModel.read(changedCells, state);
+        updateMovesCount(state);
+        updateMatchCount(state);
+        updateStatus(state);
+        updateGridPane(state, changedCells);
+        if (state.isGameOver()) disableGame();
+    }
+
+    /**
+     * Refreshes the UI once with every update received since the refresh was scheduled. Runs on the JavaFX
+     * thread.
+     *
+     * @param concentrationModel Concentration model for the game.
+     */
+    private void refreshPending(ConcentrationModel concentrationModel) {
+        BitSet changedCells;
+        synchronized (pendingLock) {
+            refreshScheduled = false;
+            changedCells = pendingCells;
+            pendingCells = drawnCells;
+            drawnCells = changedCells;
+        }
+        this.refresh(concentrationModel, changedCells);
+        changedCells.clear();
     }
 
     /**
      * Performs update whenever the Model indicates that it's state has changed.
-     * Gets called from notifyObservers function of the model.
+     * Gets called from notifyObservers function of the model. The changed cells are drained right away into the
+     * pending ones, the model forgets them once the notification is over. Updates are coalesced: they only add
+     * their cells to the pending ones, and at most one refresh is waiting on the JavaFX thread at any time, so a
+     * burst of server messages costs one refresh instead of one per message.
      *
      * @param concentrationModel Concentration model for the game.
      */
     @Override
     public void update(ConcentrationModel concentrationModel) {
+        boolean schedule;
+        synchronized (pendingLock) {
+            concentrationModel.drainChangedCells(addPendingCell);
+            schedule = !refreshScheduled;
+            refreshScheduled = true;
+        }
+        if (!schedule) return;
         if (Platform.isFxApplicationThread()) {
-            this.refresh(concentrationModel);
+            this.refreshPending(concentrationModel);
         } else {
-            Platform.runLater(() -> this.refresh(concentrationModel));
+            Platform.runLater(() -> this.refreshPending(concentrationModel));
         }
     }
 
@@ -0,0 +1,301 @@
+package concentration.client.load;
+
+import concentration.common.ConcentrationException;
+
+/**
+ * Command line configuration of the load generator. Holds the mandatory server address along with the optional
+ * flags that shape the load: how many sessions, how they play and how they are driven.
+ *
+ * @author Arya Girisha Rao, Pradeep Kumar Gontla.
+ */
+
+public class ConcentrationLoadConfig {
+
+    /**
+     * Usage message printed when the command line arguments are invalid.
+     */
+    public static final String USAGE = "Usage: Java Concentration Load Generator <Hostname> <PortNumber>"
+            + " [--sessions=N] [--games=N] [--games-per-connection=N] [--think=MILLIS] [--ramp-up=MILLIS] [--timeout=MILLIS]"
+            + " [--strategy=random|memory] [--protocol=text|binary] [--io=virtual|nio] [--event-loops=N]";
+
+    /**
+     * The strategies the simulated players can use.
+     */
+    public enum Strategy {
+        /**
+         * reveal hidden cards at random without remembering any of them.
+         */
+        RANDOM,
+        /**
+         * remember every card seen and match known pairs first, checking the server against that memory.
+         */
+        MEMORY
+    }
+
+    /**
+     * The protocols the simulated players can speak.
+     */
+    public enum Protocol {
+        /**
+         * the line based text protocol.
+         */
+        TEXT,
+        /**
+         * the framed binary protocol, negotiated after the board dimensions.
+         */
+        BINARY
+    }
+
+    /**
+     * The ways the sessions can be driven.
+     */
+    public enum Io {
+        /**
+         * one virtual thread per session blocking on its socket.
+         */
+        VIRTUAL,
+        /**
+         * a small fixed set of selector based event loops shared by all the sessions.
+         */
+        NIO
+    }
+
+    /**
+     * Name of the host running the server.
+     */
+    private final String hostname;
+
+    /**
+     * Port number the server listens on.
+     */
+    private final int portNumber;
+
+    /**
+     * Number of concurrent sessions.
+     */
+    private int sessions = 100;
+
+    /**
+     * Number of games played one after the other by every session.
+     */
+    private int games = 1;
+
+    /**
+     * Number of games played over one connection before it is closed, the games after the first are asked with
+     * NEW_GAME. 1 opens a new connection for every game.
+     */
+    private int gamesPerConnection = 1;
+
+    /**
+     * Time in milliseconds a player thinks before every reveal.
+     */
+    private long thinkMillis = 0;
+
+    /**
+     * Time in milliseconds over which the sessions are started, evenly spread.
+     */
+    private long rampUpMillis = 0;
+
+    /**
+     * Time in milliseconds a session waits for the server to connect or reply before failing its game.
+     */
+    private long timeoutMillis = 10000;
+
+    /**
+     * Strategy of the players.
+     */
+    private Strategy strategy = Strategy.RANDOM;
+
+    /**
+     * Protocol spoken by the players.
+     */
+    private Protocol protocol = Protocol.TEXT;
+
+    /**
+     * Way the sessions are driven.
+     */
+    private Io io = Io.VIRTUAL;
+
+    /**
+     * Number of event loop threads used by the NIO driver.
+     */
+    private int eventLoops = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * Creates a configuration with the default load settings.
+     *
+     * @param hostname   Name of the host running the server.
+     * @param portNumber Port number the server listens on.
+     */
+    public ConcentrationLoadConfig(String hostname, int portNumber) {
+        this.hostname = hostname;
+        this.portNumber = portNumber;
+    }
+
+    /**
+     * Parses the CLI arguments of the load generator. Required format is hostname port_number followed by any
+     * number of optional --flag=value arguments.
+     *
+     * @param args CLI Arguments received from the user.
+     * @return the parsed configuration.
+     * @throws ConcentrationException if the arguments are missing or malformed.
+     */
+    public static ConcentrationLoadConfig parse(String[] args) throws ConcentrationException {
+        if (args.length < 2) {
+            throw new ConcentrationException(USAGE);
+        }
+        ConcentrationLoadConfig config;
+        try {
+            config = new ConcentrationLoadConfig(args[0], Integer.parseInt(args[1]));
+            for (int i = 2; i < args.length; ++i) {
+                String[] flag = args[i].split("=", 2);
+                if (flag.length != 2) throw new ConcentrationException("Malformed option: " + args[i]);
+                switch (flag[0]) {
+                    case "--sessions" -> config.sessions = Integer.parseInt(flag[1]);
+                    case "--games" -> config.games = Integer.parseInt(flag[1]);
+                    case "--games-per-connection" -> config.gamesPerConnection = Integer.parseInt(flag[1]);
+                    case "--think" -> config.thinkMillis = Long.parseLong(flag[1]);
+                    case "--ramp-up" -> config.rampUpMillis = Long.parseLong(flag[1]);
+                    case "--timeout" -> config.timeoutMillis = Long.parseLong(flag[1]);
+                    case "--strategy" -> config.strategy = Strategy.valueOf(flag[1].toUpperCase());
+                    case "--protocol" -> config.protocol = Protocol.valueOf(flag[1].toUpperCase());
+                    case "--io" -> config.io = Io.valueOf(flag[1].toUpperCase());
+                    case "--event-loops" -> config.eventLoops = Integer.parseInt(flag[1]);
+                    default -> throw new ConcentrationException("Unknown option: " + flag[0]);
+                }
+            }
+        } catch (IllegalArgumentException e) {
+            throw new ConcentrationException(e);
+        }
+        if (config.sessions < 1) {
+            throw new ConcentrationException("Sessions must be positive: " + config.sessions);
+        }
+        if (config.games < 1) {
+            throw new ConcentrationException("Games must be positive: " + config.games);
+        }
+        if (config.gamesPerConnection < 1) {
+            throw new ConcentrationException("Games per connection must be positive: " + config.gamesPerConnection);
+        }
+        if (config.thinkMillis < 0) {
+            throw new ConcentrationException("Think time must not be negative: " + config.thinkMillis);
+        }
+        if (config.rampUpMillis < 0) {
+            throw new ConcentrationException("Ramp up must not be negative: " + config.rampUpMillis);
+        }
+        if (config.timeoutMillis < 1) {
+            throw new ConcentrationException("Timeout must be positive: " + config.timeoutMillis);
+        }
+        if (config.eventLoops < 1) {
+            throw new ConcentrationException("Event loops must be positive: " + config.eventLoops);
+        }
+        return config;
+    }
+
+    /**
+     * Get the name of the host running the server.
+     *
+     * @return hostname.
+     */
+    public String getHostname() {
+        return hostname;
+    }
+
+    /**
+     * Get the port number the server listens on.
+     *
+     * @return port number.
+     */
+    public int getPortNumber() {
+        return portNumber;
+    }
+
+    /**
+     * Get the number of concurrent sessions.
+     *
+     * @return number of sessions.
+     */
+    public int getSessions() {
+        return sessions;
+    }
+
+    /**
+     * Get the number of games played by every session.
+     *
+     * @return number of games.
+     */
+    public int getGames() {
+        return games;
+    }
+
+    /**
+     * Get the number of games played over one connection.
+     *
+     * @return number of games per connection.
+     */
+    public int getGamesPerConnection() {
+        return gamesPerConnection;
+    }
+
+    /**
+     * Get the time a player thinks before every reveal.
+     *
+     * @return think time in milliseconds.
+     */
+    public long getThinkMillis() {
+        return thinkMillis;
+    }
+
+    /**
+     * Get the time over which the sessions are started.
+     *
+     * @return ramp up time in milliseconds.
+     */
+    public long getRampUpMillis() {
+        return rampUpMillis;
+    }
+
+    /**
+     * Get the time a session waits for the server before failing its game.
+     *
+     * @return timeout in milliseconds.
+     */
+    public long getTimeoutMillis() {
+        return timeoutMillis;
+    }
+
+    /**
+     * Get the strategy of the players.
+     *
+     * @return player strategy.
+     */
+    public Strategy getStrategy() {
+        return strategy;
+    }
+
+    /**
+     * Get the protocol spoken by the players.
+     *
+     * @return protocol.
+     */
+    public Protocol getProtocol() {
+        return protocol;
+    }
+
+    /**
+     * Get the way the sessions are driven.
+     *
+     * @return io driver.
+     */
+    public Io getIo() {
+        return io;
+    }
+
+    /**
+     * Get the number of event loop threads used by the NIO driver.
+     *
+     * @return number of event loops.
+     */
+    public int getEventLoops() {
+        return eventLoops;
+    }
+}
@@ -0,0 +1,378 @@
+package concentration.client.load;
+
+import concentration.common.ConcentrationException;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketTimeoutException;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Event loop of the NIO load driver, the client side twin of the server's ConcentrationEventLoop. A single thread
+ * owns one Selector and drives a share of the sessions: it connects them, feeds them the bytes received, writes
+ * their reveals and wakes them up when their think time has passed, so thousands of sessions need only a few
+ * threads and the load generator saturates the server instead of itself.
+ *
+ * @author Arya Girisha Rao, Pradeep Kumar Gontla.
+ */
+
+public class ConcentrationLoadEventLoop implements Runnable {
+
+    /**
+     * A session driven by the loop along with its current connection.
+     */
+    private static final class Client {
+        /**
+         * The simulated client.
+         */
+        private final ConcentrationLoadSession session;
+
+        /**
+         * Number of games the session still has to play, the current one included.
+         */
+        private int gamesLeft;
+
+        /**
+         * Channel of the current game, null between games.
+         */
+        private SocketChannel channel;
+
+        /**
+         * Key of the channel in the loop's selector.
+         */
+        private SelectionKey key;
+
+        /**
+         * System.nanoTime() value after which the game fails if the server has not connected or replied.
+         */
+        private long deadline;
+
+        /**
+         * Creates a client.
+         *
+         * @param session   The simulated client.
+         * @param gamesLeft Number of games the session has to play.
+         */
+        private Client(ConcentrationLoadSession session, int gamesLeft) {
+            this.session = session;
+            this.gamesLeft = gamesLeft;
+        }
+    }
+
+    /**
+     * A client to be woken up by the loop once its deadline has passed, to connect or to end its think time.
+     *
+     * @param deadline System.nanoTime() value after which the client is woken up.
+     * @param sequence tie-breaker keeping timers with the same deadline in submission order.
+     * @param client   the client to wake up.
+     */
+    private record Timer(long deadline, long sequence, Client client) implements Comparable<Timer> {
+        @Override
+        public int compareTo(Timer other) {
+            int result = Long.compare(this.deadline, other.deadline);
+            return result != 0 ? result : Long.compare(this.sequence, other.sequence);
+        }
+    }
+
+    /**
+     * Time between two sweeps for clients the server stopped answering.
+     */
+    private static final long SWEEP_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    /**
+     * Address of the server.
+     */
+    private final InetSocketAddress address;
+
+    /**
+     * Number of games played by every session.
+     */
+    private final int games;
+
+    /**
+     * Time in nanoseconds a session waits for the server to connect or reply before failing its game.
+     */
+    private final long timeoutNanos;
+
+    /**
+     * Statistics of the run.
+     */
+    private final ConcentrationLoadStats stats;
+
+    /**
+     * Counted down once for every session that played all its games.
+     */
+    private final CountDownLatch done;
+
+    /**
+     * Selector multiplexing all the channels of this loop.
+     */
+    private final Selector selector;
+
+    /**
+     * Pending timers ordered by deadline.
+     */
+    private final PriorityQueue<Timer> timers;
+
+    /**
+     * Number of timers scheduled so far, used to order timers with the same deadline.
+     */
+    private long timerSequence;
+
+    /**
+     * All the clients of this loop, swept every SWEEP_NANOS for the ones the server stopped answering.
+     */
+    private final List<Client> clients;
+
+    /**
+     * System.nanoTime() value of the next sweep.
+     */
+    private long nextSweep;
+
+    /**
+     * Number of sessions that still have games to play.
+     */
+    private int activeClients;
+
+    /**
+     * Thread running this loop.
+     */
+    private final Thread thread;
+
+    /**
+     * Creates a new event loop. The loop does not run until start is called.
+     *
+     * @param name    name of the thread running the loop.
+     * @param address Address of the server.
+     * @param config  Configuration of the run.
+     * @param stats   Statistics of the run.
+     * @param done    Counted down once for every session that played all its games.
+     * @throws IOException if the selector cannot be opened.
+     */
+    public ConcentrationLoadEventLoop(String name, InetSocketAddress address, ConcentrationLoadConfig config,
+                                      ConcentrationLoadStats stats, CountDownLatch done) throws IOException {
+        this.address = address;
+        this.games = config.getGames();
+        this.timeoutNanos = TimeUnit.MILLISECONDS.toNanos(config.getTimeoutMillis());
+        this.clients = new ArrayList<>();
+        this.stats = stats;
+        this.done = done;
+        this.selector = Selector.open();
+        this.timers = new PriorityQueue<>();
+        this.thread = new Thread(this, name);
+    }
+
+    /**
+     * Adds a session to this loop. Must be called before start.
+     *
+     * @param session    the simulated client.
+     * @param startNanos System.nanoTime() value after which the session connects.
+     */
+    public void add(ConcentrationLoadSession session, long startNanos) {
+        Client client = new Client(session, games);
+        clients.add(client);
+        activeClients += 1;
+        schedule(client, startNanos);
+    }
+
+    /**
+     * Starts the thread running the loop.
+     */
+    public void start() {
+        thread.start();
+    }
+
+    /**
+     * Main loop. Waits for ready channels, the next timer or the next sweep, then dispatches the ready clients,
+     * the expired timers and the sweep, until every session played all its games.
+     */
+    @Override
+    public void run() {
+        nextSweep = System.nanoTime() + SWEEP_NANOS;
+        while (activeClients > 0) {
+            try {
+                Timer next = timers.peek();
+                long wakeup = next == null || next.deadline() - nextSweep > 0 ? nextSweep : next.deadline();
+                long waitMillis = TimeUnit.NANOSECONDS.toMillis(wakeup - System.nanoTime());
+                if (waitMillis > 0) selector.select(waitMillis);
+                else selector.selectNow();
+                for (SelectionKey key : selector.selectedKeys()) {
+                    dispatch(key);
+                }
+                selector.selectedKeys().clear();
+                runTimers();
+                sweep();
+            } catch (IOException e) {
+                System.err.println("Event loop failure. Error details: " + e.getMessage());
+            }
+        }
+        try {
+            selector.close();
+        } catch (IOException e) {
+            System.err.println("Failed to close the selector. Error details: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Dispatches a ready key to its client.
+     *
+     * @param key the ready key.
+     */
+    private void dispatch(SelectionKey key) {
+        Client client = (Client) key.attachment();
+        try {
+            if (key.isValid() && key.isConnectable()) {
+                client.channel.finishConnect();
+                flush(client);
+            }
+            if (key.isValid() && key.isWritable()) flush(client);
+            if (key.isValid() && key.isReadable()) onReadable(client);
+        } catch (IOException | ConcentrationException | RuntimeException e) {
+            endGame(client, e);
+        }
+    }
+
+    /**
+     * Runs all the timers whose deadline has passed. Timers left over from a game that failed while thinking are
+     * harmless: the session ignores the think and a finished client is skipped.
+     */
+    private void runTimers() {
+        long now = System.nanoTime();
+        while (!timers.isEmpty() && timers.peek().deadline() - now <= 0) {
+            Client client = timers.poll().client();
+            if (client.gamesLeft == 0) continue;
+            try {
+                if (client.channel == null) {
+                    connect(client);
+                } else {
+                    client.session.think(System.nanoTime());
+                    flush(client);
+                }
+            } catch (IOException | RuntimeException e) {
+                endGame(client, e);
+            }
+        }
+    }
+
+    /**
+     * Fails the games of the clients waiting on a server that has not connected or replied within the timeout.
+     */
+    private void sweep() {
+        long now = System.nanoTime();
+        if (now - nextSweep < 0) return;
+        nextSweep = now + SWEEP_NANOS;
+        for (Client client : clients) {
+            if (client.channel != null && client.session.getState() != ConcentrationLoadSession.State.THINKING
+                    && now - client.deadline > 0) {
+                endGame(client, new SocketTimeoutException("Timed out waiting for the server"));
+            }
+        }
+    }
+
+    /**
+     * Opens the connection of the next game of a client.
+     *
+     * @param client the client.
+     * @throws IOException if the connection cannot be opened.
+     */
+    private void connect(Client client) throws IOException {
+        client.channel = SocketChannel.open();
+        client.channel.configureBlocking(false);
+        client.channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+        long now = System.nanoTime();
+        client.session.connecting(now);
+        client.deadline = now + timeoutNanos;
+        boolean connected = client.channel.connect(address);
+        client.key = client.channel.register(selector, connected ? SelectionKey.OP_READ : SelectionKey.OP_CONNECT, client);
+    }
+
+    /**
+     * Reads the available bytes from the server and lets the session process them.
+     *
+     * @param client the client.
+     * @throws IOException            if reading from or writing to the server fails.
+     * @throws ConcentrationException if the server sent an error or an unexpected message.
+     */
+    private void onReadable(Client client) throws IOException, ConcentrationException {
+        if (client.channel.read(client.session.getInput()) < 0) throw new EOFException("Connection closed by the server");
+        long now = System.nanoTime();
+        client.deadline = now + timeoutNanos;
+        client.session.process(now);
+        if (client.session.getState() != ConcentrationLoadSession.State.GAME_OVER) {
+            flush(client);
+        } else if (client.gamesLeft > 1 && client.session.nextGame(now)) {
+            client.gamesLeft -= 1;
+            flush(client);
+        } else {
+            endGame(client, null);
+        }
+    }
+
+    /**
+     * Writes as much of the pending output of a session as the channel accepts, then waits for the server, for
+     * the channel to become writable or for the think time to pass.
+     *
+     * @param client the client.
+     * @throws IOException if writing to the server fails.
+     */
+    private void flush(Client client) throws IOException {
+        ByteBuffer output = client.session.getOutput();
+        output.flip();
+        client.channel.write(output);
+        boolean drained = !output.hasRemaining();
+        if (output.position() > 0) client.deadline = System.nanoTime() + timeoutNanos;
+        output.compact();
+        client.key.interestOps(drained ? SelectionKey.OP_READ : SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+        if (drained && client.session.getState() == ConcentrationLoadSession.State.THINKING) {
+            schedule(client, client.session.getWakeNanos());
+        }
+    }
+
+    /**
+     * Closes the connection of a game and starts the next game of the client, if any.
+     *
+     * @param client the client.
+     * @param e      the exception that failed the game, null if the game is over.
+     */
+    private void endGame(Client client, Exception e) {
+        if (e != null) stats.error(e);
+        if (client.key != null) client.key.cancel();
+        if (client.channel != null) {
+            try {
+                client.channel.close();
+            } catch (IOException closeFailure) {
+                System.err.println("Failed to close the socket. Error details: " + closeFailure.getMessage());
+            }
+        }
+        client.channel = null;
+        client.key = null;
+        client.session.closed();
+        client.gamesLeft -= 1;
+        if (client.gamesLeft > 0) {
+            schedule(client, System.nanoTime());
+        } else {
+            activeClients -= 1;
+            done.countDown();
+        }
+    }
+
+    /**
+     * Wakes a client up once a deadline has passed.
+     *
+     * @param client   the client.
+     * @param deadline System.nanoTime() value after which the client is woken up.
+     */
+    private void schedule(Client client, long deadline) {
+        timers.add(new Timer(deadline, timerSequence++, client));
+    }
+}
@@ -0,0 +1,223 @@
+package concentration.client.load;
+
+import concentration.common.ConcentrationException;
+import concentration.common.ConcentrationPlayer;
+import concentration.solver.ConcentrationMemoryPlayer;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.util.SplittableRandom;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Headless load generator for capacity testing of the Concentration server. Opens many concurrent sessions
+ * playing whole games, with the think time and strategy of the configuration, prints the load every second and a
+ * summary of the throughput and latency percentiles at the end. The sessions run on one virtual thread each or
+ * on a few ConcentrationLoadEventLoops, so a single machine can saturate the server.
+ *
+ * @author Arya Girisha Rao, Pradeep Kumar Gontla.
+ */
+
+public class ConcentrationLoadGenerator {
+
+    /**
+     *
+     * @param args CLI Arguments received from the user. Required format is hostname port_number followed by the
+     *             optional flags listed in ConcentrationLoadConfig.USAGE
+     */
+    public static void main(String[] args) {
+        if (args.length < 2) {
+            System.err.println(ConcentrationLoadConfig.USAGE);
+            System.exit(-1);
+        }
+        ConcentrationLoadConfig config = null;
+        try {
+            config = ConcentrationLoadConfig.parse(args);
+        }
+
+        catch (ConcentrationException e){
+            System.err.println("Failed to start the load generator. Error Details: " + e.getMessage());
+            System.exit(1);
+        }
+
+        ConcentrationLoadStats stats = new ConcentrationLoadStats();
+        ScheduledExecutorService reporter = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "concentration-load-reporter");
+            thread.setDaemon(true);
+            return thread;
+        });
+        reporter.scheduleAtFixedRate(() -> stats.printProgress(System.out), 1, 1, TimeUnit.SECONDS);
+        long start = System.nanoTime();
+        try {
+            switch (config.getIo()) {
+                case VIRTUAL -> runVirtual(config, stats);
+                case NIO -> runNio(config, stats);
+            }
+        }
+        catch (IOException | InterruptedException e){
+            System.err.println("Load generator failure. Error Details: " + e.getMessage());
+        }
+        reporter.shutdownNow();
+        stats.printSummary(System.out, System.nanoTime() - start);
+    }
+
+    /**
+     * Runs every session on its own virtual thread, blocking on its socket, and waits for all of them.
+     *
+     * @param config Configuration of the run.
+     * @param stats  Statistics of the run.
+     */
+    private static void runVirtual(ConcentrationLoadConfig config, ConcentrationLoadStats stats) {
+        InetSocketAddress address = new InetSocketAddress(config.getHostname(), config.getPortNumber());
+        SplittableRandom random = new SplittableRandom();
+        long start = System.nanoTime();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < config.getSessions(); ++i) {
+                ConcentrationLoadSession session = newSession(config, stats, random.split());
+                long startNanos = start + rampUpOffset(config, i);
+                executor.execute(() -> playGames(config, address, session, startNanos, stats));
+            }
+        }
+    }
+
+    /**
+     * Spreads the sessions over the event loops and waits for all of them.
+     *
+     * @param config Configuration of the run.
+     * @param stats  Statistics of the run.
+     * @throws IOException          if a selector cannot be opened.
+     * @throws InterruptedException if interrupted while waiting.
+     */
+    private static void runNio(ConcentrationLoadConfig config, ConcentrationLoadStats stats) throws IOException, InterruptedException {
+        InetSocketAddress address = new InetSocketAddress(config.getHostname(), config.getPortNumber());
+        CountDownLatch done = new CountDownLatch(config.getSessions());
+        ConcentrationLoadEventLoop[] loops = new ConcentrationLoadEventLoop[config.getEventLoops()];
+        for (int i = 0; i < loops.length; ++i) {
+            loops[i] = new ConcentrationLoadEventLoop("concentration-load-loop-" + i, address, config, stats, done);
+        }
+        SplittableRandom random = new SplittableRandom();
+        long start = System.nanoTime();
+        for (int i = 0; i < config.getSessions(); ++i) {
+            loops[i % loops.length].add(newSession(config, stats, random.split()), start + rampUpOffset(config, i));
+        }
+        for (ConcentrationLoadEventLoop loop : loops) {
+            loop.start();
+        }
+        done.await();
+    }
+
+    /**
+     * Plays all the games of a session one after the other on blocking connections, asking for a new game over
+     * the same connection as long as it has games left to play. A game fails if
+     * the server does not connect or reply within the timeout, e.g. when its accept backlog overflowed.
+     *
+     * @param config     Configuration of the run.
+     * @param address    Address of the server.
+     * @param session    the simulated client.
+     * @param startNanos System.nanoTime() value after which the session connects.
+     * @param stats      Statistics of the run.
+     */
+    private static void playGames(ConcentrationLoadConfig config, InetSocketAddress address, ConcentrationLoadSession session,
+                                  long startNanos, ConcentrationLoadStats stats) {
+        try {
+            sleepUntil(startNanos);
+            int played = 0;
+            while (played < config.getGames()) {
+                session.connecting(System.nanoTime());
+                try (Socket socket = new Socket()) {
+                    socket.setTcpNoDelay(true);
+                    socket.setSoTimeout((int) config.getTimeoutMillis());
+                    socket.connect(address, (int) config.getTimeoutMillis());
+                    do {
+                        played += 1;
+                        playGame(socket.getInputStream(), socket.getOutputStream(), session);
+                    } while (played < config.getGames() && session.nextGame(System.nanoTime()));
+                } catch (IOException | ConcentrationException e) {
+                    stats.error(e);
+                } finally {
+                    session.closed();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Plays one game of a session on a blocking connection.
+     *
+     * @param serverInput  Bytes received from the server.
+     * @param serverOutput Bytes sent to the server.
+     * @param session      the simulated client.
+     * @throws IOException            if reading from or writing to the server fails or times out.
+     * @throws ConcentrationException if the server sent an error or an unexpected message.
+     * @throws InterruptedException   if interrupted while thinking.
+     */
+    private static void playGame(InputStream serverInput, OutputStream serverOutput, ConcentrationLoadSession session) throws IOException, ConcentrationException, InterruptedException {
+        ByteBuffer input = session.getInput();
+        ByteBuffer output = session.getOutput();
+        while (session.getState() != ConcentrationLoadSession.State.GAME_OVER) {
+            if (output.position() > 0) {
+                serverOutput.write(output.array(), 0, output.position());
+                output.clear();
+            }
+            if (session.getState() == ConcentrationLoadSession.State.THINKING) {
+                sleepUntil(session.getWakeNanos());
+                session.think(System.nanoTime());
+            } else {
+                int read = serverInput.read(input.array(), input.position(), input.remaining());
+                if (read < 0) throw new EOFException("Connection closed by the server");
+                input.position(input.position() + read);
+                session.process(System.nanoTime());
+            }
+        }
+    }
+
+    /**
+     * Creates a session with a new player of the configured strategy.
+     *
+     * @param config Configuration of the run.
+     * @param stats  Statistics of the run.
+     * @param random Random generator of the player.
+     * @return the session.
+     */
+    private static ConcentrationLoadSession newSession(ConcentrationLoadConfig config, ConcentrationLoadStats stats, SplittableRandom random) {
+        ConcentrationPlayer player = switch (config.getStrategy()) {
+            case RANDOM -> new ConcentrationRandomPlayer(random);
+            case MEMORY -> new ConcentrationMemoryPlayer();
+        };
+        return new ConcentrationLoadSession(player, stats, config.getProtocol() == ConcentrationLoadConfig.Protocol.BINARY,
+                TimeUnit.MILLISECONDS.toNanos(config.getThinkMillis()), config.getGamesPerConnection());
+    }
+
+    /**
+     * Get when a session starts relative to the first one, so the sessions are spread evenly over the ramp up.
+     *
+     * @param config Configuration of the run.
+     * @param index  index of the session.
+     * @return start offset in nanoseconds.
+     */
+    private static long rampUpOffset(ConcentrationLoadConfig config, int index) {
+        return TimeUnit.MILLISECONDS.toNanos(config.getRampUpMillis()) * index / config.getSessions();
+    }
+
+    /**
+     * Sleeps until a point in time.
+     *
+     * @param deadline System.nanoTime() value to sleep until.
+     * @throws InterruptedException if interrupted while sleeping.
+     */
+    private static void sleepUntil(long deadline) throws InterruptedException {
+        long remaining = deadline - System.nanoTime();
+        if (remaining > 0) TimeUnit.NANOSECONDS.sleep(remaining);
+    }
+}
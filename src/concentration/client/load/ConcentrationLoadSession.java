@@ -0,0 +1,482 @@
+package concentration.client.load;
+
+import concentration.common.ConcentrationBinaryProtocol;
+import concentration.common.ConcentrationException;
+import concentration.common.ConcentrationPlayer;
+import concentration.common.ConcentrationTextCodec;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A simulated client playing games against the server. Plays the same protocol as ConcentrationController and
+ * ConcentrationListener, text or binary, but asks a ConcentrationPlayer for the cards instead of a user and keeps
+ * no board model. The session knows nothing about sockets: the driver reads into its input buffer, calls process
+ * and writes out its output buffer, so the same session runs on a virtual thread or on an event loop. Waits for
+ * the card of every reveal before the next one, like a user does, and thinks for a while before every reveal.
+ *
+ * @author Arya Girisha Rao, Pradeep Kumar Gontla.
+ */
+
+public class ConcentrationLoadSession {
+
+    /**
+     * Where the session is in a game.
+     */
+    public enum State {
+        /**
+         * connecting or waiting for the board dimensions.
+         */
+        AWAIT_BOARD,
+        /**
+         * waiting for the server to accept the binary protocol.
+         */
+        AWAIT_BINARY_OK,
+        /**
+         * waiting for the board dimensions of a game asked with NEW_GAME.
+         */
+        AWAIT_NEW_BOARD,
+        /**
+         * waiting for the think time to pass before the next reveal.
+         */
+        THINKING,
+        /**
+         * waiting for the card of a first reveal.
+         */
+        AWAIT_FIRST_CARD,
+        /**
+         * waiting for the card of a second reveal.
+         */
+        AWAIT_SECOND_CARD,
+        /**
+         * waiting for the match or mismatch of the last two reveals.
+         */
+        AWAIT_RESULT,
+        /**
+         * waiting for the game over after the last match.
+         */
+        AWAIT_GAME_OVER,
+        /**
+         * the game is over, the connection can be closed or asked for a new game.
+         */
+        GAME_OVER
+    }
+
+    /**
+     * Player choosing the cards.
+     */
+    private final ConcentrationPlayer player;
+
+    /**
+     * Statistics of the run.
+     */
+    private final ConcentrationLoadStats stats;
+
+    /**
+     * Whether the session switches to the binary protocol after the board dimensions.
+     */
+    private final boolean binary;
+
+    /**
+     * Time in nanoseconds the player thinks before every reveal.
+     */
+    private final long thinkNanos;
+
+    /**
+     * Number of games played over one connection, the games after the first are asked with NEW_GAME.
+     */
+    private final int gamesPerConnection;
+
+    /**
+     * Decoder of the text lines.
+     */
+    private final ConcentrationTextCodec codec;
+
+    /**
+     * Bytes received from the server that do not form a complete message yet. Left in write mode.
+     */
+    private final ByteBuffer input;
+
+    /**
+     * Bytes waiting to be written to the server. Left in write mode.
+     */
+    private final ByteBuffer output;
+
+    /**
+     * Where the session is in the current game.
+     */
+    private State state;
+
+    /**
+     * Set once the board dimensions of the current game were received, until the connection is closed.
+     */
+    private boolean connected;
+
+    /**
+     * Set once the server accepted the binary protocol in the current game.
+     */
+    private boolean binaryAccepted;
+
+    /**
+     * Square dimension of the board of the current game.
+     */
+    private int DIM;
+
+    /**
+     * Whether the next reveal is the second card of a pair.
+     */
+    private boolean secondReveal;
+
+    /**
+     * Number of pairs not matched yet in the current game.
+     */
+    private int pairsLeft;
+
+    /**
+     * Number of games started over the current connection.
+     */
+    private int gamesOnConnection;
+
+    /**
+     * System.nanoTime() when the current connection was opened.
+     */
+    private long connectNanos;
+
+    /**
+     * System.nanoTime() when the current game started.
+     */
+    private long gameNanos;
+
+    /**
+     * System.nanoTime() when the last reveal was encoded.
+     */
+    private long revealNanos;
+
+    /**
+     * System.nanoTime() after which the player has thought enough.
+     */
+    private long wakeNanos;
+
+    /**
+     * Creates a session.
+     *
+     * @param player     Player choosing the cards.
+     * @param stats      Statistics of the run.
+     * @param binary     Whether the session switches to the binary protocol.
+     * @param thinkNanos Time in nanoseconds the player thinks before every reveal.
+     * @param gamesPerConnection Number of games played over one connection.
+     */
+    public ConcentrationLoadSession(ConcentrationPlayer player, ConcentrationLoadStats stats, boolean binary,
+                                    long thinkNanos, int gamesPerConnection) {
+        this.player = player;
+        this.stats = stats;
+        this.binary = binary;
+        this.thinkNanos = thinkNanos;
+        this.gamesPerConnection = gamesPerConnection;
+        this.codec = new ConcentrationTextCodec();
+        this.input = ByteBuffer.allocate(ConcentrationTextCodec.MAX_LINE_LENGTH);
+        this.output = ByteBuffer.allocate(ConcentrationTextCodec.MAX_LINE_LENGTH);
+        this.state = State.GAME_OVER;
+    }
+
+    /**
+     * Starts a new game on a connection being opened.
+     *
+     * @param now System.nanoTime() when the connection is opened.
+     */
+    public void connecting(long now) {
+        input.clear();
+        output.clear();
+        state = State.AWAIT_BOARD;
+        binaryAccepted = false;
+        gamesOnConnection = 0;
+        connectNanos = now;
+    }
+
+    /**
+     * Asks the server for a new game over the current connection once the current game is over, as long as the
+     * connection has games left to play.
+     *
+     * @param now System.nanoTime() when the new game is asked.
+     * @return whether NEW_GAME was encoded into the output buffer, false if the connection should be closed.
+     */
+    public boolean nextGame(long now) {
+        if (state != State.GAME_OVER || gamesOnConnection >= gamesPerConnection) return false;
+        if (binaryAccepted) ConcentrationBinaryProtocol.putNewGame(output, DIM);
+        else ConcentrationTextCodec.encodeNewGame(output, DIM);
+        state = State.AWAIT_NEW_BOARD;
+        return true;
+    }
+
+    /**
+     * Ends the current game once its connection is closed, whether the game is over or failed.
+     */
+    public void closed() {
+        if (connected) stats.disconnected();
+        connected = false;
+    }
+
+    /**
+     * Get the buffer the driver reads the bytes received from the server into.
+     *
+     * @return the input buffer, in write mode.
+     */
+    public ByteBuffer getInput() {
+        return input;
+    }
+
+    /**
+     * Get the buffer of the bytes to write to the server. The driver flips it, writes it and compacts it.
+     *
+     * @return the output buffer, in write mode.
+     */
+    public ByteBuffer getOutput() {
+        return output;
+    }
+
+    /**
+     * Get where the session is in the current game.
+     *
+     * @return the state.
+     */
+    public State getState() {
+        return state;
+    }
+
+    /**
+     * Get the time the session is thinking until, while in THINKING.
+     *
+     * @return System.nanoTime() after which think should be called.
+     */
+    public long getWakeNanos() {
+        return wakeNanos;
+    }
+
+    /**
+     * Processes every complete message in the input buffer, encoding the next reveal into the output buffer
+     * when the game moves on.
+     *
+     * @param now System.nanoTime() when the bytes were received.
+     * @throws ConcentrationException if the server sent an error or an unexpected message.
+     */
+    public void process(long now) throws ConcentrationException {
+        input.flip();
+        try {
+            boolean processed = true;
+            while (processed && state != State.GAME_OVER) {
+                processed = binaryAccepted ? processFrame(now) : processLine(now);
+            }
+        } finally {
+            input.compact();
+        }
+    }
+
+    /**
+     * Ends the think time by revealing the next card.
+     *
+     * @param now System.nanoTime() when the think time passed.
+     */
+    public void think(long now) {
+        if (state == State.THINKING) reveal(now);
+    }
+
+    /**
+     * Processes the next text line in the input buffer.
+     *
+     * @param now System.nanoTime() when the bytes were received.
+     * @return whether a complete line was processed.
+     * @throws ConcentrationException if the server sent an error or an unexpected message.
+     */
+    private boolean processLine(long now) throws ConcentrationException {
+        if (!codec.decode(input)) return false;
+        switch (codec.getCommand()) {
+            case ConcentrationTextCodec.BOARD_DIM -> onBoardDim(codec.getDIM(), now);
+            case ConcentrationTextCodec.BINARY_OK -> {
+                expect(State.AWAIT_BINARY_OK);
+                binaryAccepted = true;
+                firstGame(now);
+            }
+            case ConcentrationTextCodec.CARD -> onCard(codec.getRow(), codec.getCol(), codec.getSymbol(), now);
+            case ConcentrationTextCodec.MATCH -> onResult(true, codec.getRow(), codec.getCol(), codec.getRow2(), codec.getCol2(), now);
+            case ConcentrationTextCodec.MISMATCH -> onResult(false, codec.getRow(), codec.getCol(), codec.getRow2(), codec.getCol2(), now);
+            case ConcentrationTextCodec.GAME_OVER -> onGameOver(now);
+            case ConcentrationTextCodec.ERROR -> throw new ConcentrationException(codec.getMessage());
+            default -> throw new ConcentrationException("Unexpected message");
+        }
+        return true;
+    }
+
+    /**
+     * Processes the next binary frame in the input buffer.
+     *
+     * @param now System.nanoTime() when the bytes were received.
+     * @return whether a complete frame was processed.
+     * @throws ConcentrationException if the frame is unknown or unexpected.
+     */
+    private boolean processFrame(long now) throws ConcentrationException {
+        if (!ConcentrationBinaryProtocol.hasFrame(input)) return false;
+        byte opcode = input.get();
+        switch (opcode) {
+            case ConcentrationBinaryProtocol.CARD -> onCard(ConcentrationBinaryProtocol.getCoordinate(input),
+                    ConcentrationBinaryProtocol.getCoordinate(input), ConcentrationBinaryProtocol.getSymbol(input), now);
+            case ConcentrationBinaryProtocol.MATCH, ConcentrationBinaryProtocol.MISMATCH -> onResult(
+                    opcode == ConcentrationBinaryProtocol.MATCH,
+                    ConcentrationBinaryProtocol.getCoordinate(input), ConcentrationBinaryProtocol.getCoordinate(input),
+                    ConcentrationBinaryProtocol.getCoordinate(input), ConcentrationBinaryProtocol.getCoordinate(input), now);
+            case ConcentrationBinaryProtocol.GAME_OVER -> onGameOver(now);
+            case ConcentrationBinaryProtocol.BOARD_DIM -> {
+                expect(State.AWAIT_NEW_BOARD);
+                startGame(ConcentrationBinaryProtocol.getCoordinate(input), now);
+            }
+            default -> throw new ConcentrationException("Unexpected message");
+        }
+        return true;
+    }
+
+    /**
+     * Handles the board dimensions, either sent on connection or in reply to NEW_GAME, asking for the binary
+     * protocol after the first ones if configured.
+     *
+     * @param DIM the square dimension of the board.
+     * @param now System.nanoTime() when the message was received.
+     * @throws ConcentrationException if no board dimensions were expected.
+     */
+    private void onBoardDim(int DIM, long now) throws ConcentrationException {
+        if (state == State.AWAIT_NEW_BOARD) {
+            startGame(DIM, now);
+            return;
+        }
+        expect(State.AWAIT_BOARD);
+        stats.connected(now - connectNanos);
+        connected = true;
+        this.DIM = DIM;
+        if (binary) {
+            ConcentrationTextCodec.encodeBinary(output, ConcentrationBinaryProtocol.VERSION);
+            state = State.AWAIT_BINARY_OK;
+        } else {
+            firstGame(now);
+        }
+    }
+
+    /**
+     * Starts the first game of the connection once the handshake is done. The server only keeps a connection open
+     * after GAME_OVER once it received NEW_GAME, so a connection playing several games asks for every one of
+     * them, the board given on connection is left unplayed.
+     *
+     * @param now System.nanoTime() when the handshake was done.
+     */
+    private void firstGame(long now) {
+        if (gamesPerConnection > 1) {
+            state = State.GAME_OVER;
+            nextGame(now);
+        } else {
+            startGame(DIM, now);
+        }
+    }
+
+    /**
+     * Starts a game on a board of the given dimensions and reveals its first card.
+     *
+     * @param DIM the square dimension of the board.
+     * @param now System.nanoTime() when the game starts.
+     */
+    private void startGame(int DIM, long now) {
+        player.newGame(DIM);
+        this.DIM = DIM;
+        secondReveal = false;
+        pairsLeft = DIM * DIM / 2;
+        gameNanos = gamesOnConnection == 0 ? connectNanos : now;
+        gamesOnConnection += 1;
+        nextTurn(now);
+    }
+
+    /**
+     * Shows a revealed card to the player and moves on to the next reveal or to the result.
+     *
+     * @param row    row of the card.
+     * @param col    column of the card.
+     * @param symbol symbol of the card.
+     * @param now    System.nanoTime() when the message was received.
+     * @throws ConcentrationException if no card was expected.
+     */
+    private void onCard(int row, int col, int symbol, long now) throws ConcentrationException {
+        stats.cardReceived(now - revealNanos);
+        player.onCard(row, col, symbol);
+        if (state == State.AWAIT_FIRST_CARD) {
+            nextTurn(now);
+        } else {
+            expect(State.AWAIT_SECOND_CARD);
+            state = State.AWAIT_RESULT;
+        }
+    }
+
+    /**
+     * Shows the result of the last two reveals to the player and moves on to the next reveal, or waits for the
+     * game over after the last match.
+     *
+     * @param match whether the two cards match.
+     * @param row1  row of the first card.
+     * @param col1  column of the first card.
+     * @param row2  row of the second card.
+     * @param col2  column of the second card.
+     * @param now   System.nanoTime() when the message was received.
+     * @throws ConcentrationException if no result was expected.
+     */
+    private void onResult(boolean match, int row1, int col1, int row2, int col2, long now) throws ConcentrationException {
+        expect(State.AWAIT_RESULT);
+        stats.resultReceived(now - revealNanos);
+        player.onResult(match, row1, col1, row2, col2);
+        if (match) pairsLeft -= 1;
+        if (pairsLeft == 0) state = State.AWAIT_GAME_OVER;
+        else nextTurn(now);
+    }
+
+    /**
+     * Ends the game.
+     *
+     * @param now System.nanoTime() when the message was received.
+     * @throws ConcentrationException if pairs are left to match.
+     */
+    private void onGameOver(long now) throws ConcentrationException {
+        expect(State.AWAIT_GAME_OVER);
+        stats.gameOver(now - gameNanos);
+        state = State.GAME_OVER;
+    }
+
+    /**
+     * Reveals the next card right away, or starts thinking about it.
+     *
+     * @param now System.nanoTime() of the event that gave the turn back to the player.
+     */
+    private void nextTurn(long now) {
+        if (thinkNanos == 0) {
+            reveal(now);
+        } else {
+            state = State.THINKING;
+            wakeNanos = now + thinkNanos;
+        }
+    }
+
+    /**
+     * Encodes the reveal of the card chosen by the player into the output buffer.
+     *
+     * @param now System.nanoTime() when the reveal is encoded.
+     */
+    private void reveal(long now) {
+        int cell = player.nextCell();
+        if (binaryAccepted) ConcentrationBinaryProtocol.putReveal(output, cell / DIM, cell % DIM);
+        else ConcentrationTextCodec.encodeReveal(output, cell / DIM, cell % DIM);
+        revealNanos = now;
+        state = secondReveal ? State.AWAIT_SECOND_CARD : State.AWAIT_FIRST_CARD;
+        secondReveal = !secondReveal;
+    }
+
+    /**
+     * Checks the session is where a message expects it to be.
+     *
+     * @param expected the expected state.
+     * @throws ConcentrationException if the session is elsewhere.
+     */
+    private void expect(State expected) throws ConcentrationException {
+        if (state != expected) throw new ConcentrationException("Unexpected message");
+    }
+}
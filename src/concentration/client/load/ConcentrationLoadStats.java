@@ -0,0 +1,230 @@
+package concentration.client.load;
+
+import concentration.common.ConcentrationException;
+import concentration.server.metrics.ConcentrationLatencyHistogram;
+
+import java.io.PrintStream;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Statistics of a load run, shared by all the sessions. Counters are LongAdders and latencies go to the same
+ * lock free histograms the server uses for its own metrics, so recording does not make the sessions contend and
+ * the client side numbers can be compared with the server side ones directly.
+ *
+ * @author Arya Girisha Rao, Pradeep Kumar Gontla.
+ */
+
+public class ConcentrationLoadStats {
+
+    /**
+     * Most error causes counted separately, the following ones are counted as OTHER_CAUSE.
+     */
+    private static final int MAX_ERROR_CAUSES = 64;
+
+    /**
+     * Cause of the errors beyond MAX_ERROR_CAUSES.
+     */
+    private static final String OTHER_CAUSE = "Other";
+
+    /**
+     * Number of sessions currently connected.
+     */
+    private final AtomicInteger activeSessions = new AtomicInteger();
+
+    /**
+     * Number of connections opened.
+     */
+    private final LongAdder connections = new LongAdder();
+
+    /**
+     * Number of games played to the end.
+     */
+    private final LongAdder games = new LongAdder();
+
+    /**
+     * Number of cards revealed.
+     */
+    private final LongAdder reveals = new LongAdder();
+
+    /**
+     * Number of failed games by cause.
+     */
+    private final Map<String, LongAdder> errorCounts = new ConcurrentHashMap<>();
+
+    /**
+     * Time from opening a connection to receiving the board dimensions.
+     */
+    private final ConcentrationLatencyHistogram connectLatency = new ConcentrationLatencyHistogram();
+
+    /**
+     * Time from sending a reveal to receiving its card.
+     */
+    private final ConcentrationLatencyHistogram revealToCardLatency = new ConcentrationLatencyHistogram();
+
+    /**
+     * Time from sending a second reveal to receiving the match or mismatch.
+     */
+    private final ConcentrationLatencyHistogram revealToResultLatency = new ConcentrationLatencyHistogram();
+
+    /**
+     * Time from opening a connection to receiving the game over.
+     */
+    private final ConcentrationLatencyHistogram gameDuration = new ConcentrationLatencyHistogram();
+
+    /**
+     * Number of games played when the last progress line was printed.
+     */
+    private long reportedGames;
+
+    /**
+     * Number of reveals when the last progress line was printed.
+     */
+    private long reportedReveals;
+
+    /**
+     * System.nanoTime() of the last progress line.
+     */
+    private long reportedNanos = System.nanoTime();
+
+    /**
+     * Counts a connection opened to the server.
+     *
+     * @param latencyNanos time until the board dimensions were received.
+     */
+    public void connected(long latencyNanos) {
+        activeSessions.incrementAndGet();
+        connections.increment();
+        connectLatency.record(latencyNanos);
+    }
+
+    /**
+     * Counts a connection closed, whether the game ended or failed.
+     */
+    public void disconnected() {
+        activeSessions.decrementAndGet();
+    }
+
+    /**
+     * Counts a card received.
+     *
+     * @param latencyNanos time since the reveal was sent.
+     */
+    public void cardReceived(long latencyNanos) {
+        reveals.increment();
+        revealToCardLatency.record(latencyNanos);
+    }
+
+    /**
+     * Counts a match or mismatch received.
+     *
+     * @param latencyNanos time since the second reveal was sent.
+     */
+    public void resultReceived(long latencyNanos) {
+        revealToResultLatency.record(latencyNanos);
+    }
+
+    /**
+     * Counts a game played to the end.
+     *
+     * @param durationNanos time since the connection was opened.
+     */
+    public void gameOver(long durationNanos) {
+        games.increment();
+        gameDuration.record(durationNanos);
+    }
+
+    /**
+     * Counts a failed game by its cause: the message of a ConcentrationException up to its details, or the
+     * exception class for anything else, e.g. a connection refused or reset by the server.
+     *
+     * @param e the exception that failed the game.
+     */
+    public void error(Exception e) {
+        String cause = e.getClass().getSimpleName();
+        if (e instanceof ConcentrationException && e.getMessage() != null) {
+            cause = e.getMessage();
+            int detail = cause.indexOf(':');
+            if (detail >= 0) cause = cause.substring(0, detail);
+        }
+        LongAdder counter = errorCounts.get(cause);
+        if (counter == null) {
+            counter = errorCounts.size() < MAX_ERROR_CAUSES
+                    ? errorCounts.computeIfAbsent(cause, key -> new LongAdder())
+                    : errorCounts.computeIfAbsent(OTHER_CAUSE, key -> new LongAdder());
+        }
+        counter.increment();
+    }
+
+    /**
+     * Prints a line with the load since the last progress line: active sessions, games and reveals per second
+     * and the reveal to card latencies so far. Called from a single reporting thread.
+     *
+     * @param out stream to print to.
+     */
+    public void printProgress(PrintStream out) {
+        long now = System.nanoTime();
+        long gamesNow = games.sum();
+        long revealsNow = reveals.sum();
+        double seconds = (now - reportedNanos) / (double) TimeUnit.SECONDS.toNanos(1);
+        ConcentrationLatencyHistogram.Snapshot card = revealToCardLatency.snapshot();
+        out.printf("active=%d games/s=%.1f reveals/s=%.1f card p50=%.0fus p99=%.0fus errors=%d%n",
+                activeSessions.get(), (gamesNow - reportedGames) / seconds, (revealsNow - reportedReveals) / seconds,
+                card.p50Micros(), card.p99Micros(), errorTotal());
+        reportedGames = gamesNow;
+        reportedReveals = revealsNow;
+        reportedNanos = now;
+    }
+
+    /**
+     * Prints the summary of the whole run: totals, throughput, latency percentiles and failures by cause.
+     *
+     * @param out          stream to print to.
+     * @param elapsedNanos duration of the run.
+     */
+    public void printSummary(PrintStream out, long elapsedNanos) {
+        double seconds = elapsedNanos / (double) TimeUnit.SECONDS.toNanos(1);
+        out.printf("Run time: %.2fs%n", seconds);
+        out.printf("Connections: %d, games: %d (%.1f/s), reveals: %d (%.1f/s)%n", connections.sum(),
+                games.sum(), games.sum() / seconds, reveals.sum(), reveals.sum() / seconds);
+        out.printf("%-16s %10s %10s %10s %10s %10s %10s %10s%n", "latency (us)", "count", "mean", "p50", "p90",
+                "p99", "p99.9", "max");
+        printLatency(out, "connect", connectLatency);
+        printLatency(out, "reveal->card", revealToCardLatency);
+        printLatency(out, "reveal->result", revealToResultLatency);
+        printLatency(out, "game", gameDuration);
+        if (!errorCounts.isEmpty()) {
+            out.printf("Errors: %d%n", errorTotal());
+            new TreeMap<>(errorCounts).forEach((cause, counter) -> out.printf("  %s: %d%n", cause, counter.sum()));
+        }
+    }
+
+    /**
+     * Get the number of failed games.
+     *
+     * @return number of errors.
+     */
+    public long errorTotal() {
+        long total = 0;
+        for (LongAdder counter : errorCounts.values()) total += counter.sum();
+        return total;
+    }
+
+    /**
+     * Prints one row of the latency table.
+     *
+     * @param out       stream to print to.
+     * @param name      name of the latency.
+     * @param histogram histogram of the latency.
+     */
+    private static void printLatency(PrintStream out, String name, ConcentrationLatencyHistogram histogram) {
+        ConcentrationLatencyHistogram.Snapshot snapshot = histogram.snapshot();
+        out.printf("%-16s %10d %10.0f %10.0f %10.0f %10.0f %10.0f %10.0f%n", name, snapshot.count(),
+                snapshot.meanMicros(), snapshot.p50Micros(), snapshot.p90Micros(), snapshot.p99Micros(),
+                snapshot.p999Micros(), snapshot.maxMicros());
+    }
+}
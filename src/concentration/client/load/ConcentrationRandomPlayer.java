@@ -0,0 +1,100 @@
+package concentration.client.load;
+
+import concentration.common.ConcentrationPlayer;
+
+import java.util.random.RandomGenerator;
+
+/**
+ * Player revealing hidden cards at random without remembering any of them, the worst case for a server since its
+ * games last the longest. Keeps the hidden cells in an array with the index of every cell, so choosing, removing
+ * and restoring a cell are all constant time whatever the size of the board.
+ *
+ * @author Arya Girisha Rao, Pradeep Kumar Gontla.
+ */
+
+public class ConcentrationRandomPlayer implements ConcentrationPlayer {
+
+    /**
+     * Random generator choosing the cards.
+     */
+    private final RandomGenerator random;
+
+    /**
+     * Square dimension of the board.
+     */
+    private int DIM;
+
+    /**
+     * Cells of the board, the hidden ones first.
+     */
+    private int[] cells = new int[0];
+
+    /**
+     * Index of every cell in cells.
+     */
+    private int[] index = new int[0];
+
+    /**
+     * Number of hidden cells at the start of cells.
+     */
+    private int hiddenCount;
+
+    /**
+     * Creates a player.
+     *
+     * @param random Random generator choosing the cards.
+     */
+    public ConcentrationRandomPlayer(RandomGenerator random) {
+        this.random = random;
+    }
+
+    @Override
+    public void newGame(int DIM) {
+        int size = DIM * DIM;
+        if (cells.length != size) {
+            cells = new int[size];
+            index = new int[size];
+        }
+        for (int cell = 0; cell < size; ++cell) {
+            cells[cell] = cell;
+            index[cell] = cell;
+        }
+        this.DIM = DIM;
+        this.hiddenCount = size;
+    }
+
+    @Override
+    public int nextCell() {
+        int cell = cells[random.nextInt(hiddenCount)];
+        swap(cell, hiddenCount - 1);
+        hiddenCount -= 1;
+        return cell;
+    }
+
+    @Override
+    public void onCard(int row, int col, int symbol) {
+    }
+
+    @Override
+    public void onResult(boolean match, int row1, int col1, int row2, int col2) {
+        if (!match) {
+            swap(row1 * DIM + col1, hiddenCount++);
+            swap(row2 * DIM + col2, hiddenCount++);
+        }
+    }
+
+    /**
+     * Moves a cell to a position of cells, and the cell there to the old position of the first one.
+     *
+     * @param cell     the cell to move.
+     * @param position its new position.
+     */
+    private void swap(int cell, int position) {
+        int other = cells[position];
+        int oldPosition = index[cell];
+        cells[oldPosition] = other;
+        index[other] = oldPosition;
+        cells[position] = cell;
+        index[cell] = position;
+    }
+}
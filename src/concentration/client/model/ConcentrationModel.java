@@ -2,25 +2,128 @@ package concentration.client.model;
 
 import concentration.common.ConcentrationCard;
 
-import java.util.LinkedList;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.IntConsumer;
 
 /**
- * Game model for the Concentration game.
+ * Game model for the Concentration game. Every notification comes with the cells changed since the previous one,
+ * so observers can redraw those cells only instead of the whole board.
+ * <p>
+ * The model is written by the listener thread and read by the GUI on the JavaFX thread. Writes take the write lock
+ * of a StampedLock for the few instructions they need, and reads are optimistic: they copy what they need, validate
+ * the stamp and retry if a write happened meanwhile, the way a seqlock does. Readers never hold the lock, so the
+ * listener never waits for the GUI, and read brings a consistent state of the whole model to the GUI in one go.
  *
  * @author Arya Girisha Rao, Pradeep Kumar Gontla.
  */
 public class ConcentrationModel {
 
     /**
-     * Dimension of the board of the Concentration game.
+     * A consistent copy of the counts, the status and some cells of the model, filled by read. Reused from one
+     * read to the next so reading does not allocate.
+     */
+    public static class State {
+
+        /**
+         * Version of the model copied.
+         */
+        private long version;
+
+        /**
+         * Number of moves made during the game.
+         */
+        private int movesMade;
+
+        /**
+         * Number of matches done during the game.
+         */
+        private int matches;
+
+        /**
+         * Boolean indicating if the game is over.
+         */
+        private boolean gameOver;
+
+        /**
+         * Symbols of the cells read, in the order of their row major numbers.
+         */
+        private int[] symbols = new int[4];
+
+        /**
+         * Creates an empty state, to be filled by read.
+         */
+        public State() {
+            // filled by read
+        }
+
+        /**
+         * Get the version of the model copied, incremented by every update.
+         *
+         * @return the version.
+         */
+        public long getVersion() {
+            return version;
+        }
+
+        /**
+         * Gives number of moves made by the user during the game.
+         *
+         * @return Number of moves made by the user.
+         */
+        public int getMovesMade() {
+            return movesMade;
+        }
+
+        /**
+         * Get the total count of the matches during the game.
+         *
+         * @return number of matches.
+         */
+        public int getMatches() {
+            return matches;
+        }
+
+        /**
+         * Check if the game is over or still in progress.
+         *
+         * @return Boolean indicating if the game is over.
+         */
+        public boolean isGameOver() {
+            return gameOver;
+        }
+
+        /**
+         * Get the symbol of a cell read.
+         *
+         * @param index index of the cell among the cells read, in the order of their row major numbers.
+         * @return Symbol of the card or HIDDEN_SYMBOL to indicate card is yet to open.
+         */
+        public int getSymbol(int index) {
+            return symbols[index];
+        }
+    }
+
+    /**
+     * Seqlock of the board, the counts and the status. Only the listener takes the write lock, readers validate
+     * optimistic stamps.
+     */
+    private final StampedLock lock;
+
+    /**
+     * Dimension of the board of the Concentration game. Written before the listener starts.
      */
     private int dimension;
 
     /**
      * Simple version of board of the concentration game to keep track status of each cards.
+     * Holds the symbol of every revealed card and HIDDEN_SYMBOL for the others. Written before the listener
+     * starts, its cells under the write lock.
      */
-    private char[][] board;
+    private int[][] board;
 
     /**
      * Number of matches done during the game.
@@ -37,6 +140,22 @@ public class ConcentrationModel {
      */
     private boolean gameOver;
 
+    /**
+     * Version of the model, incremented by every update.
+     */
+    private long version;
+
+    /**
+     * Row major numbers of the cells changed since the last notification, in the order they changed. Only used by
+     * the updating thread.
+     */
+    private int[] changedCells;
+
+    /**
+     * Number of cells in changedCells.
+     */
+    private int changedCount;
+
     /**
      * the observers of this model.
      */
@@ -46,10 +165,12 @@ public class ConcentrationModel {
      * Creates a new Concentration game model.
      */
     public ConcentrationModel() {
+        this.lock = new StampedLock();
         this.matches = 0;
         this.movesMade = 0;
         this.gameOver = false;
-        this.observers = new LinkedList<>();
+        this.changedCells = new int[4];
+        this.observers = new CopyOnWriteArrayList<>();
     }
 
     /**
@@ -58,7 +179,12 @@ public class ConcentrationModel {
      * @return Number of moves made by the user.
      */
     public int getMovesMade() {
-        return movesMade;
+        while (true) {
+            long stamp = lock.tryOptimisticRead();
+            int movesMade = this.movesMade;
+            if (lock.validate(stamp)) return movesMade;
+            Thread.onSpinWait();
+        }
     }
 
     /**
@@ -68,7 +194,8 @@ public class ConcentrationModel {
      */
     public void createBoard(int dimension) {
         this.dimension = dimension;
-        this.board = new char[dimension][dimension];
+        this.board = new int[dimension][dimension];
+        this.changedCount = 0;
         this.createGrid();
     }
 
@@ -80,7 +207,7 @@ public class ConcentrationModel {
      * @return boolean indicating if the click made is valid or not.
      */
     public boolean isValidClick(int row, int col) {
-        return board[row][col] == ConcentrationCard.HIDDEN;
+        return getCellValue(row, col) == ConcentrationCard.HIDDEN_SYMBOL;
     }
 
     /**
@@ -88,20 +215,55 @@ public class ConcentrationModel {
      *
      * @param row row value of the cell in the game board.
      * @param col column value of the cell in the game board.
-     * @return Character indicating the card value or HIDDEN to indicate card is yet to open.
+     * @return Symbol of the card or HIDDEN_SYMBOL to indicate card is yet to open.
      */
-    public char getCellValue(int row, int col) {
-        return board[row][col];
+    public int getCellValue(int row, int col) {
+        while (true) {
+            long stamp = lock.tryOptimisticRead();
+            int symbol = board[row][col];
+            if (lock.validate(stamp)) return symbol;
+            Thread.onSpinWait();
+        }
+    }
+
+    /**
+     * Copies the counts, the status and some cells of the model as they were after one and the same update.
+     * Never blocks the updates: the copy is made again if one happens meanwhile.
+     *
+     * @param cells row major numbers of the cells to copy.
+     * @param state copy to fill.
+     */
+    public void read(BitSet cells, State state) {
+        if (state.symbols.length < cells.cardinality()) state.symbols = new int[cells.cardinality()];
+        while (true) {
+            long stamp = lock.tryOptimisticRead();
+            state.version = version;
+            state.movesMade = movesMade;
+            state.matches = matches;
+            state.gameOver = gameOver;
+            int index = 0;
+            for (int cell = cells.nextSetBit(0); cell >= 0; cell = cells.nextSetBit(cell + 1)) {
+                state.symbols[index++] = board[cell / dimension][cell % dimension];
+            }
+            if (lock.validate(stamp)) return;
+            Thread.onSpinWait();
+        }
     }
 
     /**
      * Creates the Game board grid with HIDDEN values for all the cards to indicate the start state.
      */
     public void createGrid() {
-        for (int row = 0; row < dimension; ++row) {
-            for (int col = 0; col < dimension; ++col) {
-                this.board[row][col] = ConcentrationCard.HIDDEN;
+        long stamp = lock.writeLock();
+        try {
+            for (int row = 0; row < dimension; ++row) {
+                for (int col = 0; col < dimension; ++col) {
+                    this.board[row][col] = ConcentrationCard.HIDDEN_SYMBOL;
+                }
             }
+            version += 1;
+        } finally {
+            lock.unlockWrite(stamp);
         }
     }
 
@@ -110,11 +272,41 @@ public class ConcentrationModel {
      *
      * @param row    row value of the cell in the grid.
      * @param col    column value of the cell in the grid.
-     * @param letter New value to be stored in the cell selected.
+     * @param symbol New value to be stored in the cell selected.
      */
-    public void modifyGrid(int row, int col, char letter) {
-        board[row][col] = letter;
+    public void modifyGrid(int row, int col, int symbol) {
+        long stamp = lock.writeLock();
+        try {
+            setCell(row, col, symbol);
+            version += 1;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
 
+    /**
+     * Update a cell and record it as changed. Called with the write lock held.
+     *
+     * @param row    row value of the cell in the grid.
+     * @param col    column value of the cell in the grid.
+     * @param symbol New value to be stored in the cell selected.
+     */
+    private void setCell(int row, int col, int symbol) {
+        board[row][col] = symbol;
+        if (changedCount == changedCells.length) changedCells = Arrays.copyOf(changedCells, 2 * changedCount);
+        changedCells[changedCount++] = row * dimension + col;
+    }
+
+    /**
+     * Hands the cells changed by the update being notified to a consumer, one at a time. Only meaningful while the
+     * observers are notified; observers that draw later, on another thread, collect the cells into a buffer of
+     * their own, so draining allocates nothing.
+     *
+     * @param consumer takes the row major numbers of the changed cells, possibly repeated. Not called if only the
+     *                 counts or the status changed.
+     */
+    public void drainChangedCells(IntConsumer consumer) {
+        for (int i = 0; i < changedCount; ++i) consumer.accept(changedCells[i]);
     }
 
     /**
@@ -122,11 +314,17 @@ public class ConcentrationModel {
      *
      * @param row    row value of the card revealed.
      * @param col    column value of the card revealed.
-     * @param letter letter of the revealed card.
+     * @param symbol symbol of the revealed card.
      */
-    public void revealCard(int row, int col, char letter) {
-        modifyGrid(row, col, letter);
-        movesMade += 1;
+    public void revealCard(int row, int col, int symbol) {
+        long stamp = lock.writeLock();
+        try {
+            setCell(row, col, symbol);
+            movesMade += 1;
+            version += 1;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
         notifyObservers();
     }
 
@@ -136,8 +334,27 @@ public class ConcentrationModel {
      * @param openedCards Co-ordinates of previously opened cards.
      */
     public void hideOpenedCards(String[] openedCards) {
-        modifyGrid(Integer.parseInt(openedCards[0]), Integer.parseInt(openedCards[1]), ConcentrationCard.HIDDEN);
-        modifyGrid(Integer.parseInt(openedCards[2]), Integer.parseInt(openedCards[3]), ConcentrationCard.HIDDEN);
+        hideOpenedCards(Integer.parseInt(openedCards[0]), Integer.parseInt(openedCards[1]),
+                Integer.parseInt(openedCards[2]), Integer.parseInt(openedCards[3]));
+    }
+
+    /**
+     * Hides the opened cards whenever the last two cards opened is a mismatch.
+     *
+     * @param row1 row value of the first opened card.
+     * @param col1 column value of the first opened card.
+     * @param row2 row value of the second opened card.
+     * @param col2 column value of the second opened card.
+     */
+    public void hideOpenedCards(int row1, int col1, int row2, int col2) {
+        long stamp = lock.writeLock();
+        try {
+            setCell(row1, col1, ConcentrationCard.HIDDEN_SYMBOL);
+            setCell(row2, col2, ConcentrationCard.HIDDEN_SYMBOL);
+            version += 1;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
         notifyObservers();
     }
 
@@ -145,7 +362,13 @@ public class ConcentrationModel {
      * update the total match count in the game.
      */
     public void updateMatchCount() {
-        matches += 1;
+        long stamp = lock.writeLock();
+        try {
+            matches += 1;
+            version += 1;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
         notifyObservers();
     }
 
@@ -155,14 +378,25 @@ public class ConcentrationModel {
      * @return Boolean indicating if the game is over.
      */
     public boolean isGameOver() {
-        return gameOver;
+        while (true) {
+            long stamp = lock.tryOptimisticRead();
+            boolean gameOver = this.gameOver;
+            if (lock.validate(stamp)) return gameOver;
+            Thread.onSpinWait();
+        }
     }
 
     /**
      * Update the status of the Game to over.
      */
     public void setGameOver() {
-        gameOver = true;
+        long stamp = lock.writeLock();
+        try {
+            gameOver = true;
+            version += 1;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
         notifyObservers();
     }
 
@@ -172,11 +406,16 @@ public class ConcentrationModel {
      * @return number of matches.
      */
     public int getMatches() {
-        return matches;
+        while (true) {
+            long stamp = lock.tryOptimisticRead();
+            int matches = this.matches;
+            if (lock.validate(stamp)) return matches;
+            Thread.onSpinWait();
+        }
     }
 
     /**
-     * Add an Observer to the list to notify the changes in model.
+     * Add an Observer to the list to notify the changes in model. Safe to call from any thread.
      *
      * @param observer Observer who needs to be notified about the change in the model.
      */
@@ -185,12 +424,13 @@ public class ConcentrationModel {
     }
 
     /**
-     * Notify all the Observers that the state of the model has changed.
+     * Notify all the Observers that the state of the model has changed, then forget the changed cells.
      */
     private void notifyObservers() {
         for (Observer<ConcentrationModel> obs : this.observers) {
             obs.update(this);
         }
+        changedCount = 0;
     }
 
     /**
@@ -0,0 +1,403 @@
+package concentration.common;
+
+import java.nio.ByteBuffer;
+
+/**
+ * The binary version of the Concentration game network protocol.  Every
+ * message is a frame made of a one byte opcode followed by big endian
+ * fields, encoded into and decoded from ByteBuffers without going through
+ * Strings.  Frames have a fixed size, except SNAPSHOT, which carries the
+ * length of its payload.
+ * <p>
+ * A connection always starts in the text ConcentrationProtocol.  After the
+ * BOARD_DIM message the client may send BINARY_MSG as its first command and
+ * wait for the reply: BINARY_OK_MSG switches both directions to frames, any
+ * other reply means the connection stays in text.  Clients that never ask
+ * keep playing the text protocol.
+ *
+ * @author RIT CS
+ */
+public interface ConcentrationBinaryProtocol {
+    /**
+     * the version of the binary protocol
+     */
+    int VERSION = 1;
+
+    /*
+     * FRAME OPCODES
+     */
+
+    /**
+     * client -> server: reveal a card, followed by its row and column
+     */
+    byte REVEAL = 1;
+    /**
+     * server -> client: details of a revealed card, followed by its row, column and symbol
+     */
+    byte CARD = 2;
+    /**
+     * server -> client: the last two cards match, followed by their rows and columns
+     */
+    byte MATCH = 3;
+    /**
+     * server -> client: the last two cards do not match, followed by their rows and columns
+     */
+    byte MISMATCH = 4;
+    /**
+     * server -> client: the game is over
+     */
+    byte GAME_OVER = 5;
+    /**
+     * server -> client: a new game started, followed by the dimension of its board
+     */
+    byte BOARD_DIM = 7;
+    /**
+     * client -> server: start a new game, followed by the dimension of its board
+     */
+    byte NEW_GAME = 10;
+    /**
+     * client -> server: start a shared game, followed by the dimension of its board
+     */
+    byte HOST = 11;
+    /**
+     * client -> server: join a shared game, followed by its id
+     */
+    byte JOIN = 12;
+    /**
+     * server -> client: a shared game was hosted or joined, followed by its id
+     */
+    byte GAME_ID = 13;
+    /**
+     * server -> client: the card is held or was matched by another player, followed by its row and column
+     */
+    byte TAKEN = 14;
+    /**
+     * client -> server: watch a game, followed by its id
+     */
+    byte WATCH = 15;
+    /**
+     * server -> client: every card is hidden from the spectator, except the ones in the CARD frames that follow
+     */
+    byte RESYNC = 16;
+    /**
+     * client -> server: ask for a resume token, followed by 0 (8 bytes).
+     * server -> client: the resume token of the session (8 bytes)
+     */
+    byte TOKEN = 17;
+    /**
+     * client -> server: resume a parked game, followed by its resume token (8 bytes)
+     */
+    byte RESUME = 18;
+    /**
+     * server -> client: the state of a resumed game, followed by its id, the dimension of its board and the
+     * length (4 bytes) of a ConcentrationBoardSnapshot payload
+     */
+    byte SNAPSHOT = 19;
+
+    /*
+     * FRAME LENGTHS, OPCODE INCLUDED
+     */
+
+    /**
+     * opcode, row (2 bytes), column (2 bytes)
+     */
+    int REVEAL_LENGTH = 5;
+    /**
+     * opcode, row (2 bytes), column (2 bytes), symbol (4 bytes)
+     */
+    int CARD_LENGTH = 9;
+    /**
+     * opcode, then row and column (2 bytes each) of both cards
+     */
+    int RESULT_LENGTH = 9;
+    /**
+     * opcode only, for GAME_OVER and RESYNC
+     */
+    int GAME_OVER_LENGTH = 1;
+    /**
+     * opcode, board dimension (2 bytes), for NEW_GAME, HOST and BOARD_DIM
+     */
+    int DIM_LENGTH = 3;
+    /**
+     * opcode, game id (4 bytes), for JOIN, WATCH and GAME_ID
+     */
+    int GAME_ID_LENGTH = 5;
+    /**
+     * opcode, resume token (8 bytes), for TOKEN and RESUME
+     */
+    int TOKEN_LENGTH = 9;
+    /**
+     * opcode, game id (4 bytes), board dimension (2 bytes), payload length (4 bytes), before the payload of a
+     * SNAPSHOT
+     */
+    int SNAPSHOT_HEADER_LENGTH = 11;
+    /**
+     * the longest frame a client sends
+     */
+    int MAX_FRAME_LENGTH = 9;
+
+    /**
+     * Get the length of the frames with an opcode.
+     *
+     * @param opcode the frame opcode
+     * @return the frame length, the length of the header for SNAPSHOT, or
+     * -1 if the opcode is unknown
+     */
+    static int frameLength(byte opcode) {
+        return switch (opcode) {
+            case REVEAL, TAKEN -> REVEAL_LENGTH;
+            case CARD -> CARD_LENGTH;
+            case MATCH, MISMATCH -> RESULT_LENGTH;
+            case GAME_OVER, RESYNC -> GAME_OVER_LENGTH;
+            case NEW_GAME, HOST, BOARD_DIM -> DIM_LENGTH;
+            case JOIN, WATCH, GAME_ID -> GAME_ID_LENGTH;
+            case TOKEN, RESUME -> TOKEN_LENGTH;
+            case SNAPSHOT -> SNAPSHOT_HEADER_LENGTH;
+            default -> -1;
+        };
+    }
+
+    /**
+     * Is there a complete frame between the position and the limit of a buffer?
+     *
+     * @param buffer the buffer, in read mode
+     * @return whether a complete frame can be read
+     * @throws ConcentrationException if the next frame has an unknown opcode
+     */
+    static boolean hasFrame(ByteBuffer buffer) throws ConcentrationException {
+        if (!buffer.hasRemaining()) return false;
+        int length = frameLength(buffer.get(buffer.position()));
+        if (length < 0) throw new ConcentrationException("Unknown frame opcode: " + buffer.get(buffer.position()));
+        if (buffer.get(buffer.position()) == SNAPSHOT && buffer.remaining() >= length) {
+            int payloadLength = buffer.getInt(buffer.position() + SNAPSHOT_HEADER_LENGTH - Integer.BYTES);
+            if (payloadLength < 0) throw new ConcentrationException("Malformed snapshot");
+            length += payloadLength;
+        }
+        return buffer.remaining() >= length;
+    }
+
+    /**
+     * Write a REVEAL frame.
+     *
+     * @param buffer the buffer, in write mode
+     * @param row    the row
+     * @param col    the column
+     */
+    static void putReveal(ByteBuffer buffer, int row, int col) {
+        buffer.put(REVEAL).putShort((short) row).putShort((short) col);
+    }
+
+    /**
+     * Write a CARD frame.
+     *
+     * @param buffer the buffer, in write mode
+     * @param row    the row
+     * @param col    the column
+     * @param symbol the symbol of the card
+     */
+    static void putCard(ByteBuffer buffer, int row, int col, int symbol) {
+        buffer.put(CARD).putShort((short) row).putShort((short) col).putInt(symbol);
+    }
+
+    /**
+     * Write a MATCH or MISMATCH frame.
+     *
+     * @param buffer the buffer, in write mode
+     * @param match  whether the two cards match
+     * @param row1   the row of the first card
+     * @param col1   the column of the first card
+     * @param row2   the row of the second card
+     * @param col2   the column of the second card
+     */
+    static void putResult(ByteBuffer buffer, boolean match, int row1, int col1, int row2, int col2) {
+        buffer.put(match ? MATCH : MISMATCH)
+                .putShort((short) row1).putShort((short) col1)
+                .putShort((short) row2).putShort((short) col2);
+    }
+
+    /**
+     * Write a GAME_OVER frame.
+     *
+     * @param buffer the buffer, in write mode
+     */
+    static void putGameOver(ByteBuffer buffer) {
+        buffer.put(GAME_OVER);
+    }
+
+    /**
+     * Write a NEW_GAME frame.
+     *
+     * @param buffer the buffer, in write mode
+     * @param DIM    the square dimension of the board of the new game
+     */
+    static void putNewGame(ByteBuffer buffer, int DIM) {
+        buffer.put(NEW_GAME).putShort((short) DIM);
+    }
+
+    /**
+     * Write a BOARD_DIM frame.
+     *
+     * @param buffer the buffer, in write mode
+     * @param DIM    the square dimension of the board of the new game
+     */
+    static void putBoardDim(ByteBuffer buffer, int DIM) {
+        buffer.put(BOARD_DIM).putShort((short) DIM);
+    }
+
+    /**
+     * Write a HOST frame.
+     *
+     * @param buffer the buffer, in write mode
+     * @param DIM    the square dimension of the board of the shared game
+     */
+    static void putHost(ByteBuffer buffer, int DIM) {
+        buffer.put(HOST).putShort((short) DIM);
+    }
+
+    /**
+     * Write a JOIN frame.
+     *
+     * @param buffer the buffer, in write mode
+     * @param id     the id of the shared game
+     */
+    static void putJoin(ByteBuffer buffer, int id) {
+        buffer.put(JOIN).putInt(id);
+    }
+
+    /**
+     * Write a GAME_ID frame.
+     *
+     * @param buffer the buffer, in write mode
+     * @param id     the id of the shared game
+     */
+    static void putGameId(ByteBuffer buffer, int id) {
+        buffer.put(GAME_ID).putInt(id);
+    }
+
+    /**
+     * Write a TAKEN frame.
+     *
+     * @param buffer the buffer, in write mode
+     * @param row    the row
+     * @param col    the column
+     */
+    static void putTaken(ByteBuffer buffer, int row, int col) {
+        buffer.put(TAKEN).putShort((short) row).putShort((short) col);
+    }
+
+    /**
+     * Write a WATCH frame.
+     *
+     * @param buffer the buffer, in write mode
+     * @param id     the id of the game
+     */
+    static void putWatch(ByteBuffer buffer, int id) {
+        buffer.put(WATCH).putInt(id);
+    }
+
+    /**
+     * Write a RESYNC frame.
+     *
+     * @param buffer the buffer, in write mode
+     */
+    static void putResync(ByteBuffer buffer) {
+        buffer.put(RESYNC);
+    }
+
+    /**
+     * Write a TOKEN frame.
+     *
+     * @param buffer the buffer to write into
+     * @param token  the resume token, 0 to ask for one
+     */
+    static void putToken(ByteBuffer buffer, long token) {
+        buffer.put(TOKEN).putLong(token);
+    }
+
+    /**
+     * Write a RESUME frame.
+     *
+     * @param buffer the buffer to write into
+     * @param token  the resume token of the parked game
+     */
+    static void putResume(ByteBuffer buffer, long token) {
+        buffer.put(RESUME).putLong(token);
+    }
+
+    /**
+     * Get the length of the SNAPSHOT frame of a board.
+     *
+     * @param snapshot the snapshot of the board
+     * @return the frame length
+     */
+    static int snapshotLength(ConcentrationBoardSnapshot snapshot) {
+        return SNAPSHOT_HEADER_LENGTH + snapshot.payloadLength();
+    }
+
+    /**
+     * Write a SNAPSHOT frame.
+     *
+     * @param buffer   the buffer to write into
+     * @param snapshot the snapshot of the board
+     */
+    static void putSnapshot(ByteBuffer buffer, ConcentrationBoardSnapshot snapshot) {
+        buffer.put(SNAPSHOT).putInt(snapshot.getId()).putShort((short) snapshot.getDIM()).putInt(snapshot.payloadLength());
+        snapshot.putPayload(buffer);
+    }
+
+    /**
+     * Read a row, column or board dimension field.
+     *
+     * @param buffer the buffer, in read mode
+     * @return the coordinate
+     */
+    static int getCoordinate(ByteBuffer buffer) {
+        return Short.toUnsignedInt(buffer.getShort());
+    }
+
+    /**
+     * Read a symbol field.
+     *
+     * @param buffer the buffer, in read mode
+     * @return the symbol
+     */
+    static int getSymbol(ByteBuffer buffer) {
+        return buffer.getInt();
+    }
+
+    /**
+     * Read a game id field.
+     *
+     * @param buffer the buffer, in read mode
+     * @return the game id
+     */
+    static int getGameId(ByteBuffer buffer) {
+        return buffer.getInt();
+    }
+
+    /**
+     * Read a resume token field.
+     *
+     * @param buffer the buffer, in read mode
+     * @return the resume token
+     */
+    static long getToken(ByteBuffer buffer) {
+        return buffer.getLong();
+    }
+
+    /**
+     * Read the fields of a SNAPSHOT frame, after its opcode.
+     *
+     * @param buffer the buffer, in read mode, holding the whole frame
+     * @return the snapshot of the board
+     * @throws ConcentrationException if the payload does not fit the board
+     */
+    static ConcentrationBoardSnapshot getSnapshot(ByteBuffer buffer) throws ConcentrationException {
+        int id = buffer.getInt();
+        int DIM = getCoordinate(buffer);
+        int length = buffer.getInt();
+        ByteBuffer payload = buffer.slice(buffer.position(), length);
+        buffer.position(buffer.position() + length);
+        return ConcentrationBoardSnapshot.getPayload(id, DIM, payload);
+    }
+}
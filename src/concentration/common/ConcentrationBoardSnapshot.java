@@ -0,0 +1,190 @@
+package concentration.common;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+
+/**
+ * The whole state of a board as one player sees it, sent in a single
+ * SNAPSHOT message when a parked game is resumed, instead of replaying its
+ * moves.  The payload packs the state of every cell in row major order into
+ * two bitsets, one bit per cell each: whether the card is face up, and
+ * whether it is matched, so a face up card that is not matched is the first
+ * card of the turn.  The symbols of the face up cards follow as unsigned
+ * shorts, in row major order; hidden cards send no symbol.
+ * <p>
+ * The binary SNAPSHOT frame carries the payload as is, the text line
+ * "SNAPSHOT id DIM payload" carries it in Base64.  A text line only fits in
+ * ConcentrationTextCodec.MAX_LINE_LENGTH up to 8x8 boards; larger boards
+ * should be resumed with the binary protocol.
+ *
+ * @author RIT CS
+ */
+public class ConcentrationBoardSnapshot {
+    /**
+     * the id of the game
+     */
+    private final int id;
+    /**
+     * the square dimension of the board
+     */
+    private final int DIM;
+    /**
+     * one bit per cell, set if the card is face up
+     */
+    private final byte[] faceUp;
+    /**
+     * one bit per cell, set if the card is matched
+     */
+    private final byte[] matched;
+    /**
+     * the symbol of every cell, only meaningful for the face up cards
+     */
+    private final char[] symbols;
+    /**
+     * the number of face up cards
+     */
+    private int faceUpCount;
+
+    /**
+     * Create the snapshot of a board whose cards are all hidden.
+     *
+     * @param id  the id of the game
+     * @param DIM the square dimension of the board
+     */
+    public ConcentrationBoardSnapshot(int id, int DIM) {
+        this.id = id;
+        this.DIM = DIM;
+        this.faceUp = new byte[(DIM * DIM + 7) / 8];
+        this.matched = new byte[this.faceUp.length];
+        this.symbols = new char[DIM * DIM];
+    }
+
+    /**
+     * Turn a card face up.
+     *
+     * @param row     the row
+     * @param col     the column
+     * @param symbol  the symbol of the card
+     * @param matched whether the card is matched
+     */
+    public void setFaceUp(int row, int col, int symbol, boolean matched) {
+        int cell = row * DIM + col;
+        if (!isSet(this.faceUp, cell)) {
+            this.faceUpCount += 1;
+            this.faceUp[cell >> 3] |= (byte) (1 << (cell & 7));
+        }
+        if (matched) this.matched[cell >> 3] |= (byte) (1 << (cell & 7));
+        this.symbols[cell] = (char) symbol;
+    }
+
+    /**
+     * Get the id of the game.
+     *
+     * @return the id
+     */
+    public int getId() {
+        return this.id;
+    }
+
+    /**
+     * Get the square dimension of the board.
+     *
+     * @return the dimension
+     */
+    public int getDIM() {
+        return this.DIM;
+    }
+
+    /**
+     * Is the card at a coordinate face up?
+     *
+     * @param row the row
+     * @param col the column
+     * @return whether the card is face up
+     */
+    public boolean isFaceUp(int row, int col) {
+        return isSet(this.faceUp, row * DIM + col);
+    }
+
+    /**
+     * Is the card at a coordinate matched?
+     *
+     * @param row the row
+     * @param col the column
+     * @return whether the card is matched
+     */
+    public boolean isMatched(int row, int col) {
+        return isSet(this.matched, row * DIM + col);
+    }
+
+    /**
+     * Get the symbol of a face up card.
+     *
+     * @param row the row
+     * @param col the column
+     * @return the symbol
+     */
+    public int getSymbol(int row, int col) {
+        return this.symbols[row * DIM + col];
+    }
+
+    /**
+     * Get the length of the payload.
+     *
+     * @return the number of bytes of the two bitsets and the symbols
+     */
+    public int payloadLength() {
+        return 2 * this.faceUp.length + Character.BYTES * this.faceUpCount;
+    }
+
+    /**
+     * Write the two bitsets and the symbols of the face up cards.
+     *
+     * @param buffer the buffer to write into
+     */
+    public void putPayload(ByteBuffer buffer) {
+        buffer.put(this.faceUp).put(this.matched);
+        for (int cell = 0; cell < this.symbols.length; ++cell) {
+            if (isSet(this.faceUp, cell)) buffer.putChar(this.symbols[cell]);
+        }
+    }
+
+    /**
+     * Read the two bitsets and the symbols of the face up cards.
+     *
+     * @param id      the id of the game
+     * @param DIM     the square dimension of the board
+     * @param payload the payload, in read mode
+     * @return the snapshot
+     * @throws ConcentrationException if the payload does not fit the board
+     */
+    public static ConcentrationBoardSnapshot getPayload(int id, int DIM, ByteBuffer payload) throws ConcentrationException {
+        // the two bitsets alone take a quarter of a byte per cell, check before allocating them
+        if (DIM < 1 || (long) DIM * DIM > 4L * payload.remaining()) throw new ConcentrationException("Malformed snapshot");
+        ConcentrationBoardSnapshot snapshot = new ConcentrationBoardSnapshot(id, DIM);
+        try {
+            byte[] faceUp = new byte[snapshot.faceUp.length];
+            payload.get(faceUp).get(snapshot.matched);
+            for (int cell = 0; cell < snapshot.symbols.length; ++cell) {
+                if (isSet(faceUp, cell)) {
+                    snapshot.setFaceUp(cell / DIM, cell % DIM, payload.getChar(), false);
+                }
+            }
+        } catch (BufferUnderflowException e) {
+            throw new ConcentrationException("Malformed snapshot");
+        }
+        if (payload.hasRemaining()) throw new ConcentrationException("Malformed snapshot");
+        return snapshot;
+    }
+
+    /**
+     * Is the bit of a cell set?
+     *
+     * @param bits the bitset
+     * @param cell the cell number
+     * @return whether the bit is set
+     */
+    private static boolean isSet(byte[] bits, int cell) {
+        return (bits[cell >> 3] & (1 << (cell & 7))) != 0;
+    }
+}
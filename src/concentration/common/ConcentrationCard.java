@@ -2,7 +2,9 @@ package concentration.common;
 
 /**
  * Represents a single card in the concentration game.  A card knows its
- * position in the board, its letter, and whether it is hidden or not.
+ * position in the board, its symbol, and whether it is hidden or not.
+ * Symbols are numbered from 0, so a board can hold thousands of distinct
+ * pairs; the first 26 symbols are also known by the letters 'A' to 'Z'.
  *
  * @author RIT CS
  */
@@ -12,6 +14,11 @@ public class ConcentrationCard {
      */
     public final static char HIDDEN = '.';
 
+    /**
+     * the symbol of a card that is hidden, used where symbols are stored
+     */
+    public final static int HIDDEN_SYMBOL = -1;
+
     /**
      * the row on the board
      */
@@ -25,21 +32,32 @@ public class ConcentrationCard {
      */
     private boolean hidden;
     /**
-     * the letter for this card
+     * the symbol for this card, only changed when a board is reshuffled in place
      */
-    private final char letter;
+    private int symbol;
 
     /**
-     * Create a new card that is initially hidden.
+     * Create a new card from its letter.
      *
      * @param row    the row
      * @param col    the column
-     * @param letter the letter
+     * @param letter the letter, 'A' for symbol 0
      */
     public ConcentrationCard(int row, int col, char letter) {
+        this(row, col, letter - 'A');
+    }
+
+    /**
+     * Create a new card from its symbol.
+     *
+     * @param row    the row
+     * @param col    the column
+     * @param symbol the symbol, 0 or more
+     */
+    public ConcentrationCard(int row, int col, int symbol) {
         this.row = row;
         this.col = col;
-        this.letter = letter;
+        this.symbol = symbol;
         this.hidden = false;
     }
 
@@ -66,6 +84,16 @@ public class ConcentrationCard {
         this.hidden = true;
     }
 
+    /**
+     * Change the symbol of the card.  Used to reshuffle a board in place,
+     * so its cards can be reused for a new game.
+     *
+     * @param symbol the symbol, 0 or more
+     */
+    public void setSymbol(int symbol) {
+        this.symbol = symbol;
+    }
+
     /**
      * Get the card's row.
      *
@@ -85,12 +113,22 @@ public class ConcentrationCard {
     }
 
     /**
-     * Get the letter of the card when not hidden.
+     * Get the letter of the card when not hidden.  Only meaningful for the
+     * first 26 symbols, use getSymbol for larger boards.
      *
      * @return the letter
      */
     public char getLetter() {
-        return this.letter;
+        return (char) (this.symbol + 'A');
+    }
+
+    /**
+     * Get the symbol of the card when not hidden.
+     *
+     * @return the symbol
+     */
+    public int getSymbol() {
+        return this.symbol;
     }
 
     /**
@@ -101,11 +139,13 @@ public class ConcentrationCard {
      */
     @Override
     public String toString() {
-        return "(" + this.row + ", " + this.col + ")=" + this.letter + ", hidden=" + this.hidden;
+        return "(" + this.row + ", " + this.col + ")=" + ConcentrationProtocol.symbolToken(this.symbol) + ", hidden=" + this.hidden;
     }
 
     /**
-     * Two cards are equal if they have the same letter.
+     * Two cards are equal if they are at the same position.  The symbol is
+     * not part of it since reshuffling a board changes it; compare the
+     * symbols to know whether two cards match.
      *
      * @param other the other card
      * @return whether they are equal or not
@@ -114,8 +154,18 @@ public class ConcentrationCard {
     public boolean equals(Object other) {
         boolean result = false;
         if (other instanceof ConcentrationCard c) {
-            result = this.letter == c.letter;
+            result = this.row == c.row && this.col == c.col;
         }
         return result;
     }
+
+    /**
+     * Cards at the same position have the same hash code.
+     *
+     * @return the hash code
+     */
+    @Override
+    public int hashCode() {
+        return 31 * this.row + this.col;
+    }
 }
@@ -0,0 +1,50 @@
+package concentration.common;
+
+/**
+ * A strategy playing the concentration game without a user interface.  The
+ * player picks the cards to reveal and is told what every reveal showed, so
+ * the same player can drive an in-process board or a connection to a server.
+ * Cells are numbered in row major order, i.e. row * DIM + col.
+ *
+ * @author RIT CS
+ */
+public interface ConcentrationPlayer {
+    /**
+     * Start a new game on a board with all the cards hidden.
+     *
+     * @param DIM the square dimension of the board
+     */
+    void newGame(int DIM);
+
+    /**
+     * Choose the next hidden card to reveal.
+     *
+     * @return the cell of the card
+     */
+    int nextCell();
+
+    /**
+     * Learn the symbol of a revealed card.
+     *
+     * @param row    the row of the card
+     * @param col    the column of the card
+     * @param symbol the symbol of the card
+     * @throws ConcentrationException if the card contradicts what the
+     *                                player has seen before
+     */
+    void onCard(int row, int col, int symbol) throws ConcentrationException;
+
+    /**
+     * Learn the result of the last two reveals.  Mismatched cards are hidden
+     * again.
+     *
+     * @param match whether the two cards match
+     * @param row1  the row of the first card
+     * @param col1  the column of the first card
+     * @param row2  the row of the second card
+     * @param col2  the column of the second card
+     * @throws ConcentrationException if the result contradicts the cards
+     *                                the player has seen
+     */
+    void onResult(boolean match, int row1, int col1, int row2, int col2) throws ConcentrationException;
+}
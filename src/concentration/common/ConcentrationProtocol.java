@@ -36,6 +36,28 @@ public interface ConcentrationProtocol {
      * the game is over
      */
     String GAME_OVER = "GAME_OVER";
+    /**
+     * the id of a shared game that was hosted or joined
+     */
+    String GAME_ID = "GAME_ID";
+    /**
+     * the card requested is held or was matched by another player of a
+     * shared game, the reveal is ignored; if it was the second card of a
+     * turn the first card is hidden again and a new turn starts.  A
+     * spectator gets it for a card hidden again that way, or by a player
+     * leaving
+     */
+    String TAKEN = "TAKEN";
+    /**
+     * the spectator's view of the board is reset: every card is hidden,
+     * except the ones in the CARD messages that follow
+     */
+    String RESYNC = "RESYNC";
+    /**
+     * the full state of a resumed game: its id, the dimension of its board
+     * and a ConcentrationBoardSnapshot payload in Base64
+     */
+    String SNAPSHOT = "SNAPSHOT";
 
     /*
      * SERVER -> CLIENT FULL MESSAGE FORMAT STRINGS
@@ -50,7 +72,8 @@ public interface ConcentrationProtocol {
      */
     String ERROR_MSG = ERROR + " %s";
     /**
-     * the card detail message, e.g. "CARD 0 1 A"
+     * the card detail message with the symbol token of the card, e.g.
+     * "CARD 0 1 A" or "CARD 0 1 412" (see symbolToken)
      */
     String CARD_MSG = CARD + " %d %d %s";
 
@@ -71,8 +94,29 @@ public interface ConcentrationProtocol {
      */
     String GAME_OVER_MSG = GAME_OVER;
 
+    /**
+     * the shared game message with the id of the game, e.g. "GAME_ID 42",
+     * followed by BOARD_DIM_MSG
+     */
+    String GAME_ID_MSG = GAME_ID + " %d";
+
+    /**
+     * the taken card message with the card coordinate, e.g. "TAKEN 0 2"
+     */
+    String TAKEN_MSG = TAKEN + " %d %d";
+
+    /**
+     * the full resync message
+     */
+    String RESYNC_MSG = RESYNC;
+
+    /**
+     * the full snapshot message, e.g. "SNAPSHOT 7 2 DAAFAA=="
+     */
+    String SNAPSHOT_MSG = SNAPSHOT + " %d %d %s";
+
     /*
-     * SERVER -> CLIENT MESSAGE HEADERS
+     * CLIENT -> SERVER MESSAGE HEADERS
      */
 
     /**
@@ -84,4 +128,145 @@ public interface ConcentrationProtocol {
      * the reveal message with the card coordinate, e.g. "REVEAL 0 2"
      */
     String REVEAL_MSG = REVEAL + " %d %d";
+
+    /**
+     * the message to have the server start a new game on the same
+     * connection, answered with BOARD_DIM_MSG.  Once a client sent it the
+     * server keeps the connection open after GAME_OVER for the next one.
+     */
+    String NEW_GAME = "NEW_GAME";
+
+    /**
+     * the new game message with the square dimension of its board, e.g.
+     * "NEW_GAME 6"
+     */
+    String NEW_GAME_MSG = NEW_GAME + " %d";
+
+    /**
+     * the message to have the server start a shared game that other
+     * connections can join, answered with GAME_ID_MSG.  Like NEW_GAME it
+     * keeps the connection open after GAME_OVER.
+     */
+    String HOST = "HOST";
+
+    /**
+     * the host message with the square dimension of the board, e.g.
+     * "HOST 6"
+     */
+    String HOST_MSG = HOST + " %d";
+
+    /**
+     * the message to have the server seat the client at a shared game,
+     * answered with GAME_ID_MSG.  The players of a shared game race for the
+     * pairs of the same board.
+     */
+    String JOIN = "JOIN";
+
+    /**
+     * the join message with the id of the game, e.g. "JOIN 42"
+     */
+    String JOIN_MSG = JOIN + " %d";
+
+    /**
+     * the message to have the server stream the moves of a game to the
+     * client, answered with GAME_ID_MSG and a RESYNC_MSG of the board so
+     * far.  The client then only receives the CARD, MATCH, MISMATCH, TAKEN
+     * and RESYNC messages of the game, and the connection closes after its
+     * GAME_OVER.
+     */
+    String WATCH = "WATCH";
+
+    /**
+     * the watch message with the id of the game, e.g. "WATCH 42"
+     */
+    String WATCH_MSG = WATCH + " %d";
+
+    /**
+     * the message to ask the server for a resume token, answered with
+     * TOKEN_MSG.  If the connection drops before the game is over, the
+     * server parks the game under the token for a grace period instead of
+     * ending it.
+     */
+    String TOKEN = "TOKEN";
+
+    /**
+     * the token message with the resume token in hexadecimal, e.g.
+     * "TOKEN 5f3a09c2e17b44d0"
+     */
+    String TOKEN_MSG = TOKEN + " %016x";
+
+    /**
+     * the message to resume the game parked under a token on this
+     * connection, answered with SNAPSHOT_MSG.  The current game of the
+     * connection is abandoned, and the token stays valid for the resumed
+     * game.
+     */
+    String RESUME = "RESUME";
+
+    /**
+     * the resume message with the resume token, e.g.
+     * "RESUME 5f3a09c2e17b44d0"
+     */
+    String RESUME_MSG = RESUME + " %016x";
+
+    /*
+     * BINARY PROTOCOL HANDSHAKE (see ConcentrationBinaryProtocol)
+     */
+
+    /**
+     * the client asks to switch to the binary protocol
+     */
+    String BINARY = "BINARY";
+
+    /**
+     * the binary request with the protocol version, e.g. "BINARY 1"
+     */
+    String BINARY_MSG = BINARY + " %d";
+
+    /**
+     * the server accepted the binary protocol
+     */
+    String BINARY_OK = "BINARY_OK";
+
+    /**
+     * the binary acceptance with the protocol version, e.g. "BINARY_OK 1"
+     */
+    String BINARY_OK_MSG = BINARY_OK + " %d";
+
+    /*
+     * CARD SYMBOL TOKENS
+     */
+
+    /**
+     * the number of symbols sent as a single letter, 'A' to 'Z'
+     */
+    int LETTER_SYMBOLS = 26;
+
+    /**
+     * Get the token sent for a card symbol.  The first 26 symbols are sent
+     * as the letters 'A' to 'Z', so older clients keep working on small
+     * boards; larger symbols are sent as decimal numbers.
+     *
+     * @param symbol the card symbol
+     * @return the symbol token, e.g. "C" or "412"
+     */
+    static String symbolToken(int symbol) {
+        return symbol < LETTER_SYMBOLS ? String.valueOf((char) ('A' + symbol)) : Integer.toString(symbol);
+    }
+
+    /**
+     * Get the card symbol of a token made by symbolToken.
+     *
+     * @param token the symbol token
+     * @return the card symbol
+     * @throws NumberFormatException if the token is not a symbol
+     */
+    static int parseSymbol(String token) {
+        if (token.length() == 1 && token.charAt(0) >= 'A' && token.charAt(0) <= 'Z') {
+            return token.charAt(0) - 'A';
+        }
+        int symbol = Integer.parseInt(token);
+        if (symbol < 0) throw new NumberFormatException("Negative symbol: " + token);
+        return symbol;
+    }
 }
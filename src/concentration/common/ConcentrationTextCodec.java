@@ -0,0 +1,887 @@
+package concentration.common;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Encoder and decoder of the lines of the text ConcentrationProtocol.  Lines
+ * are parsed straight from the bytes of a ByteBuffer into primitive fields
+ * and replies are written into a caller supplied ByteBuffer, so once a
+ * connection is set up no message allocates any object.
+ * <p>
+ * A codec keeps the fields of the last decoded line, so every reader needs
+ * its own instance; the encoders are static and only touch the buffer they
+ * are given.
+ *
+ * @author RIT CS
+ */
+public class ConcentrationTextCodec {
+    /**
+     * the longest line accepted, terminator included
+     */
+    public static final int MAX_LINE_LENGTH = 256;
+
+    /*
+     * DECODED COMMANDS, THE SAME VALUES AS THE BINARY OPCODES, TEXT ONLY
+     * COMMANDS TAKE THE VALUES NO OPCODE USES
+     */
+
+    /**
+     * a line whose header is not known to the codec
+     */
+    public static final byte UNKNOWN = 0;
+    /**
+     * "REVEAL row col"
+     */
+    public static final byte REVEAL = ConcentrationBinaryProtocol.REVEAL;
+    /**
+     * "CARD row col symbol"
+     */
+    public static final byte CARD = ConcentrationBinaryProtocol.CARD;
+    /**
+     * "MATCH row col row2 col2"
+     */
+    public static final byte MATCH = ConcentrationBinaryProtocol.MATCH;
+    /**
+     * "MISMATCH row col row2 col2"
+     */
+    public static final byte MISMATCH = ConcentrationBinaryProtocol.MISMATCH;
+    /**
+     * "GAME_OVER"
+     */
+    public static final byte GAME_OVER = ConcentrationBinaryProtocol.GAME_OVER;
+    /**
+     * "BINARY version"
+     */
+    public static final byte BINARY = 6;
+    /**
+     * "BOARD_DIM DIM"
+     */
+    public static final byte BOARD_DIM = ConcentrationBinaryProtocol.BOARD_DIM;
+    /**
+     * "BINARY_OK version"
+     */
+    public static final byte BINARY_OK = 8;
+    /**
+     * "ERROR message"
+     */
+    public static final byte ERROR = 9;
+    /**
+     * "NEW_GAME DIM"
+     */
+    public static final byte NEW_GAME = ConcentrationBinaryProtocol.NEW_GAME;
+    /**
+     * "HOST DIM"
+     */
+    public static final byte HOST = ConcentrationBinaryProtocol.HOST;
+    /**
+     * "JOIN id"
+     */
+    public static final byte JOIN = ConcentrationBinaryProtocol.JOIN;
+    /**
+     * "GAME_ID id"
+     */
+    public static final byte GAME_ID = ConcentrationBinaryProtocol.GAME_ID;
+    /**
+     * "TAKEN row col"
+     */
+    public static final byte TAKEN = ConcentrationBinaryProtocol.TAKEN;
+    /**
+     * "WATCH id"
+     */
+    public static final byte WATCH = ConcentrationBinaryProtocol.WATCH;
+    /**
+     * "RESYNC"
+     */
+    public static final byte RESYNC = ConcentrationBinaryProtocol.RESYNC;
+    /**
+     * "TOKEN [token]"
+     */
+    public static final byte TOKEN = ConcentrationBinaryProtocol.TOKEN;
+    /**
+     * "RESUME token"
+     */
+    public static final byte RESUME = ConcentrationBinaryProtocol.RESUME;
+    /**
+     * "SNAPSHOT id DIM payload"
+     */
+    public static final byte SNAPSHOT = ConcentrationBinaryProtocol.SNAPSHOT;
+
+    /*
+     * MESSAGE HEADERS AS ASCII BYTES
+     */
+
+    /**
+     * the BOARD_DIM header
+     */
+    private static final byte[] BOARD_DIM_BYTES = ascii(ConcentrationProtocol.BOARD_DIM);
+    /**
+     * the ERROR header
+     */
+    private static final byte[] ERROR_BYTES = ascii(ConcentrationProtocol.ERROR);
+    /**
+     * the REVEAL header
+     */
+    private static final byte[] REVEAL_BYTES = ascii(ConcentrationProtocol.REVEAL);
+    /**
+     * the CARD header
+     */
+    private static final byte[] CARD_BYTES = ascii(ConcentrationProtocol.CARD);
+    /**
+     * the MATCH header
+     */
+    private static final byte[] MATCH_BYTES = ascii(ConcentrationProtocol.MATCH);
+    /**
+     * the MISMATCH header
+     */
+    private static final byte[] MISMATCH_BYTES = ascii(ConcentrationProtocol.MISMATCH);
+    /**
+     * the GAME_OVER header
+     */
+    private static final byte[] GAME_OVER_BYTES = ascii(ConcentrationProtocol.GAME_OVER);
+    /**
+     * the BINARY header
+     */
+    private static final byte[] BINARY_BYTES = ascii(ConcentrationProtocol.BINARY);
+    /**
+     * the BINARY_OK header
+     */
+    private static final byte[] BINARY_OK_BYTES = ascii(ConcentrationProtocol.BINARY_OK);
+    /**
+     * the NEW_GAME header
+     */
+    private static final byte[] NEW_GAME_BYTES = ascii(ConcentrationProtocol.NEW_GAME);
+    /**
+     * the HOST header
+     */
+    private static final byte[] HOST_BYTES = ascii(ConcentrationProtocol.HOST);
+    /**
+     * the JOIN header
+     */
+    private static final byte[] JOIN_BYTES = ascii(ConcentrationProtocol.JOIN);
+    /**
+     * the GAME_ID header
+     */
+    private static final byte[] GAME_ID_BYTES = ascii(ConcentrationProtocol.GAME_ID);
+    /**
+     * the TAKEN header
+     */
+    private static final byte[] TAKEN_BYTES = ascii(ConcentrationProtocol.TAKEN);
+    /**
+     * the WATCH header
+     */
+    private static final byte[] WATCH_BYTES = ascii(ConcentrationProtocol.WATCH);
+    /**
+     * the RESYNC header
+     */
+    private static final byte[] RESYNC_BYTES = ascii(ConcentrationProtocol.RESYNC);
+    /**
+     * the TOKEN header
+     */
+    private static final byte[] TOKEN_BYTES = ascii(ConcentrationProtocol.TOKEN);
+    /**
+     * the RESUME header
+     */
+    private static final byte[] RESUME_BYTES = ascii(ConcentrationProtocol.RESUME);
+    /**
+     * the SNAPSHOT header
+     */
+    private static final byte[] SNAPSHOT_BYTES = ascii(ConcentrationProtocol.SNAPSHOT);
+    /**
+     * the digits of a resume token
+     */
+    private static final byte[] HEX_DIGITS = ascii("0123456789abcdef");
+
+    /**
+     * the command of the last decoded line
+     */
+    private byte command;
+    /**
+     * the numeric arguments of the last decoded line, in order
+     */
+    private final int[] arguments;
+    /**
+     * the message of the last decoded ERROR line
+     */
+    private String message;
+    /**
+     * the resume token of the last decoded TOKEN or RESUME line
+     */
+    private long token;
+    /**
+     * the snapshot of the last decoded SNAPSHOT line
+     */
+    private ConcentrationBoardSnapshot snapshot;
+    /**
+     * absolute index of the next byte to parse in the current line
+     */
+    private int cursor;
+
+    /**
+     * Create a codec with no decoded line.
+     */
+    public ConcentrationTextCodec() {
+        this.command = UNKNOWN;
+        this.arguments = new int[4];
+    }
+
+    /**
+     * Decode the next line between the position and the limit of a buffer.
+     * If a whole line is there the position moves past it, otherwise the
+     * buffer is left untouched.  Headers the codec does not know decode as
+     * UNKNOWN and extra arguments are ignored.
+     *
+     * @param buffer the buffer holding the bytes received, in read mode
+     * @return whether a whole line was decoded
+     * @throws ConcentrationException if MAX_LINE_LENGTH bytes hold no line
+     *                                terminator or the arguments are malformed
+     */
+    public boolean decode(ByteBuffer buffer) throws ConcentrationException {
+        int end = indexOf(buffer, (byte) '\n');
+        if (end < 0) {
+            if (buffer.remaining() >= MAX_LINE_LENGTH) {
+                throw new ConcentrationException("Command too long");
+            }
+            return false;
+        }
+        int lineEnd = end > buffer.position() && buffer.get(end - 1) == '\r' ? end - 1 : end;
+        this.cursor = buffer.position();
+        buffer.position(end + 1);
+
+        this.command = decodeHeader(buffer, lineEnd);
+        switch (this.command) {
+            case REVEAL, TAKEN -> parseNumbers(buffer, lineEnd, 2);
+            case CARD -> {
+                parseNumbers(buffer, lineEnd, 2);
+                this.arguments[2] = parseSymbol(buffer, lineEnd);
+            }
+            case MATCH, MISMATCH -> parseNumbers(buffer, lineEnd, 4);
+            case BINARY, BINARY_OK, BOARD_DIM, NEW_GAME, HOST, JOIN, WATCH, GAME_ID -> parseNumbers(buffer, lineEnd, 1);
+            case ERROR -> this.message = parseText(buffer, lineEnd);
+            case TOKEN -> this.token = this.cursor < lineEnd ? parseToken(buffer, lineEnd) : 0;
+            case RESUME -> this.token = parseToken(buffer, lineEnd);
+            case SNAPSHOT -> {
+                parseNumbers(buffer, lineEnd, 2);
+                this.snapshot = parseSnapshot(buffer, lineEnd);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Get the command of the last decoded line.
+     *
+     * @return one of the command constants of this class
+     */
+    public byte getCommand() {
+        return this.command;
+    }
+
+    /**
+     * Get the row of a REVEAL, CARD or TAKEN, or of the first card of a
+     * MATCH or MISMATCH.
+     *
+     * @return the row
+     */
+    public int getRow() {
+        return this.arguments[0];
+    }
+
+    /**
+     * Get the column of a REVEAL, CARD or TAKEN, or of the first card of a
+     * MATCH or MISMATCH.
+     *
+     * @return the column
+     */
+    public int getCol() {
+        return this.arguments[1];
+    }
+
+    /**
+     * Get the symbol of a CARD.
+     *
+     * @return the card symbol
+     */
+    public int getSymbol() {
+        return this.arguments[2];
+    }
+
+    /**
+     * Get the row of the second card of a MATCH or MISMATCH.
+     *
+     * @return the row
+     */
+    public int getRow2() {
+        return this.arguments[2];
+    }
+
+    /**
+     * Get the column of the second card of a MATCH or MISMATCH.
+     *
+     * @return the column
+     */
+    public int getCol2() {
+        return this.arguments[3];
+    }
+
+    /**
+     * Get the square dimension of the board of a BOARD_DIM, NEW_GAME or
+     * HOST.
+     *
+     * @return the board dimension
+     */
+    public int getDIM() {
+        return this.arguments[0];
+    }
+
+    /**
+     * Get the id of the game of a JOIN, WATCH or GAME_ID.
+     *
+     * @return the game id
+     */
+    public int getGameId() {
+        return this.arguments[0];
+    }
+
+    /**
+     * Get the protocol version of a BINARY request or BINARY_OK reply.
+     *
+     * @return the version
+     */
+    public int getVersion() {
+        return this.arguments[0];
+    }
+
+    /**
+     * Get the message of an ERROR.
+     *
+     * @return the error message
+     */
+    public String getMessage() {
+        return this.message;
+    }
+
+    /**
+     * Get the resume token of a TOKEN or RESUME.
+     *
+     * @return the token, 0 for a TOKEN request without one
+     */
+    public long getToken() {
+        return this.token;
+    }
+
+    /**
+     * Get the snapshot of a SNAPSHOT.  Every SNAPSHOT line decodes into a
+     * new snapshot.
+     *
+     * @return the snapshot of the board
+     */
+    public ConcentrationBoardSnapshot getSnapshot() {
+        return this.snapshot;
+    }
+
+    /**
+     * Write a BOARD_DIM line, e.g. "BOARD_DIM 4".
+     *
+     * @param buffer the buffer to write into
+     * @param DIM    the square dimension of the board
+     */
+    public static void encodeBoardDim(ByteBuffer buffer, int DIM) {
+        buffer.put(BOARD_DIM_BYTES);
+        putArgument(buffer, DIM);
+        buffer.put((byte) '\n');
+    }
+
+    /**
+     * Write a REVEAL line, e.g. "REVEAL 0 2".
+     *
+     * @param buffer the buffer to write into
+     * @param row    the row of the card
+     * @param col    the column of the card
+     */
+    public static void encodeReveal(ByteBuffer buffer, int row, int col) {
+        buffer.put(REVEAL_BYTES);
+        putArgument(buffer, row);
+        putArgument(buffer, col);
+        buffer.put((byte) '\n');
+    }
+
+    /**
+     * Write a NEW_GAME line, e.g. "NEW_GAME 6".
+     *
+     * @param buffer the buffer to write into
+     * @param DIM    the square dimension of the board of the new game
+     */
+    public static void encodeNewGame(ByteBuffer buffer, int DIM) {
+        buffer.put(NEW_GAME_BYTES);
+        putArgument(buffer, DIM);
+        buffer.put((byte) '\n');
+    }
+
+    /**
+     * Write a HOST line, e.g. "HOST 6".
+     *
+     * @param buffer the buffer to write into
+     * @param DIM    the square dimension of the board of the shared game
+     */
+    public static void encodeHost(ByteBuffer buffer, int DIM) {
+        buffer.put(HOST_BYTES);
+        putArgument(buffer, DIM);
+        buffer.put((byte) '\n');
+    }
+
+    /**
+     * Write a JOIN line, e.g. "JOIN 42".
+     *
+     * @param buffer the buffer to write into
+     * @param id     the id of the shared game
+     */
+    public static void encodeJoin(ByteBuffer buffer, int id) {
+        buffer.put(JOIN_BYTES);
+        putArgument(buffer, id);
+        buffer.put((byte) '\n');
+    }
+
+    /**
+     * Write a GAME_ID line, e.g. "GAME_ID 42".
+     *
+     * @param buffer the buffer to write into
+     * @param id     the id of the shared game
+     */
+    public static void encodeGameId(ByteBuffer buffer, int id) {
+        buffer.put(GAME_ID_BYTES);
+        putArgument(buffer, id);
+        buffer.put((byte) '\n');
+    }
+
+    /**
+     * Write a TAKEN line, e.g. "TAKEN 0 2".
+     *
+     * @param buffer the buffer to write into
+     * @param row    the row of the card
+     * @param col    the column of the card
+     */
+    public static void encodeTaken(ByteBuffer buffer, int row, int col) {
+        buffer.put(TAKEN_BYTES);
+        putArgument(buffer, row);
+        putArgument(buffer, col);
+        buffer.put((byte) '\n');
+    }
+
+    /**
+     * Write a WATCH line, e.g. "WATCH 42".
+     *
+     * @param buffer the buffer to write into
+     * @param id     the id of the game
+     */
+    public static void encodeWatch(ByteBuffer buffer, int id) {
+        buffer.put(WATCH_BYTES);
+        putArgument(buffer, id);
+        buffer.put((byte) '\n');
+    }
+
+    /**
+     * Write a RESYNC line.
+     *
+     * @param buffer the buffer to write into
+     */
+    public static void encodeResync(ByteBuffer buffer) {
+        buffer.put(RESYNC_BYTES).put((byte) '\n');
+    }
+
+    /**
+     * Write a TOKEN line, e.g. "TOKEN 5f3a09c2e17b44d0", or "TOKEN" to ask
+     * for one.
+     *
+     * @param buffer the buffer to write into
+     * @param token  the resume token, 0 to ask for one
+     */
+    public static void encodeToken(ByteBuffer buffer, long token) {
+        buffer.put(TOKEN_BYTES);
+        if (token != 0) putToken(buffer, token);
+        buffer.put((byte) '\n');
+    }
+
+    /**
+     * Write a RESUME line, e.g. "RESUME 5f3a09c2e17b44d0".
+     *
+     * @param buffer the buffer to write into
+     * @param token  the resume token of the parked game
+     */
+    public static void encodeResume(ByteBuffer buffer, long token) {
+        buffer.put(RESUME_BYTES);
+        putToken(buffer, token);
+        buffer.put((byte) '\n');
+    }
+
+    /**
+     * Get the length of the SNAPSHOT line of a board, terminator included.
+     *
+     * @param snapshot the snapshot of the board
+     * @return the line length
+     */
+    public static int snapshotLength(ConcentrationBoardSnapshot snapshot) {
+        return SNAPSHOT_BYTES.length + 4 + digits(snapshot.getId()) + digits(snapshot.getDIM())
+                + (snapshot.payloadLength() + 2) / 3 * 4;
+    }
+
+    /**
+     * Write a SNAPSHOT line, e.g. "SNAPSHOT 7 2 DAAFAA==".  Only a resume
+     * sends one, so the Base64 encoding may allocate.
+     *
+     * @param buffer   the buffer to write into
+     * @param snapshot the snapshot of the board
+     */
+    public static void encodeSnapshot(ByteBuffer buffer, ConcentrationBoardSnapshot snapshot) {
+        buffer.put(SNAPSHOT_BYTES);
+        putArgument(buffer, snapshot.getId());
+        putArgument(buffer, snapshot.getDIM());
+        ByteBuffer payload = ByteBuffer.allocate(snapshot.payloadLength());
+        snapshot.putPayload(payload);
+        buffer.put((byte) ' ').put(Base64.getEncoder().encode(payload.array()));
+        buffer.put((byte) '\n');
+    }
+
+    /**
+     * Write a CARD line with the symbol token of the card, e.g. "CARD 0 1 A"
+     * or "CARD 0 1 412".
+     *
+     * @param buffer the buffer to write into
+     * @param row    the row of the card
+     * @param col    the column of the card
+     * @param symbol the symbol of the card
+     */
+    public static void encodeCard(ByteBuffer buffer, int row, int col, int symbol) {
+        buffer.put(CARD_BYTES);
+        putArgument(buffer, row);
+        putArgument(buffer, col);
+        if (symbol >= 0 && symbol < ConcentrationProtocol.LETTER_SYMBOLS) {
+            buffer.put((byte) ' ').put((byte) ('A' + symbol));
+        } else {
+            putArgument(buffer, symbol);
+        }
+        buffer.put((byte) '\n');
+    }
+
+    /**
+     * Write a MATCH or MISMATCH line, e.g. "MISMATCH 0 1 3 2".
+     *
+     * @param buffer the buffer to write into
+     * @param match  whether the two cards match
+     * @param row1   the row of the first card
+     * @param col1   the column of the first card
+     * @param row2   the row of the second card
+     * @param col2   the column of the second card
+     */
+    public static void encodeResult(ByteBuffer buffer, boolean match, int row1, int col1, int row2, int col2) {
+        buffer.put(match ? MATCH_BYTES : MISMATCH_BYTES);
+        putArgument(buffer, row1);
+        putArgument(buffer, col1);
+        putArgument(buffer, row2);
+        putArgument(buffer, col2);
+        buffer.put((byte) '\n');
+    }
+
+    /**
+     * Write a GAME_OVER line.
+     *
+     * @param buffer the buffer to write into
+     */
+    public static void encodeGameOver(ByteBuffer buffer) {
+        buffer.put(GAME_OVER_BYTES).put((byte) '\n');
+    }
+
+    /**
+     * Write a BINARY request, e.g. "BINARY 1".
+     *
+     * @param buffer  the buffer to write into
+     * @param version the binary protocol version
+     */
+    public static void encodeBinary(ByteBuffer buffer, int version) {
+        buffer.put(BINARY_BYTES);
+        putArgument(buffer, version);
+        buffer.put((byte) '\n');
+    }
+
+    /**
+     * Write a BINARY_OK reply, e.g. "BINARY_OK 1".
+     *
+     * @param buffer  the buffer to write into
+     * @param version the binary protocol version
+     */
+    public static void encodeBinaryOk(ByteBuffer buffer, int version) {
+        buffer.put(BINARY_OK_BYTES);
+        putArgument(buffer, version);
+        buffer.put((byte) '\n');
+    }
+
+    /**
+     * Write an ERROR line, e.g. "ERROR Invalid coordinates".  Non ASCII
+     * characters are replaced by '?' and the line is cut to MAX_LINE_LENGTH.
+     *
+     * @param buffer  the buffer to write into
+     * @param message the error message
+     */
+    public static void encodeError(ByteBuffer buffer, String message) {
+        buffer.put(ERROR_BYTES).put((byte) ' ');
+        int length = Math.min(message.length(), MAX_LINE_LENGTH - ERROR_BYTES.length - 2);
+        for (int i = 0; i < length; ++i) {
+            char c = message.charAt(i);
+            buffer.put(c < 0x80 && c != '\n' ? (byte) c : (byte) '?');
+        }
+        buffer.put((byte) '\n');
+    }
+
+    /**
+     * Decode the header of the current line and move the cursor past it.
+     *
+     * @param buffer  the buffer holding the line
+     * @param lineEnd absolute index of the end of the line
+     * @return the command of the header
+     */
+    private byte decodeHeader(ByteBuffer buffer, int lineEnd) {
+        int start = this.cursor;
+        int end = start;
+        while (end < lineEnd && buffer.get(end) != ' ') {
+            ++end;
+        }
+        this.cursor = end;
+        if (matches(buffer, start, end, REVEAL_BYTES)) return REVEAL;
+        if (matches(buffer, start, end, CARD_BYTES)) return CARD;
+        if (matches(buffer, start, end, MATCH_BYTES)) return MATCH;
+        if (matches(buffer, start, end, MISMATCH_BYTES)) return MISMATCH;
+        if (matches(buffer, start, end, GAME_OVER_BYTES)) return GAME_OVER;
+        if (matches(buffer, start, end, BINARY_BYTES)) return BINARY;
+        if (matches(buffer, start, end, BOARD_DIM_BYTES)) return BOARD_DIM;
+        if (matches(buffer, start, end, BINARY_OK_BYTES)) return BINARY_OK;
+        if (matches(buffer, start, end, ERROR_BYTES)) return ERROR;
+        if (matches(buffer, start, end, NEW_GAME_BYTES)) return NEW_GAME;
+        if (matches(buffer, start, end, HOST_BYTES)) return HOST;
+        if (matches(buffer, start, end, JOIN_BYTES)) return JOIN;
+        if (matches(buffer, start, end, GAME_ID_BYTES)) return GAME_ID;
+        if (matches(buffer, start, end, TAKEN_BYTES)) return TAKEN;
+        if (matches(buffer, start, end, WATCH_BYTES)) return WATCH;
+        if (matches(buffer, start, end, RESYNC_BYTES)) return RESYNC;
+        if (matches(buffer, start, end, TOKEN_BYTES)) return TOKEN;
+        if (matches(buffer, start, end, RESUME_BYTES)) return RESUME;
+        if (matches(buffer, start, end, SNAPSHOT_BYTES)) return SNAPSHOT;
+        return UNKNOWN;
+    }
+
+    /**
+     * Parse some decimal arguments of the current line into the arguments.
+     *
+     * @param buffer  the buffer holding the line
+     * @param lineEnd absolute index of the end of the line
+     * @param count   the number of arguments to parse
+     * @throws ConcentrationException if an argument is missing or malformed
+     */
+    private void parseNumbers(ByteBuffer buffer, int lineEnd, int count) throws ConcentrationException {
+        for (int i = 0; i < count; ++i) {
+            this.arguments[i] = parseNumber(buffer, lineEnd);
+        }
+    }
+
+    /**
+     * Parse the next argument of the current line as a symbol token: a
+     * letter 'A' to 'Z' or a decimal number.
+     *
+     * @param buffer  the buffer holding the line
+     * @param lineEnd absolute index of the end of the line
+     * @return the card symbol
+     * @throws ConcentrationException if the argument is missing or malformed
+     */
+    private int parseSymbol(ByteBuffer buffer, int lineEnd) throws ConcentrationException {
+        int start = this.cursor + 1;
+        if (start < lineEnd && (start + 1 == lineEnd || buffer.get(start + 1) == ' ')) {
+            byte letter = buffer.get(start);
+            if (letter >= 'A' && letter <= 'Z') {
+                this.cursor = start + 1;
+                return letter - 'A';
+            }
+        }
+        return parseNumber(buffer, lineEnd);
+    }
+
+    /**
+     * Parse the rest of the current line as ASCII text.  Only error lines
+     * carry text, so the allocation is off the common path.
+     *
+     * @param buffer  the buffer holding the line
+     * @param lineEnd absolute index of the end of the line
+     * @return the text, empty if there is none
+     */
+    private String parseText(ByteBuffer buffer, int lineEnd) {
+        int start = Math.min(this.cursor + 1, lineEnd);
+        byte[] text = new byte[lineEnd - start];
+        buffer.get(start, text);
+        this.cursor = lineEnd;
+        return new String(text, StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * Parse the next argument of the current line as a non negative decimal
+     * number.
+     *
+     * @param buffer  the buffer holding the line
+     * @param lineEnd absolute index of the end of the line
+     * @return the number
+     * @throws ConcentrationException if the argument is missing or malformed
+     */
+    private int parseNumber(ByteBuffer buffer, int lineEnd) throws ConcentrationException {
+        if (this.cursor >= lineEnd || buffer.get(this.cursor) != ' ') {
+            throw new ConcentrationException("Missing argument");
+        }
+        int i = this.cursor + 1;
+        int value = 0;
+        for (; i < lineEnd && buffer.get(i) != ' '; ++i) {
+            int digit = buffer.get(i) - '0';
+            if (digit < 0 || digit > 9 || value > (Integer.MAX_VALUE - digit) / 10) {
+                throw new ConcentrationException("Malformed number");
+            }
+            value = value * 10 + digit;
+        }
+        if (i == this.cursor + 1) throw new ConcentrationException("Missing argument");
+        this.cursor = i;
+        return value;
+    }
+
+    /**
+     * Parse the next argument of the current line as a resume token of up to
+     * 16 hexadecimal digits.
+     *
+     * @param buffer  the buffer holding the line
+     * @param lineEnd absolute index of the end of the line
+     * @return the token
+     * @throws ConcentrationException if the argument is missing or malformed
+     */
+    private long parseToken(ByteBuffer buffer, int lineEnd) throws ConcentrationException {
+        if (this.cursor >= lineEnd || buffer.get(this.cursor) != ' ') {
+            throw new ConcentrationException("Missing argument");
+        }
+        int i = this.cursor + 1;
+        long value = 0;
+        for (; i < lineEnd && buffer.get(i) != ' '; ++i) {
+            int digit = Character.digit(buffer.get(i), 16);
+            if (digit < 0 || i - this.cursor > 16) throw new ConcentrationException("Malformed token");
+            value = value << 4 | digit;
+        }
+        if (i == this.cursor + 1) throw new ConcentrationException("Missing argument");
+        this.cursor = i;
+        return value;
+    }
+
+    /**
+     * Parse the next argument of the current line as the Base64 payload of
+     * a snapshot, whose id and board dimension are the first two arguments.
+     *
+     * @param buffer  the buffer holding the line
+     * @param lineEnd absolute index of the end of the line
+     * @return the snapshot
+     * @throws ConcentrationException if the payload is missing or malformed
+     */
+    private ConcentrationBoardSnapshot parseSnapshot(ByteBuffer buffer, int lineEnd) throws ConcentrationException {
+        if (this.cursor >= lineEnd) throw new ConcentrationException("Missing argument");
+        try {
+            byte[] payload = Base64.getDecoder().decode(parseText(buffer, lineEnd));
+            return ConcentrationBoardSnapshot.getPayload(this.arguments[0], this.arguments[1], ByteBuffer.wrap(payload));
+        } catch (IllegalArgumentException e) {
+            throw new ConcentrationException("Malformed snapshot");
+        }
+    }
+
+    /**
+     * Write a space followed by a resume token as 16 hexadecimal digits.
+     *
+     * @param buffer the buffer to write into
+     * @param token  the token
+     */
+    private static void putToken(ByteBuffer buffer, long token) {
+        buffer.put((byte) ' ');
+        for (int shift = 60; shift >= 0; shift -= 4) {
+            buffer.put(HEX_DIGITS[(int) (token >>> shift) & 0xf]);
+        }
+    }
+
+    /**
+     * Count the decimal digits of a non negative number.
+     *
+     * @param value the number
+     * @return the number of digits
+     */
+    private static int digits(int value) {
+        int digits = 1;
+        for (int v = value; v >= 10; v /= 10) {
+            ++digits;
+        }
+        return digits;
+    }
+
+    /**
+     * Write a space followed by a decimal number.
+     *
+     * @param buffer the buffer to write into
+     * @param value  the number
+     */
+    private static void putArgument(ByteBuffer buffer, int value) {
+        buffer.put((byte) ' ');
+        long remaining = value;
+        if (remaining < 0) {
+            buffer.put((byte) '-');
+            remaining = -remaining;
+        }
+        int digits = 1;
+        for (long v = remaining; v >= 10; v /= 10) {
+            ++digits;
+        }
+        int end = buffer.position() + digits;
+        for (int i = end - 1; i >= buffer.position(); --i) {
+            buffer.put(i, (byte) ('0' + remaining % 10));
+            remaining /= 10;
+        }
+        buffer.position(end);
+    }
+
+    /**
+     * Do the bytes of a buffer between two indices equal some ASCII bytes?
+     *
+     * @param buffer the buffer
+     * @param start  absolute index of the first byte
+     * @param end    absolute index past the last byte
+     * @param ascii  the expected bytes
+     * @return whether the bytes are equal
+     */
+    private static boolean matches(ByteBuffer buffer, int start, int end, byte[] ascii) {
+        if (end - start != ascii.length) return false;
+        for (int i = 0; i < ascii.length; ++i) {
+            if (buffer.get(start + i) != ascii[i]) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Find the first occurrence of a byte between the position and the limit
+     * of a buffer.
+     *
+     * @param buffer buffer to search
+     * @param value  byte to find
+     * @return absolute index of the byte or -1 if absent
+     */
+    private static int indexOf(ByteBuffer buffer, byte value) {
+        for (int i = buffer.position(); i < buffer.limit(); ++i) {
+            if (buffer.get(i) == value) return i;
+        }
+        return -1;
+    }
+
+    /**
+     * Get the ASCII bytes of a message header.
+     *
+     * @param header the header
+     * @return its bytes
+     */
+    private static byte[] ascii(String header) {
+        return header.getBytes(StandardCharsets.US_ASCII);
+    }
+}
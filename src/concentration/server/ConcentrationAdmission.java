@@ -0,0 +1,194 @@
+package concentration.server;
+
+import concentration.common.ConcentrationTextCodec;
+import concentration.server.metrics.ConcentrationMetrics;
+
+import java.io.IOException;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Admission control of the accept loop, so a connection flood degrades the server instead of exhausting its
+ * threads and memory. A connection is turned away before it gets a session, a thread or a board when the server
+ * already runs its largest number of sessions, or when connections arrive faster than the accept rate. Rejected
+ * clients get the REJECTION line and are closed at once.
+ * <p>
+ * The accept rate is a token bucket refilled continuously, which lets a burst of up to one second's worth of
+ * connections through. admit is only called by the accepting thread, so the bucket needs no synchronization;
+ * release is called by the sessions when they close, from any thread.
+ * <p>
+ * The accept loops also go through it when accept fails or a session cannot be started, so a single connection
+ * never takes the accept loop down with it.
+ *
+ * @author Arya Girisha Rao, Pradeep Kumar Gontla.
+ */
+
+public class ConcentrationAdmission {
+
+    /**
+     * The ERROR line sent to a rejected connection.
+     */
+    private static final byte[] REJECTION = rejection("Server busy");
+
+    /**
+     * Milliseconds the accept loop waits after accept failed.
+     */
+    private static final long ACCEPT_BACKOFF_MILLIS = 50;
+
+    /**
+     * Largest number of concurrent sessions, 0 for no limit.
+     */
+    private final int maxSessions;
+
+    /**
+     * Largest number of connections accepted per second, 0 for no limit.
+     */
+    private final int acceptRate;
+
+    /**
+     * Number of sessions admitted and not closed yet.
+     */
+    private final AtomicInteger sessions;
+
+    /**
+     * Connections that can still be accepted without exceeding the rate. Only touched by the accepting thread.
+     */
+    private double tokens;
+
+    /**
+     * System.nanoTime() of the last refill of the tokens. Only touched by the accepting thread.
+     */
+    private long refillNanos;
+
+    /**
+     * Metrics of the server.
+     */
+    private final ConcentrationMetrics metrics;
+
+    /**
+     * Creates the admission control of a server with no session yet.
+     *
+     * @param maxSessions Largest number of concurrent sessions, 0 for no limit.
+     * @param acceptRate  Largest number of connections accepted per second, 0 for no limit.
+     * @param metrics     Metrics of the server.
+     */
+    public ConcentrationAdmission(int maxSessions, int acceptRate, ConcentrationMetrics metrics) {
+        this.maxSessions = maxSessions;
+        this.acceptRate = acceptRate;
+        this.sessions = new AtomicInteger();
+        this.tokens = acceptRate;
+        this.refillNanos = System.nanoTime();
+        this.metrics = metrics;
+    }
+
+    /**
+     * Decides whether a connection just accepted gets a session, and records why not. An admitted connection
+     * must be released once its session is closed.
+     *
+     * @return whether the connection is admitted.
+     */
+    public boolean admit() {
+        if (acceptRate > 0) {
+            long now = System.nanoTime();
+            tokens = Math.min(acceptRate, tokens + (now - refillNanos) * acceptRate / (double) TimeUnit.SECONDS.toNanos(1));
+            refillNanos = now;
+            if (tokens < 1) {
+                metrics.acceptThrottled();
+                return false;
+            }
+            tokens -= 1;
+        }
+        if (sessions.incrementAndGet() > maxSessions && maxSessions > 0) {
+            sessions.decrementAndGet();
+            metrics.sessionRejected();
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Frees the place of an admitted connection whose session is closed. Safe to call from any thread.
+     */
+    public void release() {
+        sessions.decrementAndGet();
+    }
+
+    /**
+     * Records a failed accept and waits a little before the next one. accept mostly fails when the process is out
+     * of file descriptors (EMFILE): the pending connection stays in the backlog, so accepting again at once would
+     * only spin, while waiting gives the closing sessions time to free theirs. Only called by the accepting thread.
+     *
+     * @param e the failure.
+     */
+    public void acceptFailed(IOException e) {
+        System.err.println("Failed to accept a connection. Error details: " + e.getMessage());
+        metrics.error(e);
+        try {
+            Thread.sleep(ACCEPT_BACKOFF_MILLIS);
+        } catch (InterruptedException interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Closes an admitted connection whose session could not be started, e.g. because no thread could be created
+     * for it, and frees its place.
+     *
+     * @param socket the connection.
+     * @param e      the failure.
+     */
+    public void abandon(Socket socket, Throwable e) {
+        System.err.println("Failed to start a session. Error details: " + e);
+        if (e instanceof Exception exception) metrics.error(exception);
+        release();
+        try {
+            socket.close();
+        } catch (IOException closeFailure) {
+            System.err.println("Failed to close the socket. Error details: " + closeFailure.getMessage());
+        }
+    }
+
+    /**
+     * Sends the REJECTION line to a connection that was not admitted and closes it. A rejected client gets no
+     * more than one short write, so a slow client cannot hold up the accepting thread.
+     *
+     * @param socket the connection.
+     */
+    public static void reject(Socket socket) {
+        try (socket) {
+            socket.getOutputStream().write(REJECTION);
+        } catch (IOException e) {
+            System.err.println("Failed to reject a connection. Error details: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Sends the REJECTION line to a connection that was not admitted and closes it.
+     *
+     * @param channel the connection, in blocking mode.
+     */
+    public static void reject(SocketChannel channel) {
+        try (channel) {
+            channel.write(ByteBuffer.wrap(REJECTION));
+        } catch (IOException e) {
+            System.err.println("Failed to reject a connection. Error details: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Encodes an ERROR line.
+     *
+     * @param message the error message.
+     * @return the bytes of the line.
+     */
+    private static byte[] rejection(String message) {
+        ByteBuffer buffer = ByteBuffer.allocate(ConcentrationTextCodec.MAX_LINE_LENGTH);
+        ConcentrationTextCodec.encodeError(buffer, message);
+        byte[] line = new byte[buffer.position()];
+        buffer.flip().get(line);
+        return line;
+    }
+}
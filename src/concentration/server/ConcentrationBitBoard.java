@@ -0,0 +1,269 @@
+package concentration.server;
+
+import concentration.common.ConcentrationCard;
+import concentration.common.ConcentrationException;
+import concentration.common.ConcentrationProtocol;
+
+import java.util.Arrays;
+import java.util.random.RandomGenerator;
+
+/**
+ * Represents a large game board for the concentration game.  Instead of one
+ * card object per cell it keeps the symbols in a primitive array and the
+ * hidden and matched state of the cells in bitsets, so marathon boards of up
+ * to 256x256 stay compact.  Cells are numbered in row major order.
+ *
+ * @author RIT CS, Arya Girisha Rao, Pradeep Kumar Gontla.
+ */
+public class ConcentrationBitBoard implements ConcentrationResettableBoard {
+    /**
+     * the largest board is 256x256
+     */
+    final static int MAX_DIM = 256;
+    /**
+     * no card is waiting for its pair to be revealed
+     */
+    private final static int NONE = -1;
+
+    /**
+     * the square dimension of the board
+     */
+    private final int DIM;
+    /**
+     * the symbol of every cell, as an unsigned 16 bit value
+     */
+    private final char[] symbols;
+    /**
+     * bit set for every cell that is hidden
+     */
+    private final long[] hidden;
+    /**
+     * bit set for every cell that has been matched
+     */
+    private final long[] matched;
+    /**
+     * if the first card is revealed this is its cell (otherwise NONE)
+     */
+    private int revealedCell;
+    /**
+     * the number of card matches that have been made so far
+     */
+    private int matches;
+    /**
+     * the number of cards that are currently hidden
+     */
+    private int hiddenCount;
+
+    /**
+     * Create the board.  The same seeded random generator always produces
+     * the same board.
+     *
+     * @param DIM    square dimension
+     * @param random random generator used to shuffle the cards
+     * @throws ConcentrationException if the dimensions are invalid
+     */
+    public ConcentrationBitBoard(int DIM, RandomGenerator random) throws ConcentrationException {
+        // check for bad dimensions
+        if (DIM < ConcentrationBoard.MIN_DIM || DIM > MAX_DIM) {
+            throw new ConcentrationException("Board size out of range: " + DIM);
+        } else if (DIM % 2 != 0) {
+            throw new ConcentrationException("Board size not even: " + DIM);
+        }
+
+        int cells = DIM * DIM;
+        this.DIM = DIM;
+        this.symbols = ConcentrationBoard.shuffledSymbols(cells, random);
+        this.hidden = new long[(cells + Long.SIZE - 1) / Long.SIZE];
+        this.matched = new long[this.hidden.length];
+        hideAll();
+    }
+
+    /**
+     * Reshuffle the symbols in place and hide all the cards.  The arrays
+     * are reused, nothing is allocated.
+     *
+     * @param random random generator used to shuffle the cards
+     */
+    @Override
+    public void reset(RandomGenerator random) {
+        ConcentrationBoard.deal(this.symbols, random);
+        Arrays.fill(this.matched, 0L);
+        hideAll();
+    }
+
+    /**
+     * Hide all the cards in the board, a whole word at a time, and
+     * initialize the rest of the state of a new game.
+     */
+    private void hideAll() {
+        int cells = DIM * DIM;
+        Arrays.fill(this.hidden, -1L);
+        if (cells % Long.SIZE != 0) {
+            this.hidden[this.hidden.length - 1] = (1L << cells) - 1;
+        }
+        this.revealedCell = NONE;
+        this.matches = 0;
+        this.hiddenCount = cells;
+    }
+
+    @Override
+    public int getDIM() {
+        return DIM;
+    }
+
+    /**
+     * Get a view of the card at a coordinate.  The view is a snapshot and is
+     * not updated by later reveals.
+     *
+     * @param row the row
+     * @param col the column
+     * @return the card
+     * @throws ConcentrationException if the coordinate is invalid
+     */
+    @Override
+    public ConcentrationCard getCard(int row, int col) throws ConcentrationException {
+        return cardView(cell(row, col));
+    }
+
+    @Override
+    public boolean isMatched(int row, int col) throws ConcentrationException {
+        return isSet(this.matched, cell(row, col));
+    }
+
+    @Override
+    public void updateRevealStatus(CardMatch cardMatch) {
+        int cell1 = cardMatch.getCard1().getRow() * DIM + cardMatch.getCard1().getCol();
+        int cell2 = cardMatch.getCard2().getRow() * DIM + cardMatch.getCard2().getCol();
+        if (cardMatch.isMatch()) {
+            set(this.matched, cell1);
+            set(this.matched, cell2);
+            this.matches += 2;
+        } else {
+            set(this.hidden, cell1);
+            set(this.hidden, cell2);
+            this.hiddenCount += 2;
+        }
+    }
+
+    @Override
+    public CardMatch reveal(int row, int col) throws ConcentrationException {
+        if (gameOver()) throw new ConcentrationException("Game is already over");
+
+        int cell = cell(row, col);
+        if (!isSet(this.hidden, cell)) throw new ConcentrationException("Card Already Revealed");
+
+        clear(this.hidden, cell);
+        this.hiddenCount -= 1;
+        CardMatch cardMatch;
+        if (revealedCell == NONE) {
+            cardMatch = new CardMatch(null, cardView(cell), false);
+            revealedCell = cell;
+        } else {
+            cardMatch = new CardMatch(cardView(revealedCell), cardView(cell), symbols[revealedCell] == symbols[cell]);
+            revealedCell = NONE;
+        }
+        return cardMatch;
+    }
+
+    @Override
+    public boolean gameOver() {
+        return this.matches == this.DIM * this.DIM;
+    }
+
+    @Override
+    public int getHiddenCount() {
+        return this.hiddenCount;
+    }
+
+    /**
+     * Returns a string representation of the board in the same format as
+     * ConcentrationBoard, with every symbol shown as its symbol token.
+     *
+     * @return the board as a string
+     */
+    @Override
+    public String toString() {
+        // tokens beyond the letters take several characters, so they are spaced apart
+        String separator = DIM * DIM / 2 > ConcentrationProtocol.LETTER_SYMBOLS ? " " : "";
+        StringBuilder str = new StringBuilder((DIM + 8) * (DIM + 1));
+        // build the top row of indices
+        str.append("  ");
+        for (int col = 0; col < this.DIM; ++col) {
+            str.append(col == 0 ? "" : separator).append(col);
+        }
+        str.append("\n");
+        // build each row of the actual board
+        for (int row = 0; row < this.DIM; ++row) {
+            str.append(row).append("|");
+            for (int col = 0; col < this.DIM; ++col) {
+                int cell = row * DIM + col;
+                if (col > 0) str.append(separator);
+                if (isSet(this.hidden, cell)) {
+                    str.append(ConcentrationCard.HIDDEN);
+                } else {
+                    str.append(ConcentrationProtocol.symbolToken(symbols[cell]));
+                }
+            }
+            str.append("\n");
+        }
+        return str.toString();
+    }
+
+    /**
+     * Convert a coordinate into its cell number.
+     *
+     * @param row the row
+     * @param col the column
+     * @return the cell number
+     * @throws ConcentrationException if the coordinate is invalid
+     */
+    private int cell(int row, int col) throws ConcentrationException {
+        if (row < 0 || col < 0 || row >= this.DIM || col >= this.DIM) {
+            throw new ConcentrationException("Invalid coordinates");
+        }
+        return row * DIM + col;
+    }
+
+    /**
+     * Create a card view of a cell.
+     *
+     * @param cell the cell number
+     * @return the card
+     */
+    private ConcentrationCard cardView(int cell) {
+        ConcentrationCard card = new ConcentrationCard(cell / DIM, cell % DIM, (int) symbols[cell]);
+        if (isSet(this.hidden, cell)) card.hide();
+        return card;
+    }
+
+    /**
+     * Is the bit of a cell set?
+     *
+     * @param bits the bitset
+     * @param cell the cell number
+     * @return whether the bit is set
+     */
+    private static boolean isSet(long[] bits, int cell) {
+        return (bits[cell >>> 6] & (1L << cell)) != 0;
+    }
+
+    /**
+     * Set the bit of a cell.
+     *
+     * @param bits the bitset
+     * @param cell the cell number
+     */
+    private static void set(long[] bits, int cell) {
+        bits[cell >>> 6] |= 1L << cell;
+    }
+
+    /**
+     * Clear the bit of a cell.
+     *
+     * @param bits the bitset
+     * @param cell the cell number
+     */
+    private static void clear(long[] bits, int cell) {
+        bits[cell >>> 6] &= ~(1L << cell);
+    }
+}
@@ -3,23 +3,23 @@ package concentration.server;
 import concentration.common.ConcentrationException;
 import concentration.common.ConcentrationCard;
 
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.random.RandomGenerator;
+
 /**
- * Represents the game board for the concentration game.
+ * Represents the game board for the concentration game as a grid of card objects.
  *
  * @author RIT CS, Arya Girisha Rao, Pradeep Kumar Gontla.
  */
-public class ConcentrationBoard {
+public class ConcentrationBoard implements ConcentrationResettableBoard {
     /**
      * the smallest board is 2x2
      */
-    private final static int MIN_DIM = 2;
+    final static int MIN_DIM = 2;
     /**
-     * the largest board is 6x6
+     * the largest board is 6x6, larger boards use ConcentrationBitBoard
      */
-    private final static int MAX_DIM = 6;
+    final static int MAX_DIM = 6;
 
     /**
      * the square dimension of the board
@@ -30,6 +30,11 @@ public class ConcentrationBoard {
      */
 
     private final ConcentrationCard[][] board;
+    /**
+     * the symbols of the last deal in row major order, kept so that a reset
+     * does not allocate
+     */
+    private final char[] symbols;
     /**
      * if the first card is revealed this is set (otherwise null)
      */
@@ -38,73 +43,10 @@ public class ConcentrationBoard {
      * the number of card matches that have been made so far
      */
     private int matches;
-
     /**
-     * An internal class used to determine a card match or mismatch.
+     * the number of cards that are currently hidden
      */
-    public class CardMatch {
-        /**
-         * the first card
-         */
-        private final ConcentrationCard card1;
-        /**
-         * the second card
-         */
-        private final ConcentrationCard card2;
-        /**
-         * do the cards match?
-         */
-        private final boolean match;
-
-        /**
-         * Create a new instance from the two revealed cards and whether they matches.
-         *
-         * @param card1 first card
-         * @param card2 second card
-         * @param match do the cards match or not
-         */
-        public CardMatch(ConcentrationCard card1, ConcentrationCard card2, boolean match) {
-            this.card1 = card1;
-            this.card2 = card2;
-            this.match = match;
-        }
-
-        /**
-         * Get the first card.
-         *
-         * @return first card
-         */
-        public ConcentrationCard getCard1() {
-            return this.card1;
-        }
-
-        /**
-         * Get the second card.
-         *
-         * @return second card
-         */
-        public ConcentrationCard getCard2() {
-            return this.card2;
-        }
-
-        /**
-         * Is there a card match?
-         *
-         * @return whether there was a match or not
-         */
-        public boolean isMatch() {
-            return this.match;
-        }
-
-        /**
-         * Is it ready to check for a match - both cards should be non-null
-         *
-         * @return is a match ready to check?
-         */
-        public boolean isReady() {
-            return this.card1 != null && this.card2 != null;
-        }
-    }
+    private int hiddenCount;
 
     /**
      * Create the board in non-cheat mode.
@@ -117,13 +59,26 @@ public class ConcentrationBoard {
     }
 
     /**
-     * Create the board.
+     * Create the board shuffled by the current thread's random generator.
      *
      * @param DIM   square dimension
      * @param cheat whether to display the fully revealed board or not
      * @throws ConcentrationException if the dimensions are invalid
      */
     public ConcentrationBoard(int DIM, boolean cheat) throws ConcentrationException {
+        this(DIM, cheat, ThreadLocalRandom.current());
+    }
+
+    /**
+     * Create the board.  The same seeded random generator always produces
+     * the same board.
+     *
+     * @param DIM    square dimension
+     * @param cheat  whether to display the fully revealed board or not
+     * @param random random generator used to shuffle the cards
+     * @throws ConcentrationException if the dimensions are invalid
+     */
+    public ConcentrationBoard(int DIM, boolean cheat, RandomGenerator random) throws ConcentrationException {
         // check for bad dimensions
         if (DIM < MIN_DIM || DIM > MAX_DIM) {
             throw new ConcentrationException("Board size out of range: " + DIM);
@@ -132,19 +87,14 @@ public class ConcentrationBoard {
         }
 
         // create the pair of cards and shuffle them
-        List<Character> chars = new ArrayList<>(DIM * DIM);
-        for (char i = 0; i < (DIM * DIM) / 2; ++i) {
-            chars.add((char) (i + 'A'));
-            chars.add((char) (i + 'A'));
-        }
-        Collections.shuffle(chars);
+        this.symbols = shuffledSymbols(DIM * DIM, random);
 
-        // Create the grid of cards and populate from the shuffled list.
+        // Create the grid of cards and populate from the shuffled symbols.
         this.DIM = DIM;
         this.board = new ConcentrationCard[DIM][DIM];
         for (int row = 0; row < DIM; ++row) {
             for (int col = 0; col < DIM; ++col) {
-                this.board[row][col] = new ConcentrationCard(row, col, chars.remove(0));
+                this.board[row][col] = new ConcentrationCard(row, col, (int) symbols[row * DIM + col]);
             }
         }
 
@@ -164,6 +114,67 @@ public class ConcentrationBoard {
         // initialize rest of state
         this.revealedCard = null;
         this.matches = 0;
+        this.hiddenCount = DIM * DIM;
+    }
+
+    /**
+     * Create the symbols of all the cards, two of each, in a random order.
+     * Uses an in place Fisher-Yates shuffle, so it takes linear time.  The
+     * symbols are stored as unsigned 16 bit values, enough for the 32768
+     * pairs of the largest board.
+     *
+     * @param cards  the number of cards, always even
+     * @param random random generator used to shuffle the cards
+     * @return the shuffled symbols in row major order
+     */
+    static char[] shuffledSymbols(int cards, RandomGenerator random) {
+        char[] symbols = new char[cards];
+        deal(symbols, random);
+        return symbols;
+    }
+
+    /**
+     * Deal the symbols of all the cards again into an existing array: two
+     * of each in order, then shuffled in place with a Fisher-Yates shuffle.
+     * Starting from the same order every time means the same seeded random
+     * generator always deals the same board, whether the board is new or
+     * reset, so a journaled seed is enough to rebuild it.
+     *
+     * @param symbols the symbols to deal, their length is the number of cards
+     * @param random  random generator used to shuffle the cards
+     */
+    static void deal(char[] symbols, RandomGenerator random) {
+        for (int i = 0; i < symbols.length; ++i) {
+            symbols[i] = (char) (i / 2);
+        }
+        for (int i = symbols.length - 1; i > 0; --i) {
+            int j = random.nextInt(i + 1);
+            char swap = symbols[i];
+            symbols[i] = symbols[j];
+            symbols[j] = swap;
+        }
+    }
+
+    /**
+     * Reshuffle the board in place by dealing the symbols again, exactly as
+     * a new board, and setting them on its cards, and hide them all.  No
+     * card is allocated.
+     *
+     * @param random random generator used to shuffle the cards
+     */
+    @Override
+    public void reset(RandomGenerator random) {
+        int cells = DIM * DIM;
+        deal(this.symbols, random);
+        for (int row = 0; row < DIM; ++row) {
+            for (int col = 0; col < DIM; ++col) {
+                this.board[row][col].setSymbol(this.symbols[row * DIM + col]);
+                this.board[row][col].hide();
+            }
+        }
+        this.revealedCard = null;
+        this.matches = 0;
+        this.hiddenCount = cells;
     }
 
     /**
@@ -174,13 +185,30 @@ public class ConcentrationBoard {
      * @return the card
      * @throws ConcentrationException if the coordinate is invalid
      */
+    @Override
     public ConcentrationCard getCard(int row, int col) throws ConcentrationException {
-        if (!(row < this.DIM && col < this.DIM)) {
+        if (row < 0 || col < 0 || row >= this.DIM || col >= this.DIM) {
             throw new ConcentrationException("Invalid coordinates");
         }
         return this.board[row][col];
     }
 
+    /**
+     * Has the card at a coordinate been matched?  A face up card is
+     * matched unless it is the first card of the turn.
+     *
+     * @param row the row
+     * @param col the column
+     * @return whether the card is matched
+     * @throws ConcentrationException if the coordinate is invalid
+     */
+    @Override
+    public boolean isMatched(int row, int col) throws ConcentrationException {
+        ConcentrationCard card = getCard(row, col);
+        return !card.isHidden() && card != this.revealedCard;
+    }
+
+    @Override
     public int getDIM() {
         return DIM;
     }
@@ -189,6 +217,7 @@ public class ConcentrationBoard {
      * Updates the Board based on the reveal status.
      * @param cardMatch cardMatch information from the previous two reveals.
      */
+    @Override
     public void updateRevealStatus(CardMatch cardMatch) {
         if (cardMatch.isMatch()) {
             this.matches += 2;
@@ -197,6 +226,7 @@ public class ConcentrationBoard {
         {
             cardMatch.getCard1().hide();
             cardMatch.getCard2().hide();
+            this.hiddenCount += 2;
         }
     }
 
@@ -209,6 +239,7 @@ public class ConcentrationBoard {
      * @throws ConcentrationException if the game is over, the coordinate is invalid, or the
      *                                card has already been revealed.
      */
+    @Override
     public CardMatch reveal(int row, int col) throws ConcentrationException {
         if (gameOver()) throw new ConcentrationException("Game is already over");
 
@@ -216,7 +247,8 @@ public class ConcentrationBoard {
         if (!requestedCard.isHidden()) throw new ConcentrationException("Card Already Revealed");
 
         requestedCard.reveal();
-        CardMatch cardMatch = new CardMatch(revealedCard, requestedCard, requestedCard.equals(revealedCard));
+        this.hiddenCount -= 1;
+        CardMatch cardMatch = new CardMatch(revealedCard, requestedCard, revealedCard != null && requestedCard.getSymbol() == revealedCard.getSymbol());
 
         if (revealedCard == null) {
             revealedCard = requestedCard;
@@ -231,10 +263,16 @@ public class ConcentrationBoard {
      *
      * @return whether the game is over or not
      */
+    @Override
     public boolean gameOver() {
         return this.matches == this.DIM * this.DIM;
     }
 
+    @Override
+    public int getHiddenCount() {
+        return this.hiddenCount;
+    }
+
     /**
      * Returns a string representation of the board, for example a
      * 4x4 game that is just underway.
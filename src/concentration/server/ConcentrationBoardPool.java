@@ -0,0 +1,144 @@
+package concentration.server;
+
+import concentration.common.ConcentrationException;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.random.RandomGenerator;
+
+/**
+ * Bounded pool of game boards, one per board dimension. A board released at the end of a game is kept and reset in
+ * place for a later game of the same dimension, so high connection churn does not turn every accept into DIM²
+ * card allocations and a steady stream of young generation garbage. Each dimension keeps at most a fixed number of
+ * boards, the boards released beyond that are left to the garbage collector. The queues are array backed, so taking
+ * and releasing a board does not allocate either. The ConcentrationBroadcasts of the games are pooled the same way,
+ * since their copy of the board is as large as the board. Safe to use from any thread.
+ *
+ * @author Arya Girisha Rao, Pradeep Kumar Gontla.
+ */
+
+public class ConcentrationBoardPool {
+
+    /**
+     * Boards kept for every dimension, indexed by dimension and created on first use.
+     */
+    private final AtomicReferenceArray<ArrayBlockingQueue<ConcentrationResettableBoard>> pools;
+
+    /**
+     * Broadcasts kept for every dimension, indexed by dimension and created on first use.
+     */
+    private final AtomicReferenceArray<ArrayBlockingQueue<ConcentrationBroadcast>> broadcastPools;
+
+    /**
+     * Largest number of boards kept for one dimension.
+     */
+    private final int capacity;
+
+    /**
+     * Creates an empty pool.
+     *
+     * @param capacity Largest number of boards kept for one dimension, 0 disables pooling.
+     */
+    public ConcentrationBoardPool(int capacity) {
+        this.pools = new AtomicReferenceArray<>(ConcentrationBitBoard.MAX_DIM + 1);
+        this.broadcastPools = new AtomicReferenceArray<>(ConcentrationBitBoard.MAX_DIM + 1);
+        this.capacity = capacity;
+    }
+
+    /**
+     * Builds boards of a dimension ahead of time, up to the capacity of the pool, so the first games do not pay for
+     * the construction either.
+     *
+     * @param DIM    square dimension of the boards.
+     * @param random random generator used to shuffle the cards.
+     * @throws ConcentrationException if the dimension is invalid.
+     */
+    public void prefill(int DIM, RandomGenerator random) throws ConcentrationException {
+        if (capacity == 0) return;
+        ConcentrationResettableBoard board = ConcentrationGameBoard.newBoard(DIM, random);
+        ArrayBlockingQueue<ConcentrationResettableBoard> pool = pool(pools, DIM);
+        while (pool.offer(board)) {
+            board = ConcentrationGameBoard.newBoard(DIM, random);
+        }
+    }
+
+    /**
+     * Takes a board from the pool and reshuffles it in place.
+     *
+     * @param DIM    square dimension of the board.
+     * @param random random generator used to shuffle the cards.
+     * @return a board with all its cards hidden, or null if the pool has none of this dimension.
+     */
+    public ConcentrationResettableBoard take(int DIM, RandomGenerator random) {
+        ArrayBlockingQueue<ConcentrationResettableBoard> pool = DIM > 0 && DIM < pools.length() ? pools.get(DIM) : null;
+        ConcentrationResettableBoard board = pool == null ? null : pool.poll();
+        if (board != null) board.reset(random);
+        return board;
+    }
+
+    /**
+     * Gives a board back to the pool once its game is over or abandoned. The caller must not touch the board
+     * afterwards, it may be reshuffled for another game at any time.
+     *
+     * @param board the board.
+     * @return whether the board was kept, false if the pool of its dimension is full.
+     */
+    public boolean release(ConcentrationResettableBoard board) {
+        ArrayBlockingQueue<ConcentrationResettableBoard> pool = pool(pools, board.getDIM());
+        return pool != null && pool.offer(board);
+    }
+
+    /**
+     * Takes a broadcast from the pool and resets it for a new game.
+     *
+     * @param DIM square dimension of the board.
+     * @param id  id of the new game.
+     * @return a broadcast with every card hidden, or null if the pool has none of this dimension.
+     */
+    public ConcentrationBroadcast takeBroadcast(int DIM, int id) {
+        ArrayBlockingQueue<ConcentrationBroadcast> pool = DIM > 0 && DIM < broadcastPools.length() ? broadcastPools.get(DIM) : null;
+        ConcentrationBroadcast broadcast = pool == null ? null : pool.poll();
+        if (broadcast != null) broadcast.reset(id);
+        return broadcast;
+    }
+
+    /**
+     * Gives a broadcast back to the pool once its game ended. The caller must not touch the broadcast afterwards.
+     *
+     * @param broadcast the broadcast, ended.
+     * @return whether the broadcast was kept, false if the pool of its dimension is full.
+     */
+    public boolean release(ConcentrationBroadcast broadcast) {
+        ArrayBlockingQueue<ConcentrationBroadcast> pool = pool(broadcastPools, broadcast.getDIM());
+        return pool != null && pool.offer(broadcast);
+    }
+
+    /**
+     * Get the number of boards kept for a dimension.
+     *
+     * @param DIM square dimension of the boards.
+     * @return number of boards ready to be reused.
+     */
+    public int size(int DIM) {
+        ArrayBlockingQueue<ConcentrationResettableBoard> pool = DIM > 0 && DIM < pools.length() ? pools.get(DIM) : null;
+        return pool == null ? 0 : pool.size();
+    }
+
+    /**
+     * Get the queue of a dimension, creating it on first use.
+     *
+     * @param pools queues of the boards or of the broadcasts.
+     * @param DIM   square dimension of the boards, always valid since a board of it exists.
+     * @param <T>   type of what is pooled.
+     * @return the queue, null if pooling is disabled.
+     */
+    private <T> ArrayBlockingQueue<T> pool(AtomicReferenceArray<ArrayBlockingQueue<T>> pools, int DIM) {
+        if (capacity == 0) return null;
+        ArrayBlockingQueue<T> pool = pools.get(DIM);
+        if (pool == null) {
+            pools.compareAndSet(DIM, null, new ArrayBlockingQueue<>(capacity));
+            pool = pools.get(DIM);
+        }
+        return pool;
+    }
+}
@@ -0,0 +1,460 @@
+package concentration.server;
+
+import concentration.common.ConcentrationBinaryProtocol;
+import concentration.common.ConcentrationException;
+import concentration.common.ConcentrationTextCodec;
+import concentration.server.metrics.ConcentrationMetrics;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Fan-out of the moves of one game to the connections watching it. The sessions playing the game publish every
+ * revealed card, result and the end of the game, and each event is encoded once per protocol into a read-only
+ * buffer that every spectator shares, so a thousand spectators cost one encoding and a thousand queue offers, not
+ * a thousand encodings. Nothing is encoded while the game has no spectators, and the moves of a game nobody watches
+ * take no lock: they only update the copy of the cards face up.
+ * <p>
+ * Every spectator has a bounded queue of events, drained by its own session at its own pace. Publishing never
+ * blocks: when the queue of a slow spectator is full, its pending events are dropped and replaced by a snapshot of
+ * the board, a RESYNC followed by a CARD for every card face up, so the spectator skips ahead to the current state
+ * instead of stalling the players or growing without bound. A new spectator starts from the same snapshot. The
+ * broadcast keeps its own copy of the cards face up to build the snapshots from, since the board itself belongs to
+ * the sessions playing it. A card hidden without a result, when a player of a shared game loses its turn or leaves,
+ * is published as a TAKEN of that card.
+ * <p>
+ * Publishing to spectators is synchronized, so the players of a shared game publish their moves in a single order.
+ * A move updates the copy first and only then checks for spectators, while a new spectator is added first and only
+ * then snapshots the copy, both through volatile accesses, so a move is either in the snapshot or published after
+ * it, never lost. The broadcast of a single player game is pooled with its board and reset for the next game.
+ * Safe to use from any thread.
+ *
+ * @author Arya Girisha Rao, Pradeep Kumar Gontla.
+ */
+
+public class ConcentrationBroadcast {
+
+    /**
+     * Marks a hidden card in the copy of the board.
+     */
+    private static final int HIDDEN = -1;
+
+    /**
+     * Longest text CARD line: the header, two coordinates of at most 5 digits, a symbol of at most 11 characters,
+     * the spaces and the terminator.
+     */
+    private static final int TEXT_CARD_LENGTH = 32;
+
+    /**
+     * Last event of every spectator, queued after the game over.
+     */
+    public static final ByteBuffer END = ByteBuffer.allocate(0).asReadOnlyBuffer();
+
+    /**
+     * No spectators.
+     */
+    private static final Watcher[] NO_WATCHERS = new Watcher[0];
+
+    /**
+     * A connection watching the game. The broadcast fills its queue, its session drains it.
+     */
+    public static class Watcher {
+
+        /**
+         * Whether the spectator gets binary frames rather than text lines.
+         */
+        private final boolean binary;
+
+        /**
+         * Events waiting to be written to the spectator, with room for the END marker on top of the capacity.
+         */
+        private final ArrayBlockingQueue<ByteBuffer> queue;
+
+        /**
+         * Called when events are queued while the session is not already due to drain them, null if the session
+         * blocks on take instead.
+         */
+        private final Runnable wakeup;
+
+        /**
+         * Set while a wakeup is due and the session has not started draining yet.
+         */
+        private final AtomicBoolean wakeupPending;
+
+        /**
+         * Broadcast being watched, set once subscribed.
+         */
+        private ConcentrationBroadcast broadcast;
+
+        /**
+         * Creates a spectator that is not watching yet.
+         *
+         * @param binary   Whether the spectator gets binary frames rather than text lines.
+         * @param capacity Largest number of events queued before the spectator is resynced.
+         * @param wakeup   Called when events are queued, null if the session blocks on take instead.
+         */
+        public Watcher(boolean binary, int capacity, Runnable wakeup) {
+            this.binary = binary;
+            this.queue = new ArrayBlockingQueue<>(capacity + 1);
+            this.wakeup = wakeup;
+            this.wakeupPending = new AtomicBoolean();
+        }
+
+        /**
+         * Get the square dimension of the board being watched.
+         *
+         * @return the dimension.
+         */
+        public int getDIM() {
+            return broadcast.DIM;
+        }
+
+        /**
+         * Takes the next event without waiting. Must be called after awake by a session woken up.
+         *
+         * @return the event to write, with a position of its own, END once the game is over, or null if there is
+         * none yet.
+         */
+        public ByteBuffer poll() {
+            ByteBuffer event = queue.poll();
+            return event == null || event == END ? event : event.duplicate();
+        }
+
+        /**
+         * Takes the next event, waiting for one.
+         *
+         * @return the event to write, with a position of its own, or END once the game is over.
+         * @throws InterruptedException if the session is interrupted while waiting.
+         */
+        public ByteBuffer take() throws InterruptedException {
+            ByteBuffer event = queue.take();
+            return event == END ? event : event.duplicate();
+        }
+
+        /**
+         * Acknowledges a wakeup, so the events queued from now on wake the session up again.
+         */
+        public void awake() {
+            wakeupPending.set(false);
+        }
+
+        /**
+         * Stops watching. Closing twice does nothing.
+         */
+        public void close() {
+            if (broadcast != null) broadcast.unsubscribe(this);
+        }
+
+        /**
+         * Queues an event, or replaces the queued events with a snapshot if the queue is full.
+         *
+         * @param event    the event.
+         * @param snapshot snapshot of the board after the event, built on demand.
+         * @return the snapshot if it was built, null otherwise.
+         */
+        private ByteBuffer offer(ByteBuffer event, ByteBuffer snapshot) {
+            if (queue.remainingCapacity() > 1) {
+                queue.add(event);
+                return null;
+            }
+            int dropped = queue.size() + 1;
+            queue.clear();
+            ByteBuffer resync = snapshot != null ? snapshot : broadcast.snapshot(binary);
+            queue.add(resync);
+            broadcast.metrics.spectatorResynced(dropped);
+            return resync;
+        }
+
+        /**
+         * Wakes the session up unless a wakeup is already due.
+         */
+        private void wake() {
+            if (wakeup != null && wakeupPending.compareAndSet(false, true)) wakeup.run();
+        }
+    }
+
+    /**
+     * Square dimension of the board.
+     */
+    private final int DIM;
+
+    /**
+     * Symbol of every card face up, in row major order, HIDDEN for the others. Written by the players without
+     * the lock.
+     */
+    private final AtomicIntegerArray faceUp;
+
+    /**
+     * Metrics of the server.
+     */
+    private final ConcentrationMetrics metrics;
+
+    /**
+     * Spectators watching the game. Read without the lock by the players, to skip publishing when there are none.
+     */
+    private volatile Watcher[] watchers;
+
+    /**
+     * Id of the game, which changes when the broadcast is reset for another game.
+     */
+    private int id;
+
+    /**
+     * Set once the game is over or abandoned.
+     */
+    private boolean ended;
+
+    /**
+     * Buffer the events are encoded into before being copied to their shared buffer, allocated with the first
+     * spectator.
+     */
+    private ByteBuffer scratch;
+
+    /**
+     * Creates the broadcast of a game with every card hidden.
+     *
+     * @param id      id of the game.
+     * @param DIM     square dimension of the board.
+     * @param metrics Metrics of the server.
+     * @throws ConcentrationException if the dimension is invalid.
+     */
+    public ConcentrationBroadcast(int id, int DIM, ConcentrationMetrics metrics) throws ConcentrationException {
+        if (DIM < 1 || DIM > ConcentrationBitBoard.MAX_DIM) {
+            throw new ConcentrationException("Board size out of range: " + DIM);
+        }
+        this.id = id;
+        this.DIM = DIM;
+        this.faceUp = new AtomicIntegerArray(DIM * DIM);
+        for (int cell = 0; cell < DIM * DIM; ++cell) faceUp.setPlain(cell, HIDDEN);
+        this.metrics = metrics;
+        this.watchers = NO_WATCHERS;
+    }
+
+    /**
+     * Hides every card again for another game of the same dimension, once this one ended. The spectators of the
+     * ended game are gone already.
+     *
+     * @param id id of the new game.
+     */
+    public synchronized void reset(int id) {
+        this.id = id;
+        for (int cell = 0; cell < faceUp.length(); ++cell) faceUp.setPlain(cell, HIDDEN);
+        this.ended = false;
+    }
+
+    /**
+     * Starts streaming the game to a spectator, from a snapshot of the board so far.
+     *
+     * @param id      id of the game to watch.
+     * @param watcher the spectator, not watching any game yet.
+     * @return false if the game is already over, and the broadcast possibly reset for another one.
+     */
+    public synchronized boolean subscribe(int id, Watcher watcher) {
+        if (ended || id != this.id) return false;
+        watcher.broadcast = this;
+        Watcher[] subscribed = Arrays.copyOf(watchers, watchers.length + 1);
+        subscribed[subscribed.length - 1] = watcher;
+        watchers = subscribed;
+        watcher.queue.add(snapshot(watcher.binary));
+        metrics.spectatorJoined();
+        watcher.wake();
+        return true;
+    }
+
+    /**
+     * Publishes a revealed card.
+     *
+     * @param row    row of the card.
+     * @param col    column of the card.
+     * @param symbol symbol of the card.
+     */
+    public void card(int row, int col, int symbol) {
+        faceUp.set(row * DIM + col, symbol);
+        if (watchers.length == 0) return;
+        synchronized (this) {
+            if (watchers.length > 0) publish(ConcentrationTextCodec.CARD, row, col, symbol, 0);
+        }
+    }
+
+    /**
+     * Publishes the match or mismatch of two reveals. Must be called before the board hides the cards of a
+     * mismatch, so a later reveal of them by another player is published after it.
+     *
+     * @param cardMatch the result of the second reveal.
+     */
+    public void result(ConcentrationGameBoard.CardMatch cardMatch) {
+        int row1 = cardMatch.getCard1().getRow();
+        int col1 = cardMatch.getCard1().getCol();
+        int row2 = cardMatch.getCard2().getRow();
+        int col2 = cardMatch.getCard2().getCol();
+        if (!cardMatch.isMatch()) {
+            faceUp.set(row1 * DIM + col1, HIDDEN);
+            faceUp.set(row2 * DIM + col2, HIDDEN);
+        }
+        if (watchers.length == 0) return;
+        synchronized (this) {
+            if (watchers.length > 0) {
+                publish(cardMatch.isMatch() ? ConcentrationTextCodec.MATCH : ConcentrationTextCodec.MISMATCH, row1, col1, row2, col2);
+            }
+        }
+    }
+
+    /**
+     * Publishes a card being hidden without a result, when a player of a shared game loses its turn or leaves, as
+     * a TAKEN of the card. Must be called before the board hides the card.
+     *
+     * @param row row of the card.
+     * @param col column of the card.
+     */
+    public void hide(int row, int col) {
+        faceUp.set(row * DIM + col, HIDDEN);
+        if (watchers.length == 0) return;
+        synchronized (this) {
+            if (watchers.length > 0) publish(ConcentrationTextCodec.TAKEN, row, col, 0, 0);
+        }
+    }
+
+    /**
+     * Publishes the end of the game, over or abandoned, and lets every spectator go once it has drained its
+     * queue. Ending twice does nothing.
+     */
+    public synchronized void end() {
+        if (ended) return;
+        ended = true;
+        if (watchers.length == 0) return;
+        publish(ConcentrationTextCodec.GAME_OVER, 0, 0, 0, 0);
+        for (Watcher watcher : watchers) {
+            watcher.queue.add(END);
+            watcher.wake();
+            metrics.spectatorLeft();
+        }
+        watchers = NO_WATCHERS;
+    }
+
+    /**
+     * Get the square dimension of the board.
+     *
+     * @return the dimension.
+     */
+    public int getDIM() {
+        return DIM;
+    }
+
+    /**
+     * Stops streaming the game to a spectator.
+     *
+     * @param watcher the spectator.
+     */
+    private synchronized void unsubscribe(Watcher watcher) {
+        for (int i = 0; i < watchers.length; ++i) {
+            if (watchers[i] == watcher) {
+                Watcher[] remaining = new Watcher[watchers.length - 1];
+                System.arraycopy(watchers, 0, remaining, 0, i);
+                System.arraycopy(watchers, i + 1, remaining, i, remaining.length - i);
+                watchers = remaining;
+                metrics.spectatorLeft();
+                return;
+            }
+        }
+    }
+
+    /**
+     * Hands an event to every spectator, encoded at most once per protocol, along with at most one snapshot per
+     * protocol for the spectators that fell behind.
+     *
+     * @param event the event, one of the ConcentrationTextCodec message constants.
+     * @param a     row of the card or of the first card.
+     * @param b     column of the card or of the first card.
+     * @param c     symbol of the card or row of the second card.
+     * @param d     column of the second card.
+     */
+    private void publish(byte event, int a, int b, int c, int d) {
+        ByteBuffer text = null;
+        ByteBuffer binary = null;
+        ByteBuffer textSnapshot = null;
+        ByteBuffer binarySnapshot = null;
+        for (Watcher watcher : watchers) {
+            if (watcher.binary) {
+                if (binary == null) binary = encode(true, event, a, b, c, d);
+                ByteBuffer snapshot = watcher.offer(binary, binarySnapshot);
+                if (snapshot != null) binarySnapshot = snapshot;
+            } else {
+                if (text == null) text = encode(false, event, a, b, c, d);
+                ByteBuffer snapshot = watcher.offer(text, textSnapshot);
+                if (snapshot != null) textSnapshot = snapshot;
+            }
+            watcher.wake();
+        }
+    }
+
+    /**
+     * Encodes an event into a shared read-only buffer.
+     *
+     * @param binary whether to encode a binary frame rather than a text line.
+     * @param event  the event, one of the ConcentrationTextCodec message constants.
+     * @param a      row of the card or of the first card.
+     * @param b      column of the card or of the first card.
+     * @param c      symbol of the card or row of the second card.
+     * @param d      column of the second card.
+     * @return the encoded event.
+     */
+    private ByteBuffer encode(boolean binary, byte event, int a, int b, int c, int d) {
+        if (scratch == null) scratch = ByteBuffer.allocate(ConcentrationTextCodec.MAX_LINE_LENGTH);
+        scratch.clear();
+        switch (event) {
+            case ConcentrationTextCodec.CARD -> {
+                if (binary) ConcentrationBinaryProtocol.putCard(scratch, a, b, c);
+                else ConcentrationTextCodec.encodeCard(scratch, a, b, c);
+            }
+            case ConcentrationTextCodec.TAKEN -> {
+                if (binary) ConcentrationBinaryProtocol.putTaken(scratch, a, b);
+                else ConcentrationTextCodec.encodeTaken(scratch, a, b);
+            }
+            case ConcentrationTextCodec.MATCH, ConcentrationTextCodec.MISMATCH -> {
+                boolean match = event == ConcentrationTextCodec.MATCH;
+                if (binary) ConcentrationBinaryProtocol.putResult(scratch, match, a, b, c, d);
+                else ConcentrationTextCodec.encodeResult(scratch, match, a, b, c, d);
+            }
+            default -> {
+                if (binary) ConcentrationBinaryProtocol.putGameOver(scratch);
+                else ConcentrationTextCodec.encodeGameOver(scratch);
+            }
+        }
+        return ByteBuffer.wrap(Arrays.copyOf(scratch.array(), scratch.position())).asReadOnlyBuffer();
+    }
+
+    /**
+     * Encodes a snapshot of the board into a shared read-only buffer: a RESYNC, a CARD for every card face up and
+     * the game over if the game has ended. Called with the lock held, while the players may still turn cards: a
+     * card turned meanwhile may be left out, or counted after it was hidden, since its event is published after
+     * the snapshot anyway.
+     *
+     * @param binary whether to encode binary frames rather than text lines.
+     * @return the encoded snapshot.
+     */
+    private ByteBuffer snapshot(boolean binary) {
+        int cards = 0;
+        for (int cell = 0; cell < faceUp.length(); ++cell) {
+            if (faceUp.get(cell) != HIDDEN) ++cards;
+        }
+        int cardLength = binary ? ConcentrationBinaryProtocol.CARD_LENGTH : TEXT_CARD_LENGTH;
+        int markerLength = binary ? ConcentrationBinaryProtocol.GAME_OVER_LENGTH : ConcentrationTextCodec.MAX_LINE_LENGTH;
+        ByteBuffer snapshot = ByteBuffer.allocate(2 * markerLength + cards * cardLength);
+        if (binary) ConcentrationBinaryProtocol.putResync(snapshot);
+        else ConcentrationTextCodec.encodeResync(snapshot);
+        for (int cell = 0; cell < faceUp.length() && snapshot.remaining() - markerLength >= cardLength; ++cell) {
+            int symbol = faceUp.get(cell);
+            if (symbol == HIDDEN) continue;
+            if (binary) ConcentrationBinaryProtocol.putCard(snapshot, cell / DIM, cell % DIM, symbol);
+            else ConcentrationTextCodec.encodeCard(snapshot, cell / DIM, cell % DIM, symbol);
+        }
+        if (ended) {
+            if (binary) ConcentrationBinaryProtocol.putGameOver(snapshot);
+            else ConcentrationTextCodec.encodeGameOver(snapshot);
+        }
+        return snapshot.flip().asReadOnlyBuffer();
+    }
+}
@@ -1,85 +1,756 @@
 package concentration.server;
 
+import concentration.common.ConcentrationBinaryProtocol;
+import concentration.common.ConcentrationBoardSnapshot;
 import concentration.common.ConcentrationException;
 import concentration.common.ConcentrationProtocol;
+import concentration.common.ConcentrationTextCodec;
+import concentration.server.metrics.ConcentrationMetrics;
 
-import java.io.BufferedReader;
 import java.io.IOException;
-import java.io.InputStreamReader;
-import java.io.PrintWriter;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Client For Concentration board game. Talks to Server and based on the protocol, updates the game status.
- * Does not any information about the game. Uses Concentration Protocol to communicate with the Server.
+ * Does not any information about the game. Uses Concentration Protocol to communicate with the Server, or the
+ * binary ConcentrationBinaryProtocol when the client asks for it as its first command. Both are decoded from and
+ * encoded into reusable buffers, so a message does not allocate.
+ * Commands are pipelined: every complete command read is processed before the session blocks on the socket again,
+ * and their replies are gathered in an output buffer that is flushed only then, so a client sending many REVEALs
+ * back to back gets all the replies in order with a single write. Replies can be longer than their commands, so the
+ * buffer is also flushed before a command whose replies may not fit in the room left.
+ * The session is a plain Runnable, so it can run on a platform thread or on a virtual thread. It only blocks in
+ * socket I/O, which does not pin the carrier thread of a virtual thread, and the session thread is the only one
+ * writing to the client, so replies always go out in protocol order. While the delayed MATCH/MISMATCH result is
+ * pending the session keeps reading, with a socket timeout set to the end of the delay, so commands pipelined
+ * behind the reveal are gathered but only processed once the result is written before their replies.
+ * Its games come from the ConcentrationGameRegistry. A NEW_GAME command replaces the current game with a new board
+ * and keeps the connection open after GAME_OVER, so a client can play many games in sequence on one session.
+ * A WATCH command turns the session into a spectator of another game: it blocks on the queue of its
+ * ConcentrationBroadcast.Watcher and writes the shared event buffers until the game ends, and no longer reads
+ * commands.
+ * A TOKEN command gives the session a resume token: if the connection drops before the game is over, the game is
+ * parked in the registry instead of ended, and a new connection takes it over with RESUME, which sends the whole
+ * board in a single SNAPSHOT.
+ * A client that sends nothing for the idle timeout is disconnected by the socket read timeout. A spectator never
+ * reads, so it is not.
  *
  * @author Arya Girisha Rao, Pradeep Kumar Gontla.
  */
 
-public class ConcentrationClientServerThread extends Thread {
+public class ConcentrationClientServerThread implements Runnable {
+
+    /**
+     * Size of the buffer of the bytes read from the client, enough for hundreds of pipelined REVEALs.
+     */
+    private static final int INPUT_BUFFER_SIZE = 4096;
+
+    /**
+     * Size of the buffer gathering the replies before they are flushed.
+     */
+    private static final int OUTPUT_BUFFER_SIZE = 8192;
+
+    /**
+     * Room left in the output buffer before every command, enough for the longest replies of a command: a CARD and
+     * its MATCH or MISMATCH, or GAME_ID and BOARD_DIM. RESUME and WATCH make room for their own longer replies.
+     */
+    private static final int MAX_REPLY_LENGTH = ConcentrationTextCodec.MAX_LINE_LENGTH * 3;
+
+    /**
+     * Encodes the replies of a reveal in the protocol negotiated with the client.
+     */
+    private interface ReplyEncoder {
+        /**
+         * Encodes the details of a revealed card.
+         *
+         * @param buffer buffer to encode into.
+         * @param row    row of the card.
+         * @param col    column of the card.
+         * @param symbol symbol of the card.
+         */
+        void encodeCard(ByteBuffer buffer, int row, int col, int symbol);
+
+        /**
+         * Encodes the board dimensions of a new game.
+         *
+         * @param buffer buffer to encode into.
+         * @param DIM    square dimension of the board.
+         */
+        void encodeBoardDim(ByteBuffer buffer, int DIM);
+
+        /**
+         * Encodes the id of a shared game that was hosted or joined.
+         *
+         * @param buffer buffer to encode into.
+         * @param id     id of the game.
+         */
+        void encodeGameId(ByteBuffer buffer, int id);
+
+        /**
+         * Encodes the refusal of a card held or matched by another player of a shared game.
+         *
+         * @param buffer buffer to encode into.
+         * @param row    row of the card.
+         * @param col    column of the card.
+         */
+        void encodeTaken(ByteBuffer buffer, int row, int col);
+
+        /**
+         * Encodes the game over message alone, for a shared game another player finished.
+         *
+         * @param buffer buffer to encode into.
+         */
+        void encodeGameOver(ByteBuffer buffer);
+
+        /**
+         * Encodes the match or mismatch of the last two reveals, followed by the game over message if needed.
+         *
+         * @param buffer    buffer to encode into.
+         * @param cardMatch the result of the second reveal.
+         * @param gameOver  whether the result ends the game.
+         */
+        void encodeResult(ByteBuffer buffer, ConcentrationGameBoard.CardMatch cardMatch, boolean gameOver);
+
+        /**
+         * Encodes the resume token of the session.
+         *
+         * @param buffer buffer to encode into.
+         * @param token  the resume token.
+         */
+        void encodeToken(ByteBuffer buffer, long token);
+
+        /**
+         * Get the length of the snapshot message of a board.
+         *
+         * @param snapshot the snapshot of the board.
+         * @return the number of bytes encodeSnapshot writes.
+         */
+        int snapshotLength(ConcentrationBoardSnapshot snapshot);
+
+        /**
+         * Encodes the snapshot of the board of a resumed game.
+         *
+         * @param buffer   buffer to encode into.
+         * @param snapshot the snapshot of the board.
+         */
+        void encodeSnapshot(ByteBuffer buffer, ConcentrationBoardSnapshot snapshot);
+    }
+
+    /**
+     * Encoder of the text protocol replies.
+     */
+    private static final ReplyEncoder TEXT_ENCODER = new ReplyEncoder() {
+        @Override
+        public void encodeCard(ByteBuffer buffer, int row, int col, int symbol) {
+            ConcentrationTextCodec.encodeCard(buffer, row, col, symbol);
+        }
+
+        @Override
+        public void encodeBoardDim(ByteBuffer buffer, int DIM) {
+            ConcentrationTextCodec.encodeBoardDim(buffer, DIM);
+        }
+
+        @Override
+        public void encodeGameId(ByteBuffer buffer, int id) {
+            ConcentrationTextCodec.encodeGameId(buffer, id);
+        }
+
+        @Override
+        public void encodeTaken(ByteBuffer buffer, int row, int col) {
+            ConcentrationTextCodec.encodeTaken(buffer, row, col);
+        }
+
+        @Override
+        public void encodeGameOver(ByteBuffer buffer) {
+            ConcentrationTextCodec.encodeGameOver(buffer);
+        }
+
+        @Override
+        public void encodeResult(ByteBuffer buffer, ConcentrationGameBoard.CardMatch cardMatch, boolean gameOver) {
+            ConcentrationTextCodec.encodeResult(buffer, cardMatch.isMatch(), cardMatch.getCard1().getRow(), cardMatch.getCard1().getCol(), cardMatch.getCard2().getRow(), cardMatch.getCard2().getCol());
+            if (gameOver) {
+                ConcentrationTextCodec.encodeGameOver(buffer);
+            }
+        }
+
+        @Override
+        public void encodeToken(ByteBuffer buffer, long token) {
+            ConcentrationTextCodec.encodeToken(buffer, token);
+        }
+
+        @Override
+        public int snapshotLength(ConcentrationBoardSnapshot snapshot) {
+            return ConcentrationTextCodec.snapshotLength(snapshot);
+        }
+
+        @Override
+        public void encodeSnapshot(ByteBuffer buffer, ConcentrationBoardSnapshot snapshot) {
+            ConcentrationTextCodec.encodeSnapshot(buffer, snapshot);
+        }
+    };
+
+    /**
+     * Encoder of the binary protocol replies.
+     */
+    private static final ReplyEncoder BINARY_ENCODER = new ReplyEncoder() {
+        @Override
+        public void encodeCard(ByteBuffer buffer, int row, int col, int symbol) {
+            ConcentrationBinaryProtocol.putCard(buffer, row, col, symbol);
+        }
+
+        @Override
+        public void encodeBoardDim(ByteBuffer buffer, int DIM) {
+            ConcentrationBinaryProtocol.putBoardDim(buffer, DIM);
+        }
+
+        @Override
+        public void encodeGameId(ByteBuffer buffer, int id) {
+            ConcentrationBinaryProtocol.putGameId(buffer, id);
+        }
+
+        @Override
+        public void encodeTaken(ByteBuffer buffer, int row, int col) {
+            ConcentrationBinaryProtocol.putTaken(buffer, row, col);
+        }
+
+        @Override
+        public void encodeGameOver(ByteBuffer buffer) {
+            ConcentrationBinaryProtocol.putGameOver(buffer);
+        }
+
+        @Override
+        public void encodeResult(ByteBuffer buffer, ConcentrationGameBoard.CardMatch cardMatch, boolean gameOver) {
+            ConcentrationBinaryProtocol.putResult(buffer, cardMatch.isMatch(), cardMatch.getCard1().getRow(), cardMatch.getCard1().getCol(), cardMatch.getCard2().getRow(), cardMatch.getCard2().getCol());
+            if (gameOver) {
+                ConcentrationBinaryProtocol.putGameOver(buffer);
+            }
+        }
+
+        @Override
+        public void encodeToken(ByteBuffer buffer, long token) {
+            ConcentrationBinaryProtocol.putToken(buffer, token);
+        }
+
+        @Override
+        public int snapshotLength(ConcentrationBoardSnapshot snapshot) {
+            return ConcentrationBinaryProtocol.snapshotLength(snapshot);
+        }
+
+        @Override
+        public void encodeSnapshot(ByteBuffer buffer, ConcentrationBoardSnapshot snapshot) {
+            ConcentrationBinaryProtocol.putSnapshot(buffer, snapshot);
+        }
+    };
+
     /**
      * Socket information of the client received from the server.
      */
     private final Socket socket;
 
     /**
-     * Dimensions of the board from the server's CLI argument.
+     * Registry the games of the session come from and go back to.
+     */
+    private final ConcentrationGameRegistry registry;
+
+    /**
+     * Dimensions of the first game of the session.
+     */
+    private final int boardDimensions;
+
+    /**
+     * Game being played, null until the first one started and once it ended and no new game was asked for.
+     */
+    private ConcentrationGameRegistry.Game game;
+
+    /**
+     * Set once the client started a game with NEW_GAME, HOST or JOIN. The session then stays open after GAME_OVER.
+     */
+    private boolean multiGame;
+
+    /**
+     * Resume token of the session, 0 until the client asks for one with TOKEN.
+     */
+    private long token;
+
+    /**
+     * Delay in milliseconds before the result of the second reveal is sent. 0 sends it right away.
+     */
+    private final long revealDelayMillis;
+
+    /**
+     * Milliseconds the session waits for its client to send anything before it is closed. 0 waits forever.
+     */
+    private final int idleTimeoutMillis;
+
+    /**
+     * Admission control the session was admitted by, released when it closes.
+     */
+    private final ConcentrationAdmission admission;
+
+    /**
+     * Metrics of the server.
+     */
+    private final ConcentrationMetrics metrics;
+
+    /**
+     * Replies waiting to be flushed to the client. Only touched by the session thread.
+     */
+    private final ByteBuffer output;
+
+    /**
+     * Result of the last second reveal waiting for the reveal delay, null if there is none.
+     */
+    private ConcentrationGameBoard.CardMatch pendingMatch;
+
+    /**
+     * Whether the pending result ends the game.
+     */
+    private boolean pendingGameOver;
+
+    /**
+     * System.nanoTime() after which the pending result is written.
+     */
+    private long resultDeadline;
+
+    /**
+     * System.nanoTime() of the read that brought the second reveal of the pending result.
+     */
+    private long resultRevealNanos;
+
+    /**
+     * System.nanoTime() of the last read from the client.
+     */
+    private long readNanos;
+
+    /**
+     * Number of CARD replies in the output buffer.
+     */
+    private int pendingCards;
+
+    /**
+     * Number of MATCH or MISMATCH replies in the output buffer.
      */
-    private final ConcentrationBoard concentrationBoard;
+    private int pendingResults;
 
     /**
-     * Creates a new Thread to handle a client and play Concentration Game.
+     * Creates a new session to handle a client and play Concentration Game.
      * Runs Independently of the other games.
      *
-     * @param socket             Socket information of the client received from the server.
-     * @param concentrationBoard Dimensions of the board from the server's CLI argument.
+     * @param socket            Socket information of the client received from the server.
+     * @param registry          Registry the games of the session come from and go back to.
+     * @param boardDimensions   Dimensions of the first game of the session, the server's CLI argument. The game
+     *                          is started by the session thread, not the accepting one.
+     * @param revealDelayMillis Delay in milliseconds before the result of the second reveal is sent.
+     * @param idleTimeoutMillis Milliseconds the session waits for its client to send anything, 0 waits forever.
+     * @param admission         Admission control the session was admitted by, released when it closes.
+     * @param metrics           Metrics of the server.
      */
-    public ConcentrationClientServerThread(Socket socket, ConcentrationBoard concentrationBoard) {
+    public ConcentrationClientServerThread(Socket socket, ConcentrationGameRegistry registry, int boardDimensions,
+                                           long revealDelayMillis,
+                                           int idleTimeoutMillis, ConcentrationAdmission admission,
+                                           ConcentrationMetrics metrics) {
         this.socket = socket;
-        this.concentrationBoard = concentrationBoard;
+        this.registry = registry;
+        this.boardDimensions = boardDimensions;
+        this.revealDelayMillis = revealDelayMillis;
+        this.idleTimeoutMillis = idleTimeoutMillis;
+        this.admission = admission;
+        this.metrics = metrics;
+        this.output = ByteBuffer.allocate(OUTPUT_BUFFER_SIZE);
     }
 
     /**
-     * run method for the Thread. Starts listening to the Client.
-     * Ends when the game is over or the client disconnects.
+     * run method for the session. Starts listening to the Client.
+     * Ends when the client disconnects or stays idle for too long, or when the game is over unless the client asked
+     * for new games.
      */
+    @Override
     public void run() {
-        try (PrintWriter out = new PrintWriter(socket.getOutputStream(), true);
-             BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream()))) {
-            String userInput;
+        metrics.sessionOpened();
+        try (InputStream in = socket.getInputStream();
+             OutputStream out = socket.getOutputStream()) {
+            socket.setSoTimeout(idleTimeoutMillis);
+            ByteBuffer request = ByteBuffer.allocate(INPUT_BUFFER_SIZE).flip();
+            ConcentrationTextCodec codec = new ConcentrationTextCodec();
+            ReplyEncoder encoder = TEXT_ENCODER;
+            boolean binary = false;
+            boolean firstCommand = true;
             try {
 
-                out.println(String.format(ConcentrationProtocol.BOARD_DIM_MSG, concentrationBoard.getDIM()));
-
-                while ((userInput = in.readLine()) != null) {
-
-                    String[] input = userInput.split(" ");
-                    if (!input[0].equals("REVEAL")) throw new ConcentrationException(String.format(ConcentrationProtocol.ERROR_MSG, "Unknown Command"));
-                    int row = Integer.parseInt(input[1]);
-                    int col = Integer.parseInt(input[2]);
-
-                    ConcentrationBoard.CardMatch cardMatch = concentrationBoard.reveal(row, col);
-                    out.println(String.format(ConcentrationProtocol.CARD_MSG, row, col, concentrationBoard.getCard(row, col).getLetter()));
-                    if (cardMatch.isReady()) {
-                        concentrationBoard.updateRevealStatus(cardMatch);
-                        String matchMsg = cardMatch.isMatch() ? ConcentrationProtocol.MATCH_MSG : ConcentrationProtocol.MISMATCH_MSG;
-                        sleep(500);
-                        out.println(String.format(matchMsg, cardMatch.getCard1().getRow(), cardMatch.getCard1().getCol(), cardMatch.getCard2().getRow(), cardMatch.getCard2().getCol()));
-                        if (concentrationBoard.gameOver()) {
-                            out.println(ConcentrationProtocol.GAME_OVER_MSG);
-                            break;
+                game = registry.newGame(boardDimensions);
+                ConcentrationTextCodec.encodeBoardDim(output, game.board().getDIM());
+
+                while (true) {
+                    makeRoom(out);
+                    if (pendingMatch != null) deliverResult(in, request, encoder, out);
+                    byte command;
+                    int row = 0;
+                    int col = 0;
+                    long resumeToken = 0;
+                    if (binary && ConcentrationBinaryProtocol.hasFrame(request)) {
+                        command = request.get();
+                        if (command == ConcentrationBinaryProtocol.REVEAL) {
+                            row = ConcentrationBinaryProtocol.getCoordinate(request);
+                            col = ConcentrationBinaryProtocol.getCoordinate(request);
+                        } else if (command == ConcentrationBinaryProtocol.NEW_GAME || command == ConcentrationBinaryProtocol.HOST) {
+                            row = ConcentrationBinaryProtocol.getCoordinate(request);
+                        } else if (command == ConcentrationBinaryProtocol.JOIN || command == ConcentrationBinaryProtocol.WATCH) {
+                            row = ConcentrationBinaryProtocol.getGameId(request);
+                        } else if (command == ConcentrationBinaryProtocol.TOKEN || command == ConcentrationBinaryProtocol.RESUME) {
+                            resumeToken = ConcentrationBinaryProtocol.getToken(request);
+                        }
+                    } else if (!binary && codec.decode(request)) {
+                        if (firstCommand && codec.getCommand() == ConcentrationTextCodec.BINARY) {
+                            firstCommand = false;
+                            binary = acceptBinary(codec.getVersion());
+                            if (binary) encoder = BINARY_ENCODER;
+                            continue;
                         }
+                        command = codec.getCommand();
+                        row = switch (command) {
+                            case ConcentrationTextCodec.NEW_GAME, ConcentrationTextCodec.HOST -> codec.getDIM();
+                            case ConcentrationTextCodec.JOIN, ConcentrationTextCodec.WATCH -> codec.getGameId();
+                            default -> codec.getRow();
+                        };
+                        col = codec.getCol();
+                        resumeToken = codec.getToken();
+                    } else {
+                        // every command read so far is processed, send their replies before blocking for more
+                        flush(out);
+                        if (fill(in, request)) continue;
+                        break;
+                    }
+                    firstCommand = false;
+
+                    if (command == ConcentrationTextCodec.NEW_GAME || command == ConcentrationTextCodec.HOST
+                            || command == ConcentrationTextCodec.JOIN) {
+                        newGame(command, row, encoder);
+                    } else if (command == ConcentrationTextCodec.TOKEN) {
+                        if (token == 0) token = registry.newToken();
+                        encoder.encodeToken(output, token);
+                    } else if (command == ConcentrationTextCodec.RESUME) {
+                        resume(resumeToken, encoder, out);
+                    } else if (command == ConcentrationTextCodec.WATCH) {
+                        watch(row, binary, encoder, out);
+                        break;
+                    } else if (command != ConcentrationTextCodec.REVEAL) {
+                        throw new ConcentrationException(String.format(ConcentrationProtocol.ERROR_MSG, "Unknown Command"));
+                    } else if (reveal(row, col, encoder) && !multiGame) {
+                        break;
                     }
                 }
+                if (pendingMatch != null) deliverResult(in, request, encoder, out);
 
-            } catch (ConcentrationException | NumberFormatException | InterruptedException e) {
+            } catch (ConcentrationException | InterruptedException e) {
                 System.out.printf((ConcentrationProtocol.ERROR_MSG) + "%n", e.getMessage());
+                metrics.error(e);
             }
+            flush(out);
 
+        } catch (SocketTimeoutException e) {
+            metrics.idleTimedOut();
         } catch (IOException e) {
             System.err.println(e.getMessage());
+            metrics.error(e);
+        } finally {
+            registry.parkGame(token, game);
+            admission.release();
+            metrics.sessionClosed();
+        }
+
+    }
+
+    /**
+     * Starts a new game on the connection, abandoning the current one if it is not over: a single player game for
+     * NEW_GAME, or a seat at a shared game for HOST and JOIN, whose id is sent before the board dimensions.
+     *
+     * @param command  NEW_GAME, HOST or JOIN.
+     * @param argument square dimension of the board for NEW_GAME and HOST, id of the game for JOIN.
+     * @param encoder  encoder of the replies.
+     * @throws ConcentrationException if the dimension is invalid or the game cannot be joined.
+     */
+    private void newGame(byte command, int argument, ReplyEncoder encoder) throws ConcentrationException {
+        registry.endGame(game);
+        // the old game is gone even if the new one cannot start
+        game = null;
+        game = switch (command) {
+            case ConcentrationTextCodec.HOST -> registry.hostGame(argument);
+            case ConcentrationTextCodec.JOIN -> registry.joinGame(argument);
+            default -> registry.newGame(argument);
+        };
+        multiGame = true;
+        if (command != ConcentrationTextCodec.NEW_GAME) encoder.encodeGameId(output, game.id());
+        encoder.encodeBoardDim(output, game.board().getDIM());
+    }
+
+    /**
+     * Takes over a game parked by a session whose connection dropped, abandoning the current one, and sends the
+     * whole board in a single snapshot. The session keeps the token of the game, so it can be resumed again. A
+     * text snapshot that does not fit in a line is refused and the game stays parked.
+     *
+     * @param resumeToken resume token of the parked game.
+     * @param encoder     encoder of the replies.
+     * @param out         output stream of the client.
+     * @throws IOException            if writing to the client fails.
+     * @throws ConcentrationException if no game is parked under the token.
+     */
+    private void resume(long resumeToken, ReplyEncoder encoder, OutputStream out) throws IOException, ConcentrationException {
+        ConcentrationGameRegistry.Game resumed = registry.resumeGame(resumeToken);
+        ConcentrationBoardSnapshot snapshot = resumed.board().snapshot(resumed.id());
+        int length = encoder.snapshotLength(snapshot);
+        if (encoder == TEXT_ENCODER && length > ConcentrationTextCodec.MAX_LINE_LENGTH) {
+            registry.parkGame(resumeToken, resumed);
+            throw new ConcentrationException("Board too large to resume in text");
+        }
+        registry.endGame(game);
+        game = resumed;
+        token = resumeToken;
+        multiGame = true;
+        if (length > output.remaining()) flush(out);
+        if (length > output.capacity()) {
+            ByteBuffer reply = ByteBuffer.allocate(length);
+            encoder.encodeSnapshot(reply, snapshot);
+            out.write(reply.array(), 0, reply.position());
+            metrics.bytesWritten(reply.position());
+        } else {
+            encoder.encodeSnapshot(output, snapshot);
+        }
+    }
+
+    /**
+     * Watches a game until it ends, abandoning the current game of the session. The game id and board dimensions
+     * are sent first, then every event of the game as it is published.
+     *
+     * @param id      id of the game.
+     * @param binary  whether the client switched to the binary protocol.
+     * @param encoder encoder of the replies.
+     * @param out     output stream of the client.
+     * @throws IOException            if writing to the client fails.
+     * @throws ConcentrationException if the game cannot be watched.
+     * @throws InterruptedException   if the session is interrupted while waiting.
+     */
+    private void watch(int id, boolean binary, ReplyEncoder encoder, OutputStream out) throws IOException, ConcentrationException, InterruptedException {
+        registry.endGame(game);
+        game = null;
+        ConcentrationBroadcast.Watcher watcher = registry.watchGame(id, binary, null);
+        try {
+            encoder.encodeGameId(output, id);
+            encoder.encodeBoardDim(output, watcher.getDIM());
+            ByteBuffer event = watcher.poll();
+            while (event != ConcentrationBroadcast.END) {
+                if (event == null) {
+                    // every event queued so far is gathered, send them before blocking for more
+                    flush(out);
+                    event = watcher.take();
+                    continue;
+                }
+                gather(event, out);
+                event = watcher.poll();
+            }
+        } finally {
+            watcher.close();
+        }
+    }
+
+    /**
+     * Copies an event of a watched game into the output buffer, flushing it whenever it is full.
+     *
+     * @param event the event, consumed.
+     * @param out   output stream of the client.
+     * @throws IOException if writing to the client fails.
+     */
+    private void gather(ByteBuffer event, OutputStream out) throws IOException {
+        while (event.hasRemaining()) {
+            if (!output.hasRemaining()) flush(out);
+            int length = Math.min(event.remaining(), output.remaining());
+            event.get(output.array(), output.position(), length);
+            output.position(output.position() + length);
+        }
+    }
+
+    /**
+     * Makes room in the output buffer for the replies of one more command, flushing the replies gathered so far if
+     * they may not fit. Called before every command is processed, so no command encodes into a full buffer.
+     *
+     * @param out output stream of the client.
+     * @throws IOException if writing to the client fails.
+     */
+    private void makeRoom(OutputStream out) throws IOException {
+        if (output.remaining() < MAX_REPLY_LENGTH) flush(out);
+    }
+
+    /**
+     * Reads more bytes from the client after the ones left in the request buffer.
+     *
+     * @param in      input stream of the client.
+     * @param request buffer of the bytes received, in read mode.
+     * @return false once the client has disconnected.
+     * @throws IOException if reading from the client fails.
+     */
+    private boolean fill(InputStream in, ByteBuffer request) throws IOException {
+        request.compact();
+        int read;
+        try {
+            read = in.read(request.array(), request.position(), request.remaining());
+        } finally {
+            // a read timeout leaves the buffer as it was
+            request.flip();
+        }
+        if (read > 0) {
+            request.limit(request.limit() + read);
+            metrics.bytesRead(read);
+            readNanos = System.nanoTime();
+        }
+        return read >= 0;
+    }
+
+    /**
+     * Answers the binary protocol request of the client.
+     *
+     * @param version the binary protocol version requested.
+     * @return whether the connection switches to the binary protocol.
+     */
+    private boolean acceptBinary(int version) {
+        boolean accepted = version == ConcentrationBinaryProtocol.VERSION;
+        if (accepted) {
+            ConcentrationTextCodec.encodeBinaryOk(output, ConcentrationBinaryProtocol.VERSION);
+        } else {
+            ConcentrationTextCodec.encodeError(output, "Unsupported binary protocol");
+        }
+        return accepted;
+    }
+
+    /**
+     * Reveals a card and gathers the replies in the output buffer. The previous result, if it was delayed, is
+     * already delivered: the session writes it before processing the next command. In a shared game a card
+     * another player holds is refused with TAKEN, and a reveal after another player finished the game gets
+     * GAME_OVER.
+     *
+     * @param row     row of the card.
+     * @param col     column of the card.
+     * @param encoder encoder of the replies.
+     * @return whether the game is over.
+     * @throws ConcentrationException if the reveal is illegal or the game has ended.
+     */
+    private boolean reveal(int row, int col, ReplyEncoder encoder) throws ConcentrationException {
+        if (game == null) throw new ConcentrationException("Game is already over");
+
+        ConcentrationGameBoard concentrationBoard = game.board();
+        if (concentrationBoard.gameOver()) {
+            encoder.encodeGameOver(output);
+            registry.endGame(game);
+            game = null;
+            return true;
         }
+        ConcentrationGameBoard.CardMatch cardMatch = concentrationBoard.tryReveal(row, col);
+        if (cardMatch == null) {
+            encoder.encodeTaken(output, row, col);
+            game.taken(row, col);
+            return false;
+        }
+        int symbol = concentrationBoard.getCard(row, col).getSymbol();
+        encoder.encodeCard(output, row, col, symbol);
+        game.revealed(row, col, symbol);
+        pendingCards += 1;
+        if (cardMatch.isReady()) {
+            game.result(cardMatch);
+            concentrationBoard.updateRevealStatus(cardMatch);
+            boolean gameOver = concentrationBoard.gameOver();
+            if (gameOver) game.broadcast().end();
+            scheduleResult(encoder, cardMatch, gameOver);
+            if (gameOver) {
+                registry.endGame(game);
+                game = null;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Sends the result of the second reveal once the reveal delay has passed. Without a delay the result joins
+     * the other replies in the output buffer, otherwise it is kept pending until the session delivers it.
+     *
+     * @param encoder   encoder of the replies.
+     * @param cardMatch the result of the second reveal.
+     * @param gameOver  whether the result ends the game.
+     */
+    private void scheduleResult(ReplyEncoder encoder, ConcentrationGameBoard.CardMatch cardMatch, boolean gameOver) {
+        if (revealDelayMillis == 0) {
+            encoder.encodeResult(output, cardMatch, gameOver);
+            pendingResults += 1;
+        } else {
+            pendingMatch = cardMatch;
+            pendingGameOver = gameOver;
+            resultDeadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(revealDelayMillis);
+            resultRevealNanos = readNanos;
+        }
+    }
+
+    /**
+     * Waits for the end of the reveal delay and writes the pending result, after the replies gathered so far.
+     * While waiting the session keeps reading from the client with a socket timeout set to the end of the delay,
+     * gathering the commands pipelined behind the reveal without processing them. It only sleeps once the request
+     * buffer is full or the client stopped sending.
+     *
+     * @param in      input stream of the client.
+     * @param request buffer of the bytes received, in read mode.
+     * @param encoder encoder of the replies.
+     * @param out     output stream of the client.
+     * @throws IOException          if talking to the client fails.
+     * @throws InterruptedException if the session is interrupted while waiting.
+     */
+    private void deliverResult(InputStream in, ByteBuffer request, ReplyEncoder encoder, OutputStream out) throws IOException, InterruptedException {
+        flush(out);
+        boolean open = true;
+        try {
+            long remaining;
+            while ((remaining = resultDeadline - System.nanoTime()) > 0) {
+                if (!open || request.remaining() == request.capacity()) {
+                    TimeUnit.NANOSECONDS.sleep(remaining);
+                    break;
+                }
+                // round up, a timeout of 0 would wait forever
+                socket.setSoTimeout((int) ((remaining + TimeUnit.MILLISECONDS.toNanos(1) - 1) / TimeUnit.MILLISECONDS.toNanos(1)));
+                try {
+                    open = fill(in, request);
+                } catch (SocketTimeoutException e) {
+                    break;
+                }
+            }
+        } finally {
+            socket.setSoTimeout(idleTimeoutMillis);
+        }
+        encoder.encodeResult(output, pendingMatch, pendingGameOver);
+        pendingMatch = null;
+        flush(out);
+        metrics.resultsSent(System.nanoTime() - resultRevealNanos, 1);
+    }
 
+    /**
+     * Writes the gathered replies to the client in a single write and records their latencies.
+     *
+     * @param out output stream of the client.
+     * @throws IOException if writing to the client fails.
+     */
+    private void flush(OutputStream out) throws IOException {
+        if (output.position() > 0) {
+            out.write(output.array(), 0, output.position());
+            metrics.bytesWritten(output.position());
+            output.clear();
+        }
+        if (pendingCards > 0 || pendingResults > 0) {
+            long latency = System.nanoTime() - readNanos;
+            if (pendingCards > 0) metrics.revealsAnswered(latency, pendingCards);
+            if (pendingResults > 0) metrics.resultsSent(latency, pendingResults);
+            pendingCards = 0;
+            pendingResults = 0;
+        }
     }
 
 }
@@ -0,0 +1,281 @@
+package concentration.server;
+
+import concentration.common.ConcentrationException;
+import concentration.server.metrics.ConcentrationMetrics;
+
+import java.io.IOException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.PriorityQueue;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Event loop of the NIO engine. A single thread owns one Selector and drives every session registered with it,
+ * so the sessions never need any synchronization. Other threads hand work to the loop through a task queue and
+ * the loop also runs timers, which replace the blocking sleeps of the classic engine. Tasks and timers belong to
+ * a session: if one fails, only that session is closed and the loop carries on with the others.
+ *
+ * @author Arya Girisha Rao, Pradeep Kumar Gontla.
+ */
+
+public class ConcentrationEventLoop implements Runnable {
+
+    /**
+     * A task submitted from another thread.
+     *
+     * @param session session the task belongs to, closed if the task fails, or null.
+     * @param task    the task to run.
+     */
+    private record Task(ConcentrationNioSession session, Runnable task) {
+    }
+
+    /**
+     * A task to be run by the loop once its deadline has passed.
+     *
+     * @param deadline System.nanoTime() value after which the task is run.
+     * @param sequence tie-breaker keeping tasks with the same deadline in submission order.
+     * @param session  session the task belongs to, closed if the task fails.
+     * @param task     the task to run.
+     */
+    private record Timer(long deadline, long sequence, ConcentrationNioSession session, Runnable task)
+            implements Comparable<Timer> {
+        @Override
+        public int compareTo(Timer other) {
+            int result = Long.compare(this.deadline, other.deadline);
+            return result != 0 ? result : Long.compare(this.sequence, other.sequence);
+        }
+    }
+
+    /**
+     * Nanoseconds in a millisecond.
+     */
+    private static final long MILLI_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    /**
+     * Selector multiplexing all the channels of this loop.
+     */
+    private final Selector selector;
+
+    /**
+     * Tasks submitted from other threads, run by the loop on its next iteration.
+     */
+    private final Queue<Task> tasks;
+
+    /**
+     * Pending timers ordered by deadline. Only touched by the loop thread.
+     */
+    private final PriorityQueue<Timer> timers;
+
+    /**
+     * Number of timers scheduled so far, used to order timers with the same deadline.
+     */
+    private long timerSequence;
+
+    /**
+     * Thread running this loop.
+     */
+    private final Thread thread;
+
+    /**
+     * Configuration of the server.
+     */
+    private final ConcentrationServerConfig config;
+
+    /**
+     * Registry of the games being played.
+     */
+    private final ConcentrationGameRegistry registry;
+
+    /**
+     * Admission control the sessions of this loop were admitted by.
+     */
+    private final ConcentrationAdmission admission;
+
+    /**
+     * Metrics of the server.
+     */
+    private final ConcentrationMetrics metrics;
+
+    /**
+     * Creates a new event loop. The loop does not run until start is called.
+     *
+     * @param name      name of the thread running the loop.
+     * @param config    Configuration of the server.
+     * @param registry  Registry of the games being played.
+     * @param admission Admission control the sessions of this loop were admitted by.
+     * @param metrics   Metrics of the server.
+     * @throws IOException if the selector cannot be opened.
+     */
+    public ConcentrationEventLoop(String name, ConcentrationServerConfig config, ConcentrationGameRegistry registry,
+                                  ConcentrationAdmission admission, ConcentrationMetrics metrics) throws IOException {
+        this.config = config;
+        this.registry = registry;
+        this.admission = admission;
+        this.metrics = metrics;
+        this.selector = Selector.open();
+        this.tasks = new ConcurrentLinkedQueue<>();
+        this.timers = new PriorityQueue<>();
+        this.thread = new Thread(this, name);
+    }
+
+    /**
+     * Starts the thread running the loop.
+     */
+    public void start() {
+        thread.start();
+    }
+
+    /**
+     * Hands a new client connection over to this loop, which starts its first game on the board dimensions of the
+     * server. Safe to call from any thread.
+     *
+     * @param channel connected client channel.
+     */
+    public void register(SocketChannel channel) {
+        execute(null, () -> {
+            ConcentrationGameRegistry.Game game = null;
+            try {
+                game = registry.newGame(config.getBoardDimensions());
+                channel.configureBlocking(false);
+                SelectionKey key = channel.register(selector, SelectionKey.OP_READ);
+                ConcentrationNioSession session = new ConcentrationNioSession(this, key, registry, game,
+                        config.getRevealDelayMillis(), config.getIdleTimeoutMillis(), admission, metrics);
+                key.attach(session);
+                session.start();
+            } catch (ConcentrationException | IOException | RuntimeException e) {
+                System.err.println(e.getMessage());
+                metrics.error(e);
+                SelectionKey key = channel.keyFor(selector);
+                if (key != null && key.attachment() instanceof ConcentrationNioSession session) {
+                    session.close();
+                } else {
+                    registry.endGame(game);
+                    admission.release();
+                    closeQuietly(channel);
+                }
+            }
+        });
+    }
+
+    /**
+     * Runs a task on the loop thread. Safe to call from any thread.
+     *
+     * @param session session the task belongs to, closed if the task fails, or null.
+     * @param task    the task to run.
+     */
+    public void execute(ConcentrationNioSession session, Runnable task) {
+        tasks.add(new Task(session, task));
+        selector.wakeup();
+    }
+
+    /**
+     * Runs a task on the loop thread once the delay has passed. Must be called from the loop thread.
+     *
+     * @param session     session the task belongs to, closed if the task fails.
+     * @param delayMillis delay in milliseconds.
+     * @param task        the task to run.
+     */
+    public void schedule(ConcentrationNioSession session, long delayMillis, Runnable task) {
+        timers.add(new Timer(System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(delayMillis), timerSequence++, session, task));
+    }
+
+    /**
+     * Main loop. Waits for ready channels or the next timer, then dispatches the ready sessions, the submitted
+     * tasks and the expired timers.
+     */
+    @Override
+    public void run() {
+        while (selector.isOpen()) {
+            try {
+                Timer next = timers.peek();
+                if (next == null) {
+                    selector.select();
+                } else {
+                    // round up, a deadline less than a millisecond away must not spin on selectNow
+                    long waitNanos = next.deadline() - System.nanoTime();
+                    long waitMillis = waitNanos > 0 ? (waitNanos + MILLI_NANOS - 1) / MILLI_NANOS : 0;
+                    if (waitMillis > 0) selector.select(waitMillis);
+                    else selector.selectNow();
+                }
+                for (SelectionKey key : selector.selectedKeys()) {
+                    dispatch(key);
+                }
+                selector.selectedKeys().clear();
+                runTasks();
+                runTimers();
+            } catch (IOException e) {
+                System.err.println("Event loop failure. Error details: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Dispatches a ready key to its session.
+     *
+     * @param key the ready key.
+     */
+    private void dispatch(SelectionKey key) {
+        ConcentrationNioSession session = (ConcentrationNioSession) key.attachment();
+        try {
+            if (key.isValid() && key.isWritable()) session.onWritable();
+            if (key.isValid() && key.isReadable()) session.onReadable();
+        } catch (IOException | RuntimeException e) {
+            System.err.println(e.getMessage());
+            metrics.error(e);
+            session.close();
+        }
+    }
+
+    /**
+     * Runs all the tasks submitted from other threads.
+     */
+    private void runTasks() {
+        Task task;
+        while ((task = tasks.poll()) != null) {
+            run(task.session(), task.task());
+        }
+    }
+
+    /**
+     * Runs all the timers whose deadline has passed.
+     */
+    private void runTimers() {
+        long now = System.nanoTime();
+        while (!timers.isEmpty() && timers.peek().deadline() - now <= 0) {
+            Timer timer = timers.poll();
+            run(timer.session(), timer.task());
+        }
+    }
+
+    /**
+     * Runs a task or timer, closing the session it belongs to if it fails so the loop keeps serving the others.
+     *
+     * @param session session the task belongs to, or null.
+     * @param task    the task to run.
+     */
+    private void run(ConcentrationNioSession session, Runnable task) {
+        try {
+            task.run();
+        } catch (RuntimeException e) {
+            System.err.println(e.getMessage());
+            metrics.error(e);
+            if (session != null) session.close();
+        }
+    }
+
+    /**
+     * Close a channel ignoring any error, the channel is of no use anymore.
+     *
+     * @param channel channel to close.
+     */
+    static void closeQuietly(SocketChannel channel) {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            System.err.println("Failed to close the socket. Error details: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,199 @@
+package concentration.server;
+
+import concentration.common.ConcentrationBoardSnapshot;
+import concentration.common.ConcentrationCard;
+import concentration.common.ConcentrationException;
+
+import java.util.random.RandomGenerator;
+
+/**
+ * The operations the server needs from a concentration game board, whatever
+ * its representation.  Small boards use one card object per cell
+ * (ConcentrationBoard), large boards use primitive arrays and bitsets
+ * (ConcentrationBitBoard).
+ *
+ * @author RIT CS, Arya Girisha Rao, Pradeep Kumar Gontla.
+ */
+public interface ConcentrationGameBoard {
+
+    /**
+     * An internal class used to determine a card match or mismatch.
+     */
+    class CardMatch {
+        /**
+         * the first card
+         */
+        private final ConcentrationCard card1;
+        /**
+         * the second card
+         */
+        private final ConcentrationCard card2;
+        /**
+         * do the cards match?
+         */
+        private final boolean match;
+
+        /**
+         * Create a new instance from the two revealed cards and whether they matches.
+         *
+         * @param card1 first card
+         * @param card2 second card
+         * @param match do the cards match or not
+         */
+        public CardMatch(ConcentrationCard card1, ConcentrationCard card2, boolean match) {
+            this.card1 = card1;
+            this.card2 = card2;
+            this.match = match;
+        }
+
+        /**
+         * Get the first card.
+         *
+         * @return first card
+         */
+        public ConcentrationCard getCard1() {
+            return this.card1;
+        }
+
+        /**
+         * Get the second card.
+         *
+         * @return second card
+         */
+        public ConcentrationCard getCard2() {
+            return this.card2;
+        }
+
+        /**
+         * Is there a card match?
+         *
+         * @return whether there was a match or not
+         */
+        public boolean isMatch() {
+            return this.match;
+        }
+
+        /**
+         * Is it ready to check for a match - both cards should be non-null
+         *
+         * @return is a match ready to check?
+         */
+        public boolean isReady() {
+            return this.card1 != null && this.card2 != null;
+        }
+    }
+
+    /**
+     * Create a board of the representation best suited to its dimension.
+     *
+     * @param DIM    square dimension
+     * @param random random generator used to shuffle the cards
+     * @return the new board
+     * @throws ConcentrationException if the dimension is illegal
+     */
+    static ConcentrationResettableBoard newBoard(int DIM, RandomGenerator random) throws ConcentrationException {
+        if (DIM > ConcentrationBoard.MAX_DIM) {
+            return new ConcentrationBitBoard(DIM, random);
+        }
+        return new ConcentrationBoard(DIM, false, random);
+    }
+
+    /**
+     * Get the square dimension of the board.
+     *
+     * @return the dimension
+     */
+    int getDIM();
+
+    /**
+     * Get a card from the board at a coordinate.
+     *
+     * @param row the row
+     * @param col the column
+     * @return the card, or a view of it for boards that do not store card objects
+     * @throws ConcentrationException if the coordinate is invalid
+     */
+    ConcentrationCard getCard(int row, int col) throws ConcentrationException;
+
+    /**
+     * Has the card at a coordinate been matched?
+     *
+     * @param row the row
+     * @param col the column
+     * @return whether the card is matched
+     * @throws ConcentrationException if the coordinate is invalid
+     */
+    boolean isMatched(int row, int col) throws ConcentrationException;
+
+    /**
+     * Take a snapshot of the board as its player sees it: the face up
+     * cards, and which of them are matched.
+     *
+     * @param id the id of the game
+     * @return the snapshot
+     */
+    default ConcentrationBoardSnapshot snapshot(int id) {
+        int DIM = getDIM();
+        ConcentrationBoardSnapshot snapshot = new ConcentrationBoardSnapshot(id, DIM);
+        try {
+            for (int row = 0; row < DIM; ++row) {
+                for (int col = 0; col < DIM; ++col) {
+                    ConcentrationCard card = getCard(row, col);
+                    if (!card.isHidden()) snapshot.setFaceUp(row, col, card.getSymbol(), isMatched(row, col));
+                }
+            }
+        } catch (ConcentrationException e) {
+            throw new IllegalStateException(e);
+        }
+        return snapshot;
+    }
+
+    /**
+     * Reveal a hidden card.
+     *
+     * @param row the row
+     * @param col the column
+     * @return resulting information about a potential match or mismatch
+     * @throws ConcentrationException if the game is over, the coordinate is invalid, or the
+     *                                card has already been revealed.
+     */
+    CardMatch reveal(int row, int col) throws ConcentrationException;
+
+    /**
+     * Reveal a hidden card unless another player holds it.  Only boards
+     * shared by several players can refuse a card that way, so the default
+     * is a plain reveal.
+     *
+     * @param row the row
+     * @param col the column
+     * @return resulting information about a potential match or mismatch,
+     * or null if another player holds the card
+     * @throws ConcentrationException if the game is over, the coordinate is
+     *                                invalid, or the card has already been
+     *                                revealed.
+     */
+    default CardMatch tryReveal(int row, int col) throws ConcentrationException {
+        return reveal(row, col);
+    }
+
+    /**
+     * Updates the Board based on the reveal status.
+     *
+     * @param cardMatch cardMatch information from the previous two reveals.
+     */
+    void updateRevealStatus(CardMatch cardMatch);
+
+    /**
+     * The game is over when all the matches have been made.
+     *
+     * @return whether the game is over or not
+     */
+    boolean gameOver();
+
+    /**
+     * Get the number of cards that are currently hidden.
+     *
+     * @return the number of hidden cards
+     */
+    int getHiddenCount();
+}
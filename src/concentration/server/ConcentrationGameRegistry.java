@@ -0,0 +1,380 @@
+package concentration.server;
+
+import concentration.common.ConcentrationException;
+import concentration.server.journal.ConcentrationJournal;
+import concentration.server.metrics.ConcentrationMetrics;
+
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.random.RandomGenerator;
+
+/**
+ * Registry of the games being played, shared by every session of the server. Decouples connections from games:
+ * a session asks the registry for a game when the client connects or sends NEW_GAME, and hands it back when the
+ * game is over or abandoned, so one connection can play many games in sequence. Games are known by an id, which
+ * is how other connections will find a game to join or watch. The registry is the single place boards are built
+ * and released: the board of a game that ends goes back to a ConcentrationBoardPool, and new games take their
+ * boards from it, reshuffled in place, before building new ones. A session must not touch the board of a game
+ * once it ended it, except for the coordinates of the cards it revealed, which never change.
+ * Games hosted with HOST are shared: every session that joins one gets its own seat at the same
+ * ConcentrationSharedBoard, and the game ends when its last player leaves. Shared boards are not pooled, they are
+ * few and long lived. Every game also has a ConcentrationBroadcast its sessions publish their moves to, which other
+ * connections can watch with WATCH; the registry ends it along with the game, and the broadcast of a single player
+ * game goes back to the pool with its board. With a ConcentrationJournal every
+ * board is dealt from a seed of its own, which is journaled with the start of the game, so the game can be
+ * rebuilt from the journal. A session that asked for a resume token hands its game back with parkGame rather than
+ * endGame when its connection drops: the game is parked in a ConcentrationSessionParking, where it stays registered,
+ * watchable and seated, until a new connection resumes it or its grace period is over. Safe to use from any thread.
+ *
+ * @author Arya Girisha Rao, Pradeep Kumar Gontla.
+ */
+
+public class ConcentrationGameRegistry {
+
+    /**
+     * A game being played by a session.
+     *
+     * @param id    id of the game, the same for every player of a shared game. Ids only wrap around after
+     *              Integer.MAX_VALUE games.
+     * @param board     board the session plays: its own board, or its seat at a shared board.
+     * @param broadcast spectators of the game, shared by every player of a shared game.
+     * @param journal   journal of the games, null if games are not journaled.
+     */
+    public record Game(int id, ConcentrationGameBoard board, ConcentrationBroadcast broadcast, ConcentrationJournal journal) {
+
+        /**
+         * Get the seat of the player at the board.
+         *
+         * @return the seat number at a shared board, 0 in a single player game.
+         */
+        public int seat() {
+            return board instanceof ConcentrationSharedBoard.Seat seat ? seat.getNumber() : 0;
+        }
+
+        /**
+         * Publishes a card the player revealed to the spectators and the journal.
+         *
+         * @param row    row of the card.
+         * @param col    column of the card.
+         * @param symbol symbol of the card.
+         */
+        public void revealed(int row, int col, int symbol) {
+            broadcast.card(row, col, symbol);
+            if (journal != null) journal.revealed(id, seat(), row, col, false);
+        }
+
+        /**
+         * Journals a reveal refused with TAKEN.
+         *
+         * @param row row of the card.
+         * @param col column of the card.
+         */
+        public void taken(int row, int col) {
+            if (journal != null) journal.revealed(id, seat(), row, col, true);
+        }
+
+        /**
+         * Publishes the result of the last two reveals of the player to the spectators and the journal. Must be
+         * called before the board is updated with it.
+         *
+         * @param cardMatch the result of the second reveal.
+         */
+        public void result(ConcentrationGameBoard.CardMatch cardMatch) {
+            broadcast.result(cardMatch);
+            if (journal != null) journal.result(id, seat(), cardMatch.isMatch());
+        }
+    }
+
+    /**
+     * Single player games being played by id.
+     */
+    private final Map<Integer, Game> games;
+
+    /**
+     * Boards of the shared games being played by id.
+     */
+    private final Map<Integer, ConcentrationSharedBoard> sharedBoards;
+
+    /**
+     * Id of the last game started.
+     */
+    private final AtomicInteger lastId;
+
+    /**
+     * Boards of the games that ended, ready to be reused.
+     */
+    private final ConcentrationBoardPool boardPool;
+
+    /**
+     * Largest number of events queued for a spectator before it is resynced.
+     */
+    private final int watchQueue;
+
+    /**
+     * Journal of the games, null if games are not journaled.
+     */
+    private final ConcentrationJournal journal;
+
+    /**
+     * Games whose connection dropped, null if sessions cannot be resumed.
+     */
+    private final ConcentrationSessionParking parking;
+
+    /**
+     * Largest board dimension a game can be started on.
+     */
+    private final int maxDIM;
+
+    /**
+     * Metrics of the server.
+     */
+    private final ConcentrationMetrics metrics;
+
+    /**
+     * Creates an empty registry.
+     *
+     * @param boardPool  Boards of the games that ended, ready to be reused.
+     * @param watchQueue Largest number of events queued for a spectator before it is resynced.
+     * @param journal    Journal of the games, null if games are not journaled.
+     * @param parking    Games whose connection dropped, null if sessions cannot be resumed.
+     * @param maxDIM     Largest board dimension a game can be started on, so a client cannot have the server
+     *                   build boards of any size.
+     * @param metrics    Metrics of the server.
+     */
+    public ConcentrationGameRegistry(ConcentrationBoardPool boardPool, int watchQueue, ConcentrationJournal journal,
+                                     ConcentrationSessionParking parking, int maxDIM, ConcentrationMetrics metrics) {
+        this.games = new ConcurrentHashMap<>();
+        this.sharedBoards = new ConcurrentHashMap<>();
+        this.lastId = new AtomicInteger();
+        this.boardPool = boardPool;
+        this.watchQueue = watchQueue;
+        this.journal = journal;
+        this.parking = parking;
+        this.maxDIM = maxDIM;
+        this.metrics = metrics;
+    }
+
+    /**
+     * Starts a new game on a pooled board, or on a new one if the pool has none of this dimension, and records how
+     * long getting the board took.
+     *
+     * @param DIM square dimension of the board.
+     * @return the game.
+     * @throws ConcentrationException if the dimension is invalid or above the limit.
+     */
+    public Game newGame(int DIM) throws ConcentrationException {
+        checkDIM(DIM);
+        long seed = ThreadLocalRandom.current().nextLong();
+        long start = System.nanoTime();
+        ConcentrationResettableBoard board = boardPool.take(DIM, random(seed));
+        if (board == null) {
+            board = ConcentrationGameBoard.newBoard(DIM, random(seed));
+        } else {
+            metrics.boardReused();
+        }
+        metrics.boardBuilt(System.nanoTime() - start);
+        int id = nextId();
+        ConcentrationBroadcast broadcast = boardPool.takeBroadcast(DIM, id);
+        if (broadcast == null) broadcast = new ConcentrationBroadcast(id, DIM, metrics);
+        Game game = new Game(id, board, broadcast, journal);
+        if (journal != null) journal.gameStarted(game.id(), DIM, false, seed);
+        games.put(game.id(), game);
+        metrics.gameStarted();
+        return game;
+    }
+
+    /**
+     * Starts a shared game on a new board and seats its host.
+     *
+     * @param DIM square dimension of the board.
+     * @return the game of the host.
+     * @throws ConcentrationException if the dimension is invalid or above the limit.
+     */
+    public Game hostGame(int DIM) throws ConcentrationException {
+        checkDIM(DIM);
+        long seed = ThreadLocalRandom.current().nextLong();
+        long start = System.nanoTime();
+        int id = nextId();
+        ConcentrationBroadcast broadcast = new ConcentrationBroadcast(id, DIM, metrics);
+        ConcentrationSharedBoard sharedBoard = new ConcentrationSharedBoard(DIM, random(seed), broadcast);
+        metrics.boardBuilt(System.nanoTime() - start);
+        ConcentrationSharedBoard.Seat seat = sharedBoard.join();
+        Game game = new Game(id, seat, broadcast, journal);
+        if (journal != null) journal.gameStarted(game.id(), DIM, true, seed);
+        sharedBoards.put(game.id(), sharedBoard);
+        metrics.gameStarted();
+        return game;
+    }
+
+    /**
+     * Seats a player at a shared game.
+     *
+     * @param id id of the game.
+     * @return the game of the player.
+     * @throws ConcentrationException if no shared game with this id is being played, or it is over.
+     */
+    public Game joinGame(int id) throws ConcentrationException {
+        ConcentrationSharedBoard sharedBoard = sharedBoards.get(id);
+        if (sharedBoard != null && sharedBoard.gameOver()) throw new ConcentrationException("Game is already over");
+        ConcentrationSharedBoard.Seat seat = sharedBoard == null ? null : sharedBoard.join();
+        if (seat == null) throw new ConcentrationException("No such game: " + id);
+        return new Game(id, seat, sharedBoard.getBroadcast(), journal);
+    }
+
+    /**
+     * Starts streaming the moves of a game, single player or shared, to a spectator.
+     *
+     * @param id      id of the game.
+     * @param binary  whether the spectator gets binary frames rather than text lines.
+     * @param wakeup  called when events are queued for the spectator, null if its session blocks on take instead.
+     * @return the spectator, to be closed when the session ends.
+     * @throws ConcentrationException if no game with this id is being played, or it is over.
+     */
+    public ConcentrationBroadcast.Watcher watchGame(int id, boolean binary, Runnable wakeup) throws ConcentrationException {
+        Game game = games.get(id);
+        ConcentrationSharedBoard sharedBoard = sharedBoards.get(id);
+        ConcentrationBroadcast broadcast = game != null ? game.broadcast()
+                : sharedBoard != null ? sharedBoard.getBroadcast() : null;
+        if (broadcast == null) throw new ConcentrationException("No such game: " + id);
+        ConcentrationBroadcast.Watcher watcher = new ConcentrationBroadcast.Watcher(binary, watchQueue, wakeup);
+        if (!broadcast.subscribe(id, watcher)) throw new ConcentrationException("Game is already over");
+        return watcher;
+    }
+
+    /**
+     * Ends a game that is over or abandoned. A single player game gives its board back to the pool, a player of a
+     * shared game leaves its seat and the game ends with its last player. The spectators of a game that ends are
+     * let go. Ending a game twice, or no game, does nothing.
+     *
+     * @param game the game, may be null.
+     */
+    public void endGame(Game game) {
+        if (game == null) return;
+        if (game.board() instanceof ConcentrationSharedBoard.Seat seat) {
+            if (journal != null && !seat.hasLeft()) journal.left(game.id(), seat.getNumber());
+            if (seat.leave() && sharedBoards.remove(game.id(), seat.getBoard())) {
+                game.broadcast().end();
+                if (journal != null) journal.gameEnded(game.id());
+                metrics.gameEnded();
+            }
+        } else if (games.remove(game.id()) != null) {
+            game.broadcast().end();
+            if (journal != null) journal.gameEnded(game.id());
+            metrics.gameEnded();
+            if (game.board() instanceof ConcentrationResettableBoard board) boardPool.release(board);
+            boardPool.release(game.broadcast());
+        }
+    }
+
+    /**
+     * Creates the resume token of a session.
+     *
+     * @return the token, never 0.
+     * @throws ConcentrationException if sessions cannot be resumed.
+     */
+    public long newToken() throws ConcentrationException {
+        if (parking == null) throw new ConcentrationException("Resume is disabled");
+        return parking.newToken();
+    }
+
+    /**
+     * Hands back the game of a session whose connection dropped. A game that is not over is parked under the resume
+     * token of the session, if it has one, otherwise it is ended as by endGame. Parking a game may evict the game
+     * parked longest ago, which is ended.
+     *
+     * @param token resume token of the session, 0 if it has none.
+     * @param game  the game, may be null.
+     */
+    public void parkGame(long token, Game game) {
+        if (game == null) return;
+        if (token == 0 || parking == null || game.board().gameOver()) {
+            endGame(game);
+            return;
+        }
+        metrics.sessionParked();
+        Game evicted = parking.park(token, game);
+        if (evicted != null) {
+            metrics.sessionEvicted();
+            endGame(evicted);
+        }
+    }
+
+    /**
+     * Takes a parked game out of the parking, for the session that resumes it.
+     *
+     * @param token resume token of the session the game was parked by.
+     * @return the game.
+     * @throws ConcentrationException if no game is parked under the token.
+     */
+    public Game resumeGame(long token) throws ConcentrationException {
+        Game game = parking == null ? null : parking.resume(token);
+        if (game == null) throw new ConcentrationException("No such session");
+        metrics.sessionResumed();
+        return game;
+    }
+
+    /**
+     * Ends the parked games whose grace period is over.
+     */
+    public void evictParked() {
+        if (parking == null) return;
+        List<Game> expired = parking.expired(System.nanoTime());
+        for (Game game : expired) {
+            metrics.sessionEvicted();
+            endGame(game);
+        }
+    }
+
+    /**
+     * Finds a single player game being played.
+     *
+     * @param id id of the game.
+     * @return the game, or null if no game with this id is being played.
+     */
+    public Game find(int id) {
+        return games.get(id);
+    }
+
+    /**
+     * Get the number of games being played, single player and shared.
+     *
+     * @return number of games.
+     */
+    public int size() {
+        return games.size() + sharedBoards.size();
+    }
+
+    /**
+     * Checks that a board dimension is within the limit of the server.
+     *
+     * @param DIM square dimension of the board.
+     * @throws ConcentrationException if the dimension is above the limit.
+     */
+    private void checkDIM(int DIM) throws ConcentrationException {
+        if (DIM > maxDIM) throw new ConcentrationException("Board size above the limit of " + maxDIM + ": " + DIM);
+    }
+
+    /**
+     * Get the random generator a board is dealt with. A journaled board is dealt from its seed, so the same board
+     * can be dealt again from the journal, otherwise the current thread's generator saves the allocation.
+     *
+     * @param seed seed of the board.
+     * @return the random generator.
+     */
+    private RandomGenerator random(long seed) {
+        return journal == null ? ThreadLocalRandom.current() : new SplittableRandom(seed);
+    }
+
+    /**
+     * Get the id of a new game, wrapping around to 1 after Integer.MAX_VALUE.
+     *
+     * @return the id.
+     */
+    private int nextId() {
+        return lastId.updateAndGet(id -> id == Integer.MAX_VALUE ? 1 : id + 1);
+    }
+}
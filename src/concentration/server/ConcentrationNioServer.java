@@ -0,0 +1,92 @@
+package concentration.server;
+
+import concentration.server.metrics.ConcentrationMetrics;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+
+/**
+ * NIO engine of the Concentration server. The calling thread accepts the connections and hands them round robin
+ * to a small fixed set of event loops, so the number of threads does not grow with the number of clients. A
+ * connection ConcentrationAdmission turns away is answered and closed right there, before it gets a board. The
+ * others get their first game from their event loop, so building boards never holds up the accepting thread.
+ *
+ * @author Arya Girisha Rao, Pradeep Kumar Gontla.
+ */
+
+public class ConcentrationNioServer {
+
+    /**
+     * Configuration of the server.
+     */
+    private final ConcentrationServerConfig config;
+
+    /**
+     * Admission control of the accepted connections.
+     */
+    private final ConcentrationAdmission admission;
+
+    /**
+     * Metrics of the server.
+     */
+    private final ConcentrationMetrics metrics;
+
+    /**
+     * Event loops handling the client sessions.
+     */
+    private final ConcentrationEventLoop[] eventLoops;
+
+    /**
+     * Creates the NIO engine and its event loops.
+     *
+     * @param config    Configuration of the server.
+     * @param registry  Registry of the games being played.
+     * @param admission Admission control of the accepted connections.
+     * @param metrics   Metrics of the server.
+     * @throws IOException if an event loop cannot be created.
+     */
+    public ConcentrationNioServer(ConcentrationServerConfig config, ConcentrationGameRegistry registry,
+                                  ConcentrationAdmission admission, ConcentrationMetrics metrics) throws IOException {
+        this.config = config;
+        this.admission = admission;
+        this.metrics = metrics;
+        this.eventLoops = new ConcentrationEventLoop[config.getEventLoops()];
+        for (int i = 0; i < eventLoops.length; ++i) {
+            eventLoops[i] = new ConcentrationEventLoop("concentration-event-loop-" + i, config, registry, admission, metrics);
+        }
+    }
+
+    /**
+     * Starts the event loops and accepts clients forever.
+     *
+     * @throws IOException if the server socket fails.
+     */
+    public void serve() throws IOException {
+        for (ConcentrationEventLoop eventLoop : eventLoops) {
+            eventLoop.start();
+        }
+        try (ServerSocketChannel serverChannel = ServerSocketChannel.open()) {
+            serverChannel.bind(new InetSocketAddress(config.getPortNumber()));
+            int next = 0;
+            while (true) {
+                SocketChannel channel;
+                try {
+                    channel = serverChannel.accept();
+                } catch (IOException e) {
+                    if (!serverChannel.isOpen()) throw e;
+                    admission.acceptFailed(e);
+                    continue;
+                }
+                metrics.connectionAccepted();
+                if (!admission.admit()) {
+                    ConcentrationAdmission.reject(channel);
+                    continue;
+                }
+                eventLoops[next].register(channel);
+                next = (next + 1) % eventLoops.length;
+            }
+        }
+    }
+}
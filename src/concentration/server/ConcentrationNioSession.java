@@ -0,0 +1,673 @@
+package concentration.server;
+
+import concentration.common.ConcentrationBinaryProtocol;
+import concentration.common.ConcentrationBoardSnapshot;
+import concentration.common.ConcentrationException;
+import concentration.common.ConcentrationProtocol;
+import concentration.common.ConcentrationTextCodec;
+import concentration.server.metrics.ConcentrationMetrics;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A single client connection handled by the NIO engine. Plays the same ConcentrationProtocol, or
+ * ConcentrationBinaryProtocol once negotiated, as ConcentrationClientServerThread, but reacts to readiness events
+ * from its event loop instead of blocking. Text lines and binary frames are decoded from and encoded into the
+ * session buffers directly, without allocating per message.
+ * Like ConcentrationClientServerThread it takes its games from the ConcentrationGameRegistry and plays a new one on
+ * every NEW_GAME. After WATCH the session is a spectator of another game: its ConcentrationBroadcast.Watcher wakes
+ * it up through the event loop when events are queued, and it writes the shared event buffers straight to the
+ * channel. Whatever the client sends afterwards is discarded. A session with a resume token parks its game in the
+ * registry when its channel closes before the game is over, for another session to take over with RESUME.
+ * A timer of the loop closes the session once its client has sent nothing for the idle timeout, unless it is a
+ * spectator.
+ * All methods are called from the event loop thread owning the session.
+ *
+ * @author Arya Girisha Rao, Pradeep Kumar Gontla.
+ */
+
+public class ConcentrationNioSession {
+
+    /**
+     * Event loop owning the session.
+     */
+    private final ConcentrationEventLoop loop;
+
+    /**
+     * Key of the client channel in the loop's selector.
+     */
+    private final SelectionKey key;
+
+    /**
+     * Client channel.
+     */
+    private final SocketChannel channel;
+
+    /**
+     * Registry the games of the session come from and go back to.
+     */
+    private final ConcentrationGameRegistry registry;
+
+    /**
+     * Game being played, null once it ended and no new game was asked for.
+     */
+    private ConcentrationGameRegistry.Game game;
+
+    /**
+     * Set once the client started a game with NEW_GAME, HOST or JOIN. The session then stays open after GAME_OVER.
+     */
+    private boolean multiGame;
+
+    /**
+     * Resume token of the session, 0 until the client asks for one with TOKEN.
+     */
+    private long token;
+
+    /**
+     * Queue of the game being watched, null unless the client sent WATCH.
+     */
+    private ConcentrationBroadcast.Watcher watcher;
+
+    /**
+     * Event of the watched game being written, null if none.
+     */
+    private ByteBuffer watchEvent;
+
+    /**
+     * Delay in milliseconds before the result of the second reveal is sent. 0 sends it right away.
+     */
+    private final long revealDelayMillis;
+
+    /**
+     * Milliseconds the session waits for its client to send anything before it is closed. 0 waits forever.
+     */
+    private final int idleTimeoutMillis;
+
+    /**
+     * Admission control the session was admitted by, released when it closes.
+     */
+    private final ConcentrationAdmission admission;
+
+    /**
+     * Metrics of the server.
+     */
+    private final ConcentrationMetrics metrics;
+
+    /**
+     * Decoder of the text command lines.
+     */
+    private final ConcentrationTextCodec codec;
+
+    /**
+     * Bytes read from the client that do not form a complete line yet. Always left in write mode.
+     */
+    private final ByteBuffer readBuffer;
+
+    /**
+     * Bytes waiting to be written to the client. Always left in write mode.
+     */
+    private ByteBuffer writeBuffer;
+
+    /**
+     * Set while the result of a second reveal is waiting for its delay. Commands are not processed meanwhile,
+     * they stay queued in the read buffer just like they would in the socket of the classic engine.
+     */
+    private boolean resultPending;
+
+    /**
+     * Set once the client has sent its first command, after which it can no longer ask for the binary protocol.
+     */
+    private boolean commandReceived;
+
+    /**
+     * Set once the client switched to the binary protocol.
+     */
+    private boolean binary;
+
+    /**
+     * Set once the game is over or failed. The session closes as soon as the pending output is written.
+     */
+    private boolean closing;
+
+    /**
+     * Set once the session is closed.
+     */
+    private boolean closed;
+
+    /**
+     * System.nanoTime() of the last read from the client.
+     */
+    private long readNanos;
+
+    /**
+     * System.nanoTime() of the read that brought the second reveal of the results in the pending output.
+     */
+    private long resultNanos;
+
+    /**
+     * Number of CARD replies in the pending output.
+     */
+    private int pendingCards;
+
+    /**
+     * Number of MATCH or MISMATCH replies in the pending output.
+     */
+    private int pendingResults;
+
+    /**
+     * Creates a new session for a client channel registered with a loop.
+     *
+     * @param loop               Event loop owning the session.
+     * @param key                Key of the client channel in the loop's selector.
+     * @param registry           Registry the games of the session come from and go back to.
+     * @param game               First game of the session.
+     * @param revealDelayMillis  Delay in milliseconds before the result of the second reveal is sent.
+     * @param idleTimeoutMillis  Milliseconds the session waits for its client to send anything, 0 waits forever.
+     * @param admission          Admission control the session was admitted by, released when it closes.
+     * @param metrics            Metrics of the server.
+     */
+    public ConcentrationNioSession(ConcentrationEventLoop loop, SelectionKey key, ConcentrationGameRegistry registry,
+                                   ConcentrationGameRegistry.Game game, long revealDelayMillis, int idleTimeoutMillis,
+                                   ConcentrationAdmission admission, ConcentrationMetrics metrics) {
+        this.loop = loop;
+        this.key = key;
+        this.channel = (SocketChannel) key.channel();
+        this.registry = registry;
+        this.game = game;
+        this.revealDelayMillis = revealDelayMillis;
+        this.idleTimeoutMillis = idleTimeoutMillis;
+        this.admission = admission;
+        this.metrics = metrics;
+        this.codec = new ConcentrationTextCodec();
+        this.readBuffer = ByteBuffer.allocate(ConcentrationTextCodec.MAX_LINE_LENGTH);
+        this.writeBuffer = ByteBuffer.allocate(ConcentrationTextCodec.MAX_LINE_LENGTH);
+    }
+
+    /**
+     * Starts the game by sending the board dimensions to the client, and the idle timer.
+     *
+     * @throws IOException if writing to the client fails.
+     */
+    public void start() throws IOException {
+        metrics.sessionOpened();
+        readNanos = System.nanoTime();
+        if (idleTimeoutMillis > 0) loop.schedule(this, idleTimeoutMillis, this::checkIdle);
+        ensureWritable(ConcentrationTextCodec.MAX_LINE_LENGTH);
+        ConcentrationTextCodec.encodeBoardDim(writeBuffer, game.board().getDIM());
+        flush();
+    }
+
+    /**
+     * Reads the available bytes from the client and processes every complete command.
+     *
+     * @throws IOException if reading from or writing to the client fails.
+     */
+    public void onReadable() throws IOException {
+        int read = channel.read(readBuffer);
+        if (read < 0) {
+            close();
+            return;
+        }
+        metrics.bytesRead(read);
+        readNanos = System.nanoTime();
+        processInput();
+        flush();
+    }
+
+    /**
+     * Writes the pending output once the client channel can accept more bytes.
+     *
+     * @throws IOException if writing to the client fails.
+     */
+    public void onWritable() throws IOException {
+        flush();
+    }
+
+    /**
+     * Closes the session if its client has sent nothing for the idle timeout, otherwise checks again when it would
+     * be. Run by the loop as a timer, until the session closes or starts watching a game.
+     */
+    private void checkIdle() {
+        if (closed || watcher != null) return;
+        long idleMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - readNanos);
+        if (idleMillis >= idleTimeoutMillis) {
+            metrics.idleTimedOut();
+            close();
+        } else {
+            loop.schedule(this, idleTimeoutMillis - idleMillis, this::checkIdle);
+        }
+    }
+
+    /**
+     * Processes the complete commands in the read buffer until none are left or a result is pending.
+     */
+    private void processInput() {
+        if (watcher != null) {
+            readBuffer.clear();
+            return;
+        }
+        readBuffer.flip();
+        try {
+            boolean processed = true;
+            while (processed && !resultPending && !closing && watcher == null) {
+                processed = binary ? processFrame() : processLine();
+            }
+        } catch (ConcentrationException e) {
+            System.out.printf((ConcentrationProtocol.ERROR_MSG) + "%n", e.getMessage());
+            metrics.error(e);
+            closing = true;
+        }
+        readBuffer.compact();
+    }
+
+    /**
+     * Processes the next command line in the read buffer.
+     *
+     * @return whether a complete line was processed.
+     * @throws ConcentrationException if the command is unknown or malformed, or the reveal is illegal.
+     */
+    private boolean processLine() throws ConcentrationException {
+        if (!codec.decode(readBuffer)) return false;
+        boolean firstCommand = !commandReceived;
+        commandReceived = true;
+        if (firstCommand && codec.getCommand() == ConcentrationTextCodec.BINARY) {
+            ensureWritable(ConcentrationTextCodec.MAX_LINE_LENGTH);
+            if (codec.getVersion() == ConcentrationBinaryProtocol.VERSION) {
+                ConcentrationTextCodec.encodeBinaryOk(writeBuffer, ConcentrationBinaryProtocol.VERSION);
+                binary = true;
+            } else {
+                ConcentrationTextCodec.encodeError(writeBuffer, "Unsupported binary protocol");
+            }
+            return true;
+        }
+
+        switch (codec.getCommand()) {
+            case ConcentrationTextCodec.REVEAL -> reveal(codec.getRow(), codec.getCol());
+            case ConcentrationTextCodec.NEW_GAME, ConcentrationTextCodec.HOST -> newGame(codec.getCommand(), codec.getDIM());
+            case ConcentrationTextCodec.JOIN -> newGame(codec.getCommand(), codec.getGameId());
+            case ConcentrationTextCodec.WATCH -> watch(codec.getGameId());
+            case ConcentrationTextCodec.TOKEN -> sendToken();
+            case ConcentrationTextCodec.RESUME -> resume(codec.getToken());
+            default -> throw new ConcentrationException(String.format(ConcentrationProtocol.ERROR_MSG, "Unknown Command"));
+        }
+        return true;
+    }
+
+    /**
+     * Processes the next binary frame in the read buffer.
+     *
+     * @return whether a complete frame was processed.
+     * @throws ConcentrationException if the frame is unknown or the reveal is illegal.
+     */
+    private boolean processFrame() throws ConcentrationException {
+        if (!ConcentrationBinaryProtocol.hasFrame(readBuffer)) return false;
+        byte opcode = readBuffer.get();
+        switch (opcode) {
+            case ConcentrationBinaryProtocol.REVEAL -> {
+                int row = ConcentrationBinaryProtocol.getCoordinate(readBuffer);
+                int col = ConcentrationBinaryProtocol.getCoordinate(readBuffer);
+                reveal(row, col);
+            }
+            case ConcentrationBinaryProtocol.NEW_GAME, ConcentrationBinaryProtocol.HOST ->
+                    newGame(opcode, ConcentrationBinaryProtocol.getCoordinate(readBuffer));
+            case ConcentrationBinaryProtocol.JOIN -> newGame(opcode, ConcentrationBinaryProtocol.getGameId(readBuffer));
+            case ConcentrationBinaryProtocol.WATCH -> watch(ConcentrationBinaryProtocol.getGameId(readBuffer));
+            case ConcentrationBinaryProtocol.TOKEN -> {
+                ConcentrationBinaryProtocol.getToken(readBuffer);
+                sendToken();
+            }
+            case ConcentrationBinaryProtocol.RESUME -> resume(ConcentrationBinaryProtocol.getToken(readBuffer));
+            default -> throw new ConcentrationException(String.format(ConcentrationProtocol.ERROR_MSG, "Unknown Command"));
+        }
+        return true;
+    }
+
+    /**
+     * Starts a new game on the connection, abandoning the current one if it is not over: a single player game for
+     * NEW_GAME, or a seat at a shared game for HOST and JOIN, whose id is sent before the board dimensions.
+     *
+     * @param command  NEW_GAME, HOST or JOIN.
+     * @param argument square dimension of the board for NEW_GAME and HOST, id of the game for JOIN.
+     * @throws ConcentrationException if the dimension is invalid or the game cannot be joined.
+     */
+    private void newGame(byte command, int argument) throws ConcentrationException {
+        registry.endGame(game);
+        // the old game is gone even if the new one cannot start
+        game = null;
+        game = switch (command) {
+            case ConcentrationTextCodec.HOST -> registry.hostGame(argument);
+            case ConcentrationTextCodec.JOIN -> registry.joinGame(argument);
+            default -> registry.newGame(argument);
+        };
+        multiGame = true;
+        boolean shared = command != ConcentrationTextCodec.NEW_GAME;
+        int DIM = game.board().getDIM();
+        if (binary) {
+            ensureWritable(ConcentrationBinaryProtocol.GAME_ID_LENGTH + ConcentrationBinaryProtocol.DIM_LENGTH);
+            if (shared) ConcentrationBinaryProtocol.putGameId(writeBuffer, game.id());
+            ConcentrationBinaryProtocol.putBoardDim(writeBuffer, DIM);
+        } else {
+            ensureWritable(ConcentrationTextCodec.MAX_LINE_LENGTH * 2);
+            if (shared) ConcentrationTextCodec.encodeGameId(writeBuffer, game.id());
+            ConcentrationTextCodec.encodeBoardDim(writeBuffer, DIM);
+        }
+    }
+
+    /**
+     * Sends the resume token of the session, creating it on the first TOKEN.
+     *
+     * @throws ConcentrationException if sessions cannot be resumed.
+     */
+    private void sendToken() throws ConcentrationException {
+        if (token == 0) token = registry.newToken();
+        if (binary) {
+            ensureWritable(ConcentrationBinaryProtocol.TOKEN_LENGTH);
+            ConcentrationBinaryProtocol.putToken(writeBuffer, token);
+        } else {
+            ensureWritable(ConcentrationTextCodec.MAX_LINE_LENGTH);
+            ConcentrationTextCodec.encodeToken(writeBuffer, token);
+        }
+    }
+
+    /**
+     * Takes over a game parked by a session whose connection dropped, abandoning the current one, and sends the
+     * whole board in a single snapshot. The session keeps the token of the game, so it can be resumed again. A
+     * text snapshot that does not fit in a line is refused and the game stays parked.
+     *
+     * @param resumeToken resume token of the parked game.
+     * @throws ConcentrationException if no game is parked under the token.
+     */
+    private void resume(long resumeToken) throws ConcentrationException {
+        ConcentrationGameRegistry.Game resumed = registry.resumeGame(resumeToken);
+        ConcentrationBoardSnapshot snapshot = resumed.board().snapshot(resumed.id());
+        int length = binary ? ConcentrationBinaryProtocol.snapshotLength(snapshot)
+                : ConcentrationTextCodec.snapshotLength(snapshot);
+        if (!binary && length > ConcentrationTextCodec.MAX_LINE_LENGTH) {
+            registry.parkGame(resumeToken, resumed);
+            throw new ConcentrationException("Board too large to resume in text");
+        }
+        registry.endGame(game);
+        game = resumed;
+        token = resumeToken;
+        multiGame = true;
+        ensureWritable(length);
+        if (binary) {
+            ConcentrationBinaryProtocol.putSnapshot(writeBuffer, snapshot);
+        } else {
+            ConcentrationTextCodec.encodeSnapshot(writeBuffer, snapshot);
+        }
+    }
+
+    /**
+     * Watches a game until it ends, abandoning the current game of the session, and sends its id and board
+     * dimensions. Its events are written by flush as they are queued.
+     *
+     * @param id id of the game.
+     * @throws ConcentrationException if the game cannot be watched.
+     */
+    private void watch(int id) throws ConcentrationException {
+        registry.endGame(game);
+        game = null;
+        watcher = registry.watchGame(id, binary, () -> loop.execute(this, this::onWatched));
+        if (binary) {
+            ensureWritable(ConcentrationBinaryProtocol.GAME_ID_LENGTH + ConcentrationBinaryProtocol.DIM_LENGTH);
+            ConcentrationBinaryProtocol.putGameId(writeBuffer, id);
+            ConcentrationBinaryProtocol.putBoardDim(writeBuffer, watcher.getDIM());
+        } else {
+            ensureWritable(ConcentrationTextCodec.MAX_LINE_LENGTH * 2);
+            ConcentrationTextCodec.encodeGameId(writeBuffer, id);
+            ConcentrationTextCodec.encodeBoardDim(writeBuffer, watcher.getDIM());
+        }
+    }
+
+    /**
+     * Writes the events queued for the watched game. Run by the loop when the watcher wakes the session up.
+     */
+    private void onWatched() {
+        watcher.awake();
+        try {
+            flush();
+        } catch (IOException e) {
+            System.err.println(e.getMessage());
+            metrics.error(e);
+            close();
+        }
+    }
+
+    /**
+     * Writes as many events of the watched game as the channel accepts. The session closes once the game has
+     * ended and its last event is written.
+     *
+     * @return whether every queued event was written.
+     * @throws IOException if writing to the client fails.
+     */
+    private boolean flushWatched() throws IOException {
+        while (true) {
+            if (watchEvent == null) {
+                watchEvent = watcher.poll();
+                if (watchEvent == null) return true;
+                if (watchEvent == ConcentrationBroadcast.END) {
+                    watchEvent = null;
+                    closing = true;
+                    return true;
+                }
+            }
+            metrics.bytesWritten(channel.write(watchEvent));
+            if (watchEvent.hasRemaining()) return false;
+            watchEvent = null;
+        }
+    }
+
+    /**
+     * Reveals a card, sends its details and schedules the result if it is the second reveal. The game goes back
+     * to the registry as soon as its last pair is matched. In a shared game a card another player holds is refused
+     * with TAKEN, and a reveal after another player finished the game gets GAME_OVER.
+     *
+     * @param row row of the card.
+     * @param col column of the card.
+     * @throws ConcentrationException if the reveal is illegal or the game has ended.
+     */
+    private void reveal(int row, int col) throws ConcentrationException {
+        if (game == null) throw new ConcentrationException("Game is already over");
+        ConcentrationGameBoard concentrationBoard = game.board();
+        if (concentrationBoard.gameOver()) {
+            registry.endGame(game);
+            game = null;
+            sendGameOver();
+            return;
+        }
+        ConcentrationGameBoard.CardMatch cardMatch = concentrationBoard.tryReveal(row, col);
+        if (cardMatch == null) {
+            sendTaken(row, col);
+            game.taken(row, col);
+            return;
+        }
+        int symbol = concentrationBoard.getCard(row, col).getSymbol();
+        sendCard(row, col, symbol);
+        game.revealed(row, col, symbol);
+        pendingCards += 1;
+        if (cardMatch.isReady()) {
+            game.result(cardMatch);
+            concentrationBoard.updateRevealStatus(cardMatch);
+            boolean gameOver = concentrationBoard.gameOver();
+            if (gameOver) {
+                game.broadcast().end();
+                registry.endGame(game);
+                game = null;
+            }
+            if (revealDelayMillis == 0) {
+                sendResult(cardMatch, gameOver, readNanos);
+            } else {
+                resultPending = true;
+                long revealNanos = readNanos;
+                loop.schedule(this, revealDelayMillis, () -> deliverResult(cardMatch, gameOver, revealNanos));
+            }
+        }
+    }
+
+    /**
+     * Sends the result of the last two reveals once their delay has passed, then resumes processing the commands
+     * that arrived meanwhile.
+     *
+     * @param cardMatch   the result of the second reveal.
+     * @param gameOver    whether the result ends the game.
+     * @param revealNanos System.nanoTime() of the read that brought the second reveal.
+     */
+    private void deliverResult(ConcentrationGameBoard.CardMatch cardMatch, boolean gameOver, long revealNanos) {
+        if (!key.isValid()) return;
+        resultPending = false;
+        sendResult(cardMatch, gameOver, revealNanos);
+        processInput();
+        try {
+            flush();
+        } catch (IOException e) {
+            System.err.println(e.getMessage());
+            metrics.error(e);
+            close();
+        }
+    }
+
+    /**
+     * Appends the match or mismatch message of the last two reveals to the pending output, followed by the game
+     * over message if the game has ended. The session closes after the game over unless the client asked for new
+     * games.
+     *
+     * @param cardMatch   the result of the second reveal.
+     * @param gameOver    whether the result ends the game.
+     * @param revealNanos System.nanoTime() of the read that brought the second reveal.
+     */
+    private void sendResult(ConcentrationGameBoard.CardMatch cardMatch, boolean gameOver, long revealNanos) {
+        int row1 = cardMatch.getCard1().getRow();
+        int col1 = cardMatch.getCard1().getCol();
+        int row2 = cardMatch.getCard2().getRow();
+        int col2 = cardMatch.getCard2().getCol();
+        if (binary) {
+            ensureWritable(ConcentrationBinaryProtocol.RESULT_LENGTH + ConcentrationBinaryProtocol.GAME_OVER_LENGTH);
+            ConcentrationBinaryProtocol.putResult(writeBuffer, cardMatch.isMatch(), row1, col1, row2, col2);
+            if (gameOver) ConcentrationBinaryProtocol.putGameOver(writeBuffer);
+        } else {
+            ensureWritable(ConcentrationTextCodec.MAX_LINE_LENGTH * 2);
+            ConcentrationTextCodec.encodeResult(writeBuffer, cardMatch.isMatch(), row1, col1, row2, col2);
+            if (gameOver) ConcentrationTextCodec.encodeGameOver(writeBuffer);
+        }
+        closing = gameOver && !multiGame;
+        resultNanos = revealNanos;
+        pendingResults += 1;
+    }
+
+    /**
+     * Appends the details of a revealed card to the pending output.
+     *
+     * @param row    row of the card.
+     * @param col    column of the card.
+     * @param symbol symbol of the card.
+     */
+    private void sendCard(int row, int col, int symbol) {
+        if (binary) {
+            ensureWritable(ConcentrationBinaryProtocol.CARD_LENGTH);
+            ConcentrationBinaryProtocol.putCard(writeBuffer, row, col, symbol);
+        } else {
+            ensureWritable(ConcentrationTextCodec.MAX_LINE_LENGTH);
+            ConcentrationTextCodec.encodeCard(writeBuffer, row, col, symbol);
+        }
+    }
+
+    /**
+     * Appends the refusal of a card another player holds or matched to the pending output.
+     *
+     * @param row row of the card.
+     * @param col column of the card.
+     */
+    private void sendTaken(int row, int col) {
+        if (binary) {
+            ensureWritable(ConcentrationBinaryProtocol.REVEAL_LENGTH);
+            ConcentrationBinaryProtocol.putTaken(writeBuffer, row, col);
+        } else {
+            ensureWritable(ConcentrationTextCodec.MAX_LINE_LENGTH);
+            ConcentrationTextCodec.encodeTaken(writeBuffer, row, col);
+        }
+    }
+
+    /**
+     * Appends the end of a game another player finished to the pending output.
+     */
+    private void sendGameOver() {
+        if (binary) {
+            ensureWritable(ConcentrationBinaryProtocol.GAME_OVER_LENGTH);
+            ConcentrationBinaryProtocol.putGameOver(writeBuffer);
+        } else {
+            ensureWritable(ConcentrationTextCodec.MAX_LINE_LENGTH);
+            ConcentrationTextCodec.encodeGameOver(writeBuffer);
+        }
+        closing = !multiGame;
+    }
+
+    /**
+     * Grows the pending output buffer if it cannot take some more bytes.
+     *
+     * @param length the number of bytes about to be appended.
+     */
+    private void ensureWritable(int length) {
+        if (writeBuffer.remaining() < length) {
+            ByteBuffer larger = ByteBuffer.allocate(Math.max(writeBuffer.capacity() * 2, writeBuffer.position() + length));
+            writeBuffer.flip();
+            larger.put(writeBuffer);
+            writeBuffer = larger;
+        }
+    }
+
+    /**
+     * Writes as much of the pending output as the channel accepts. Waits for the channel to become writable
+     * when some output is left and closes the session once everything is written after the game ended.
+     * Reading is suspended while a result is pending so queued commands wait in the socket.
+     *
+     * @throws IOException if writing to the client fails.
+     */
+    private void flush() throws IOException {
+        if (!key.isValid()) return;
+        writeBuffer.flip();
+        metrics.bytesWritten(channel.write(writeBuffer));
+        recordLatencies();
+        boolean drained = !writeBuffer.hasRemaining();
+        writeBuffer.compact();
+        if (drained && watcher != null) drained = flushWatched();
+        if (drained && closing) {
+            close();
+            return;
+        }
+        int interestOps = resultPending || closing ? 0 : SelectionKey.OP_READ;
+        if (!drained) interestOps |= SelectionKey.OP_WRITE;
+        key.interestOps(interestOps);
+    }
+
+    /**
+     * Records the latencies of the replies handed to the channel since the last flush.
+     */
+    private void recordLatencies() {
+        if (pendingCards == 0 && pendingResults == 0) return;
+        long now = System.nanoTime();
+        if (pendingCards > 0) metrics.revealsAnswered(now - readNanos, pendingCards);
+        if (pendingResults > 0) metrics.resultsSent(now - resultNanos, pendingResults);
+        pendingCards = 0;
+        pendingResults = 0;
+    }
+
+    /**
+     * Closes the session and its channel.
+     */
+    public void close() {
+        key.cancel();
+        ConcentrationEventLoop.closeQuietly(channel);
+        if (!closed) {
+            closed = true;
+            registry.parkGame(token, game);
+            admission.release();
+            if (watcher != null) watcher.close();
+            metrics.sessionClosed();
+        }
+    }
+}
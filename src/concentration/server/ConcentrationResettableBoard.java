@@ -0,0 +1,23 @@
+package concentration.server;
+
+import java.util.random.RandomGenerator;
+
+/**
+ * A board played by a single player, which can be dealt again in place once
+ * its game ends.  Only these boards go to the ConcentrationBoardPool: the
+ * seats of a shared board are played once, so they are plain
+ * ConcentrationGameBoards and cannot be pooled.
+ *
+ * @author Arya Girisha Rao, Pradeep Kumar Gontla.
+ */
+public interface ConcentrationResettableBoard extends ConcentrationGameBoard {
+
+    /**
+     * Reshuffle the board in place and hide all its cards, so the same
+     * board can be played again without allocating a new one.  The cards
+     * are dealt exactly as by newBoard with the same random generator.
+     *
+     * @param random random generator used to shuffle the cards
+     */
+    void reset(RandomGenerator random);
+}
@@ -1,14 +1,29 @@
 package concentration.server;
 
 import concentration.common.ConcentrationException;
+import concentration.server.journal.ConcentrationJournal;
+import concentration.server.metrics.ConcentrationMetrics;
+import concentration.server.metrics.ConcentrationMetricsEndpoint;
 
 import java.io.IOException;
 import java.net.ServerSocket;
 import java.net.Socket;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Server For Concentration board game. Talks to multiple clients at the same.
- * Uses ConcentrationClientServerThread to handle each client's game request.
+ * Uses ConcentrationClientServerThread to handle each client's game request on a platform or a virtual thread,
+ * or the selector based ConcentrationNioServer when the NIO engine is selected. Every engine reports to the same
+ * ConcentrationMetrics, exposed through JMX and the optional plain text metrics endpoint, and to the optional
+ * ConcentrationJournal, which commits what it has recorded when the server shuts down. The games of dropped
+ * connections that asked for a resume token are parked, and ended once a second when their grace period is over.
+ * Every engine passes the connections it accepts through the same ConcentrationAdmission, which turns them away
+ * while the server runs its largest number of sessions or connections arrive too fast, and closes the sessions
+ * whose client stays idle for too long.
  *
  * @author Arya Girisha Rao, Pradeep Kumar Gontla.
  */
@@ -18,33 +33,147 @@ public class ConcentrationServer {
     /**
      *
      * @param args CLI Arguments received from the user. Required format is port_number board_dimension
+     *             followed by the optional flags listed in ConcentrationServerConfig.USAGE
      */
     public static void main(String[] args) {
-        if (args.length != 2) {
-            System.err.println("Usage: Java Concentration Server <PortNumber> <Board Dimensions>");
+        if (args.length < 2) {
+            System.err.println(ConcentrationServerConfig.USAGE);
             System.exit(-1);
         }
-        int portNumber = 0;
-        int boardDimensions = 0;
+        ConcentrationServerConfig config = null;
         try {
-            portNumber = Integer.parseInt(args[0]);
-            boardDimensions = Integer.parseInt(args[1]);
+            config = ConcentrationServerConfig.parse(args);
         }
 
-        catch (NumberFormatException e){
+        catch (ConcentrationException e){
             System.err.println("Failed to start the server. Error Details: " + e.getMessage());
             System.exit(1);
         }
 
-        try (ServerSocket serverSocket = new ServerSocket(portNumber)) {
-            while (true) {
-                Socket socket = serverSocket.accept();
-                Thread thread = new ConcentrationClientServerThread(socket, new ConcentrationBoard(boardDimensions));
-                thread.start();
+        try {
+            ConcentrationMetrics metrics = new ConcentrationMetrics();
+            metrics.start();
+            if (config.getMetricsPort() > 0) {
+                new ConcentrationMetricsEndpoint(metrics, config.getMetricsPort()).start();
+            }
+            ConcentrationBoardPool boardPool = new ConcentrationBoardPool(config.getBoardPool());
+            boardPool.prefill(config.getBoardDimensions(), ThreadLocalRandom.current());
+            ConcentrationJournal journal = null;
+            if (config.getJournal() != null) {
+                journal = new ConcentrationJournal(config.getJournal(), config.getJournalSegmentBytes(),
+                        config.getJournalCommitMillis(), metrics);
+                Runtime.getRuntime().addShutdownHook(new Thread(journal::close, "concentration-journal-close"));
+            }
+            ConcentrationSessionParking parking = null;
+            if (config.getResumeCapacity() > 0) {
+                parking = new ConcentrationSessionParking(config.getResumeCapacity(),
+                        TimeUnit.SECONDS.toNanos(config.getResumeGraceSeconds()));
+            }
+            ConcentrationGameRegistry registry = new ConcentrationGameRegistry(boardPool, config.getWatchQueue(), journal,
+                    parking, config.getMaxBoardDimensions(), metrics);
+            if (parking != null) startEviction(registry);
+            ConcentrationAdmission admission = new ConcentrationAdmission(config.getMaxSessions(), config.getAcceptRate(), metrics);
+            switch (config.getEngine()) {
+                case CLASSIC -> serveClassic(config, registry, admission, metrics);
+                case VIRTUAL -> serveVirtual(config, registry, admission, metrics);
+                case NIO -> new ConcentrationNioServer(config, registry, admission, metrics).serve();
             }
         }
         catch (ConcentrationException | IOException e){
             System.err.println("Failed to start the server. Error Details: " + e.getMessage());
         }
     }
+
+    /**
+     * Accepts clients forever and starts a new thread for each of them, which builds the first game of its client.
+     * A connection that fails only closes that connection.
+     *
+     * @param config    Configuration of the server.
+     * @param registry  Registry of the games being played.
+     * @param admission Admission control of the accepted connections.
+     * @param metrics   Metrics of the server.
+     * @throws IOException if the server socket fails.
+     */
+    private static void serveClassic(ConcentrationServerConfig config, ConcentrationGameRegistry registry,
+                                     ConcentrationAdmission admission, ConcentrationMetrics metrics) throws IOException {
+        try (ServerSocket serverSocket = new ServerSocket(config.getPortNumber())) {
+            while (true) {
+                Socket socket;
+                try {
+                    socket = serverSocket.accept();
+                } catch (IOException e) {
+                    if (serverSocket.isClosed()) throw e;
+                    admission.acceptFailed(e);
+                    continue;
+                }
+                metrics.connectionAccepted();
+                if (!admission.admit()) {
+                    ConcentrationAdmission.reject(socket);
+                    continue;
+                }
+                try {
+                    Thread thread = new Thread(new ConcentrationClientServerThread(socket, registry,
+                            config.getBoardDimensions(), config.getRevealDelayMillis(),
+                            config.getIdleTimeoutMillis(), admission, metrics));
+                    thread.start();
+                } catch (RuntimeException | OutOfMemoryError e) {
+                    // a thread that cannot be created fails with an OutOfMemoryError, which only concerns this connection
+                    admission.abandon(socket, e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Accepts clients forever and runs each of them on its own virtual thread, which builds the first game of its
+     * client. A connection that fails only closes that connection.
+     *
+     * @param config    Configuration of the server.
+     * @param registry  Registry of the games being played.
+     * @param admission Admission control of the accepted connections.
+     * @param metrics   Metrics of the server.
+     * @throws IOException if the server socket fails.
+     */
+    private static void serveVirtual(ConcentrationServerConfig config, ConcentrationGameRegistry registry,
+                                     ConcentrationAdmission admission, ConcentrationMetrics metrics) throws IOException {
+        try (ServerSocket serverSocket = new ServerSocket(config.getPortNumber());
+             ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            while (true) {
+                Socket socket;
+                try {
+                    socket = serverSocket.accept();
+                } catch (IOException e) {
+                    if (serverSocket.isClosed()) throw e;
+                    admission.acceptFailed(e);
+                    continue;
+                }
+                metrics.connectionAccepted();
+                if (!admission.admit()) {
+                    ConcentrationAdmission.reject(socket);
+                    continue;
+                }
+                try {
+                    executor.execute(new ConcentrationClientServerThread(socket, registry,
+                            config.getBoardDimensions(), config.getRevealDelayMillis(),
+                            config.getIdleTimeoutMillis(), admission, metrics));
+                } catch (RuntimeException e) {
+                    admission.abandon(socket, e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Starts ending the parked games whose grace period is over, once a second, on a daemon thread.
+     *
+     * @param registry Registry of the games being played.
+     */
+    private static void startEviction(ConcentrationGameRegistry registry) {
+        ScheduledExecutorService evictor = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "concentration-resume-evictor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        evictor.scheduleWithFixedDelay(registry::evictParked, 1, 1, TimeUnit.SECONDS);
+    }
 }
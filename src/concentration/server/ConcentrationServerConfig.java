@@ -0,0 +1,379 @@
+package concentration.server;
+
+import concentration.common.ConcentrationException;
+
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Command line configuration of the Concentration server. Holds the mandatory port number and board dimensions
+ * along with the optional flags that select and tune the server engine.
+ *
+ * @author Arya Girisha Rao, Pradeep Kumar Gontla.
+ */
+
+public class ConcentrationServerConfig {
+
+    /**
+     * Usage message printed when the command line arguments are invalid.
+     */
+    public static final String USAGE = "Usage: Java Concentration Server <PortNumber> <Board Dimensions>"
+            + " [--engine=classic|virtual|nio] [--event-loops=N] [--reveal-delay=MILLIS]"
+            + " [--metrics-port=N] [--board-pool=N] [--watch-queue=N]"
+            + " [--journal=DIR] [--journal-segment=MB] [--journal-commit=MILLIS]"
+            + " [--resume-grace=SECONDS] [--resume-capacity=N]"
+            + " [--idle-timeout=SECONDS] [--max-sessions=N] [--accept-rate=N] [--max-board=N]";
+
+    /**
+     * The server engines available to handle client connections.
+     */
+    public enum Engine {
+        /**
+         * one platform thread per connected client.
+         */
+        CLASSIC,
+        /**
+         * one virtual thread per connected client.
+         */
+        VIRTUAL,
+        /**
+         * a small fixed set of selector based event loops shared by all the clients.
+         */
+        NIO
+    }
+
+    /**
+     * Port number the server listens on.
+     */
+    private final int portNumber;
+
+    /**
+     * Dimensions of the board played by every client.
+     */
+    private final int boardDimensions;
+
+    /**
+     * Engine used to handle the client connections.
+     */
+    private Engine engine = Engine.CLASSIC;
+
+    /**
+     * Number of event loop threads used by the NIO engine.
+     */
+    private int eventLoops = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * Delay in milliseconds before the result of a second reveal is sent, so the client can show both cards.
+     * 0 sends the result right away, which suits bots and benchmarks.
+     */
+    private long revealDelayMillis = 500;
+
+    /**
+     * Port number of the plain text metrics endpoint on the loopback interface. 0 disables the endpoint, the
+     * metrics are still available through JMX.
+     */
+    private int metricsPort = 0;
+
+    /**
+     * Largest number of finished boards kept for reuse per board dimension. 0 builds a new board for every game.
+     */
+    private int boardPool = 64;
+
+    /**
+     * Largest number of events queued for a spectator before its queue is replaced by a snapshot of the board.
+     */
+    private int watchQueue = 256;
+
+    /**
+     * Directory of the game journal. null does not journal the games.
+     */
+    private Path journal = null;
+
+    /**
+     * Size in megabytes a journal segment reaches before a new one is started.
+     */
+    private long journalSegmentMegabytes = 64;
+
+    /**
+     * Longest time in milliseconds a journaled move waits to be committed to the disk.
+     */
+    private long journalCommitMillis = 10;
+
+    /**
+     * Seconds the game of a dropped connection stays parked, waiting to be resumed.
+     */
+    private long resumeGraceSeconds = 60;
+
+    /**
+     * Largest number of parked games. 0 disables resuming sessions.
+     */
+    private int resumeCapacity = 1024;
+
+    /**
+     * Seconds a session waits for its client to send anything before it is closed. 0 waits forever.
+     */
+    private long idleTimeoutSeconds = 300;
+
+    /**
+     * Largest number of concurrent sessions. 0 for no limit. Every session holds a file descriptor, so the default
+     * stays below the usual limit of 1024 descriptors per process.
+     */
+    private int maxSessions = 1000;
+
+    /**
+     * Largest number of connections accepted per second. 0 for no limit.
+     */
+    private int acceptRate = 0;
+
+    /**
+     * Largest board dimension a client may ask for with NEW_GAME or HOST.
+     */
+    private int maxBoardDimensions = 64;
+
+    /**
+     * Creates a configuration with the default engine settings.
+     *
+     * @param portNumber      Port number the server listens on.
+     * @param boardDimensions Dimensions of the board played by every client.
+     */
+    public ConcentrationServerConfig(int portNumber, int boardDimensions) {
+        this.portNumber = portNumber;
+        this.boardDimensions = boardDimensions;
+    }
+
+    /**
+     * Parses the CLI arguments of the server. Required format is port_number board_dimension followed by
+     * any number of optional --flag=value arguments.
+     *
+     * @param args CLI Arguments received from the user.
+     * @return the parsed configuration.
+     * @throws ConcentrationException if the arguments are missing or malformed.
+     */
+    public static ConcentrationServerConfig parse(String[] args) throws ConcentrationException {
+        if (args.length < 2) {
+            throw new ConcentrationException(USAGE);
+        }
+        ConcentrationServerConfig config;
+        try {
+            config = new ConcentrationServerConfig(Integer.parseInt(args[0]), Integer.parseInt(args[1]));
+            for (int i = 2; i < args.length; ++i) {
+                String[] flag = args[i].split("=", 2);
+                if (flag.length != 2) throw new ConcentrationException("Malformed option: " + args[i]);
+                switch (flag[0]) {
+                    case "--engine" -> config.engine = Engine.valueOf(flag[1].toUpperCase());
+                    case "--event-loops" -> config.eventLoops = Integer.parseInt(flag[1]);
+                    case "--reveal-delay" -> config.revealDelayMillis = Long.parseLong(flag[1]);
+                    case "--metrics-port" -> config.metricsPort = Integer.parseInt(flag[1]);
+                    case "--board-pool" -> config.boardPool = Integer.parseInt(flag[1]);
+                    case "--watch-queue" -> config.watchQueue = Integer.parseInt(flag[1]);
+                    case "--journal" -> config.journal = Path.of(flag[1]);
+                    case "--journal-segment" -> config.journalSegmentMegabytes = Long.parseLong(flag[1]);
+                    case "--journal-commit" -> config.journalCommitMillis = Long.parseLong(flag[1]);
+                    case "--resume-grace" -> config.resumeGraceSeconds = Long.parseLong(flag[1]);
+                    case "--resume-capacity" -> config.resumeCapacity = Integer.parseInt(flag[1]);
+                    case "--idle-timeout" -> config.idleTimeoutSeconds = Long.parseLong(flag[1]);
+                    case "--max-sessions" -> config.maxSessions = Integer.parseInt(flag[1]);
+                    case "--accept-rate" -> config.acceptRate = Integer.parseInt(flag[1]);
+                    case "--max-board" -> config.maxBoardDimensions = Integer.parseInt(flag[1]);
+                    default -> throw new ConcentrationException("Unknown option: " + flag[0]);
+                }
+            }
+        } catch (IllegalArgumentException e) {
+            throw new ConcentrationException(e);
+        }
+        if (config.eventLoops < 1) {
+            throw new ConcentrationException("Event loops must be positive: " + config.eventLoops);
+        }
+        if (config.revealDelayMillis < 0) {
+            throw new ConcentrationException("Reveal delay must not be negative: " + config.revealDelayMillis);
+        }
+        if (config.metricsPort < 0 || config.metricsPort > 65535) {
+            throw new ConcentrationException("Metrics port out of range: " + config.metricsPort);
+        }
+        if (config.boardPool < 0) {
+            throw new ConcentrationException("Board pool must not be negative: " + config.boardPool);
+        }
+        if (config.watchQueue < 1) {
+            throw new ConcentrationException("Watch queue must be positive: " + config.watchQueue);
+        }
+        if (config.journalSegmentMegabytes < 1) {
+            throw new ConcentrationException("Journal segment size must be positive: " + config.journalSegmentMegabytes);
+        }
+        if (config.journalCommitMillis < 1) {
+            throw new ConcentrationException("Journal commit interval must be positive: " + config.journalCommitMillis);
+        }
+        if (config.resumeGraceSeconds < 1) {
+            throw new ConcentrationException("Resume grace period must be positive: " + config.resumeGraceSeconds);
+        }
+        if (config.resumeCapacity < 0) {
+            throw new ConcentrationException("Resume capacity must not be negative: " + config.resumeCapacity);
+        }
+        if (config.idleTimeoutSeconds < 0 || config.idleTimeoutSeconds > Integer.MAX_VALUE / 1000) {
+            throw new ConcentrationException("Idle timeout out of range: " + config.idleTimeoutSeconds);
+        }
+        if (config.maxSessions < 0) {
+            throw new ConcentrationException("Max sessions must not be negative: " + config.maxSessions);
+        }
+        if (config.acceptRate < 0) {
+            throw new ConcentrationException("Accept rate must not be negative: " + config.acceptRate);
+        }
+        if (config.maxBoardDimensions < 1) {
+            throw new ConcentrationException("Max board dimensions must be positive: " + config.maxBoardDimensions);
+        }
+        return config;
+    }
+
+    /**
+     * Get the port number the server listens on.
+     *
+     * @return port number.
+     */
+    public int getPortNumber() {
+        return portNumber;
+    }
+
+    /**
+     * Get the dimensions of the board played by every client.
+     *
+     * @return board dimensions.
+     */
+    public int getBoardDimensions() {
+        return boardDimensions;
+    }
+
+    /**
+     * Get the engine used to handle the client connections.
+     *
+     * @return server engine.
+     */
+    public Engine getEngine() {
+        return engine;
+    }
+
+    /**
+     * Get the number of event loop threads used by the NIO engine.
+     *
+     * @return number of event loops.
+     */
+    public int getEventLoops() {
+        return eventLoops;
+    }
+
+    /**
+     * Get the delay before the result of a second reveal is sent.
+     *
+     * @return reveal delay in milliseconds.
+     */
+    public long getRevealDelayMillis() {
+        return revealDelayMillis;
+    }
+
+    /**
+     * Get the port number of the plain text metrics endpoint.
+     *
+     * @return metrics port number, 0 if the endpoint is disabled.
+     */
+    public int getMetricsPort() {
+        return metricsPort;
+    }
+
+    /**
+     * Get the largest number of boards kept for reuse per board dimension.
+     *
+     * @return board pool capacity, 0 if boards are not reused.
+     */
+    public int getBoardPool() {
+        return boardPool;
+    }
+
+    /**
+     * Get the largest number of events queued for a spectator before it is resynced.
+     *
+     * @return watch queue capacity.
+     */
+    public int getWatchQueue() {
+        return watchQueue;
+    }
+
+    /**
+     * Get the directory of the game journal.
+     *
+     * @return journal directory, null if the games are not journaled.
+     */
+    public Path getJournal() {
+        return journal;
+    }
+
+    /**
+     * Get the size a journal segment reaches before a new one is started.
+     *
+     * @return segment size in bytes.
+     */
+    public long getJournalSegmentBytes() {
+        return journalSegmentMegabytes << 20;
+    }
+
+    /**
+     * Get the longest time a journaled move waits to be committed to the disk.
+     *
+     * @return commit interval in milliseconds.
+     */
+    public long getJournalCommitMillis() {
+        return journalCommitMillis;
+    }
+
+    /**
+     * Get how long the game of a dropped connection stays parked, waiting to be resumed.
+     *
+     * @return grace period in seconds.
+     */
+    public long getResumeGraceSeconds() {
+        return resumeGraceSeconds;
+    }
+
+    /**
+     * Get the largest number of parked games.
+     *
+     * @return parking capacity, 0 if sessions cannot be resumed.
+     */
+    public int getResumeCapacity() {
+        return resumeCapacity;
+    }
+
+    /**
+     * Get how long a session waits for its client to send anything before it is closed.
+     *
+     * @return idle timeout in milliseconds, 0 if sessions wait forever.
+     */
+    public int getIdleTimeoutMillis() {
+        return (int) TimeUnit.SECONDS.toMillis(idleTimeoutSeconds);
+    }
+
+    /**
+     * Get the largest number of concurrent sessions.
+     *
+     * @return session limit, 0 for no limit.
+     */
+    public int getMaxSessions() {
+        return maxSessions;
+    }
+
+    /**
+     * Get the largest number of connections accepted per second.
+     *
+     * @return accept rate, 0 for no limit.
+     */
+    public int getAcceptRate() {
+        return acceptRate;
+    }
+
+    /**
+     * Get the largest board dimension a client may ask for with NEW_GAME or HOST, never below the board dimensions
+     * of the server.
+     *
+     * @return largest board dimension.
+     */
+    public int getMaxBoardDimensions() {
+        return Math.max(maxBoardDimensions, boardDimensions);
+    }
+}
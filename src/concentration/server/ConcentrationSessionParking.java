@@ -0,0 +1,135 @@
+package concentration.server;
+
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Games whose connection dropped before they were over, parked under the resume token of their session for a grace
+ * period, so the client can reconnect and carry on with RESUME. A parked game keeps its live board, there is
+ * nothing to save or restore: the board is the snapshot, and RESUME sends it to the client in a single message.
+ * <p>
+ * Memory is bounded by the capacity: parking a game when it is full evicts the game parked longest ago. Every game
+ * is parked for the same grace period, so the insertion order of the map is also the order of the deadlines, and
+ * expiring the games past their deadline only looks at the head of the map. Safe to use from any thread.
+ *
+ * @author Arya Girisha Rao, Pradeep Kumar Gontla.
+ */
+
+public class ConcentrationSessionParking {
+
+    /**
+     * A parked game.
+     *
+     * @param game     the game.
+     * @param deadline System.nanoTime() after which the game is evicted.
+     */
+    private record Parked(ConcentrationGameRegistry.Game game, long deadline) {
+    }
+
+    /**
+     * Parked games by resume token, oldest first.
+     */
+    private final LinkedHashMap<Long, Parked> parked;
+
+    /**
+     * Largest number of parked games.
+     */
+    private final int capacity;
+
+    /**
+     * How long a game stays parked, in nanoseconds.
+     */
+    private final long graceNanos;
+
+    /**
+     * Source of the resume tokens, which must not be guessed by other clients.
+     */
+    private final SecureRandom random;
+
+    /**
+     * Creates an empty parking.
+     *
+     * @param capacity   Largest number of parked games, must be positive.
+     * @param graceNanos How long a game stays parked, in nanoseconds.
+     */
+    public ConcentrationSessionParking(int capacity, long graceNanos) {
+        this.parked = new LinkedHashMap<>();
+        this.capacity = capacity;
+        this.graceNanos = graceNanos;
+        this.random = new SecureRandom();
+    }
+
+    /**
+     * Creates a resume token for a session.
+     *
+     * @return the token, never 0.
+     */
+    public long newToken() {
+        long token;
+        do {
+            token = random.nextLong();
+        } while (token == 0);
+        return token;
+    }
+
+    /**
+     * Parks a game until the grace period is over.
+     *
+     * @param token resume token of the session of the game.
+     * @param game  the game.
+     * @return the game evicted to make room for it or parked under the same token, or null if there is none.
+     */
+    public synchronized ConcentrationGameRegistry.Game park(long token, ConcentrationGameRegistry.Game game) {
+        // put the game at the tail even if the token was already parked, to keep the deadlines in order
+        Parked previous = parked.remove(token);
+        parked.put(token, new Parked(game, System.nanoTime() + graceNanos));
+        if (previous != null) return previous.game();
+        if (parked.size() <= capacity) return null;
+        Iterator<Parked> oldest = parked.values().iterator();
+        ConcentrationGameRegistry.Game evicted = oldest.next().game();
+        oldest.remove();
+        return evicted;
+    }
+
+    /**
+     * Takes a game out of the parking.
+     *
+     * @param token resume token of the session of the game.
+     * @return the game, or null if no game is parked under the token.
+     */
+    public synchronized ConcentrationGameRegistry.Game resume(long token) {
+        Parked game = parked.remove(token);
+        return game == null ? null : game.game();
+    }
+
+    /**
+     * Takes the games past their deadline out of the parking.
+     *
+     * @param now the current System.nanoTime().
+     * @return the games, oldest first.
+     */
+    public synchronized List<ConcentrationGameRegistry.Game> expired(long now) {
+        List<ConcentrationGameRegistry.Game> expired = new ArrayList<>();
+        Iterator<Map.Entry<Long, Parked>> entries = parked.entrySet().iterator();
+        while (entries.hasNext()) {
+            Parked game = entries.next().getValue();
+            if (game.deadline() - now > 0) break;
+            expired.add(game.game());
+            entries.remove();
+        }
+        return expired;
+    }
+
+    /**
+     * Get the number of parked games.
+     *
+     * @return number of parked games.
+     */
+    public synchronized int size() {
+        return parked.size();
+    }
+}
@@ -0,0 +1,373 @@
+package concentration.server;
+
+import concentration.common.ConcentrationCard;
+import concentration.common.ConcentrationException;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.random.RandomGenerator;
+
+/**
+ * A board played by several connections at once, which race for its pairs.
+ * There is no lock: every cell holds its owner in an atomic array, and a
+ * player claims a hidden cell with a compare and set, so two players can
+ * never hold the same card and reveals on different cells never contend.
+ * The symbols are shuffled once and never change, so reading them needs no
+ * synchronization either.  The card a player revealed first and is waiting
+ * to pair belongs to that player's Seat, which only its own session touches.
+ * <p>
+ * A player holds its first card until its second reveal.  A match keeps
+ * both cards out of play for good, a mismatch hides them again right away
+ * for everybody.  A player that loses the race for its second card loses
+ * the turn and its first card is hidden again, otherwise two players each
+ * holding one card of the last pair would wait for each other forever.
+ * Cells are numbered in row major order.  The moves are published to the
+ * spectators of the game through its ConcentrationBroadcast.
+ *
+ * @author RIT CS, Arya Girisha Rao, Pradeep Kumar Gontla.
+ */
+public class ConcentrationSharedBoard {
+    /**
+     * the owner of a cell that is hidden and free to claim
+     */
+    private final static int HIDDEN = 0;
+    /**
+     * the owner of a cell whose pair has been matched
+     */
+    private final static int MATCHED = -1;
+    /**
+     * no card is waiting for its pair to be revealed
+     */
+    private final static int NONE = -1;
+
+    /**
+     * the square dimension of the board
+     */
+    private final int DIM;
+    /**
+     * the symbol of every cell, as an unsigned 16 bit value
+     */
+    private final char[] symbols;
+    /**
+     * the owner of every cell: HIDDEN, MATCHED or the number of the seat
+     * holding it
+     */
+    private final AtomicIntegerArray owners;
+    /**
+     * the number of cards matched so far
+     */
+    private final AtomicInteger matches;
+    /**
+     * the number of seats taken so far, used to number the next one
+     */
+    private final AtomicInteger seats;
+    /**
+     * the number of players still at the board, -1 once the last one left
+     */
+    private final AtomicInteger players;
+    /**
+     * the spectators of the game
+     */
+    private final ConcentrationBroadcast broadcast;
+
+    /**
+     * A player's place at the shared board.  A seat plays the board through
+     * the same operations as a single player board and keeps the pending
+     * first reveal of its player, so it must only be used by the session of
+     * that player.
+     */
+    public class Seat implements ConcentrationGameBoard {
+        /**
+         * the number of the seat, the owner of the cells it holds
+         */
+        private final int number;
+        /**
+         * if the first card is revealed this is its cell (otherwise NONE)
+         */
+        private int revealedCell;
+        /**
+         * set once the player left the board, by whichever thread ends the
+         * game of the player: its session or the one evicting it
+         */
+        private final AtomicBoolean left;
+
+        /**
+         * Create a seat.
+         *
+         * @param number the number of the seat, 1 or more
+         */
+        private Seat(int number) {
+            this.number = number;
+            this.revealedCell = NONE;
+            this.left = new AtomicBoolean();
+        }
+
+        /**
+         * Get the number of the seat, 1 for the host.
+         *
+         * @return the number
+         */
+        public int getNumber() {
+            return number;
+        }
+
+        /**
+         * Get the shared board of the seat.
+         *
+         * @return the board
+         */
+        public ConcentrationSharedBoard getBoard() {
+            return ConcentrationSharedBoard.this;
+        }
+
+        @Override
+        public int getDIM() {
+            return DIM;
+        }
+
+        /**
+         * Get a view of the card at a coordinate as seen by this player.
+         * The view is a snapshot and is not updated by later reveals.
+         *
+         * @param row the row
+         * @param col the column
+         * @return the card
+         * @throws ConcentrationException if the coordinate is invalid
+         */
+        @Override
+        public ConcentrationCard getCard(int row, int col) throws ConcentrationException {
+            return cardView(cell(row, col));
+        }
+
+        @Override
+        public boolean isMatched(int row, int col) throws ConcentrationException {
+            return owners.get(cell(row, col)) == MATCHED;
+        }
+
+        /**
+         * Reveal a hidden card, which fails if another player holds it.
+         *
+         * @param row the row
+         * @param col the column
+         * @return resulting information about a potential match or mismatch
+         * @throws ConcentrationException if the coordinate is invalid, or
+         *                                the card is not free.
+         */
+        @Override
+        public CardMatch reveal(int row, int col) throws ConcentrationException {
+            CardMatch cardMatch = tryReveal(row, col);
+            if (cardMatch == null) throw new ConcentrationException("Card Already Revealed");
+            return cardMatch;
+        }
+
+        /**
+         * Claim a hidden card and reveal it.  Losing the race for the card
+         * to another player, or asking for a card another player matched,
+         * is not an error in a shared game: the player can pick another
+         * card, and if it was the second card of its turn the first one is
+         * hidden again and the turn starts over.  Once the game is over
+         * every card is matched, so every reveal is refused that way.
+         *
+         * @param row the row
+         * @param col the column
+         * @return resulting information about a potential match or
+         * mismatch, or null if another player holds or matched the card
+         * @throws ConcentrationException if the coordinate is invalid, or
+         *                                this player already holds the card.
+         */
+        @Override
+        public CardMatch tryReveal(int row, int col) throws ConcentrationException {
+            int cell = cell(row, col);
+            if (!owners.compareAndSet(cell, HIDDEN, number)) {
+                if (owners.get(cell) == number) throw new ConcentrationException("Card Already Revealed");
+                release();
+                return null;
+            }
+
+            CardMatch cardMatch;
+            if (revealedCell == NONE) {
+                cardMatch = new CardMatch(null, cardView(cell), false);
+                revealedCell = cell;
+            } else {
+                cardMatch = new CardMatch(cardView(revealedCell), cardView(cell), symbols[revealedCell] == symbols[cell]);
+                revealedCell = NONE;
+            }
+            return cardMatch;
+        }
+
+        /**
+         * Release the two cards of a result: a match takes them out of play,
+         * a mismatch hides them for every player.
+         *
+         * @param cardMatch cardMatch information from the previous two reveals.
+         */
+        @Override
+        public void updateRevealStatus(CardMatch cardMatch) {
+            int cell1 = cardMatch.getCard1().getRow() * DIM + cardMatch.getCard1().getCol();
+            int cell2 = cardMatch.getCard2().getRow() * DIM + cardMatch.getCard2().getCol();
+            int owner = cardMatch.isMatch() ? MATCHED : HIDDEN;
+            owners.set(cell1, owner);
+            owners.set(cell2, owner);
+            if (cardMatch.isMatch()) matches.addAndGet(2);
+        }
+
+        @Override
+        public boolean gameOver() {
+            return ConcentrationSharedBoard.this.gameOver();
+        }
+
+        /**
+         * Get the number of cards that are currently hidden to all the
+         * players.  Counted on demand, so the reveals do not contend on a
+         * shared counter.
+         *
+         * @return the number of hidden cards
+         */
+        @Override
+        public int getHiddenCount() {
+            int hidden = 0;
+            for (int cell = 0; cell < owners.length(); ++cell) {
+                if (owners.get(cell) == HIDDEN) ++hidden;
+            }
+            return hidden;
+        }
+
+        /**
+         * Tell whether the player already left the board.
+         *
+         * @return whether the player left
+         */
+        public boolean hasLeft() {
+            return left.get();
+        }
+
+        /**
+         * Leave the board, hiding the card this player was holding.  Leaving
+         * twice does nothing, even from two threads at once: the seat is
+         * claimed with a compare and set, so only one of them leaves.
+         *
+         * @return whether this was the last player at the board
+         */
+        public boolean leave() {
+            if (!left.compareAndSet(false, true)) return false;
+            release();
+            return players.decrementAndGet() == 0 && players.compareAndSet(0, -1);
+        }
+
+        /**
+         * Hide the first card of the turn again, if this player holds one.
+         */
+        private void release() {
+            if (revealedCell != NONE) {
+                broadcast.hide(revealedCell / DIM, revealedCell % DIM);
+                owners.compareAndSet(revealedCell, number, HIDDEN);
+                revealedCell = NONE;
+            }
+        }
+
+        /**
+         * Create a card view of a cell as seen by this player.
+         *
+         * @param cell the cell number
+         * @return the card
+         */
+        private ConcentrationCard cardView(int cell) {
+            ConcentrationCard card = new ConcentrationCard(cell / DIM, cell % DIM, (int) symbols[cell]);
+            int owner = owners.get(cell);
+            if (owner != MATCHED && owner != number) card.hide();
+            return card;
+        }
+    }
+
+    /**
+     * Create the board.  The same seeded random generator always produces
+     * the same board.
+     *
+     * @param DIM       square dimension
+     * @param random    random generator used to shuffle the cards
+     * @param broadcast the spectators of the game
+     * @throws ConcentrationException if the dimensions are invalid
+     */
+    public ConcentrationSharedBoard(int DIM, RandomGenerator random, ConcentrationBroadcast broadcast) throws ConcentrationException {
+        // check for bad dimensions
+        if (DIM < ConcentrationBoard.MIN_DIM || DIM > ConcentrationBitBoard.MAX_DIM) {
+            throw new ConcentrationException("Board size out of range: " + DIM);
+        } else if (DIM % 2 != 0) {
+            throw new ConcentrationException("Board size not even: " + DIM);
+        }
+
+        this.DIM = DIM;
+        this.symbols = ConcentrationBoard.shuffledSymbols(DIM * DIM, random);
+        this.owners = new AtomicIntegerArray(DIM * DIM);
+        this.matches = new AtomicInteger();
+        this.seats = new AtomicInteger();
+        this.players = new AtomicInteger();
+        this.broadcast = broadcast;
+    }
+
+    /**
+     * Take a new seat at the board.
+     *
+     * @return the seat, or null if every player already left the board
+     */
+    public Seat join() {
+        int count = players.get();
+        while (count >= 0) {
+            if (players.compareAndSet(count, count + 1)) return new Seat(seats.incrementAndGet());
+            count = players.get();
+        }
+        return null;
+    }
+
+    /**
+     * Get the square dimension of the board.
+     *
+     * @return the dimension
+     */
+    public int getDIM() {
+        return DIM;
+    }
+
+    /**
+     * Get the spectators of the game.
+     *
+     * @return the broadcast
+     */
+    public ConcentrationBroadcast getBroadcast() {
+        return broadcast;
+    }
+
+    /**
+     * Get the number of players at the board.
+     *
+     * @return the number of players
+     */
+    public int getPlayers() {
+        return Math.max(players.get(), 0);
+    }
+
+    /**
+     * The game is over when all the matches have been made.
+     *
+     * @return whether the game is over or not
+     */
+    public boolean gameOver() {
+        return this.matches.get() == this.DIM * this.DIM;
+    }
+
+    /**
+     * Convert a coordinate into its cell number.
+     *
+     * @param row the row
+     * @param col the column
+     * @return the cell number
+     * @throws ConcentrationException if the coordinate is invalid
+     */
+    private int cell(int row, int col) throws ConcentrationException {
+        if (row < 0 || col < 0 || row >= this.DIM || col >= this.DIM) {
+            throw new ConcentrationException("Invalid coordinates");
+        }
+        return row * DIM + col;
+    }
+}
@@ -0,0 +1,213 @@
+package concentration.server.journal;
+
+import java.util.Arrays;
+
+/**
+ * The records of one game read back from the journal: how its board was dealt, when it started and ended, and
+ * its moves in the order they were journaled. The moves are kept in a flat int array, four ints per move, so a
+ * long game costs no object per move while it waits to be replayed.
+ *
+ * @author Arya Girisha Rao, Pradeep Kumar Gontla.
+ */
+
+public class ConcentrationGameLog {
+
+    /**
+     * Number of ints of every move: type, seat, row and column.
+     */
+    private static final int MOVE_LENGTH = 4;
+
+    /**
+     * End time of a game whose END was not journaled.
+     */
+    public static final long NOT_ENDED = -1;
+
+    /**
+     * Id of the game.
+     */
+    private final int id;
+
+    /**
+     * Square dimension of the board.
+     */
+    private final int DIM;
+
+    /**
+     * Whether the game was shared by several players.
+     */
+    private final boolean shared;
+
+    /**
+     * Seed the board was dealt from.
+     */
+    private final long seed;
+
+    /**
+     * Start time in epoch milliseconds.
+     */
+    private final long startMillis;
+
+    /**
+     * End time in epoch milliseconds, NOT_ENDED if the END was not journaled.
+     */
+    private long endMillis;
+
+    /**
+     * Type, seat, row and column of every move.
+     */
+    private int[] moves;
+
+    /**
+     * Number of moves.
+     */
+    private int size;
+
+    /**
+     * Creates the log of a game from its START record.
+     *
+     * @param id          Id of the game.
+     * @param DIM         Square dimension of the board.
+     * @param shared      Whether the game was shared by several players.
+     * @param seed        Seed the board was dealt from.
+     * @param startMillis Start time in epoch milliseconds.
+     */
+    public ConcentrationGameLog(int id, int DIM, boolean shared, long seed, long startMillis) {
+        this.id = id;
+        this.DIM = DIM;
+        this.shared = shared;
+        this.seed = seed;
+        this.startMillis = startMillis;
+        this.endMillis = NOT_ENDED;
+        this.moves = new int[MOVE_LENGTH * 16];
+    }
+
+    /**
+     * Appends a move: a REVEAL, TAKEN, MATCH, MISMATCH or LEAVE record.
+     *
+     * @param type type of the record.
+     * @param seat seat of the player.
+     * @param row  row of the card, 0 for MATCH, MISMATCH and LEAVE.
+     * @param col  column of the card, 0 for MATCH, MISMATCH and LEAVE.
+     */
+    public void add(byte type, int seat, int row, int col) {
+        if (size * MOVE_LENGTH == moves.length) moves = Arrays.copyOf(moves, moves.length * 2);
+        int move = size * MOVE_LENGTH;
+        moves[move] = type;
+        moves[move + 1] = seat;
+        moves[move + 2] = row;
+        moves[move + 3] = col;
+        size += 1;
+    }
+
+    /**
+     * Records the END of the game.
+     *
+     * @param endMillis end time in epoch milliseconds.
+     */
+    public void end(long endMillis) {
+        this.endMillis = endMillis;
+    }
+
+    /**
+     * Get the id of the game.
+     *
+     * @return the id.
+     */
+    public int getId() {
+        return id;
+    }
+
+    /**
+     * Get the square dimension of the board.
+     *
+     * @return the dimension.
+     */
+    public int getDIM() {
+        return DIM;
+    }
+
+    /**
+     * Tell whether the game was shared by several players.
+     *
+     * @return whether the game was shared.
+     */
+    public boolean isShared() {
+        return shared;
+    }
+
+    /**
+     * Get the seed the board was dealt from.
+     *
+     * @return the seed.
+     */
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * Get the start time of the game.
+     *
+     * @return start time in epoch milliseconds.
+     */
+    public long getStartMillis() {
+        return startMillis;
+    }
+
+    /**
+     * Get the end time of the game.
+     *
+     * @return end time in epoch milliseconds, NOT_ENDED if the END was not journaled.
+     */
+    public long getEndMillis() {
+        return endMillis;
+    }
+
+    /**
+     * Get the number of moves.
+     *
+     * @return number of moves.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Get the record type of a move.
+     *
+     * @param move index of the move.
+     * @return REVEAL, TAKEN, MATCH, MISMATCH or LEAVE.
+     */
+    public byte getType(int move) {
+        return (byte) moves[move * MOVE_LENGTH];
+    }
+
+    /**
+     * Get the seat of the player of a move.
+     *
+     * @param move index of the move.
+     * @return the seat, 0 in a single player game.
+     */
+    public int getSeat(int move) {
+        return moves[move * MOVE_LENGTH + 1];
+    }
+
+    /**
+     * Get the row of the card of a REVEAL or TAKEN.
+     *
+     * @param move index of the move.
+     * @return the row.
+     */
+    public int getRow(int move) {
+        return moves[move * MOVE_LENGTH + 2];
+    }
+
+    /**
+     * Get the column of the card of a REVEAL or TAKEN.
+     *
+     * @param move index of the move.
+     * @return the column.
+     */
+    public int getCol(int move) {
+        return moves[move * MOVE_LENGTH + 3];
+    }
+}
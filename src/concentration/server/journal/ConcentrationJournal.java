@@ -0,0 +1,431 @@
+package concentration.server.journal;
+
+import concentration.server.metrics.ConcentrationMetrics;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32C;
+
+/**
+ * Append-only journal of every game played: its seed and dimension, then every reveal and outcome, in the
+ * ConcentrationJournalFormat. Recording a move only encodes a few bytes into an in-memory buffer under a short
+ * lock, it never touches the disk. A single writer thread commits the buffer every commit interval, or as soon as
+ * it is half full: one write and one force for every move recorded meanwhile, a group commit, so a move costs
+ * microseconds rather than an fsync. Two buffers alternate, the sessions fill one while the other is written,
+ * and a session only waits when both are full, which means the disk cannot keep up.
+ * <p>
+ * The lock is a ReentrantLock rather than a monitor: a virtual thread waiting on a monitor pins its carrier on
+ * JDK 21, so a slow disk would stall every session of the virtual engine, while waiting on a Condition unmounts it.
+ * <p>
+ * The segments are written with a FileChannel and roll over once they reach the segment size. A restarted server
+ * starts a new segment after the existing ones. If the journal cannot be written any more it stops and the games
+ * go on unrecorded. Safe to use from any thread.
+ *
+ * @author Arya Girisha Rao, Pradeep Kumar Gontla.
+ */
+
+public class ConcentrationJournal implements Closeable {
+
+    /**
+     * Size of each of the two record buffers, room for about a hundred thousand moves.
+     */
+    private static final int BUFFER_SIZE = 1 << 20;
+
+    /**
+     * Fill level of the record buffer that has the writer commit before the end of the commit interval.
+     */
+    private static final int COMMIT_THRESHOLD = BUFFER_SIZE / 2;
+
+    /**
+     * Directory of the segments.
+     */
+    private final Path directory;
+
+    /**
+     * Size a segment reaches before the next batch goes to a new one.
+     */
+    private final long segmentBytes;
+
+    /**
+     * Longest time in milliseconds a recorded move waits to be committed.
+     */
+    private final long commitMillis;
+
+    /**
+     * Metrics of the server.
+     */
+    private final ConcentrationMetrics metrics;
+
+    /**
+     * Guards the record buffers and the closed flag.
+     */
+    private final ReentrantLock lock;
+
+    /**
+     * Signalled when the writer has work: the filling buffer crossed the commit threshold, a session is waiting
+     * for room, or the journal is closed.
+     */
+    private final Condition commitNeeded;
+
+    /**
+     * Signalled when the buffers are swapped, freeing room for the sessions, or the journal is closed.
+     */
+    private final Condition roomFreed;
+
+    /**
+     * Buffer the sessions record into.
+     */
+    private ByteBuffer filling;
+
+    /**
+     * The other buffer, null while the writer is writing it.
+     */
+    private ByteBuffer spare;
+
+    /**
+     * Set once the journal is closed or failed. Moves recorded afterwards are dropped.
+     */
+    private boolean closed;
+
+    /**
+     * Thread committing the record buffers.
+     */
+    private final Thread writer;
+
+    /**
+     * Segment being written. Only touched by the writer.
+     */
+    private FileChannel segment;
+
+    /**
+     * Number of the segment being written. Only touched by the writer.
+     */
+    private long segmentNumber;
+
+    /**
+     * Bytes written to the segment so far. Only touched by the writer.
+     */
+    private long segmentSize;
+
+    /**
+     * Header of the batch being written followed by its records. Only touched by the writer.
+     */
+    private final ByteBuffer[] batch;
+
+    /**
+     * Checksum of the records of a batch. Only touched by the writer.
+     */
+    private final CRC32C checksum;
+
+    /**
+     * Opens a new segment after the existing ones in a directory, created if needed, and starts the writer.
+     *
+     * @param directory    Directory of the segments.
+     * @param segmentBytes Size a segment reaches before the next batch goes to a new one.
+     * @param commitMillis Longest time in milliseconds a recorded move waits to be committed.
+     * @param metrics      Metrics of the server.
+     * @throws IOException if the directory or the first segment cannot be created.
+     */
+    public ConcentrationJournal(Path directory, long segmentBytes, long commitMillis, ConcentrationMetrics metrics) throws IOException {
+        this.directory = directory;
+        this.segmentBytes = segmentBytes;
+        this.commitMillis = commitMillis;
+        this.metrics = metrics;
+        this.lock = new ReentrantLock();
+        this.commitNeeded = lock.newCondition();
+        this.roomFreed = lock.newCondition();
+        this.filling = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        this.spare = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        this.batch = new ByteBuffer[]{ByteBuffer.allocateDirect(ConcentrationJournalFormat.BATCH_HEADER_LENGTH), null};
+        this.checksum = new CRC32C();
+        Files.createDirectories(directory);
+        this.segmentNumber = lastSegmentNumber(directory);
+        openSegment();
+        this.writer = new Thread(this::write, "concentration-journal");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    /**
+     * Records the start of a game.
+     *
+     * @param id     id of the game.
+     * @param DIM    square dimension of the board.
+     * @param shared whether the game is shared by several players.
+     * @param seed   seed the board was dealt from.
+     */
+    public void gameStarted(int id, int DIM, boolean shared, long seed) {
+        long millis = System.currentTimeMillis();
+        lock.lock();
+        try {
+            if (!reserve()) return;
+            int before = filling.position();
+            ConcentrationJournalFormat.putStart(filling, id, DIM, shared ? ConcentrationJournalFormat.SHARED : 0, seed, millis);
+            recorded(before);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Records a card revealed, or refused with TAKEN.
+     *
+     * @param id    id of the game.
+     * @param seat  seat of the player, 0 in a single player game.
+     * @param row   row of the card.
+     * @param col   column of the card.
+     * @param taken whether the reveal was refused.
+     */
+    public void revealed(int id, int seat, int row, int col, boolean taken) {
+        lock.lock();
+        try {
+            if (!reserve()) return;
+            int before = filling.position();
+            ConcentrationJournalFormat.putMove(filling, taken ? ConcentrationJournalFormat.TAKEN : ConcentrationJournalFormat.REVEAL,
+                    id, seat, row, col);
+            recorded(before);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Records the match or mismatch of the last two cards revealed by a player.
+     *
+     * @param id    id of the game.
+     * @param seat  seat of the player, 0 in a single player game.
+     * @param match whether the cards match.
+     */
+    public void result(int id, int seat, boolean match) {
+        lock.lock();
+        try {
+            if (!reserve()) return;
+            int before = filling.position();
+            ConcentrationJournalFormat.putSeat(filling, match ? ConcentrationJournalFormat.MATCH : ConcentrationJournalFormat.MISMATCH, id, seat);
+            recorded(before);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Records a player leaving a shared game.
+     *
+     * @param id   id of the game.
+     * @param seat seat of the player.
+     */
+    public void left(int id, int seat) {
+        lock.lock();
+        try {
+            if (!reserve()) return;
+            int before = filling.position();
+            ConcentrationJournalFormat.putSeat(filling, ConcentrationJournalFormat.LEAVE, id, seat);
+            recorded(before);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Records the end of a game, over or abandoned.
+     *
+     * @param id id of the game.
+     */
+    public void gameEnded(int id) {
+        long millis = System.currentTimeMillis();
+        lock.lock();
+        try {
+            if (!reserve()) return;
+            int before = filling.position();
+            ConcentrationJournalFormat.putEnd(filling, id, millis);
+            recorded(before);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Commits the moves recorded so far, stops the writer and closes the segment. Moves recorded afterwards are
+     * dropped.
+     */
+    @Override
+    public void close() {
+        lock.lock();
+        try {
+            closed = true;
+            commitNeeded.signal();
+            roomFreed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Makes room for a record in the filling buffer, waiting for the writer if both buffers are full. Called with
+     * the lock held.
+     *
+     * @return false if the journal is closed.
+     */
+    private boolean reserve() {
+        boolean stalled = false;
+        while (!closed && filling.remaining() < ConcentrationJournalFormat.MAX_RECORD_LENGTH) {
+            if (!stalled) {
+                stalled = true;
+                metrics.journalStalled();
+            }
+            commitNeeded.signal();
+            try {
+                roomFreed.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+        return !closed;
+    }
+
+    /**
+     * Wakes the writer up when a record makes the filling buffer cross the commit threshold. Called with the lock
+     * held, right after the record.
+     *
+     * @param before position of the filling buffer before the record.
+     */
+    private void recorded(int before) {
+        if (before < COMMIT_THRESHOLD && filling.position() >= COMMIT_THRESHOLD) {
+            commitNeeded.signal();
+        }
+    }
+
+    /**
+     * Body of the writer thread: swaps the buffers every commit interval, or earlier when woken up, and commits
+     * the full one, until the journal is closed and everything recorded is committed.
+     */
+    private void write() {
+        try {
+            while (true) {
+                ByteBuffer records;
+                lock.lock();
+                try {
+                    if (!closed && filling.position() < COMMIT_THRESHOLD) {
+                        commitNeeded.await(commitMillis, TimeUnit.MILLISECONDS);
+                    }
+                    if (filling.position() == 0) {
+                        if (closed) break;
+                        continue;
+                    }
+                    records = filling;
+                    filling = spare;
+                    spare = null;
+                    roomFreed.signalAll();
+                } finally {
+                    lock.unlock();
+                }
+                commit(records.flip());
+                records.clear();
+                lock.lock();
+                try {
+                    spare = records;
+                } finally {
+                    lock.unlock();
+                }
+            }
+        } catch (IOException | InterruptedException e) {
+            System.err.println("Journal stopped: " + e.getMessage());
+            metrics.error(e);
+            lock.lock();
+            try {
+                closed = true;
+                roomFreed.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        } finally {
+            try {
+                segment.close();
+            } catch (IOException e) {
+                System.err.println(e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Writes the records of a group commit as one batch and forces it to the disk, rolling over to a new segment
+     * first if the current one is full.
+     *
+     * @param records the records, in read mode.
+     * @throws IOException if writing fails.
+     */
+    private void commit(ByteBuffer records) throws IOException {
+        long start = System.nanoTime();
+        int length = records.remaining();
+        checksum.reset();
+        checksum.update(records);
+        records.flip();
+        ByteBuffer header = batch[0].clear();
+        header.putInt(length).putInt((int) checksum.getValue()).flip();
+        batch[1] = records;
+        if (segmentSize > ConcentrationJournalFormat.SEGMENT_HEADER_LENGTH && segmentSize + header.remaining() + length > segmentBytes) {
+            segment.force(true);
+            segment.close();
+            openSegment();
+        }
+        while (header.hasRemaining() || records.hasRemaining()) {
+            segmentSize += segment.write(batch);
+        }
+        segment.force(false);
+        metrics.journalCommitted(ConcentrationJournalFormat.BATCH_HEADER_LENGTH + length, System.nanoTime() - start);
+    }
+
+    /**
+     * Creates the next segment and writes its header.
+     *
+     * @throws IOException if the segment cannot be created.
+     */
+    private void openSegment() throws IOException {
+        segmentNumber += 1;
+        segment = FileChannel.open(directory.resolve(ConcentrationJournalFormat.segmentName(segmentNumber)),
+                StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        ByteBuffer header = ByteBuffer.allocate(ConcentrationJournalFormat.SEGMENT_HEADER_LENGTH);
+        header.putInt(ConcentrationJournalFormat.MAGIC).putShort(ConcentrationJournalFormat.VERSION).flip();
+        segmentSize = 0;
+        while (header.hasRemaining()) {
+            segmentSize += segment.write(header);
+        }
+    }
+
+    /**
+     * Finds the number of the last segment in a directory.
+     *
+     * @param directory the directory of the segments.
+     * @return the number of the last segment, 0 if there is none.
+     * @throws IOException if the directory cannot be listed.
+     */
+    static long lastSegmentNumber(Path directory) throws IOException {
+        long last = 0;
+        try (DirectoryStream<Path> segments = Files.newDirectoryStream(directory, "*" + ConcentrationJournalFormat.SEGMENT_SUFFIX)) {
+            for (Path path : segments) {
+                String name = path.getFileName().toString();
+                try {
+                    last = Math.max(last, Long.parseLong(name.substring(0, name.length() - ConcentrationJournalFormat.SEGMENT_SUFFIX.length())));
+                } catch (NumberFormatException e) {
+                    // not a segment of this journal
+                }
+            }
+        }
+        return last;
+    }
+}
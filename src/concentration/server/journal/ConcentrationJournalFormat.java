@@ -0,0 +1,202 @@
+package concentration.server.journal;
+
+import java.nio.ByteBuffer;
+
+/**
+ * The binary layout of the game journal. A journal is a directory of segment files numbered in the order they
+ * were written, e.g. 0000000000000001.journal. Each segment starts with a header, the magic number and the
+ * version, followed by batches: every group commit writes one batch, made of the length and CRC32C checksum of
+ * its records followed by the records themselves. A batch never spans two segments, and a torn batch at the end
+ * of the last segment is recognised by its length or checksum.
+ * <p>
+ * A record is a one byte type followed by unsigned variable length integers, 7 bits per byte with the high bit
+ * set on every byte but the last, so the ids, seats and coordinates of a typical move take a byte or three each.
+ * Only the start and end of a game carry fixed size fields: its seed and its start and end times. A board is rebuilt from its
+ * dimension and seed with ConcentrationGameBoard.newBoard and a java.util.SplittableRandom of the seed, and the
+ * symbols of the cards follow from it, so they are not journaled. The records of the players of a shared game are
+ * written in the order they reached the journal, which may differ from the order of their claims on the board,
+ * so every outcome is recorded rather than left to be recomputed.
+ *
+ * @author Arya Girisha Rao, Pradeep Kumar Gontla.
+ */
+
+public interface ConcentrationJournalFormat {
+
+    /**
+     * First bytes of every segment, "CJNL".
+     */
+    int MAGIC = 0x434A4E4C;
+
+    /**
+     * Version of the layout.
+     */
+    short VERSION = 2;
+
+    /**
+     * Magic number (4 bytes) and version (2 bytes).
+     */
+    int SEGMENT_HEADER_LENGTH = 6;
+
+    /**
+     * Length of the records of the batch (4 bytes) and their CRC32C checksum (4 bytes).
+     */
+    int BATCH_HEADER_LENGTH = 8;
+
+    /**
+     * Longest record: a START, type, id, dimension, flags, seed and start time.
+     */
+    int MAX_RECORD_LENGTH = 1 + 5 + 5 + 1 + 8 + 8;
+
+    /**
+     * Extension of the segment files.
+     */
+    String SEGMENT_SUFFIX = ".journal";
+
+    /*
+     * RECORD TYPES
+     */
+
+    /**
+     * a game started, followed by its id, dimension, flags, seed (8 bytes) and start time in epoch milliseconds
+     * (8 bytes)
+     */
+    byte START = 1;
+    /**
+     * a card was revealed, followed by the game id, seat, row and column
+     */
+    byte REVEAL = 2;
+    /**
+     * a reveal was refused because another player holds or matched the card, followed by the game id, seat, row
+     * and column. The first card of the seat, if any, is hidden again.
+     */
+    byte TAKEN = 3;
+    /**
+     * the last two cards revealed by a seat match, followed by the game id and seat
+     */
+    byte MATCH = 4;
+    /**
+     * the last two cards revealed by a seat do not match, followed by the game id and seat
+     */
+    byte MISMATCH = 5;
+    /**
+     * a player left a shared game, followed by the game id and seat. Its first card, if any, is hidden again.
+     */
+    byte LEAVE = 6;
+    /**
+     * a game ended, over or abandoned, followed by its id and end time in epoch milliseconds (8 bytes)
+     */
+    byte END = 7;
+
+    /*
+     * START FLAGS
+     */
+
+    /**
+     * the game is shared by several players, whose seats are numbered from 1. A single player game has seat 0.
+     */
+    byte SHARED = 1;
+
+    /**
+     * Write a START record.
+     *
+     * @param buffer the buffer, in write mode
+     * @param id     the id of the game
+     * @param DIM    the square dimension of the board
+     * @param flags  the START flags
+     * @param seed   the seed the board was dealt from
+     * @param millis the start time in epoch milliseconds
+     */
+    static void putStart(ByteBuffer buffer, int id, int DIM, byte flags, long seed, long millis) {
+        buffer.put(START);
+        putVarInt(buffer, id);
+        putVarInt(buffer, DIM);
+        buffer.put(flags).putLong(seed).putLong(millis);
+    }
+
+    /**
+     * Write a REVEAL or TAKEN record.
+     *
+     * @param buffer the buffer, in write mode
+     * @param type   REVEAL or TAKEN
+     * @param id     the id of the game
+     * @param seat   the seat of the player
+     * @param row    the row
+     * @param col    the column
+     */
+    static void putMove(ByteBuffer buffer, byte type, int id, int seat, int row, int col) {
+        buffer.put(type);
+        putVarInt(buffer, id);
+        putVarInt(buffer, seat);
+        putVarInt(buffer, row);
+        putVarInt(buffer, col);
+    }
+
+    /**
+     * Write a MATCH, MISMATCH or LEAVE record.
+     *
+     * @param buffer the buffer, in write mode
+     * @param type   MATCH, MISMATCH or LEAVE
+     * @param id     the id of the game
+     * @param seat   the seat of the player
+     */
+    static void putSeat(ByteBuffer buffer, byte type, int id, int seat) {
+        buffer.put(type);
+        putVarInt(buffer, id);
+        putVarInt(buffer, seat);
+    }
+
+    /**
+     * Write an END record.
+     *
+     * @param buffer the buffer, in write mode
+     * @param id     the id of the game
+     * @param millis the end time in epoch milliseconds
+     */
+    static void putEnd(ByteBuffer buffer, int id, long millis) {
+        buffer.put(END);
+        putVarInt(buffer, id);
+        buffer.putLong(millis);
+    }
+
+    /**
+     * Write an unsigned variable length integer.
+     *
+     * @param buffer the buffer, in write mode
+     * @param value  the value, taken as unsigned
+     */
+    static void putVarInt(ByteBuffer buffer, int value) {
+        while ((value & ~0x7F) != 0) {
+            buffer.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+
+    /**
+     * Read an unsigned variable length integer.
+     *
+     * @param buffer the buffer, in read mode
+     * @return the value
+     * @throws java.nio.BufferUnderflowException if the buffer ends within the value
+     * @throws IllegalArgumentException          if the value is longer than an int
+     */
+    static int getVarInt(ByteBuffer buffer) {
+        int value = 0;
+        for (int shift = 0; shift < Integer.SIZE; shift += 7) {
+            byte b = buffer.get();
+            value |= (b & 0x7F) << shift;
+            if (b >= 0) return value;
+        }
+        throw new IllegalArgumentException("Malformed variable length integer");
+    }
+
+    /**
+     * Get the file name of a segment.
+     *
+     * @param number the number of the segment
+     * @return the file name
+     */
+    static String segmentName(long number) {
+        return String.format("%016d", number) + SEGMENT_SUFFIX;
+    }
+}
@@ -0,0 +1,286 @@
+package concentration.server.journal;
+
+import concentration.common.ConcentrationException;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32C;
+
+/**
+ * Reads the segments of a game journal in the order they were written and hands every record to a Listener. The
+ * segments are memory mapped read only, and every batch is checked against its length and CRC32C checksum before
+ * any of its records is decoded. A batch that fails the check is a torn write of a crash, since a segment is only
+ * ever appended to: the rest of its segment is skipped and counted, and reading goes on with the next segment,
+ * which the restarted server began. Not safe to use from several threads.
+ *
+ * @author Arya Girisha Rao, Pradeep Kumar Gontla.
+ */
+
+public class ConcentrationJournalReader {
+
+    /**
+     * Receives the records of a journal, in the order they were written.
+     */
+    public interface Listener {
+
+        /**
+         * A START record.
+         *
+         * @param id     id of the game.
+         * @param DIM    square dimension of the board.
+         * @param shared whether the game is shared by several players.
+         * @param seed   seed the board was dealt from.
+         * @param millis start time in epoch milliseconds.
+         * @throws ConcentrationException to stop reading.
+         */
+        void started(int id, int DIM, boolean shared, long seed, long millis) throws ConcentrationException;
+
+        /**
+         * A REVEAL or TAKEN record.
+         *
+         * @param type REVEAL or TAKEN.
+         * @param id   id of the game.
+         * @param seat seat of the player.
+         * @param row  row of the card.
+         * @param col  column of the card.
+         * @throws ConcentrationException to stop reading.
+         */
+        void move(byte type, int id, int seat, int row, int col) throws ConcentrationException;
+
+        /**
+         * A MATCH, MISMATCH or LEAVE record.
+         *
+         * @param type MATCH, MISMATCH or LEAVE.
+         * @param id   id of the game.
+         * @param seat seat of the player.
+         * @throws ConcentrationException to stop reading.
+         */
+        void seat(byte type, int id, int seat) throws ConcentrationException;
+
+        /**
+         * An END record.
+         *
+         * @param id     id of the game.
+         * @param millis end time in epoch milliseconds.
+         * @throws ConcentrationException to stop reading.
+         */
+        void ended(int id, long millis) throws ConcentrationException;
+    }
+
+    /**
+     * Directory of the segments.
+     */
+    private final Path directory;
+
+    /**
+     * Checksum of the records of a batch.
+     */
+    private final CRC32C checksum;
+
+    /**
+     * Number of segments read.
+     */
+    private long segments;
+
+    /**
+     * Number of valid batches read.
+     */
+    private long batches;
+
+    /**
+     * Number of records read.
+     */
+    private long records;
+
+    /**
+     * Number of bytes of the valid batches read.
+     */
+    private long bytes;
+
+    /**
+     * Number of torn batches found, one at most per segment.
+     */
+    private long tornBatches;
+
+    /**
+     * Creates a reader of the journal in a directory.
+     *
+     * @param directory Directory of the segments.
+     */
+    public ConcentrationJournalReader(Path directory) {
+        this.directory = directory;
+        this.checksum = new CRC32C();
+    }
+
+    /**
+     * Reads every segment of the journal.
+     *
+     * @param listener receives the records.
+     * @throws IOException            if a segment cannot be read.
+     * @throws ConcentrationException if a segment is not part of a journal of this version, a checked batch holds
+     *                                a malformed record, or the listener stops reading.
+     */
+    public void read(Listener listener) throws IOException, ConcentrationException {
+        for (Path path : segments(directory)) {
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                readSegment(path, channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()), listener);
+            }
+        }
+    }
+
+    /**
+     * Get the number of segments read.
+     *
+     * @return number of segments.
+     */
+    public long getSegments() {
+        return segments;
+    }
+
+    /**
+     * Get the number of valid batches read.
+     *
+     * @return number of batches.
+     */
+    public long getBatches() {
+        return batches;
+    }
+
+    /**
+     * Get the number of records read.
+     *
+     * @return number of records.
+     */
+    public long getRecords() {
+        return records;
+    }
+
+    /**
+     * Get the number of bytes of the valid batches read, headers included.
+     *
+     * @return number of bytes.
+     */
+    public long getBytes() {
+        return bytes;
+    }
+
+    /**
+     * Get the number of torn batches found, whose segment was not read any further.
+     *
+     * @return number of torn batches.
+     */
+    public long getTornBatches() {
+        return tornBatches;
+    }
+
+    /**
+     * Lists the segments of a journal in the order they were written.
+     *
+     * @param directory directory of the segments.
+     * @return the paths of the segments.
+     * @throws IOException if the directory cannot be listed.
+     */
+    public static List<Path> segments(Path directory) throws IOException {
+        List<Path> paths = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "*" + ConcentrationJournalFormat.SEGMENT_SUFFIX)) {
+            stream.forEach(paths::add);
+        }
+        // the names are zero padded, so they sort in the order of their numbers
+        paths.sort(null);
+        return paths;
+    }
+
+    /**
+     * Reads the batches of a segment up to its end or its first torn batch.
+     *
+     * @param path     path of the segment, for the error messages.
+     * @param segment  the content of the segment.
+     * @param listener receives the records.
+     * @throws ConcentrationException if the segment is not part of a journal of this version, a checked batch holds
+     *                                a malformed record, or the listener stops reading.
+     */
+    private void readSegment(Path path, ByteBuffer segment, Listener listener) throws ConcentrationException {
+        if (segment.remaining() < ConcentrationJournalFormat.SEGMENT_HEADER_LENGTH
+                || segment.getInt() != ConcentrationJournalFormat.MAGIC) {
+            throw new ConcentrationException("Not a journal segment: " + path);
+        }
+        short version = segment.getShort();
+        if (version != ConcentrationJournalFormat.VERSION) {
+            throw new ConcentrationException("Unsupported journal version " + version + ": " + path);
+        }
+        segments += 1;
+        while (segment.hasRemaining()) {
+            if (segment.remaining() < ConcentrationJournalFormat.BATCH_HEADER_LENGTH) {
+                tornBatches += 1;
+                return;
+            }
+            int length = segment.getInt();
+            int crc = segment.getInt();
+            if (length < 0 || length > segment.remaining()) {
+                tornBatches += 1;
+                return;
+            }
+            ByteBuffer batch = segment.slice(segment.position(), length);
+            checksum.reset();
+            checksum.update(batch);
+            if ((int) checksum.getValue() != crc) {
+                tornBatches += 1;
+                return;
+            }
+            segment.position(segment.position() + length);
+            try {
+                readBatch(batch.flip(), listener);
+            } catch (BufferUnderflowException | IllegalArgumentException e) {
+                throw new ConcentrationException("Malformed record in " + path + " before offset " + segment.position());
+            }
+            batches += 1;
+            bytes += ConcentrationJournalFormat.BATCH_HEADER_LENGTH + length;
+        }
+    }
+
+    /**
+     * Decodes the records of a checked batch.
+     *
+     * @param batch    the records, in read mode.
+     * @param listener receives the records.
+     * @throws ConcentrationException if a record type is unknown or the listener stops reading.
+     */
+    private void readBatch(ByteBuffer batch, Listener listener) throws ConcentrationException {
+        while (batch.hasRemaining()) {
+            byte type = batch.get();
+            switch (type) {
+                case ConcentrationJournalFormat.START -> {
+                    int id = ConcentrationJournalFormat.getVarInt(batch);
+                    int DIM = ConcentrationJournalFormat.getVarInt(batch);
+                    byte flags = batch.get();
+                    long seed = batch.getLong();
+                    listener.started(id, DIM, (flags & ConcentrationJournalFormat.SHARED) != 0, seed, batch.getLong());
+                }
+                case ConcentrationJournalFormat.REVEAL, ConcentrationJournalFormat.TAKEN -> {
+                    int id = ConcentrationJournalFormat.getVarInt(batch);
+                    int seat = ConcentrationJournalFormat.getVarInt(batch);
+                    int row = ConcentrationJournalFormat.getVarInt(batch);
+                    listener.move(type, id, seat, row, ConcentrationJournalFormat.getVarInt(batch));
+                }
+                case ConcentrationJournalFormat.MATCH, ConcentrationJournalFormat.MISMATCH, ConcentrationJournalFormat.LEAVE -> {
+                    int id = ConcentrationJournalFormat.getVarInt(batch);
+                    listener.seat(type, id, ConcentrationJournalFormat.getVarInt(batch));
+                }
+                case ConcentrationJournalFormat.END -> {
+                    int id = ConcentrationJournalFormat.getVarInt(batch);
+                    listener.ended(id, batch.getLong());
+                }
+                default -> throw new IllegalArgumentException("Unknown record type " + type);
+            }
+            records += 1;
+        }
+    }
+}
@@ -0,0 +1,250 @@
+package concentration.server.journal;
+
+import concentration.common.ConcentrationException;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Replays every game of a journal offline, verifies it against its board and prints aggregate statistics by
+ * board dimension: games completed and abandoned, average reveals and turns per completed game, and the
+ * distribution of completion times. Never talks to a server, so it can audit the journal of a live one.
+ * <p>
+ * The records of the games are interleaved across batches and segments, so a single thread decodes them in order
+ * and collects every game's moves until its END. Finished games are handed in chunks to a pool of replay workers,
+ * one per core by default, which deal the boards again and step through the moves in parallel. A bounded number
+ * of chunks is in flight, so the memory used does not grow with the size of the journal.
+ *
+ * @author Arya Girisha Rao, Pradeep Kumar Gontla.
+ */
+
+public class ConcentrationJournalScanner implements ConcentrationJournalReader.Listener {
+
+    /**
+     * Usage message printed when the command line arguments are invalid.
+     */
+    public static final String USAGE = "Usage: java concentration.server.journal.ConcentrationJournalScanner"
+            + " <Journal Directory> [--threads=N]";
+
+    /**
+     * Number of finished games replayed by one task.
+     */
+    private static final int CHUNK = 256;
+
+    /**
+     * Number of chunks in flight per replay worker.
+     */
+    private static final int CHUNKS_PER_WORKER = 4;
+
+    /**
+     * Replay workers.
+     */
+    private final ExecutorService workers;
+
+    /**
+     * Permits for the chunks in flight.
+     */
+    private final Semaphore inFlight;
+
+    /**
+     * Statistics of the scan.
+     */
+    private final ConcentrationReplayStats stats;
+
+    /**
+     * Games started and not ended yet, by id.
+     */
+    private final Map<Integer, ConcentrationGameLog> games;
+
+    /**
+     * Finished games not handed to a worker yet.
+     */
+    private List<ConcentrationGameLog> chunk;
+
+    /**
+     * Creates a scanner.
+     *
+     * @param threads Number of replay workers.
+     * @param stats   Statistics of the scan.
+     */
+    public ConcentrationJournalScanner(int threads, ConcentrationReplayStats stats) {
+        this.workers = Executors.newFixedThreadPool(threads, task -> {
+            Thread thread = new Thread(task, "concentration-replay");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.inFlight = new Semaphore(threads * CHUNKS_PER_WORKER);
+        this.stats = stats;
+        this.games = new HashMap<>();
+        this.chunk = new ArrayList<>(CHUNK);
+    }
+
+    /**
+     *
+     * @param args CLI Arguments received from the user. Required format is the journal directory followed by the
+     *             optional flags listed in USAGE
+     */
+    public static void main(String[] args) {
+        if (args.length < 1) {
+            System.err.println(USAGE);
+            System.exit(-1);
+        }
+        try {
+            Path directory = Path.of(args[0]);
+            int threads = Runtime.getRuntime().availableProcessors();
+            for (int i = 1; i < args.length; ++i) {
+                String[] flag = args[i].split("=", 2);
+                if (flag.length != 2) throw new ConcentrationException("Malformed option: " + args[i]);
+                switch (flag[0]) {
+                    case "--threads" -> threads = Integer.parseInt(flag[1]);
+                    default -> throw new ConcentrationException("Unknown option: " + flag[0]);
+                }
+            }
+            if (threads < 1) throw new ConcentrationException("Threads must be positive: " + threads);
+
+            ConcentrationReplayStats stats = new ConcentrationReplayStats();
+            ConcentrationJournalReader reader = new ConcentrationJournalReader(directory);
+            long start = System.nanoTime();
+            new ConcentrationJournalScanner(threads, stats).scan(reader);
+            stats.printSummary(System.out, reader, System.nanoTime() - start);
+            if (stats.failedTotal() > 0) System.exit(2);
+        } catch (ConcentrationException | IllegalArgumentException | IOException | InterruptedException e) {
+            System.err.println("Failed to scan the journal. Error Details: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Reads the whole journal and waits until every game is replayed. Games whose END is missing are replayed as
+     * unfinished once everything is read.
+     *
+     * @param reader reader of the journal.
+     * @throws IOException            if a segment cannot be read.
+     * @throws ConcentrationException if the journal is malformed.
+     * @throws InterruptedException   if the scan is interrupted.
+     */
+    public void scan(ConcentrationJournalReader reader) throws IOException, ConcentrationException, InterruptedException {
+        try {
+            reader.read(this);
+            for (ConcentrationGameLog log : games.values()) finished(log);
+            games.clear();
+            submit();
+        } catch (InterruptedRead e) {
+            throw (InterruptedException) e.getCause();
+        } finally {
+            workers.shutdown();
+        }
+        workers.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void started(int id, int DIM, boolean shared, long seed, long millis) throws ConcentrationException {
+        // ids start over when the server restarts, so a game still open under the same id was cut short
+        ConcentrationGameLog previous = games.put(id, new ConcentrationGameLog(id, DIM, shared, seed, millis));
+        if (previous != null) finished(previous);
+    }
+
+    @Override
+    public void move(byte type, int id, int seat, int row, int col) {
+        ConcentrationGameLog log = games.get(id);
+        if (log == null) {
+            stats.orphanRecord();
+        } else {
+            log.add(type, seat, row, col);
+        }
+    }
+
+    @Override
+    public void seat(byte type, int id, int seat) {
+        move(type, id, seat, 0, 0);
+    }
+
+    @Override
+    public void ended(int id, long millis) throws ConcentrationException {
+        ConcentrationGameLog log = games.remove(id);
+        if (log == null) {
+            stats.orphanRecord();
+        } else {
+            log.end(millis);
+            finished(log);
+        }
+    }
+
+    /**
+     * Queues a game to be replayed, handing the chunk to a worker once it is full.
+     *
+     * @param log the game.
+     * @throws InterruptedRead if the scan is interrupted while waiting for a worker.
+     */
+    private void finished(ConcentrationGameLog log) throws InterruptedRead {
+        chunk.add(log);
+        if (chunk.size() == CHUNK) submit();
+    }
+
+    /**
+     * Hands the queued games to a worker, waiting while too many chunks are in flight.
+     *
+     * @throws InterruptedRead if the scan is interrupted while waiting.
+     */
+    private void submit() throws InterruptedRead {
+        if (chunk.isEmpty()) return;
+        List<ConcentrationGameLog> logs = chunk;
+        chunk = new ArrayList<>(CHUNK);
+        try {
+            inFlight.acquire();
+        } catch (InterruptedException e) {
+            throw new InterruptedRead(e);
+        }
+        workers.execute(() -> {
+            try {
+                for (ConcentrationGameLog log : logs) replay(log);
+            } finally {
+                inFlight.release();
+            }
+        });
+    }
+
+    /**
+     * Replays a game and records its statistics.
+     *
+     * @param log the game.
+     */
+    private void replay(ConcentrationGameLog log) {
+        try {
+            ConcentrationReplay replay = new ConcentrationReplay(log);
+            replay.run();
+            stats.replayed(replay);
+        } catch (ConcentrationException e) {
+            stats.failed(log, e);
+        }
+    }
+
+    /**
+     * Carries an interruption of the scan out of the reader, whose listener may only throw a
+     * ConcentrationException.
+     */
+    private static class InterruptedRead extends ConcentrationException {
+
+        /**
+         * Version of the serialized form.
+         */
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * Wraps an interruption.
+         *
+         * @param cause the interruption.
+         */
+        private InterruptedRead(InterruptedException cause) {
+            super(cause);
+        }
+    }
+}
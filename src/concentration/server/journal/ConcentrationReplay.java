@@ -0,0 +1,306 @@
+package concentration.server.journal;
+
+import concentration.common.ConcentrationException;
+import concentration.server.ConcentrationGameBoard;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * Replays a journaled game without a network. The board is dealt again from the seed of the game, exactly as the
+ * server dealt it, and every move is stepped through in the order it was journaled, checking every recorded
+ * outcome against the board.
+ * <p>
+ * A single player game is played on a ConcentrationGameBoard, so a reveal the board refuses fails the replay as
+ * well as a wrong outcome. The players of a shared game race on its board and their moves may reach the journal
+ * in a different order than their claims did, e.g. a TAKEN can be journaled after the reveal of the card it
+ * released. The replay therefore follows every seat on its own: each recorded MATCH or MISMATCH must agree with
+ * the symbols of the two cards its seat revealed, and no card may be revealed once it is matched.
+ *
+ * @author Arya Girisha Rao, Pradeep Kumar Gontla.
+ */
+
+public class ConcentrationReplay {
+
+    /**
+     * No card is waiting for its pair, or for the outcome of its pair.
+     */
+    private static final int NONE = -1;
+
+    /**
+     * The game being replayed.
+     */
+    private final ConcentrationGameLog log;
+
+    /**
+     * The board, dealt from the seed of the game.
+     */
+    private final ConcentrationGameBoard board;
+
+    /**
+     * Outcome of the two cards revealed last in a single player game, until its MATCH or MISMATCH is stepped
+     * through, otherwise null.
+     */
+    private ConcentrationGameBoard.CardMatch pendingResult;
+
+    /**
+     * Cells matched so far in a shared game.
+     */
+    private boolean[] matchedCells;
+
+    /**
+     * Number of cells matched so far in a shared game.
+     */
+    private int matchedCount;
+
+    /**
+     * First card revealed by every seat of a shared game, NONE if it has none.
+     */
+    private int[] firstCells;
+
+    /**
+     * Second card revealed by every seat of a shared game until its outcome is stepped through, NONE if it has
+     * none.
+     */
+    private int[] secondCells;
+
+    /**
+     * Index of the next move to step through.
+     */
+    private int next;
+
+    /**
+     * Number of cards revealed so far.
+     */
+    private int reveals;
+
+    /**
+     * Number of matches and mismatches so far.
+     */
+    private int turns;
+
+    /**
+     * Number of mismatches so far.
+     */
+    private int mismatches;
+
+    /**
+     * Deals the board of a journaled game.
+     *
+     * @param log the game.
+     * @throws ConcentrationException if the dimension of the board is invalid.
+     */
+    public ConcentrationReplay(ConcentrationGameLog log) throws ConcentrationException {
+        this.log = log;
+        this.board = ConcentrationGameBoard.newBoard(log.getDIM(), new SplittableRandom(log.getSeed()));
+        if (log.isShared()) {
+            this.matchedCells = new boolean[log.getDIM() * log.getDIM()];
+            this.firstCells = new int[]{NONE};
+            this.secondCells = new int[]{NONE};
+        }
+    }
+
+    /**
+     * Steps through every move left.
+     *
+     * @throws ConcentrationException if a move disagrees with the board.
+     */
+    public void run() throws ConcentrationException {
+        while (step()) {
+            // every move is checked by step
+        }
+    }
+
+    /**
+     * Steps through the next move.
+     *
+     * @return false if every move was already stepped through.
+     * @throws ConcentrationException if the move disagrees with the board.
+     */
+    public boolean step() throws ConcentrationException {
+        if (next == log.size()) return false;
+        int move = next++;
+        try {
+            if (log.isShared()) {
+                stepShared(log.getType(move), log.getSeat(move), log.getRow(move), log.getCol(move));
+            } else {
+                stepSingle(log.getType(move), log.getSeat(move), log.getRow(move), log.getCol(move));
+            }
+        } catch (ConcentrationException e) {
+            throw new ConcentrationException("Game " + log.getId() + " move " + move + ": " + e.getMessage());
+        }
+        return true;
+    }
+
+    /**
+     * Get the game being replayed.
+     *
+     * @return the game.
+     */
+    public ConcentrationGameLog getLog() {
+        return log;
+    }
+
+    /**
+     * Get the board of a single player game, in the state reached so far. The board of a shared game is only
+     * used for its symbols and stays hidden.
+     *
+     * @return the board.
+     */
+    public ConcentrationGameBoard getBoard() {
+        return board;
+    }
+
+    /**
+     * Tell whether every pair of the board was matched by the moves stepped through so far.
+     *
+     * @return whether the game is over.
+     */
+    public boolean gameOver() {
+        return log.isShared() ? matchedCount == matchedCells.length : board.gameOver();
+    }
+
+    /**
+     * Get the number of cards revealed so far.
+     *
+     * @return number of reveals.
+     */
+    public int getReveals() {
+        return reveals;
+    }
+
+    /**
+     * Get the number of matches and mismatches so far.
+     *
+     * @return number of turns.
+     */
+    public int getTurns() {
+        return turns;
+    }
+
+    /**
+     * Get the number of mismatches so far.
+     *
+     * @return number of mismatches.
+     */
+    public int getMismatches() {
+        return mismatches;
+    }
+
+    /**
+     * Steps through a move of a single player game on its board.
+     *
+     * @param type type of the move.
+     * @param seat seat of the player.
+     * @param row  row of the card.
+     * @param col  column of the card.
+     * @throws ConcentrationException if the move disagrees with the board.
+     */
+    private void stepSingle(byte type, int seat, int row, int col) throws ConcentrationException {
+        if (seat != 0) throw new ConcentrationException("Seat " + seat + " in a single player game");
+        switch (type) {
+            case ConcentrationJournalFormat.REVEAL -> {
+                if (pendingResult != null) throw new ConcentrationException("Reveal before the outcome of the last turn");
+                ConcentrationGameBoard.CardMatch cardMatch = board.reveal(row, col);
+                reveals += 1;
+                if (cardMatch.isReady()) pendingResult = cardMatch;
+            }
+            case ConcentrationJournalFormat.MATCH, ConcentrationJournalFormat.MISMATCH -> {
+                if (pendingResult == null) throw new ConcentrationException("Outcome without two reveals");
+                checkOutcome(type, pendingResult.isMatch());
+                board.updateRevealStatus(pendingResult);
+                pendingResult = null;
+            }
+            default -> throw new ConcentrationException("Record type " + type + " in a single player game");
+        }
+    }
+
+    /**
+     * Steps through a move of a seat of a shared game.
+     *
+     * @param type type of the move.
+     * @param seat seat of the player.
+     * @param row  row of the card.
+     * @param col  column of the card.
+     * @throws ConcentrationException if the move disagrees with the board.
+     */
+    private void stepShared(byte type, int seat, int row, int col) throws ConcentrationException {
+        if (seat < 1) throw new ConcentrationException("Seat " + seat + " in a shared game");
+        if (seat >= firstCells.length) {
+            int seats = firstCells.length;
+            int length = Math.max(seat + 1, seats * 2);
+            firstCells = Arrays.copyOf(firstCells, length);
+            secondCells = Arrays.copyOf(secondCells, length);
+            Arrays.fill(firstCells, seats, length, NONE);
+            Arrays.fill(secondCells, seats, length, NONE);
+        }
+        if (secondCells[seat] != NONE && type != ConcentrationJournalFormat.MATCH && type != ConcentrationJournalFormat.MISMATCH) {
+            throw new ConcentrationException("Move of seat " + seat + " before the outcome of its last turn");
+        }
+        switch (type) {
+            case ConcentrationJournalFormat.REVEAL -> {
+                int cell = cell(row, col);
+                if (matchedCells[cell]) throw new ConcentrationException("Matched card revealed: " + row + " " + col);
+                if (firstCells[seat] == cell) throw new ConcentrationException("Card Already Revealed");
+                if (firstCells[seat] == NONE) {
+                    firstCells[seat] = cell;
+                } else {
+                    secondCells[seat] = cell;
+                }
+                reveals += 1;
+            }
+            case ConcentrationJournalFormat.TAKEN, ConcentrationJournalFormat.LEAVE -> {
+                if (type == ConcentrationJournalFormat.TAKEN) cell(row, col);
+                firstCells[seat] = NONE;
+            }
+            case ConcentrationJournalFormat.MATCH, ConcentrationJournalFormat.MISMATCH -> {
+                int first = firstCells[seat];
+                int second = secondCells[seat];
+                if (second == NONE) throw new ConcentrationException("Outcome without two reveals");
+                int DIM = log.getDIM();
+                boolean match = board.getCard(first / DIM, first % DIM).getSymbol()
+                        == board.getCard(second / DIM, second % DIM).getSymbol();
+                checkOutcome(type, match);
+                if (match) {
+                    matchedCells[first] = true;
+                    matchedCells[second] = true;
+                    matchedCount += 2;
+                }
+                firstCells[seat] = NONE;
+                secondCells[seat] = NONE;
+            }
+            default -> throw new ConcentrationException("Record type " + type + " in a shared game");
+        }
+    }
+
+    /**
+     * Checks a recorded outcome and counts the turn.
+     *
+     * @param type  MATCH or MISMATCH, as recorded.
+     * @param match whether the two cards match on the board.
+     * @throws ConcentrationException if the recorded outcome is wrong.
+     */
+    private void checkOutcome(byte type, boolean match) throws ConcentrationException {
+        if (match != (type == ConcentrationJournalFormat.MATCH)) {
+            throw new ConcentrationException(match ? "Recorded MISMATCH of matching cards" : "Recorded MATCH of different cards");
+        }
+        turns += 1;
+        if (!match) mismatches += 1;
+    }
+
+    /**
+     * Convert a coordinate of a shared game into its cell number.
+     *
+     * @param row the row
+     * @param col the column
+     * @return the cell number
+     * @throws ConcentrationException if the coordinate is invalid
+     */
+    private int cell(int row, int col) throws ConcentrationException {
+        int DIM = log.getDIM();
+        if (row < 0 || col < 0 || row >= DIM || col >= DIM) {
+            throw new ConcentrationException("Invalid coordinates");
+        }
+        return row * DIM + col;
+    }
+}
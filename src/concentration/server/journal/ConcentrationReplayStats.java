@@ -0,0 +1,189 @@
+package concentration.server.journal;
+
+import concentration.common.ConcentrationException;
+import concentration.server.metrics.ConcentrationLatencyHistogram;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Aggregate statistics of the games replayed from a journal, by board dimension. Shared by all the replay
+ * workers: counters are LongAdders and completion times go to the same lock free histograms the server uses for
+ * its metrics, so the workers do not contend while recording.
+ *
+ * @author Arya Girisha Rao, Pradeep Kumar Gontla.
+ */
+
+public class ConcentrationReplayStats {
+
+    /**
+     * Most verification failures kept to be printed.
+     */
+    private static final int MAX_FAILURES = 20;
+
+    /**
+     * Statistics of the games of one board dimension.
+     */
+    private static class DimensionStats {
+
+        /**
+         * Number of games replayed.
+         */
+        private final LongAdder games = new LongAdder();
+
+        /**
+         * Number of games played to the last pair.
+         */
+        private final LongAdder completed = new LongAdder();
+
+        /**
+         * Number of games that ended before the last pair.
+         */
+        private final LongAdder abandoned = new LongAdder();
+
+        /**
+         * Number of games whose END is missing from the journal.
+         */
+        private final LongAdder unfinished = new LongAdder();
+
+        /**
+         * Number of games whose moves disagree with their board.
+         */
+        private final LongAdder failed = new LongAdder();
+
+        /**
+         * Number of cards revealed in the completed games.
+         */
+        private final LongAdder reveals = new LongAdder();
+
+        /**
+         * Number of matches and mismatches in the completed games.
+         */
+        private final LongAdder turns = new LongAdder();
+
+        /**
+         * Time from the start to the end of the completed games.
+         */
+        private final ConcentrationLatencyHistogram completionTime = new ConcentrationLatencyHistogram();
+    }
+
+    /**
+     * Statistics by board dimension.
+     */
+    private final Map<Integer, DimensionStats> dimensions = new ConcurrentHashMap<>();
+
+    /**
+     * Number of records journaled for games whose START is missing.
+     */
+    private final LongAdder orphanRecords = new LongAdder();
+
+    /**
+     * First verification failures.
+     */
+    private final List<String> failures = new ArrayList<>();
+
+    /**
+     * Counts a game replayed to its last move.
+     *
+     * @param replay the replay.
+     */
+    public void replayed(ConcentrationReplay replay) {
+        ConcentrationGameLog log = replay.getLog();
+        DimensionStats stats = dimension(log.getDIM());
+        stats.games.increment();
+        if (log.getEndMillis() == ConcentrationGameLog.NOT_ENDED) {
+            stats.unfinished.increment();
+        } else if (replay.gameOver()) {
+            stats.completed.increment();
+            stats.reveals.add(replay.getReveals());
+            stats.turns.add(replay.getTurns());
+            stats.completionTime.record(TimeUnit.MILLISECONDS.toNanos(Math.max(0, log.getEndMillis() - log.getStartMillis())));
+        } else {
+            stats.abandoned.increment();
+        }
+    }
+
+    /**
+     * Counts a game whose replay failed.
+     *
+     * @param log the game.
+     * @param e   the disagreement between the game and its board.
+     */
+    public void failed(ConcentrationGameLog log, ConcentrationException e) {
+        DimensionStats stats = dimension(log.getDIM());
+        stats.games.increment();
+        stats.failed.increment();
+        synchronized (failures) {
+            if (failures.size() < MAX_FAILURES) failures.add(e.getMessage());
+        }
+    }
+
+    /**
+     * Counts a record of a game whose START is missing, lost with a torn batch.
+     */
+    public void orphanRecord() {
+        orphanRecords.increment();
+    }
+
+    /**
+     * Get the number of games whose replay failed.
+     *
+     * @return number of failed games.
+     */
+    public long failedTotal() {
+        long total = 0;
+        for (DimensionStats stats : dimensions.values()) total += stats.failed.sum();
+        return total;
+    }
+
+    /**
+     * Prints the summary of the scan: what was read, the games and their averages by board dimension, the
+     * distribution of their completion times and the first failures.
+     *
+     * @param out          stream to print to.
+     * @param reader       reader of the journal.
+     * @param elapsedNanos duration of the scan.
+     */
+    public void printSummary(PrintStream out, ConcentrationJournalReader reader, long elapsedNanos) {
+        double seconds = elapsedNanos / (double) TimeUnit.SECONDS.toNanos(1);
+        out.printf("Scan time: %.2fs%n", seconds);
+        out.printf("Segments: %d, batches: %d, records: %d, bytes: %d (%.1f MB/s)%n", reader.getSegments(),
+                reader.getBatches(), reader.getRecords(), reader.getBytes(), reader.getBytes() / seconds / (1 << 20));
+        if (reader.getTornBatches() > 0 || orphanRecords.sum() > 0) {
+            out.printf("Torn batches: %d, records of games without a start: %d%n", reader.getTornBatches(), orphanRecords.sum());
+        }
+        out.printf("%-6s %9s %9s %9s %9s %9s %9s %9s %9s %9s %9s %9s%n", "DIM", "games", "completed", "abandoned",
+                "unfinish", "failed", "reveals", "turns", "p50 ms", "p90 ms", "p99 ms", "max ms");
+        new TreeMap<>(dimensions).forEach((DIM, stats) -> {
+            long completed = stats.completed.sum();
+            ConcentrationLatencyHistogram.Snapshot time = stats.completionTime.snapshot();
+            out.printf("%-6s %9d %9d %9d %9d %9d %9.1f %9.1f %9.0f %9.0f %9.0f %9.0f%n", DIM + "x" + DIM,
+                    stats.games.sum(), completed, stats.abandoned.sum(), stats.unfinished.sum(), stats.failed.sum(),
+                    completed == 0 ? 0.0 : stats.reveals.sum() / (double) completed,
+                    completed == 0 ? 0.0 : stats.turns.sum() / (double) completed,
+                    time.p50Micros() / 1000, time.p90Micros() / 1000, time.p99Micros() / 1000, time.maxMicros() / 1000);
+        });
+        synchronized (failures) {
+            if (!failures.isEmpty()) {
+                out.printf("Failures: %d%n", failedTotal());
+                failures.forEach(failure -> out.printf("  %s%n", failure));
+            }
+        }
+    }
+
+    /**
+     * Get the statistics of a board dimension.
+     *
+     * @param DIM the board dimension.
+     * @return its statistics.
+     */
+    private DimensionStats dimension(int DIM) {
+        return dimensions.computeIfAbsent(DIM, key -> new DimensionStats());
+    }
+}
@@ -0,0 +1,180 @@
+package concentration.server.metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+
+/**
+ * Concurrent latency histogram in the style of HdrHistogram. Values are counted in log-linear buckets: every
+ * power of two range is split into SUB_BUCKETS linear buckets, so any recorded value is reported within about 3%
+ * whatever its magnitude, from nanoseconds to minutes, with a fixed amount of memory. Recording is lock free and
+ * costs a single atomic increment, so it can sit on the hot paths of the server. The mean is estimated from the
+ * buckets as well, so it is within the same precision.
+ *
+ * @author Arya Girisha Rao, Pradeep Kumar Gontla.
+ */
+
+public class ConcentrationLatencyHistogram {
+
+    /**
+     * Summary of a histogram at some point in time. All the latencies are in microseconds.
+     *
+     * @param count      number of values recorded.
+     * @param meanMicros mean of the values recorded.
+     * @param p50Micros  median.
+     * @param p90Micros  90th percentile.
+     * @param p99Micros  99th percentile.
+     * @param p999Micros 99.9th percentile.
+     * @param maxMicros  largest value recorded.
+     */
+    public record Snapshot(long count, double meanMicros, double p50Micros, double p90Micros, double p99Micros,
+                           double p999Micros, double maxMicros) {
+    }
+
+    /**
+     * Number of bits of the linear sub-buckets of every power of two range.
+     */
+    private static final int SUB_BUCKET_BITS = 5;
+
+    /**
+     * Number of linear sub-buckets of every power of two range.
+     */
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+    /**
+     * Number of buckets needed to cover every positive long.
+     */
+    private static final int BUCKETS = (Long.SIZE - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+    /**
+     * Number of values recorded in every bucket.
+     */
+    private final AtomicLongArray buckets;
+
+    /**
+     * Largest value recorded, in nanoseconds.
+     */
+    private final LongAccumulator max;
+
+    /**
+     * Creates an empty histogram.
+     */
+    public ConcentrationLatencyHistogram() {
+        this.buckets = new AtomicLongArray(BUCKETS);
+        this.max = new LongAccumulator(Math::max, 0);
+    }
+
+    /**
+     * Records a latency once.
+     *
+     * @param nanos latency in nanoseconds, negative values count as 0.
+     */
+    public void record(long nanos) {
+        record(nanos, 1);
+    }
+
+    /**
+     * Records the same latency for several events, e.g. all the replies of a batch flushed at once.
+     *
+     * @param nanos latency in nanoseconds, negative values count as 0.
+     * @param times number of events.
+     */
+    public void record(long nanos, int times) {
+        long value = Math.max(nanos, 0);
+        buckets.addAndGet(bucketIndex(value), times);
+        max.accumulate(value);
+    }
+
+    /**
+     * Summarizes the values recorded so far. Values recorded while the snapshot is taken may or may not be
+     * included.
+     *
+     * @return the snapshot.
+     */
+    public Snapshot snapshot() {
+        long[] counts = new long[BUCKETS];
+        long total = 0;
+        double sum = 0;
+        for (int i = 0; i < BUCKETS; ++i) {
+            counts[i] = buckets.get(i);
+            total += counts[i];
+            sum += counts[i] * bucketMidpoint(i);
+        }
+        long largest = max.get();
+        return new Snapshot(total,
+                total == 0 ? 0 : micros(sum / total),
+                micros(Math.min(percentile(counts, total, 0.5), largest)),
+                micros(Math.min(percentile(counts, total, 0.9), largest)),
+                micros(Math.min(percentile(counts, total, 0.99), largest)),
+                micros(Math.min(percentile(counts, total, 0.999), largest)),
+                micros(largest));
+    }
+
+    /**
+     * Finds the value below which a fraction of the values recorded fall.
+     *
+     * @param counts   number of values in every bucket.
+     * @param total    number of values in all the buckets.
+     * @param fraction fraction of the values, between 0 and 1.
+     * @return upper bound of the bucket holding the percentile, in nanoseconds.
+     */
+    private static long percentile(long[] counts, long total, double fraction) {
+        if (total == 0) return 0;
+        long rank = Math.max(1, (long) Math.ceil(total * fraction));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; ++i) {
+            seen += counts[i];
+            if (seen >= rank) return bucketUpperBound(i);
+        }
+        return bucketUpperBound(BUCKETS - 1);
+    }
+
+    /**
+     * Get the bucket of a value. Values below SUB_BUCKETS have a bucket of their own, larger ones share a bucket
+     * with the values that have the same highest SUB_BUCKET_BITS + 1 bits.
+     *
+     * @param value non negative value.
+     * @return index of its bucket.
+     */
+    private static int bucketIndex(long value) {
+        if (value < SUB_BUCKETS) return (int) value;
+        int exponent = Long.SIZE - 1 - Long.numberOfLeadingZeros(value);
+        int shift = exponent - SUB_BUCKET_BITS;
+        return (shift + 1) * SUB_BUCKETS + (int) ((value >>> shift) & (SUB_BUCKETS - 1));
+    }
+
+    /**
+     * Get the largest value counted in a bucket.
+     *
+     * @param index index of the bucket.
+     * @return largest value of the bucket.
+     */
+    private static long bucketUpperBound(int index) {
+        if (index < SUB_BUCKETS) return index;
+        int shift = index / SUB_BUCKETS - 1;
+        long lowerBound = (long) (SUB_BUCKETS + index % SUB_BUCKETS) << shift;
+        return lowerBound + (1L << shift) - 1;
+    }
+
+    /**
+     * Get the value in the middle of a bucket.
+     *
+     * @param index index of the bucket.
+     * @return middle value of the bucket.
+     */
+    private static double bucketMidpoint(int index) {
+        if (index < SUB_BUCKETS) return index;
+        int shift = index / SUB_BUCKETS - 1;
+        return bucketUpperBound(index) - ((1L << shift) - 1) / 2.0;
+    }
+
+    /**
+     * Converts nanoseconds to microseconds.
+     *
+     * @param nanos duration in nanoseconds.
+     * @return duration in microseconds.
+     */
+    private static double micros(double nanos) {
+        return nanos / TimeUnit.MICROSECONDS.toNanos(1);
+    }
+}
@@ -0,0 +1,561 @@
+package concentration.server.metrics;
+
+import concentration.common.ConcentrationException;
+import concentration.common.ConcentrationProtocol;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Instrumentation of the Concentration server, shared by all the engines and sessions. Counters are LongAdders and
+ * latencies go to ConcentrationLatencyHistograms, so recording from many threads at once stays cheap and never
+ * blocks. The sessions record per batch of replies rather than per message wherever they can.
+ * The metrics are exposed through JMX and, optionally, the plain text ConcentrationMetricsEndpoint.
+ *
+ * @author Arya Girisha Rao, Pradeep Kumar Gontla.
+ */
+
+public class ConcentrationMetrics implements ConcentrationMetricsMXBean {
+
+    /**
+     * Most error causes counted separately, the following ones are counted as OTHER_CAUSE.
+     */
+    private static final int MAX_ERROR_CAUSES = 64;
+
+    /**
+     * Cause of the errors beyond MAX_ERROR_CAUSES.
+     */
+    private static final String OTHER_CAUSE = "Other";
+
+    /**
+     * Number of client sessions currently open.
+     */
+    private final LongAdder activeSessions = new LongAdder();
+
+    /**
+     * Number of games being played.
+     */
+    private final LongAdder activeGames = new LongAdder();
+
+    /**
+     * Number of games started.
+     */
+    private final LongAdder gamesStarted = new LongAdder();
+
+    /**
+     * Number of games started on a board taken from the pool instead of a new one.
+     */
+    private final LongAdder boardsReused = new LongAdder();
+
+    /**
+     * Number of connections watching a game.
+     */
+    private final LongAdder activeSpectators = new LongAdder();
+
+    /**
+     * Number of events dropped from the queues of spectators that fell behind.
+     */
+    private final LongAdder spectatorEventsDropped = new LongAdder();
+
+    /**
+     * Number of snapshots queued for spectators that fell behind.
+     */
+    private final LongAdder spectatorResyncs = new LongAdder();
+
+    /**
+     * Number of bytes committed to the journal.
+     */
+    private final LongAdder journalBytes = new LongAdder();
+
+    /**
+     * Number of group commits of the journal.
+     */
+    private final LongAdder journalCommits = new LongAdder();
+
+    /**
+     * Number of moves that waited for the journal because both of its buffers were full.
+     */
+    private final LongAdder journalStalls = new LongAdder();
+
+    /**
+     * Number of games parked after their connection dropped.
+     */
+    private final LongAdder parkedSessions = new LongAdder();
+
+    /**
+     * Number of parked games resumed.
+     */
+    private final LongAdder sessionsResumed = new LongAdder();
+
+    /**
+     * Number of parked games ended because their grace period was over or the parking was full.
+     */
+    private final LongAdder sessionsEvicted = new LongAdder();
+
+    /**
+     * Number of connections turned away because the server ran its largest number of sessions.
+     */
+    private final LongAdder sessionsRejected = new LongAdder();
+
+    /**
+     * Number of connections turned away because they arrived faster than the accept rate.
+     */
+    private final LongAdder acceptsThrottled = new LongAdder();
+
+    /**
+     * Number of sessions closed because their client sent nothing for the idle timeout.
+     */
+    private final LongAdder idleTimeouts = new LongAdder();
+
+    /**
+     * Number of connections accepted.
+     */
+    private final LongAdder acceptedConnections = new LongAdder();
+
+    /**
+     * Number of reveals answered.
+     */
+    private final LongAdder reveals = new LongAdder();
+
+    /**
+     * Number of bytes read from the clients.
+     */
+    private final LongAdder bytesIn = new LongAdder();
+
+    /**
+     * Number of bytes written to the clients.
+     */
+    private final LongAdder bytesOut = new LongAdder();
+
+    /**
+     * Number of failed sessions by cause.
+     */
+    private final Map<String, LongAdder> errorCounts = new ConcurrentHashMap<>();
+
+    /**
+     * Latencies from a REVEAL being read to its CARD being written.
+     */
+    private final ConcentrationLatencyHistogram revealToCardLatency = new ConcentrationLatencyHistogram();
+
+    /**
+     * Latencies from the second REVEAL being read to its MATCH or MISMATCH being written.
+     */
+    private final ConcentrationLatencyHistogram revealToResultLatency = new ConcentrationLatencyHistogram();
+
+    /**
+     * Time taken to build the boards, or to reset the pooled ones.
+     */
+    private final ConcentrationLatencyHistogram boardConstructionTime = new ConcentrationLatencyHistogram();
+
+    /**
+     * Time taken by the group commits of the journal, write and force.
+     */
+    private final ConcentrationLatencyHistogram journalCommitTime = new ConcentrationLatencyHistogram();
+
+    /**
+     * Accepted connections when the rates were last sampled.
+     */
+    private long lastAcceptedConnections;
+
+    /**
+     * Reveals when the rates were last sampled.
+     */
+    private long lastReveals;
+
+    /**
+     * Accepted connections per second over the last sampling period.
+     */
+    private volatile double acceptsPerSecond;
+
+    /**
+     * Reveals per second over the last sampling period.
+     */
+    private volatile double revealsPerSecond;
+
+    /**
+     * Creates the metrics, all at zero. Nothing is registered or sampled until start is called, so a tool that
+     * only needs somewhere to record, e.g. a replay or a test, can use them as they are.
+     */
+    public ConcentrationMetrics() {
+        // every field is initialised where it is declared
+    }
+
+    /**
+     * Registers the metrics with the platform MBean server and starts sampling the rates every second.
+     *
+     * @throws ConcentrationException if the metrics cannot be registered.
+     */
+    public void start() throws ConcentrationException {
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this, new ObjectName(OBJECT_NAME));
+        } catch (JMException e) {
+            throw new ConcentrationException(e);
+        }
+        ScheduledExecutorService sampler = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "concentration-metrics-sampler");
+            thread.setDaemon(true);
+            return thread;
+        });
+        sampler.scheduleAtFixedRate(this::sampleRates, 1, 1, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Records an accepted connection.
+     */
+    public void connectionAccepted() {
+        acceptedConnections.increment();
+    }
+
+    /**
+     * Records a session being opened.
+     */
+    public void sessionOpened() {
+        activeSessions.increment();
+    }
+
+    /**
+     * Records a session being closed.
+     */
+    public void sessionClosed() {
+        activeSessions.decrement();
+    }
+
+    /**
+     * Records a game being started, on a new connection or with NEW_GAME.
+     */
+    public void gameStarted() {
+        activeGames.increment();
+        gamesStarted.increment();
+    }
+
+    /**
+     * Records a game being over or abandoned.
+     */
+    public void gameEnded() {
+        activeGames.decrement();
+    }
+
+    /**
+     * Records the CARD replies of a batch of reveals written at once.
+     *
+     * @param latencyNanos time since the reveals were read.
+     * @param count        number of reveals in the batch.
+     */
+    public void revealsAnswered(long latencyNanos, int count) {
+        reveals.add(count);
+        revealToCardLatency.record(latencyNanos, count);
+    }
+
+    /**
+     * Records the MATCH or MISMATCH replies of a batch of reveals written at once.
+     *
+     * @param latencyNanos time since the second reveals were read.
+     * @param count        number of results in the batch.
+     */
+    public void resultsSent(long latencyNanos, int count) {
+        revealToResultLatency.record(latencyNanos, count);
+    }
+
+    /**
+     * Records a game started on a pooled board.
+     */
+    public void boardReused() {
+        boardsReused.increment();
+    }
+
+    /**
+     * Records a connection starting to watch a game.
+     */
+    public void spectatorJoined() {
+        activeSpectators.increment();
+    }
+
+    /**
+     * Records a connection no longer watching a game.
+     */
+    public void spectatorLeft() {
+        activeSpectators.decrement();
+    }
+
+    /**
+     * Records a spectator that fell behind and had its queued events replaced by a snapshot.
+     *
+     * @param dropped number of events dropped.
+     */
+    public void spectatorResynced(int dropped) {
+        spectatorResyncs.increment();
+        spectatorEventsDropped.add(dropped);
+    }
+
+    /**
+     * Records a group commit of the journal.
+     *
+     * @param bytes number of bytes committed.
+     * @param nanos time taken to write and force them.
+     */
+    public void journalCommitted(long bytes, long nanos) {
+        journalBytes.add(bytes);
+        journalCommits.increment();
+        journalCommitTime.record(nanos);
+    }
+
+    /**
+     * Records a move waiting for the journal because both of its buffers were full.
+     */
+    public void journalStalled() {
+        journalStalls.increment();
+    }
+
+    /**
+     * Records a game parked after its connection dropped.
+     */
+    public void sessionParked() {
+        parkedSessions.increment();
+    }
+
+    /**
+     * Records a parked game resumed by a new connection.
+     */
+    public void sessionResumed() {
+        parkedSessions.decrement();
+        sessionsResumed.increment();
+    }
+
+    /**
+     * Records a parked game ended because its grace period was over or the parking was full.
+     */
+    public void sessionEvicted() {
+        parkedSessions.decrement();
+        sessionsEvicted.increment();
+    }
+
+    /**
+     * Records a connection turned away because the server ran its largest number of sessions.
+     */
+    public void sessionRejected() {
+        sessionsRejected.increment();
+    }
+
+    /**
+     * Records a connection turned away because it arrived faster than the accept rate.
+     */
+    public void acceptThrottled() {
+        acceptsThrottled.increment();
+    }
+
+    /**
+     * Records a session closed because its client sent nothing for the idle timeout.
+     */
+    public void idleTimedOut() {
+        idleTimeouts.increment();
+    }
+
+    /**
+     * Records the construction of a board, or the reset of a pooled one.
+     *
+     * @param nanos time taken to build the board.
+     */
+    public void boardBuilt(long nanos) {
+        boardConstructionTime.record(nanos);
+    }
+
+    /**
+     * Records bytes read from a client.
+     *
+     * @param bytes number of bytes.
+     */
+    public void bytesRead(long bytes) {
+        bytesIn.add(bytes);
+    }
+
+    /**
+     * Records bytes written to a client.
+     *
+     * @param bytes number of bytes.
+     */
+    public void bytesWritten(long bytes) {
+        bytesOut.add(bytes);
+    }
+
+    /**
+     * Records a failed session. A ConcentrationException is counted under its message without the ERROR header or
+     * any detail after a colon, e.g. "Invalid coordinates", any other exception under its class name.
+     *
+     * @param e the failure.
+     */
+    public void error(Exception e) {
+        String cause = e.getClass().getSimpleName();
+        if (e instanceof ConcentrationException && e.getMessage() != null) {
+            cause = e.getMessage();
+            if (cause.startsWith(ConcentrationProtocol.ERROR + " ")) {
+                cause = cause.substring(ConcentrationProtocol.ERROR.length() + 1);
+            }
+            int detail = cause.indexOf(':');
+            if (detail >= 0) cause = cause.substring(0, detail);
+        }
+        LongAdder counter = errorCounts.get(cause);
+        if (counter == null) {
+            counter = errorCounts.size() < MAX_ERROR_CAUSES
+                    ? errorCounts.computeIfAbsent(cause, key -> new LongAdder())
+                    : errorCounts.computeIfAbsent(OTHER_CAUSE, key -> new LongAdder());
+        }
+        counter.increment();
+    }
+
+    /**
+     * Computes the rates since the previous sample. Called every second by the sampler thread.
+     */
+    private void sampleRates() {
+        long accepted = acceptedConnections.sum();
+        long revealed = reveals.sum();
+        acceptsPerSecond = accepted - lastAcceptedConnections;
+        revealsPerSecond = revealed - lastReveals;
+        lastAcceptedConnections = accepted;
+        lastReveals = revealed;
+    }
+
+    @Override
+    public long getActiveSessions() {
+        return activeSessions.sum();
+    }
+
+    @Override
+    public long getActiveGames() {
+        return activeGames.sum();
+    }
+
+    @Override
+    public long getGamesStarted() {
+        return gamesStarted.sum();
+    }
+
+    @Override
+    public long getBoardsReused() {
+        return boardsReused.sum();
+    }
+
+    @Override
+    public long getActiveSpectators() {
+        return activeSpectators.sum();
+    }
+
+    @Override
+    public long getSpectatorEventsDropped() {
+        return spectatorEventsDropped.sum();
+    }
+
+    @Override
+    public long getSpectatorResyncs() {
+        return spectatorResyncs.sum();
+    }
+
+    @Override
+    public long getJournalBytes() {
+        return journalBytes.sum();
+    }
+
+    @Override
+    public long getJournalCommits() {
+        return journalCommits.sum();
+    }
+
+    @Override
+    public long getJournalStalls() {
+        return journalStalls.sum();
+    }
+
+    @Override
+    public long getParkedSessions() {
+        return parkedSessions.sum();
+    }
+
+    @Override
+    public long getSessionsResumed() {
+        return sessionsResumed.sum();
+    }
+
+    @Override
+    public long getSessionsEvicted() {
+        return sessionsEvicted.sum();
+    }
+
+    @Override
+    public long getSessionsRejected() {
+        return sessionsRejected.sum();
+    }
+
+    @Override
+    public long getAcceptsThrottled() {
+        return acceptsThrottled.sum();
+    }
+
+    @Override
+    public long getIdleTimeouts() {
+        return idleTimeouts.sum();
+    }
+
+    @Override
+    public long getAcceptedConnections() {
+        return acceptedConnections.sum();
+    }
+
+    @Override
+    public double getAcceptsPerSecond() {
+        return acceptsPerSecond;
+    }
+
+    @Override
+    public long getReveals() {
+        return reveals.sum();
+    }
+
+    @Override
+    public double getRevealsPerSecond() {
+        return revealsPerSecond;
+    }
+
+    @Override
+    public long getBytesIn() {
+        return bytesIn.sum();
+    }
+
+    @Override
+    public long getBytesOut() {
+        return bytesOut.sum();
+    }
+
+    @Override
+    public Map<String, Long> getErrorCounts() {
+        Map<String, Long> counts = new TreeMap<>();
+        errorCounts.forEach((cause, counter) -> counts.put(cause, counter.sum()));
+        return counts;
+    }
+
+    @Override
+    public ConcentrationLatencyHistogram.Snapshot getRevealToCardLatency() {
+        return revealToCardLatency.snapshot();
+    }
+
+    @Override
+    public ConcentrationLatencyHistogram.Snapshot getRevealToResultLatency() {
+        return revealToResultLatency.snapshot();
+    }
+
+    @Override
+    public ConcentrationLatencyHistogram.Snapshot getBoardConstructionTime() {
+        return boardConstructionTime.snapshot();
+    }
+
+    @Override
+    public ConcentrationLatencyHistogram.Snapshot getJournalCommitTime() {
+        return journalCommitTime.snapshot();
+    }
+}
@@ -0,0 +1,229 @@
+package concentration.server.metrics;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Plain text scrape endpoint of the server metrics. Serves the metrics over HTTP on a port of the loopback
+ * interface in the Prometheus text exposition format, one "name value" line per metric, e.g.
+ * <pre>
+ * concentration_active_sessions 12
+ * concentration_errors_total{cause="Invalid coordinates"} 3
+ * concentration_reveal_to_card_latency_micros{quantile="0.99"} 41.0
+ * </pre>
+ *
+ * @author Arya Girisha Rao, Pradeep Kumar Gontla.
+ */
+
+public class ConcentrationMetricsEndpoint {
+
+    /**
+     * Path the metrics are served on.
+     */
+    public static final String PATH = "/metrics";
+
+    /**
+     * Metrics being served.
+     */
+    private final ConcentrationMetrics metrics;
+
+    /**
+     * HTTP server answering the scrapes.
+     */
+    private final HttpServer server;
+
+    /**
+     * Creates the endpoint. It does not answer until start is called.
+     *
+     * @param metrics    Metrics being served.
+     * @param portNumber port number on the loopback interface.
+     * @throws IOException if the port cannot be bound.
+     */
+    public ConcentrationMetricsEndpoint(ConcentrationMetrics metrics, int portNumber) throws IOException {
+        this.metrics = metrics;
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), portNumber), 0);
+        this.server.createContext(PATH, this::scrape);
+    }
+
+    /**
+     * Starts answering the scrapes on a background thread.
+     */
+    public void start() {
+        server.start();
+    }
+
+    /**
+     * Answers a scrape with the current metrics.
+     *
+     * @param exchange the HTTP request and response.
+     * @throws IOException if writing the response fails.
+     */
+    private void scrape(HttpExchange exchange) throws IOException {
+        byte[] body = render(metrics).getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "text/plain; version=0.0.4; charset=utf-8");
+        exchange.sendResponseHeaders(200, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    /**
+     * Renders the metrics in the text exposition format.
+     *
+     * @param metrics the metrics.
+     * @return the metrics as text.
+     */
+    public static String render(ConcentrationMetricsMXBean metrics) {
+        StringBuilder text = new StringBuilder(2048);
+        gauge(text, "concentration_active_sessions", "Client sessions currently open.", metrics.getActiveSessions());
+        gauge(text, "concentration_active_games", "Games being played.", metrics.getActiveGames());
+        counter(text, "concentration_games_started_total", "Games started.", metrics.getGamesStarted());
+        counter(text, "concentration_boards_reused_total", "Games started on a pooled board.", metrics.getBoardsReused());
+        gauge(text, "concentration_active_spectators", "Connections watching a game.", metrics.getActiveSpectators());
+        counter(text, "concentration_spectator_events_dropped_total", "Events dropped for spectators that fell behind.", metrics.getSpectatorEventsDropped());
+        counter(text, "concentration_spectator_resyncs_total", "Snapshots sent to spectators that fell behind.", metrics.getSpectatorResyncs());
+        counter(text, "concentration_journal_bytes_total", "Bytes committed to the journal.", metrics.getJournalBytes());
+        counter(text, "concentration_journal_commits_total", "Group commits of the journal.", metrics.getJournalCommits());
+        counter(text, "concentration_journal_stalls_total", "Moves that waited for a full journal.", metrics.getJournalStalls());
+        gauge(text, "concentration_parked_sessions", "Games parked after their connection dropped.", metrics.getParkedSessions());
+        counter(text, "concentration_sessions_resumed_total", "Parked games resumed.", metrics.getSessionsResumed());
+        counter(text, "concentration_sessions_evicted_total", "Parked games ended unresumed.", metrics.getSessionsEvicted());
+        counter(text, "concentration_sessions_rejected_total", "Connections turned away at the session limit.", metrics.getSessionsRejected());
+        counter(text, "concentration_accepts_throttled_total", "Connections turned away above the accept rate.", metrics.getAcceptsThrottled());
+        counter(text, "concentration_idle_timeouts_total", "Sessions closed after the idle timeout.", metrics.getIdleTimeouts());
+        counter(text, "concentration_accepted_connections_total", "Connections accepted.", metrics.getAcceptedConnections());
+        gauge(text, "concentration_accepts_per_second", "Connections accepted over the last second.", metrics.getAcceptsPerSecond());
+        counter(text, "concentration_reveals_total", "Reveals answered.", metrics.getReveals());
+        gauge(text, "concentration_reveals_per_second", "Reveals answered over the last second.", metrics.getRevealsPerSecond());
+        counter(text, "concentration_bytes_in_total", "Bytes read from the clients.", metrics.getBytesIn());
+        counter(text, "concentration_bytes_out_total", "Bytes written to the clients.", metrics.getBytesOut());
+
+        text.append("# HELP concentration_errors_total Failed sessions by cause.\n");
+        text.append("# TYPE concentration_errors_total counter\n");
+        for (Map.Entry<String, Long> error : metrics.getErrorCounts().entrySet()) {
+            text.append("concentration_errors_total{cause=\"").append(escape(error.getKey())).append("\"} ")
+                    .append(error.getValue()).append('\n');
+        }
+
+        summary(text, "concentration_reveal_to_card_latency_micros", "Time from a REVEAL being read to its CARD being written.",
+                metrics.getRevealToCardLatency());
+        summary(text, "concentration_reveal_to_result_latency_micros", "Time from the second REVEAL being read to its MATCH or MISMATCH being written.",
+                metrics.getRevealToResultLatency());
+        summary(text, "concentration_board_construction_micros", "Time taken to build a board, or to reset a pooled one.",
+                metrics.getBoardConstructionTime());
+        summary(text, "concentration_journal_commit_micros", "Time taken by a group commit of the journal, write and force.",
+                metrics.getJournalCommitTime());
+        return text.toString();
+    }
+
+    /**
+     * Appends a gauge with a whole value.
+     *
+     * @param text  text being rendered.
+     * @param name  metric name.
+     * @param help  metric description.
+     * @param value metric value.
+     */
+    private static void gauge(StringBuilder text, String name, String help, long value) {
+        header(text, name, help, "gauge");
+        text.append(name).append(' ').append(value).append('\n');
+    }
+
+    /**
+     * Appends a gauge.
+     *
+     * @param text  text being rendered.
+     * @param name  metric name.
+     * @param help  metric description.
+     * @param value metric value.
+     */
+    private static void gauge(StringBuilder text, String name, String help, double value) {
+        header(text, name, help, "gauge");
+        text.append(name).append(' ').append(format(value)).append('\n');
+    }
+
+    /**
+     * Appends a counter.
+     *
+     * @param text  text being rendered.
+     * @param name  metric name.
+     * @param help  metric description.
+     * @param value metric value.
+     */
+    private static void counter(StringBuilder text, String name, String help, long value) {
+        header(text, name, help, "counter");
+        text.append(name).append(' ').append(value).append('\n');
+    }
+
+    /**
+     * Appends a latency summary with its quantiles, count and sum.
+     *
+     * @param text     text being rendered.
+     * @param name     metric name.
+     * @param help     metric description.
+     * @param snapshot latency summary.
+     */
+    private static void summary(StringBuilder text, String name, String help, ConcentrationLatencyHistogram.Snapshot snapshot) {
+        header(text, name, help, "summary");
+        quantile(text, name, "0.5", snapshot.p50Micros());
+        quantile(text, name, "0.9", snapshot.p90Micros());
+        quantile(text, name, "0.99", snapshot.p99Micros());
+        quantile(text, name, "0.999", snapshot.p999Micros());
+        quantile(text, name, "1", snapshot.maxMicros());
+        text.append(name).append("_sum ").append(format(snapshot.meanMicros() * snapshot.count())).append('\n');
+        text.append(name).append("_count ").append(snapshot.count()).append('\n');
+    }
+
+    /**
+     * Appends a quantile of a summary.
+     *
+     * @param text     text being rendered.
+     * @param name     metric name.
+     * @param quantile the quantile.
+     * @param value    its value.
+     */
+    private static void quantile(StringBuilder text, String name, String quantile, double value) {
+        text.append(name).append("{quantile=\"").append(quantile).append("\"} ").append(format(value)).append('\n');
+    }
+
+    /**
+     * Appends the HELP and TYPE lines of a metric.
+     *
+     * @param text text being rendered.
+     * @param name metric name.
+     * @param help metric description.
+     * @param type metric type.
+     */
+    private static void header(StringBuilder text, String name, String help, String type) {
+        text.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        text.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+    }
+
+    /**
+     * Formats a value with at most three decimals.
+     *
+     * @param value the value.
+     * @return the formatted value.
+     */
+    private static String format(double value) {
+        return String.format(Locale.ROOT, "%.3f", value);
+    }
+
+    /**
+     * Escapes a label value.
+     *
+     * @param value the label value.
+     * @return the escaped value.
+     */
+    private static String escape(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+}
@@ -0,0 +1,208 @@
+package concentration.server.metrics;
+
+import java.util.Map;
+
+/**
+ * Management interface of the server metrics, registered with the platform MBean server under OBJECT_NAME so that
+ * JConsole, VisualVM or any JMX client can watch a running server.
+ *
+ * @author Arya Girisha Rao, Pradeep Kumar Gontla.
+ */
+
+public interface ConcentrationMetricsMXBean {
+
+    /**
+     * Name the metrics are registered under.
+     */
+    String OBJECT_NAME = "concentration:type=ServerMetrics";
+
+    /**
+     * Get the number of client sessions currently open.
+     *
+     * @return active sessions.
+     */
+    long getActiveSessions();
+
+    /**
+     * Get the number of games being played.
+     *
+     * @return active games.
+     */
+    long getActiveGames();
+
+    /**
+     * Get the number of games started since the server started.
+     *
+     * @return games started.
+     */
+    long getGamesStarted();
+
+    /**
+     * Get the number of games started on a pooled board since the server started.
+     *
+     * @return boards reused.
+     */
+    long getBoardsReused();
+
+    /**
+     * Get the number of connections currently watching a game.
+     *
+     * @return active spectators.
+     */
+    long getActiveSpectators();
+
+    /**
+     * Get the number of events dropped from the queues of spectators that fell behind since the server started.
+     *
+     * @return dropped events.
+     */
+    long getSpectatorEventsDropped();
+
+    /**
+     * Get the number of snapshots sent to spectators that fell behind since the server started.
+     *
+     * @return resyncs.
+     */
+    long getSpectatorResyncs();
+
+    /**
+     * Get the number of bytes committed to the journal since the server started.
+     *
+     * @return journal bytes.
+     */
+    long getJournalBytes();
+
+    /**
+     * Get the number of group commits of the journal since the server started.
+     *
+     * @return journal commits.
+     */
+    long getJournalCommits();
+
+    /**
+     * Get the number of moves that waited for the journal because both of its buffers were full.
+     *
+     * @return journal stalls.
+     */
+    long getJournalStalls();
+
+    /**
+     * Get the number of games parked after their connection dropped, waiting to be resumed.
+     *
+     * @return parked sessions.
+     */
+    long getParkedSessions();
+
+    /**
+     * Get the number of parked games resumed since the server started.
+     *
+     * @return resumed sessions.
+     */
+    long getSessionsResumed();
+
+    /**
+     * Get the number of parked games ended unresumed since the server started.
+     *
+     * @return evicted sessions.
+     */
+    long getSessionsEvicted();
+
+    /**
+     * Get the number of connections turned away because the server ran its largest number of sessions.
+     *
+     * @return rejected sessions.
+     */
+    long getSessionsRejected();
+
+    /**
+     * Get the number of connections turned away because they arrived faster than the accept rate.
+     *
+     * @return throttled accepts.
+     */
+    long getAcceptsThrottled();
+
+    /**
+     * Get the number of sessions closed because their client sent nothing for the idle timeout.
+     *
+     * @return idle timeouts.
+     */
+    long getIdleTimeouts();
+
+    /**
+     * Get the number of connections accepted since the server started.
+     *
+     * @return accepted connections.
+     */
+    long getAcceptedConnections();
+
+    /**
+     * Get the rate of accepted connections over the last second.
+     *
+     * @return accepted connections per second.
+     */
+    double getAcceptsPerSecond();
+
+    /**
+     * Get the number of reveals answered since the server started.
+     *
+     * @return reveals.
+     */
+    long getReveals();
+
+    /**
+     * Get the rate of answered reveals over the last second.
+     *
+     * @return reveals per second.
+     */
+    double getRevealsPerSecond();
+
+    /**
+     * Get the number of bytes read from the clients.
+     *
+     * @return bytes in.
+     */
+    long getBytesIn();
+
+    /**
+     * Get the number of bytes written to the clients.
+     *
+     * @return bytes out.
+     */
+    long getBytesOut();
+
+    /**
+     * Get the number of failed sessions, by cause.
+     *
+     * @return error counts keyed by cause.
+     */
+    Map<String, Long> getErrorCounts();
+
+    /**
+     * Get the latencies from a REVEAL being read to its CARD being written.
+     *
+     * @return latency summary.
+     */
+    ConcentrationLatencyHistogram.Snapshot getRevealToCardLatency();
+
+    /**
+     * Get the latencies from the second REVEAL being read to its MATCH or MISMATCH being written, reveal delay
+     * included.
+     *
+     * @return latency summary.
+     */
+    ConcentrationLatencyHistogram.Snapshot getRevealToResultLatency();
+
+    /**
+     * Get the time taken to build the boards, or to reset the pooled ones.
+     *
+     * @return construction time summary.
+     */
+    ConcentrationLatencyHistogram.Snapshot getBoardConstructionTime();
+
+    /**
+     * Get the time taken by the group commits of the journal, write and force.
+     *
+     * @return commit time summary.
+     */
+    ConcentrationLatencyHistogram.Snapshot getJournalCommitTime();
+}
@@ -0,0 +1,169 @@
+package concentration.solver;
+
+import concentration.common.ConcentrationException;
+import concentration.common.ConcentrationPlayer;
+
+import java.util.Arrays;
+
+/**
+ * Greedy player with perfect memory. Remembers the symbol of every card it has seen and, per symbol, the cells it was
+ * seen at, in primitive arrays indexed by cell and by symbol. A turn first plays a pair it already knows, then a
+ * card it has never seen, and completes that card with its known partner when there is one. Every operation is
+ * constant time and every cell is seen once, so a whole game is linear in the number of cards even on the
+ * largest boards. The player also checks what it is shown against what it remembers, so a server sending a card
+ * with a different symbol or a wrong match result fails the game.
+ *
+ * @author Arya Girisha Rao, Pradeep Kumar Gontla.
+ */
+
+public class ConcentrationMemoryPlayer implements ConcentrationPlayer {
+
+    /**
+     * Marks a cell never seen or a symbol not seen at a cell yet.
+     */
+    private static final int NONE = -1;
+
+    /**
+     * Square dimension of the board.
+     */
+    private int DIM;
+
+    /**
+     * Symbol of every cell, NONE for the cells never seen.
+     */
+    private int[] cellSymbols = new int[0];
+
+    /**
+     * Cell a symbol was first seen at, NONE if it was never seen.
+     */
+    private int[] firstCells = new int[0];
+
+    /**
+     * Cell a symbol was seen at second, NONE if only one of its cards was seen.
+     */
+    private int[] secondCells = new int[0];
+
+    /**
+     * Symbols with both cards seen but not matched yet, used as a stack.
+     */
+    private int[] knownPairs = new int[0];
+
+    /**
+     * Number of symbols in knownPairs.
+     */
+    private int knownPairCount;
+
+    /**
+     * Lowest cell that may not have been seen yet. Cells before it have all been seen.
+     */
+    private int nextUnseen;
+
+    /**
+     * Cell of the first reveal of the current turn, NONE before it.
+     */
+    private int firstCell;
+
+    /**
+     * Cell to reveal second in the current turn when it is already decided, NONE otherwise.
+     */
+    private int plannedCell;
+
+    /**
+     * Number of turns ended with a mismatch in the current game.
+     */
+    private int mismatches;
+
+    @Override
+    public void newGame(int DIM) {
+        int cells = DIM * DIM;
+        if (cellSymbols.length != cells) {
+            cellSymbols = new int[cells];
+            firstCells = new int[cells / 2];
+            secondCells = new int[cells / 2];
+            knownPairs = new int[cells / 2];
+        }
+        Arrays.fill(cellSymbols, NONE);
+        Arrays.fill(firstCells, NONE);
+        Arrays.fill(secondCells, NONE);
+        this.DIM = DIM;
+        this.knownPairCount = 0;
+        this.nextUnseen = 0;
+        this.firstCell = NONE;
+        this.plannedCell = NONE;
+        this.mismatches = 0;
+    }
+
+    @Override
+    public int nextCell() {
+        if (firstCell == NONE) {
+            if (knownPairCount > 0) {
+                int symbol = knownPairs[--knownPairCount];
+                plannedCell = secondCells[symbol];
+                firstCell = firstCells[symbol];
+            } else {
+                firstCell = unseenCell();
+            }
+            return firstCell;
+        }
+        int cell = plannedCell != NONE ? plannedCell : unseenCell();
+        plannedCell = NONE;
+        return cell;
+    }
+
+    @Override
+    public void onCard(int row, int col, int symbol) throws ConcentrationException {
+        int cell = row * DIM + col;
+        if (symbol < 0 || symbol >= firstCells.length) throw new ConcentrationException("Invalid symbol: " + symbol);
+        if (cellSymbols[cell] != NONE) {
+            if (cellSymbols[cell] != symbol) throw new ConcentrationException("Inconsistent card: " + row + " " + col);
+            return;
+        }
+        cellSymbols[cell] = symbol;
+        if (firstCells[symbol] == NONE) {
+            firstCells[symbol] = cell;
+        } else if (secondCells[symbol] == NONE) {
+            secondCells[symbol] = cell;
+            if (cell == firstCell) {
+                // the partner of the first card is known, so it is the second card of this turn
+                plannedCell = firstCells[symbol];
+            } else if (firstCells[symbol] != firstCell) {
+                knownPairs[knownPairCount++] = symbol;
+            }
+        } else {
+            throw new ConcentrationException("Inconsistent card: " + row + " " + col);
+        }
+    }
+
+    @Override
+    public void onResult(boolean match, int row1, int col1, int row2, int col2) throws ConcentrationException {
+        int symbol1 = cellSymbols[row1 * DIM + col1];
+        int symbol2 = cellSymbols[row2 * DIM + col2];
+        if (symbol1 == NONE || symbol2 == NONE || match != (symbol1 == symbol2)) {
+            throw new ConcentrationException("Inconsistent result: " + row1 + " " + col1 + " " + row2 + " " + col2);
+        }
+        if (!match) mismatches += 1;
+        firstCell = NONE;
+        plannedCell = NONE;
+    }
+
+    /**
+     * Get the number of turns ended with a mismatch in the current game.
+     *
+     * @return number of mismatches.
+     */
+    public int getMismatches() {
+        return mismatches;
+    }
+
+    /**
+     * Finds the lowest cell never seen. Moves forward only, so finding all of them is linear.
+     *
+     * @return the cell.
+     */
+    private int unseenCell() {
+        while (cellSymbols[nextUnseen] != NONE) {
+            ++nextUnseen;
+        }
+        return nextUnseen;
+    }
+}
@@ -0,0 +1,118 @@
+package concentration.solver;
+
+import concentration.common.ConcentrationCard;
+import concentration.common.ConcentrationException;
+import concentration.common.ConcentrationPlayer;
+import concentration.server.ConcentrationGameBoard;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Plays boards in process, without any socket, as fast as the board and the player allow. Used to compute the
+ * number of turns a greedy perfect-memory player needs on a board, the baseline any other player is measured against,
+ * and to check a board against the player's memory. The same players run over the wire through the load
+ * generator's --strategy option.
+ *
+ * @author Arya Girisha Rao, Pradeep Kumar Gontla.
+ */
+
+public class ConcentrationSolver {
+
+    /**
+     * Usage message printed when the command line arguments are invalid.
+     */
+    public static final String USAGE = "Usage: Java Concentration Solver <Board Dimensions> [--boards=N] [--seed=N]";
+
+    /**
+     * Outcome of a game played to the end.
+     *
+     * @param turns      number of pairs of reveals.
+     * @param mismatches number of turns ended with a mismatch.
+     */
+    public record Result(int turns, int mismatches) {
+    }
+
+    /**
+     * Plays a board to the end.
+     *
+     * @param board  the board, with all its cards hidden.
+     * @param player the player choosing the cards.
+     * @return the outcome of the game.
+     * @throws ConcentrationException if the player reveals an illegal card, or the board contradicts the player's
+     *                                memory.
+     */
+    public static Result solve(ConcentrationGameBoard board, ConcentrationPlayer player) throws ConcentrationException {
+        int DIM = board.getDIM();
+        player.newGame(DIM);
+        int turns = 0;
+        int mismatches = 0;
+        while (!board.gameOver()) {
+            int cell = player.nextCell();
+            ConcentrationGameBoard.CardMatch cardMatch = board.reveal(cell / DIM, cell % DIM);
+            ConcentrationCard card = cardMatch.getCard2();
+            player.onCard(card.getRow(), card.getCol(), card.getSymbol());
+            if (cardMatch.isReady()) {
+                board.updateRevealStatus(cardMatch);
+                ConcentrationCard first = cardMatch.getCard1();
+                player.onResult(cardMatch.isMatch(), first.getRow(), first.getCol(), card.getRow(), card.getCol());
+                turns += 1;
+                if (!cardMatch.isMatch()) mismatches += 1;
+            }
+        }
+        return new Result(turns, mismatches);
+    }
+
+    /**
+     * Solves seeded boards with a greedy perfect-memory player and prints the turns it took: the minimum, mean and
+     * maximum next to the DIM * DIM / 2 turns of a player that could see every card.
+     *
+     * @param args CLI Arguments received from the user. Required format is board_dimension followed by the
+     *             optional flags listed in USAGE
+     */
+    public static void main(String[] args) {
+        if (args.length < 1) {
+            System.err.println(USAGE);
+            System.exit(-1);
+        }
+        try {
+            int DIM = Integer.parseInt(args[0]);
+            int boards = 100;
+            long seed = 42;
+            for (int i = 1; i < args.length; ++i) {
+                String[] flag = args[i].split("=", 2);
+                if (flag.length != 2) throw new ConcentrationException("Malformed option: " + args[i]);
+                switch (flag[0]) {
+                    case "--boards" -> boards = Integer.parseInt(flag[1]);
+                    case "--seed" -> seed = Long.parseLong(flag[1]);
+                    default -> throw new ConcentrationException("Unknown option: " + flag[0]);
+                }
+            }
+            if (boards < 1) throw new ConcentrationException("Boards must be positive: " + boards);
+
+            SplittableRandom random = new SplittableRandom(seed);
+            ConcentrationMemoryPlayer player = new ConcentrationMemoryPlayer();
+            int minTurns = Integer.MAX_VALUE;
+            int maxTurns = 0;
+            long totalTurns = 0;
+            long solveNanos = 0;
+            for (int i = 0; i < boards; ++i) {
+                ConcentrationGameBoard board = ConcentrationGameBoard.newBoard(DIM, random);
+                long start = System.nanoTime();
+                Result result = solve(board, player);
+                solveNanos += System.nanoTime() - start;
+                minTurns = Math.min(minTurns, result.turns());
+                maxTurns = Math.max(maxTurns, result.turns());
+                totalTurns += result.turns();
+            }
+            long elapsedMicros = TimeUnit.NANOSECONDS.toMicros(solveNanos);
+            System.out.printf("%dx%d boards: %d, perfect information turns: %d%n", DIM, DIM, boards, DIM * DIM / 2);
+            System.out.printf("Greedy perfect-memory turns: min %d, mean %.2f, max %d%n", minTurns,
+                    totalTurns / (double) boards, maxTurns);
+            System.out.printf("Solved in %d us (%.1f us per board)%n", elapsedMicros, elapsedMicros / (double) boards);
+        } catch (ConcentrationException | IllegalArgumentException e) {
+            System.err.println("Failed to run the solver. Error Details: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+}
@@ -1,5 +1,10 @@
 module ConcentrationGUI {
     requires transitive javafx.controls;
+    requires java.management;
+    requires jdk.httpserver;
     exports concentration.client.gui;
+    exports concentration.client.model;
     exports concentration.client.controller;
-}
\ No newline at end of file
+    exports concentration.server.metrics;
+    exports concentration.common;
+}
@@ -0,0 +1,116 @@
+package concentration.common;
+
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests of ConcentrationTextCodec: the messages of a reveal round trip, and encoding and decoding them does not
+ * allocate once warmed up.
+ *
+ * @author Arya Girisha Rao, Pradeep Kumar Gontla.
+ */
+class ConcentrationTextCodecTest {
+
+    /**
+     * Number of rounds run to let the JIT compile the codec before measuring.
+     */
+    private static final int WARMUP_ROUNDS = 200_000;
+
+    /**
+     * Number of rounds measured.
+     */
+    private static final int MEASURED_ROUNDS = 100_000;
+
+    /**
+     * Codec decoding the messages.
+     */
+    private final ConcentrationTextCodec codec = new ConcentrationTextCodec();
+
+    /**
+     * Buffer the messages are encoded into and decoded from.
+     */
+    private final ByteBuffer buffer = ByteBuffer.allocate(ConcentrationTextCodec.MAX_LINE_LENGTH);
+
+    @Test
+    void roundTripsReveal() throws ConcentrationException {
+        ConcentrationTextCodec.encodeReveal(buffer, 12, 34);
+        assertTrue(codec.decode(buffer.flip()));
+        assertEquals(ConcentrationTextCodec.REVEAL, codec.getCommand());
+        assertEquals(12, codec.getRow());
+        assertEquals(34, codec.getCol());
+    }
+
+    @Test
+    void roundTripsCard() throws ConcentrationException {
+        for (int symbol : new int[]{0, 25, 26, 4095}) {
+            buffer.clear();
+            ConcentrationTextCodec.encodeCard(buffer, 3, 5, symbol);
+            assertTrue(codec.decode(buffer.flip()));
+            assertEquals(ConcentrationTextCodec.CARD, codec.getCommand());
+            assertEquals(3, codec.getRow());
+            assertEquals(5, codec.getCol());
+            assertEquals(symbol, codec.getSymbol());
+        }
+    }
+
+    @Test
+    void roundTripsMatch() throws ConcentrationException {
+        ConcentrationTextCodec.encodeResult(buffer, true, 1, 2, 3, 4);
+        assertTrue(codec.decode(buffer.flip()));
+        assertEquals(ConcentrationTextCodec.MATCH, codec.getCommand());
+        assertEquals(1, codec.getRow());
+        assertEquals(2, codec.getCol());
+        assertEquals(3, codec.getRow2());
+        assertEquals(4, codec.getCol2());
+    }
+
+    @Test
+    void waitsForCompleteLine() throws ConcentrationException {
+        ConcentrationTextCodec.encodeReveal(buffer, 1, 2);
+        buffer.flip().limit(buffer.limit() - 1);
+        assertFalse(codec.decode(buffer));
+        assertEquals(0, buffer.position());
+    }
+
+    @Test
+    void doesNotAllocateInSteadyState() throws ConcentrationException {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long thread = Thread.currentThread().threadId();
+        long checksum = rounds(WARMUP_ROUNDS);
+        long before = threads.getThreadAllocatedBytes(thread);
+        checksum += rounds(MEASURED_ROUNDS);
+        long allocated = threads.getThreadAllocatedBytes(thread) - before;
+        assertTrue(checksum != 0);
+        assertEquals(0, allocated, "bytes allocated by " + MEASURED_ROUNDS + " rounds");
+    }
+
+    /**
+     * Encodes and decodes a REVEAL, a CARD and a MATCH.
+     *
+     * @param rounds number of times to do it.
+     * @return a sum of the decoded values, so the work cannot be optimized away.
+     * @throws ConcentrationException if a message does not decode.
+     */
+    private long rounds(int rounds) throws ConcentrationException {
+        long checksum = 0;
+        for (int i = 0; i < rounds; ++i) {
+            int row = i & 63;
+            int col = (i >> 6) & 63;
+            buffer.clear();
+            ConcentrationTextCodec.encodeReveal(buffer, row, col);
+            ConcentrationTextCodec.encodeCard(buffer, row, col, i & 1023);
+            ConcentrationTextCodec.encodeResult(buffer, true, row, col, col, row);
+            buffer.flip();
+            while (codec.decode(buffer)) {
+                checksum += codec.getCommand() + codec.getRow() + codec.getCol();
+            }
+        }
+        return checksum;
+    }
+}
@@ -0,0 +1,159 @@
+package concentration.server;
+
+import concentration.common.ConcentrationBinaryProtocol;
+import concentration.common.ConcentrationProtocol;
+import concentration.server.metrics.ConcentrationMetrics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests of a session over a real connection: commands pipelined in a full input buffer get all their replies, even
+ * when the replies are longer than the commands and do not fit in the output buffer at once, in text and in binary.
+ *
+ * @author Arya Girisha Rao, Pradeep Kumar Gontla.
+ */
+class ConcentrationClientServerThreadTest {
+
+    /**
+     * Size of the input buffer of a session, the most bytes it decodes before flushing its replies.
+     */
+    private static final int INPUT_BUFFER_SIZE = 4096;
+
+    /**
+     * Square dimension of the first board of a session.
+     */
+    private static final int DIM = 4;
+
+    /**
+     * Milliseconds a test waits for the session to end.
+     */
+    private static final long TIMEOUT_MILLIS = 10_000;
+
+    /**
+     * Metrics of the server.
+     */
+    private final ConcentrationMetrics metrics = new ConcentrationMetrics();
+
+    /**
+     * Registry of the games, with resume enabled.
+     */
+    private final ConcentrationGameRegistry registry = new ConcentrationGameRegistry(new ConcentrationBoardPool(0),
+            64, null, new ConcentrationSessionParking(16, TimeUnit.SECONDS.toNanos(60)), 64, metrics);
+
+    /**
+     * Socket the sessions are accepted on.
+     */
+    private ServerSocket serverSocket;
+
+    @BeforeEach
+    void listen() throws IOException {
+        serverSocket = new ServerSocket(0, 1, InetAddress.getLoopbackAddress());
+    }
+
+    @AfterEach
+    void close() throws IOException {
+        serverSocket.close();
+    }
+
+    @Test
+    void answersAFullBufferOfTokenRequests() throws IOException, InterruptedException {
+        byte[] line = (ConcentrationProtocol.TOKEN + "\n").getBytes(StandardCharsets.US_ASCII);
+        int requests = INPUT_BUFFER_SIZE / line.length;
+        byte[] pipelined = new byte[requests * line.length];
+        for (int i = 0; i < requests; ++i) System.arraycopy(line, 0, pipelined, i * line.length, line.length);
+
+        try (Socket client = new Socket(serverSocket.getInetAddress(), serverSocket.getLocalPort())) {
+            // every request is sent before the session starts, so its first read takes them all
+            client.getOutputStream().write(pipelined);
+            client.shutdownOutput();
+            Thread session = serve();
+
+            BufferedReader in = new BufferedReader(new InputStreamReader(client.getInputStream(), StandardCharsets.US_ASCII));
+            assertEquals(String.format(ConcentrationProtocol.BOARD_DIM_MSG, DIM), in.readLine());
+            String token = in.readLine();
+            assertNotNull(token);
+            assertTrue(token.startsWith(ConcentrationProtocol.TOKEN + " "), token);
+            for (int i = 1; i < requests; ++i) assertEquals(token, in.readLine());
+            assertNull(in.readLine());
+            session.join(TIMEOUT_MILLIS);
+        }
+    }
+
+    @Test
+    void answersAFullBufferOfBinaryHostRequests() throws IOException, InterruptedException {
+        byte[] handshake = (String.format(ConcentrationProtocol.BINARY_MSG, ConcentrationBinaryProtocol.VERSION) + "\n")
+                .getBytes(StandardCharsets.US_ASCII);
+        int requests = (INPUT_BUFFER_SIZE - handshake.length) / ConcentrationBinaryProtocol.DIM_LENGTH;
+        ByteBuffer pipelined = ByteBuffer.allocate(handshake.length + requests * ConcentrationBinaryProtocol.DIM_LENGTH);
+        pipelined.put(handshake);
+        for (int i = 0; i < requests; ++i) pipelined.put(ConcentrationBinaryProtocol.HOST).putShort((short) 2);
+
+        try (Socket client = new Socket(serverSocket.getInetAddress(), serverSocket.getLocalPort())) {
+            client.getOutputStream().write(pipelined.array());
+            client.shutdownOutput();
+            Thread session = serve();
+
+            DataInputStream in = new DataInputStream(new BufferedInputStream(client.getInputStream()));
+            assertEquals(String.format(ConcentrationProtocol.BOARD_DIM_MSG, DIM), readLine(in));
+            assertEquals(String.format(ConcentrationProtocol.BINARY_OK_MSG, ConcentrationBinaryProtocol.VERSION), readLine(in));
+            int lastId = 0;
+            for (int i = 0; i < requests; ++i) {
+                assertEquals(ConcentrationBinaryProtocol.GAME_ID, in.readByte());
+                int id = in.readInt();
+                assertTrue(id > lastId, "game ids grow");
+                lastId = id;
+                assertEquals(ConcentrationBinaryProtocol.BOARD_DIM, in.readByte());
+                assertEquals(2, in.readShort());
+            }
+            assertEquals(-1, in.read());
+            session.join(TIMEOUT_MILLIS);
+        }
+    }
+
+    /**
+     * Reads a text line sent before the connection switched to binary frames.
+     *
+     * @param in input stream of the client.
+     * @return the line, without its line feed.
+     * @throws IOException if the connection ends before the line does.
+     */
+    private static String readLine(DataInputStream in) throws IOException {
+        StringBuilder line = new StringBuilder();
+        for (int b = in.readUnsignedByte(); b != '\n'; b = in.readUnsignedByte()) line.append((char) b);
+        return line.toString();
+    }
+
+    /**
+     * Accepts the next connection and starts its session, without a reveal delay.
+     *
+     * @return the thread of the session.
+     * @throws IOException if the connection cannot be accepted.
+     */
+    private Thread serve() throws IOException {
+        Socket socket = serverSocket.accept();
+        ConcentrationAdmission admission = new ConcentrationAdmission(0, 0, metrics);
+        assertTrue(admission.admit());
+        Thread session = new Thread(new ConcentrationClientServerThread(socket, registry, DIM, 0,
+                (int) TIMEOUT_MILLIS, admission, metrics));
+        session.start();
+        return session;
+    }
+}
@@ -0,0 +1,257 @@
+package concentration.server.journal;
+
+import concentration.common.ConcentrationException;
+import concentration.server.ConcentrationGameBoard;
+import concentration.server.metrics.ConcentrationMetrics;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests of the journal: the records written by ConcentrationJournal are read back unchanged by
+ * ConcentrationJournalReader, and the games they hold replay to the same outcome on the board dealt from their
+ * seed.
+ *
+ * @author Arya Girisha Rao, Pradeep Kumar Gontla.
+ */
+class ConcentrationJournalTest {
+
+    /**
+     * Size a segment reaches before the next batch goes to a new one.
+     */
+    private static final long SEGMENT_BYTES = 1 << 20;
+
+    /**
+     * Longest time in milliseconds a recorded move waits to be committed.
+     */
+    private static final long COMMIT_MILLIS = 5;
+
+    @Test
+    void readsBackTheRecordsWritten(@TempDir Path directory) throws IOException, ConcentrationException {
+        List<String> written = new ArrayList<>();
+        try (ConcentrationJournal journal = open(directory)) {
+            journal.gameStarted(1, 4, true, 42);
+            written.add("START 1 4 true 42");
+            journal.revealed(1, 1, 0, 0, false);
+            written.add("MOVE " + ConcentrationJournalFormat.REVEAL + " 1 1 0 0");
+            journal.revealed(1, 2, 0, 0, true);
+            written.add("MOVE " + ConcentrationJournalFormat.TAKEN + " 1 2 0 0");
+            journal.revealed(1, 1, 3, 2, false);
+            written.add("MOVE " + ConcentrationJournalFormat.REVEAL + " 1 1 3 2");
+            journal.result(1, 1, false);
+            written.add("SEAT " + ConcentrationJournalFormat.MISMATCH + " 1 1");
+            journal.left(1, 2);
+            written.add("SEAT " + ConcentrationJournalFormat.LEAVE + " 1 2");
+            journal.gameEnded(1);
+            written.add("END 1");
+        }
+
+        List<String> read = new ArrayList<>();
+        ConcentrationJournalReader reader = new ConcentrationJournalReader(directory);
+        reader.read(new ConcentrationJournalReader.Listener() {
+            @Override
+            public void started(int id, int DIM, boolean shared, long seed, long millis) {
+                read.add("START " + id + " " + DIM + " " + shared + " " + seed);
+            }
+
+            @Override
+            public void move(byte type, int id, int seat, int row, int col) {
+                read.add("MOVE " + type + " " + id + " " + seat + " " + row + " " + col);
+            }
+
+            @Override
+            public void seat(byte type, int id, int seat) {
+                read.add("SEAT " + type + " " + id + " " + seat);
+            }
+
+            @Override
+            public void ended(int id, long millis) {
+                read.add("END " + id);
+            }
+        });
+        assertEquals(written, read);
+        assertEquals(written.size(), reader.getRecords());
+        assertEquals(0, reader.getTornBatches());
+    }
+
+    @Test
+    void replaysJournaledGames(@TempDir Path directory) throws IOException, ConcentrationException, InterruptedException {
+        SplittableRandom seeds = new SplittableRandom(7);
+        List<ConcentrationGameLog> expected = new ArrayList<>();
+        try (ConcentrationJournal journal = open(directory)) {
+            int id = 0;
+            for (int DIM : new int[]{2, 4, 6, 16, 64}) {
+                expected.add(play(journal, ++id, DIM, seeds.nextLong()));
+            }
+        }
+
+        List<ConcentrationGameLog> logs = collect(directory);
+        assertEquals(expected.size(), logs.size());
+        for (int i = 0; i < logs.size(); ++i) {
+            ConcentrationGameLog log = logs.get(i);
+            assertEquals(expected.get(i).getSeed(), log.getSeed());
+            assertEquals(expected.get(i).size(), log.size());
+            ConcentrationReplay replay = new ConcentrationReplay(log);
+            replay.run();
+            assertTrue(replay.gameOver(), "game " + log.getId());
+            int DIM = log.getDIM();
+            assertEquals(DIM * DIM / 2 + replay.getMismatches(), replay.getTurns());
+            assertEquals(2 * replay.getTurns(), replay.getReveals());
+        }
+
+        ConcentrationReplayStats stats = new ConcentrationReplayStats();
+        new ConcentrationJournalScanner(2, stats).scan(new ConcentrationJournalReader(directory));
+        assertEquals(0, stats.failedTotal());
+    }
+
+    @Test
+    void rejectsAWrongOutcome(@TempDir Path directory) throws IOException, ConcentrationException, InterruptedException {
+        long seed = 11;
+        ConcentrationGameBoard board = ConcentrationGameBoard.newBoard(4, new SplittableRandom(seed));
+        int partner = partner(board, 0);
+        try (ConcentrationJournal journal = open(directory)) {
+            journal.gameStarted(1, 4, false, seed);
+            journal.revealed(1, 0, 0, 0, false);
+            journal.revealed(1, 0, partner / 4, partner % 4, false);
+            journal.result(1, 0, false);
+            journal.gameEnded(1);
+        }
+
+        List<ConcentrationGameLog> logs = collect(directory);
+        assertEquals(1, logs.size());
+        assertThrows(ConcentrationException.class, () -> new ConcentrationReplay(logs.get(0)).run());
+
+        ConcentrationReplayStats stats = new ConcentrationReplayStats();
+        new ConcentrationJournalScanner(1, stats).scan(new ConcentrationJournalReader(directory));
+        assertEquals(1, stats.failedTotal());
+    }
+
+    /**
+     * Opens a journal in a directory.
+     *
+     * @param directory Directory of the segments.
+     * @return the journal.
+     * @throws IOException if the first segment cannot be created.
+     */
+    private static ConcentrationJournal open(Path directory) throws IOException {
+        return new ConcentrationJournal(directory, SEGMENT_BYTES, COMMIT_MILLIS, new ConcentrationMetrics());
+    }
+
+    /**
+     * Plays a single player game to the end on the board dealt from a seed, journaling every move the way a
+     * session does. Every first card is followed by a card of another symbol, when one is still hidden, before
+     * its partner, so the game holds as many mismatches as matches.
+     *
+     * @param journal the journal.
+     * @param id      id of the game.
+     * @param DIM     square dimension of the board.
+     * @param seed    seed of the board.
+     * @return the moves journaled.
+     * @throws ConcentrationException if a move is refused by the board.
+     */
+    private static ConcentrationGameLog play(ConcentrationJournal journal, int id, int DIM, long seed) throws ConcentrationException {
+        ConcentrationGameBoard board = ConcentrationGameBoard.newBoard(DIM, new SplittableRandom(seed));
+        ConcentrationGameLog log = new ConcentrationGameLog(id, DIM, false, seed, 0);
+        journal.gameStarted(id, DIM, false, seed);
+        for (int cell = 0; cell < DIM * DIM; ++cell) {
+            if (board.isMatched(cell / DIM, cell % DIM)) continue;
+            int partner = partner(board, cell);
+            for (int other = cell + 1; other < DIM * DIM; ++other) {
+                if (other != partner && !board.isMatched(other / DIM, other % DIM)) {
+                    turn(journal, board, log, cell, other);
+                    break;
+                }
+            }
+            turn(journal, board, log, cell, partner);
+        }
+        assertTrue(board.gameOver());
+        journal.gameEnded(id);
+        return log;
+    }
+
+    /**
+     * Reveals two cards and journals them with their outcome.
+     *
+     * @param journal the journal.
+     * @param board   the board.
+     * @param log     the moves journaled so far.
+     * @param first   row major number of the first card.
+     * @param second  row major number of the second card.
+     * @throws ConcentrationException if a reveal is refused by the board.
+     */
+    private static void turn(ConcentrationJournal journal, ConcentrationGameBoard board, ConcentrationGameLog log,
+                             int first, int second) throws ConcentrationException {
+        int DIM = board.getDIM();
+        int id = log.getId();
+        ConcentrationGameBoard.CardMatch cardMatch = null;
+        for (int cell : new int[]{first, second}) {
+            cardMatch = board.reveal(cell / DIM, cell % DIM);
+            journal.revealed(id, 0, cell / DIM, cell % DIM, false);
+            log.add(ConcentrationJournalFormat.REVEAL, 0, cell / DIM, cell % DIM);
+        }
+        assertTrue(cardMatch.isReady());
+        journal.result(id, 0, cardMatch.isMatch());
+        log.add(cardMatch.isMatch() ? ConcentrationJournalFormat.MATCH : ConcentrationJournalFormat.MISMATCH, 0, 0, 0);
+        board.updateRevealStatus(cardMatch);
+    }
+
+    /**
+     * Finds the other card of the same symbol.
+     *
+     * @param board the board.
+     * @param cell  row major number of the card.
+     * @return row major number of its partner.
+     * @throws ConcentrationException if a card cannot be read.
+     */
+    private static int partner(ConcentrationGameBoard board, int cell) throws ConcentrationException {
+        int DIM = board.getDIM();
+        int symbol = board.getCard(cell / DIM, cell % DIM).getSymbol();
+        for (int other = 0; other < DIM * DIM; ++other) {
+            if (other != cell && board.getCard(other / DIM, other % DIM).getSymbol() == symbol) return other;
+        }
+        throw new ConcentrationException("No partner for card " + cell);
+    }
+
+    /**
+     * Reads the games of a journal, in the order they started.
+     *
+     * @param directory Directory of the segments.
+     * @return the games.
+     * @throws IOException            if a segment cannot be read.
+     * @throws ConcentrationException if the journal is malformed.
+     */
+    private static List<ConcentrationGameLog> collect(Path directory) throws IOException, ConcentrationException {
+        List<ConcentrationGameLog> logs = new ArrayList<>();
+        new ConcentrationJournalReader(directory).read(new ConcentrationJournalReader.Listener() {
+            @Override
+            public void started(int id, int DIM, boolean shared, long seed, long millis) {
+                logs.add(new ConcentrationGameLog(id, DIM, shared, seed, millis));
+            }
+
+            @Override
+            public void move(byte type, int id, int seat, int row, int col) {
+                logs.get(id - 1).add(type, seat, row, col);
+            }
+
+            @Override
+            public void seat(byte type, int id, int seat) {
+                logs.get(id - 1).add(type, seat, 0, 0);
+            }
+
+            @Override
+            public void ended(int id, long millis) {
+                logs.get(id - 1).end(millis);
+            }
+        });
+        return logs;
+    }
+}
@@ -0,0 +1,198 @@
+package concentration.solver;
+
+import concentration.common.ConcentrationException;
+import concentration.common.ConcentrationPlayer;
+import concentration.server.ConcentrationBoard;
+import concentration.server.ConcentrationGameBoard;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.random.RandomGenerator;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests of ConcentrationSolver with the greedy perfect-memory player. On seeded boards the games are checked
+ * against properties any perfect memory player has, whatever order it flips the unseen cards in: every pair takes a
+ * turn, no pair takes more than one mismatch, and a card is only revealed again once its partner has been seen. On
+ * small hand-built boards the exact number of turns is worked out by hand.
+ *
+ * @author Arya Girisha Rao, Pradeep Kumar Gontla.
+ */
+class ConcentrationSolverTest {
+
+    /**
+     * Number of seeded boards played per dimension.
+     */
+    private static final int BOARDS = 20;
+
+    @Test
+    void playsSeededBoardsWithPerfectMemory() throws ConcentrationException {
+        SplittableRandom random = new SplittableRandom(42);
+        RecordingPlayer player = new RecordingPlayer(new ConcentrationMemoryPlayer());
+        for (int DIM : new int[]{2, 4, 6, 8, 16, 64}) {
+            int pairs = DIM * DIM / 2;
+            for (int i = 0; i < BOARDS; ++i) {
+                String board = DIM + "x" + DIM + " board " + i;
+                ConcentrationGameBoard gameBoard = ConcentrationGameBoard.newBoard(DIM, random);
+                ConcentrationSolver.Result result = ConcentrationSolver.solve(gameBoard, player);
+                assertTrue(gameBoard.gameOver(), board);
+                assertTrue(result.turns() >= pairs, board);
+                assertTrue(result.mismatches() <= pairs, board);
+                assertEquals(pairs + result.mismatches(), result.turns(), board);
+                assertEquals(result.mismatches(), player.player.getMismatches(), board);
+                assertEquals(0, player.earlyRepeats, board + ": a card was revealed again before its partner was seen");
+            }
+        }
+    }
+
+    @Test
+    void playsHandBuiltBoardsInTheExpectedTurns() throws ConcentrationException {
+        // every turn flips two neighbours that match
+        assertTurns(2, 0, 2, new int[]{0, 0, 1, 1});
+        // the first turn misses, then each card meets its partner seen in that turn
+        assertTurns(3, 1, 2, new int[]{0, 1, 0, 1});
+        assertTurns(3, 1, 2, new int[]{0, 1, 1, 0});
+        // every card of the first two rows is new: four misses, then every card of the last two rows matches
+        assertTurns(12, 4, 4, new int[]{0, 1, 2, 3, 4, 5, 6, 7, 0, 1, 2, 3, 4, 5, 6, 7});
+        // the second card of the second turn completes the pair of the first turn, played right after
+        assertTurns(12, 4, 4, new int[]{0, 1, 2, 1, 0, 2, 3, 3, 4, 5, 6, 7, 4, 5, 6, 7});
+    }
+
+    /**
+     * Plays a hand-built board and checks the number of turns and mismatches.
+     *
+     * @param turns      expected number of turns.
+     * @param mismatches expected number of mismatches.
+     * @param DIM        square dimension of the board.
+     * @param symbols    symbols of the cards in row major order.
+     * @throws ConcentrationException if the board cannot be built or played.
+     */
+    private static void assertTurns(int turns, int mismatches, int DIM, int[] symbols) throws ConcentrationException {
+        ConcentrationBoard board = new ConcentrationBoard(DIM, false, new ScriptedDeal(symbols));
+        for (int cell = 0; cell < symbols.length; ++cell) {
+            assertEquals(symbols[cell], board.getCard(cell / DIM, cell % DIM).getSymbol(), "board not dealt as asked");
+        }
+        ConcentrationSolver.Result result = ConcentrationSolver.solve(board, new ConcentrationMemoryPlayer());
+        assertEquals(new ConcentrationSolver.Result(turns, mismatches), result, Arrays.toString(symbols));
+    }
+
+    /**
+     * Random generator that has the Fisher-Yates shuffle of a board deal a chosen layout: every draw picks the
+     * position of the symbol wanted at the top of the part still shuffled.
+     */
+    private static class ScriptedDeal implements RandomGenerator {
+
+        /**
+         * Symbols wanted in row major order.
+         */
+        private final int[] layout;
+
+        /**
+         * Symbols as the shuffle has them so far, starting from the pairs in order.
+         */
+        private final int[] dealt;
+
+        /**
+         * Creates the generator of a layout.
+         *
+         * @param layout symbols wanted in row major order, two of each from 0.
+         */
+        private ScriptedDeal(int[] layout) {
+            this.layout = layout;
+            this.dealt = new int[layout.length];
+            for (int i = 0; i < dealt.length; ++i) dealt[i] = i / 2;
+        }
+
+        @Override
+        public int nextInt(int bound) {
+            int top = bound - 1;
+            int j = top;
+            while (dealt[j] != layout[top]) --j;
+            dealt[j] = dealt[top];
+            dealt[top] = layout[top];
+            return j;
+        }
+
+        @Override
+        public long nextLong() {
+            throw new UnsupportedOperationException("only deals boards");
+        }
+    }
+
+    /**
+     * Player passing everything to another one and counting the cards it reveals again before their partner was
+     * seen, which a perfect memory player never does.
+     */
+    private static class RecordingPlayer implements ConcentrationPlayer {
+
+        /**
+         * The player recorded.
+         */
+        private final ConcentrationMemoryPlayer player;
+
+        /**
+         * Square dimension of the board.
+         */
+        private int DIM;
+
+        /**
+         * Symbol of every cell seen, -1 for the others.
+         */
+        private int[] cellSymbols = new int[0];
+
+        /**
+         * Number of cards seen of every symbol.
+         */
+        private int[] seenCards = new int[0];
+
+        /**
+         * Number of cards revealed again before their partner was seen in the current game.
+         */
+        private int earlyRepeats;
+
+        /**
+         * Creates a recorder.
+         *
+         * @param player the player recorded.
+         */
+        private RecordingPlayer(ConcentrationMemoryPlayer player) {
+            this.player = player;
+        }
+
+        @Override
+        public void newGame(int DIM) {
+            this.DIM = DIM;
+            cellSymbols = new int[DIM * DIM];
+            Arrays.fill(cellSymbols, -1);
+            seenCards = new int[DIM * DIM / 2];
+            earlyRepeats = 0;
+            player.newGame(DIM);
+        }
+
+        @Override
+        public int nextCell() {
+            int cell = player.nextCell();
+            int symbol = cellSymbols[cell];
+            if (symbol >= 0 && seenCards[symbol] < 2) earlyRepeats += 1;
+            return cell;
+        }
+
+        @Override
+        public void onCard(int row, int col, int symbol) throws ConcentrationException {
+            int cell = row * DIM + col;
+            if (cellSymbols[cell] < 0) {
+                cellSymbols[cell] = symbol;
+                seenCards[symbol] += 1;
+            }
+            player.onCard(row, col, symbol);
+        }
+
+        @Override
+        public void onResult(boolean match, int row1, int col1, int row2, int col2) throws ConcentrationException {
+            player.onResult(match, row1, col1, row2, col2);
+        }
+    }
+}